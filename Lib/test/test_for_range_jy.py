@@ -0,0 +1,227 @@
+"""Tests for loops over range(), which the compiler turns into counted loops.
+
+Each loop is checked against the same loop over an iterator of the range,
+which the compiler leaves to the generic iteration protocol.
+"""
+
+import builtins
+import unittest
+from test import support
+
+
+def counted(*args):
+    # one loop for each number of arguments, since only range(a[, b[, c]])
+    # spelled out is compiled as a counted loop
+    result = []
+    if len(args) == 1:
+        for i in range(args[0]):
+            result.append(i)
+    elif len(args) == 2:
+        for i in range(args[0], args[1]):
+            result.append(i)
+    else:
+        for i in range(args[0], args[1], args[2]):
+            result.append(i)
+    return result
+
+
+def generic(*args):
+    result = []
+    for i in iter(range(*args)):
+        result.append(i)
+    return result
+
+
+class Index(object):
+
+    def __init__(self, value):
+        self.value = value
+
+    def __index__(self):
+        return self.value
+
+
+class ForRangeTest(unittest.TestCase):
+
+    def assertSameLoop(self, *args):
+        self.assertEqual(counted(*args), generic(*args))
+
+    def assertSameError(self, *args):
+        errors = []
+        for loop in (counted, generic):
+            try:
+                loop(*args)
+            except Exception as e:
+                errors.append(type(e))
+            else:
+                errors.append(None)
+        self.assertEqual(errors[0], errors[1])
+        self.assertIsNot(errors[0], None)
+        return errors[0]
+
+    def test_steps(self):
+        self.assertSameLoop(5)
+        self.assertSameLoop(2, 7)
+        self.assertSameLoop(1, 10, 3)
+        self.assertSameLoop(10, 1, -3)
+        self.assertSameLoop(-5, 5, 2)
+        self.assertSameLoop(5, -5, -1)
+        self.assertEqual(counted(10, 0, -4), [10, 6, 2])
+
+    def test_zero_step(self):
+        self.assertIs(self.assertSameError(0, 10, 0), ValueError)
+
+    def test_empty(self):
+        self.assertSameLoop(0)
+        self.assertSameLoop(-3)
+        self.assertSameLoop(5, 2)
+        self.assertSameLoop(2, 5, -1)
+        self.assertSameLoop(5, 5, 3)
+        self.assertEqual(counted(5, 2), [])
+
+    def test_else_break_continue(self):
+        def loop(stop, skip, end):
+            result = []
+            for i in range(stop):
+                if i == skip:
+                    continue
+                if i == end:
+                    break
+                result.append(i)
+            else:
+                result.append("else")
+            return result
+
+        def loop_generic(stop, skip, end):
+            result = []
+            for i in iter(range(stop)):
+                if i == skip:
+                    continue
+                if i == end:
+                    break
+                result.append(i)
+            else:
+                result.append("else")
+            return result
+
+        for args in ((5, 2, 10), (5, 2, 3), (0, 1, 2), (3, 0, 0)):
+            self.assertEqual(loop(*args), loop_generic(*args))
+        self.assertEqual(loop(5, 2, 10), [0, 1, 3, 4, "else"])
+        self.assertEqual(loop(5, 2, 3), [0, 1])
+
+    def test_loop_variable_after(self):
+        def last_counted(start, stop, step):
+            for i in range(start, stop, step):
+                pass
+            return i
+
+        def last_generic(start, stop, step):
+            for i in iter(range(start, stop, step)):
+                pass
+            return i
+
+        self.assertEqual(last_counted(0, 10, 3), last_generic(0, 10, 3))
+        self.assertEqual(last_counted(0, 10, 3), 9)
+        self.assertEqual(last_counted(10, 0, -1), 1)
+        # never bound by an empty loop
+        for loop in (last_counted, last_generic):
+            try:
+                loop(0, 0, 1)
+            except UnboundLocalError:
+                pass
+            else:
+                self.fail("expected UnboundLocalError")
+
+        # the loop variable is an int like any other
+        i = None
+        for i in range(3):
+            pass
+        self.assertIs(type(i), int)
+        self.assertEqual(i, 2)
+
+    def test_index_arguments(self):
+        self.assertSameLoop(Index(4))
+        self.assertSameLoop(Index(1), Index(8), Index(3))
+        self.assertSameLoop(True, 3)
+        self.assertEqual(counted(Index(1), Index(8), Index(3)), [1, 4, 7])
+
+    def test_non_int_arguments(self):
+        self.assertSameError("3")
+        self.assertSameError(0, None)
+        self.assertSameError(0, 3, "1")
+        self.assertSameError(object())
+
+    def test_shadowed_global(self):
+        source = (
+            "def range(*args):\n"
+            "    return ['shadowed'] + list(args)\n"
+            "def loop():\n"
+            "    result = []\n"
+            "    for i in range(1, 3):\n"
+            "        result.append(i)\n"
+            "    return result\n")
+        namespace = {}
+        exec(source, namespace)
+        self.assertEqual(namespace["loop"](), ["shadowed", 1, 3])
+
+        # rebound after the loop was compiled
+        namespace["range"] = lambda *args: iter("ab")
+        self.assertEqual(namespace["loop"](), ["a", "b"])
+        del namespace["range"]
+        self.assertEqual(namespace["loop"](), [1, 2])
+
+    def test_shadowed_local(self):
+        def loop():
+            range = lambda n: [n] * 2
+            result = []
+            for i in range(7):
+                result.append(i)
+            return result
+
+        self.assertEqual(loop(), [7, 7])
+
+    def test_shadowed_builtin(self):
+        original = builtins.range
+        builtins.range = lambda *args: ["builtin"] + list(args)
+        try:
+            self.assertEqual(counted(1, 2, 3), ["builtin", 1, 2, 3])
+        finally:
+            builtins.range = original
+        self.assertEqual(counted(1, 2), [1])
+
+    def test_range_subclass_not_counted(self):
+        # a range-like callable that is not the builtin type itself
+        calls = []
+
+        def spy(*args):
+            calls.append(args)
+            return original(*args)
+
+        original = builtins.range
+        builtins.range = spy
+        try:
+            self.assertEqual(counted(3), [0, 1, 2])
+        finally:
+            builtins.range = original
+        self.assertEqual(calls, [(3,)])
+
+    def test_generator(self):
+        # not counted in generators, which must save their locals
+        def gen(n):
+            for i in range(n):
+                yield i
+
+        self.assertEqual(list(gen(4)), generic(4))
+
+    def test_large(self):
+        big = 2 ** 40
+        self.assertSameLoop(big, big + 3)
+        self.assertSameLoop(-big, -big - 7, -2)
+
+
+def test_main():
+    support.run_unittest(ForRangeTest)
+
+
+if __name__ == "__main__":
+    test_main()
@@ -6,6 +6,7 @@ import pprint
 import shlex
 import subprocess
 import sys
+import tempfile
 import unittest
 from collections import OrderedDict
 from test import support
@@ -62,7 +63,7 @@ class TestLauncher(unittest.TestCase):
         newenv = env.copy()
         for var in ("CLASSPATH",
                     "JAVA_MEM", "JAVA_HOME", "JAVA_OPTS", "JAVA_STACK",
-                    "JYTHON_HOME", "JYTHON_OPTS"):
+                    "JYTHON_HOME", "JYTHON_OPTS", "JYTHON_CDS_ARCHIVE"):
             try:
                 del newenv[var]
             except KeyError:
@@ -177,6 +178,35 @@ class TestLauncher(unittest.TestCase):
         self.assertEqual(props["under_score"], "with_underscores")
         self.assertEqual(props["starred"], "*/*/more/*/*")
 
+    def get_cds_cmdline(self, java_version, archive_exists=True):
+        """The command line with a class data sharing archive that exists or
+        not, for a JVM whose release file says it is java_version"""
+        tmp = tempfile.mkdtemp()
+        self.addCleanup(support.rmtree, tmp)
+        with open(os.path.join(tmp, "release"), "w") as release:
+            release.write('JAVA_VERSION="%s"\n' % java_version)
+        archive = os.path.join(tmp, "jython.jsa")
+        if archive_exists:
+            open(archive, "w").close()
+        env = self.get_newenv()
+        env["JAVA_HOME"] = tmp
+        env["JYTHON_CDS_ARCHIVE"] = archive
+        return archive, self.get_cmdline([launcher, "--print"], env)
+
+    def test_cds_archive(self):
+        archive, args = self.get_cds_cmdline("17.0.9")
+        self.assertIn("-XX:SharedArchiveFile=%s" % archive, args)
+        self.assertIn("-Xshare:auto", args)
+
+    def test_cds_archive_absent(self):
+        archive, args = self.get_cds_cmdline("17.0.9", archive_exists=False)
+        self.assertFalse([arg for arg in args if arg.startswith("-XX:SharedArchiveFile")])
+
+    def test_cds_archive_unsupported_jvm(self):
+        # Java 8 has no archives of application classes, and may refuse the option
+        archive, args = self.get_cds_cmdline("1.8.0_292")
+        self.assertFalse([arg for arg in args if arg.startswith("-XX:SharedArchiveFile")])
+
     def assertHelp(self, output):
         self.assertIn(
             "usage: jython [option] ... [-c cmd | -m mod | file | -] [arg] ...",
@@ -0,0 +1,113 @@
+"""Tests for the Java implementation of _lsprof, which cProfile is built on."""
+
+import _lsprof
+import cProfile
+import io
+import pstats
+import sys
+import unittest
+from test.support import run_unittest
+
+
+def fib(n):
+    return n if n < 2 else fib(n - 1) + fib(n - 2)
+
+
+def callee():
+    return 1
+
+
+def caller():
+    return fib(5) + callee()
+
+
+class ProfilerTest(unittest.TestCase):
+
+    def profile(self, func, **kwargs):
+        profiler = _lsprof.Profiler()
+        profiler.enable(**kwargs)
+        try:
+            func()
+        finally:
+            profiler.disable()
+        return profiler
+
+    def entry(self, profiler, func):
+        for entry in profiler.getstats():
+            if entry.code is func.__code__:
+                return entry
+        self.fail("no entry for %s" % func.__name__)
+
+    def test_enable_disable(self):
+        profiler = _lsprof.Profiler()
+        self.assertIsNone(sys.getprofile())
+        profiler.enable()
+        try:
+            self.assertIs(sys.getprofile(), profiler)
+            callee()
+        finally:
+            profiler.disable()
+        self.assertIsNone(sys.getprofile())
+        # not counted once disabled
+        callee()
+        self.assertEqual(self.entry(profiler, callee).callcount, 1)
+
+    def test_getstats(self):
+        profiler = self.profile(lambda: fib(5))
+        entry = self.entry(profiler, fib)
+        self.assertEqual(entry.callcount, 15)
+        self.assertEqual(entry.reccallcount, 14)
+        self.assertGreaterEqual(entry.inlinetime, 0)
+        self.assertGreaterEqual(entry.totaltime, entry.inlinetime)
+
+    def test_subcalls(self):
+        profiler = self.profile(caller)
+        calls = dict((sub.code, sub) for sub in self.entry(profiler, caller).calls)
+        self.assertEqual(calls[fib.__code__].callcount, 1)
+        self.assertEqual(calls[fib.__code__].reccallcount, 0)
+        self.assertEqual(calls[callee.__code__].callcount, 1)
+        [recursive] = self.entry(profiler, fib).calls
+        self.assertIs(recursive.code, fib.__code__)
+        self.assertEqual(recursive.callcount, 14)
+        self.assertEqual(self.entry(profiler, callee).calls, [])
+
+    def test_no_subcalls(self):
+        profiler = self.profile(caller, subcalls=False)
+        self.assertIsNone(self.entry(profiler, caller).calls)
+
+    def test_clear(self):
+        profiler = self.profile(callee)
+        profiler.clear()
+        self.assertEqual(profiler.getstats(), [])
+
+    def test_thread_disabled(self):
+        # the statistics of a thread outlive it once it has disabled the profiler
+        from java.lang import Thread
+        profiler = _lsprof.Profiler()
+        def run():
+            profiler.enable()
+            try:
+                callee()
+            finally:
+                profiler.disable()
+        thread = Thread(run)
+        thread.start()
+        thread.join()
+        self.assertEqual(self.entry(profiler, callee).callcount, 1)
+        profiler.clear()
+        self.assertEqual(profiler.getstats(), [])
+
+    def test_cprofile(self):
+        profile = cProfile.Profile()
+        self.assertEqual(profile.runcall(fib, 4), 3)
+        out = io.StringIO()
+        pstats.Stats(profile, stream=out).print_stats()
+        self.assertIn("(fib)", out.getvalue())
+
+
+def test_main():
+    run_unittest(ProfilerTest)
+
+
+if __name__ == "__main__":
+    test_main()
@@ -0,0 +1,889 @@
+package org.python.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.python.antlr.PythonTree;
+import org.python.antlr.Visitor;
+import org.python.antlr.ast.Assert;
+import org.python.antlr.ast.Assign;
+import org.python.antlr.ast.AsyncFor;
+import org.python.antlr.ast.AsyncFunctionDef;
+import org.python.antlr.ast.AsyncWith;
+import org.python.antlr.ast.Attribute;
+import org.python.antlr.ast.AugAssign;
+import org.python.antlr.ast.Await;
+import org.python.antlr.ast.BinOp;
+import org.python.antlr.ast.BoolOp;
+import org.python.antlr.ast.Break;
+import org.python.antlr.ast.Bytes;
+import org.python.antlr.ast.Call;
+import org.python.antlr.ast.ClassDef;
+import org.python.antlr.ast.Compare;
+import org.python.antlr.ast.Continue;
+import org.python.antlr.ast.Delete;
+import org.python.antlr.ast.Dict;
+import org.python.antlr.ast.DictComp;
+import org.python.antlr.ast.ExceptHandler;
+import org.python.antlr.ast.Expr;
+import org.python.antlr.ast.Expression;
+import org.python.antlr.ast.ExtSlice;
+import org.python.antlr.ast.For;
+import org.python.antlr.ast.FormattedValue;
+import org.python.antlr.ast.FunctionDef;
+import org.python.antlr.ast.GeneratorExp;
+import org.python.antlr.ast.If;
+import org.python.antlr.ast.IfExp;
+import org.python.antlr.ast.Index;
+import org.python.antlr.ast.Interactive;
+import org.python.antlr.ast.JoinedStr;
+import org.python.antlr.ast.Lambda;
+import org.python.antlr.ast.ListComp;
+import org.python.antlr.ast.Name;
+import org.python.antlr.ast.NameConstant;
+import org.python.antlr.ast.Num;
+import org.python.antlr.ast.Pass;
+import org.python.antlr.ast.Raise;
+import org.python.antlr.ast.Return;
+import org.python.antlr.ast.Set;
+import org.python.antlr.ast.SetComp;
+import org.python.antlr.ast.Slice;
+import org.python.antlr.ast.Starred;
+import org.python.antlr.ast.Str;
+import org.python.antlr.ast.Subscript;
+import org.python.antlr.ast.Suite;
+import org.python.antlr.ast.TryExcept;
+import org.python.antlr.ast.TryFinally;
+import org.python.antlr.ast.Tuple;
+import org.python.antlr.ast.UnaryOp;
+import org.python.antlr.ast.While;
+import org.python.antlr.ast.With;
+import org.python.antlr.ast.Yield;
+import org.python.antlr.ast.YieldFrom;
+import org.python.antlr.ast.arg;
+import org.python.antlr.ast.arguments;
+import org.python.antlr.ast.cmpopType;
+import org.python.antlr.ast.comprehension;
+import org.python.antlr.ast.expr_contextType;
+import org.python.antlr.ast.keyword;
+import org.python.antlr.ast.withitem;
+import org.python.antlr.base.excepthandler;
+import org.python.antlr.base.expr;
+import org.python.antlr.base.mod;
+import org.python.antlr.base.slice;
+import org.python.antlr.base.stmt;
+import org.python.core.Options;
+import org.python.core.PyBoolean;
+import org.python.core.PyBytes;
+import org.python.core.PyComplex;
+import org.python.core.PyException;
+import org.python.core.PyFloat;
+import org.python.core.PyLong;
+import org.python.core.PyObject;
+import org.python.core.PySequence;
+import org.python.core.PyUnicode;
+
+/**
+ * The AST optimizer run between parsing and {@link CodeCompiler}. It rewrites the tree in place:
+ * <ul>
+ * <li>folds binary and unary operations on numeric, str and bytes literals, such as
+ * <code>2**10</code> or <code>'a' + 'b'</code>;</li>
+ * <li>turns list displays of constants used as the right hand side of <code>in</code> and
+ * <code>not in</code> into tuples, which the code generator (like constant tuples and sets in
+ * the same position) loads from a single module constant;</li>
+ * <li>removes the dead branch of <code>if</code>, <code>while</code> and conditional expressions
+ * with a constant test. <code>__debug__</code> is left alone, since compiled modules are cached
+ * whatever the <code>-O</code> level;</li>
+ * <li>drops statements following a <code>return</code>, <code>raise</code>,
+ * <code>break</code> or <code>continue</code> in the same block.</li>
+ * </ul>
+ * Folding is bounded like CPython's: operations are only folded when the result is an int of at
+ * most {@value #MAX_INT_BITS} bits or a str or bytes of at most {@value #MAX_STR_SIZE} items, and
+ * never when evaluating them raises.
+ * <p>
+ * The optimizer is enabled by default and can be switched off with the registry property
+ * <code>python.compile.optimize</code>. Further passes can be added with
+ * {@link #register(ASTTransformer)}; they run after the built-in one, whether or not it is
+ * enabled.
+ */
+public class ASTOptimizer extends Visitor implements ASTTransformer {
+
+    static final int MAX_INT_BITS = 128;
+
+    static final int MAX_STR_SIZE = 4096;
+
+    private static final List<ASTTransformer> transformers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Add a transformer to run on every module compiled from now on.
+     */
+    public static void register(ASTTransformer transformer) {
+        transformers.add(transformer);
+    }
+
+    public static void unregister(ASTTransformer transformer) {
+        transformers.remove(transformer);
+    }
+
+    /**
+     * Run the built-in optimizer, if enabled, followed by all registered transformers.
+     */
+    static void optimize(mod tree, CompilationContext context) throws Exception {
+        if (Options.compileOptimize) {
+            new ASTOptimizer().transform(tree, context);
+        }
+        for (ASTTransformer transformer : transformers) {
+            transformer.transform(tree, context);
+        }
+    }
+
+    @Override
+    public void transform(mod tree, CompilationContext context) throws Exception {
+        visit(tree);
+    }
+
+    /**
+     * Whether <code>node</code> is a literal, or a tuple of them, that the code generator can
+     * turn into a module constant.
+     */
+    static boolean isConstant(expr node) {
+        if (node instanceof Num) {
+            Object n = ((Num) node).getInternalN();
+            return n instanceof PyLong || n instanceof PyFloat || n instanceof PyComplex;
+        }
+        if (node instanceof Str) {
+            return ((Str) node).getInternalS() instanceof PyUnicode;
+        }
+        if (node instanceof Bytes || singletonName(node) != null) {
+            return true;
+        }
+        if (node instanceof Tuple && ((Tuple) node).getInternalCtx() == expr_contextType.Load) {
+            return allConstant(((Tuple) node).getInternalElts());
+        }
+        return false;
+    }
+
+    /**
+     * "None", "True" or "False" if <code>node</code> loads that singleton, otherwise null. The
+     * parser produces plain names for these, since they cannot be rebound.
+     */
+    static String singletonName(expr node) {
+        String id;
+        if (node instanceof NameConstant) {
+            id = ((NameConstant) node).getInternalValue();
+        } else if (node instanceof Name && ((Name) node).getInternalCtx() == expr_contextType.Load) {
+            id = ((Name) node).getInternalId();
+        } else {
+            return null;
+        }
+        return id.equals("None") || id.equals("True") || id.equals("False") ? id : null;
+    }
+
+    static boolean allConstant(List<expr> elts) {
+        for (expr e : elts) {
+            if (!isConstant(e)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Optimize the expression <code>node</code>, which may be null.
+     *
+     * @return the expression to put in its place
+     */
+    private expr optimize(expr node) throws Exception {
+        return node == null ? null : (expr) visit(node);
+    }
+
+    /**
+     * Optimize a list of expressions, replacing those that changed.
+     */
+    private void optimizeAll(List<expr> nodes) throws Exception {
+        if (nodes == null) {
+            return;
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            expr node = nodes.get(i);
+            expr replacement = optimize(node);
+            if (replacement != node) {
+                nodes.set(i, replacement);
+            }
+        }
+    }
+
+    /**
+     * Optimize a block of statements, rewriting it in place. Never leaves a non-empty block
+     * empty, since that would not be valid in most positions, and never lets a string that was
+     * not the first statement become it, since it would then be taken for the docstring.
+     */
+    private void optimizeBody(List<stmt> body) throws Exception {
+        if (body == null || body.isEmpty()) {
+            return;
+        }
+        List<stmt> result = new ArrayList<>(body.size());
+        boolean changed = false;
+        for (stmt s : body) {
+            visit(s);
+            List<stmt> replacement = visitStatement(s);
+            if (replacement == null) {
+                result.add(s);
+            } else {
+                result.addAll(replacement);
+                changed = true;
+            }
+            if (endsBlock(result)) {
+                changed |= s != body.get(body.size() - 1);
+                break;
+            }
+        }
+        if (result.isEmpty() || result.get(0) != body.get(0) && isString(result.get(0))) {
+            result.add(0, new Pass(body.get(0)));
+        }
+        if (changed) {
+            body.clear();
+            body.addAll(result);
+        }
+    }
+
+    private static boolean isString(stmt s) {
+        return s instanceof Expr && ((Expr) s).getInternalValue() instanceof Str;
+    }
+
+    private static boolean endsBlock(List<stmt> block) {
+        if (block.isEmpty()) {
+            return false;
+        }
+        stmt last = block.get(block.size() - 1);
+        return last instanceof Return || last instanceof Raise || last instanceof Break
+                || last instanceof Continue;
+    }
+
+    /**
+     * Statement level rewrites, after the children of <code>s</code> have been optimized.
+     *
+     * @return the statements replacing <code>s</code>, or null to keep it
+     */
+    private List<stmt> visitStatement(stmt s) {
+        if (s instanceof If) {
+            If node = (If) s;
+            Boolean test = truth(node.getInternalTest());
+            if (test != null) {
+                return test ? node.getInternalBody() : node.getInternalOrelse();
+            }
+        } else if (s instanceof While) {
+            While node = (While) s;
+            if (Boolean.FALSE.equals(truth(node.getInternalTest()))) {
+                return node.getInternalOrelse();
+            }
+        }
+        return null;
+    }
+
+    private void optimizeArguments(arguments args) throws Exception {
+        if (args == null) {
+            return;
+        }
+        for (arg a : args.getInternalArgs()) {
+            optimizeArg(a);
+        }
+        optimizeArg(args.getInternalVararg());
+        for (arg a : args.getInternalKwonlyargs()) {
+            optimizeArg(a);
+        }
+        optimizeArg(args.getInternalKwarg());
+        optimizeAll(args.getInternalKw_defaults());
+        optimizeAll(args.getInternalDefaults());
+    }
+
+    private void optimizeArg(arg a) throws Exception {
+        if (a != null) {
+            a.setAnnotation(optimize(a.getInternalAnnotation()));
+        }
+    }
+
+    private void optimizeKeywords(List<keyword> keywords) throws Exception {
+        for (keyword k : keywords) {
+            k.setValue(optimize(k.getInternalValue()));
+        }
+    }
+
+    private void optimizeGenerators(List<comprehension> generators) throws Exception {
+        for (comprehension c : generators) {
+            c.setTarget(optimize(c.getInternalTarget()));
+            c.setIter(optimize(c.getInternalIter()));
+            optimizeAll(c.getInternalIfs());
+        }
+    }
+
+    private void optimizeItems(List<withitem> items) throws Exception {
+        for (withitem item : items) {
+            item.setContext_expr(optimize(item.getInternalContext_expr()));
+            item.setOptional_vars(optimize(item.getInternalOptional_vars()));
+        }
+    }
+
+    /** Nodes without children to optimize are kept as they are. */
+    @Override
+    protected Object unhandled_node(PythonTree node) throws Exception {
+        return node;
+    }
+
+    @Override
+    public Object visitModule(org.python.antlr.ast.Module node) throws Exception {
+        optimizeBody(node.getInternalBody());
+        return node;
+    }
+
+    @Override
+    public Object visitInteractive(Interactive node) throws Exception {
+        optimizeBody(node.getInternalBody());
+        return node;
+    }
+
+    @Override
+    public Object visitExpression(Expression node) throws Exception {
+        node.setBody(optimize(node.getInternalBody()));
+        return node;
+    }
+
+    @Override
+    public Object visitSuite(Suite node) throws Exception {
+        optimizeBody(node.getInternalBody());
+        return node;
+    }
+
+    @Override
+    public Object visitFunctionDef(FunctionDef node) throws Exception {
+        optimizeArguments(node.getInternalArgs());
+        optimizeBody(node.getInternalBody());
+        optimizeAll(node.getInternalDecorator_list());
+        node.setReturns(optimize(node.getInternalReturns()));
+        return node;
+    }
+
+    @Override
+    public Object visitAsyncFunctionDef(AsyncFunctionDef node) throws Exception {
+        optimizeArguments(node.getInternalArgs());
+        optimizeBody(node.getInternalBody());
+        optimizeAll(node.getInternalDecorator_list());
+        node.setReturns(optimize(node.getInternalReturns()));
+        return node;
+    }
+
+    @Override
+    public Object visitClassDef(ClassDef node) throws Exception {
+        optimizeAll(node.getInternalBases());
+        optimizeKeywords(node.getInternalKeywords());
+        optimizeBody(node.getInternalBody());
+        optimizeAll(node.getInternalDecorator_list());
+        return node;
+    }
+
+    @Override
+    public Object visitReturn(Return node) throws Exception {
+        node.setValue(optimize(node.getInternalValue()));
+        return node;
+    }
+
+    @Override
+    public Object visitDelete(Delete node) throws Exception {
+        optimizeAll(node.getInternalTargets());
+        return node;
+    }
+
+    @Override
+    public Object visitAssign(Assign node) throws Exception {
+        optimizeAll(node.getInternalTargets());
+        node.setValue(optimize(node.getInternalValue()));
+        return node;
+    }
+
+    @Override
+    public Object visitAugAssign(AugAssign node) throws Exception {
+        node.setTarget(optimize(node.getInternalTarget()));
+        node.setValue(optimize(node.getInternalValue()));
+        return node;
+    }
+
+    @Override
+    public Object visitFor(For node) throws Exception {
+        node.setTarget(optimize(node.getInternalTarget()));
+        node.setIter(optimize(node.getInternalIter()));
+        optimizeBody(node.getInternalBody());
+        optimizeBody(node.getInternalOrelse());
+        return node;
+    }
+
+    @Override
+    public Object visitAsyncFor(AsyncFor node) throws Exception {
+        node.setTarget(optimize(node.getInternalTarget()));
+        node.setIter(optimize(node.getInternalIter()));
+        optimizeBody(node.getInternalBody());
+        optimizeBody(node.getInternalOrelse());
+        return node;
+    }
+
+    @Override
+    public Object visitWhile(While node) throws Exception {
+        node.setTest(optimize(node.getInternalTest()));
+        optimizeBody(node.getInternalBody());
+        optimizeBody(node.getInternalOrelse());
+        return node;
+    }
+
+    @Override
+    public Object visitIf(If node) throws Exception {
+        node.setTest(optimize(node.getInternalTest()));
+        optimizeBody(node.getInternalBody());
+        optimizeBody(node.getInternalOrelse());
+        return node;
+    }
+
+    @Override
+    public Object visitWith(With node) throws Exception {
+        optimizeItems(node.getInternalItems());
+        optimizeBody(node.getInternalBody());
+        return node;
+    }
+
+    @Override
+    public Object visitAsyncWith(AsyncWith node) throws Exception {
+        optimizeItems(node.getInternalItems());
+        optimizeBody(node.getInternalBody());
+        return node;
+    }
+
+    @Override
+    public Object visitRaise(Raise node) throws Exception {
+        node.setExc(optimize(node.getInternalExc()));
+        node.setCause(optimize(node.getInternalCause()));
+        return node;
+    }
+
+    @Override
+    public Object visitTryExcept(TryExcept node) throws Exception {
+        optimizeBody(node.getInternalBody());
+        for (excepthandler handler : node.getInternalHandlers()) {
+            visit(handler);
+        }
+        optimizeBody(node.getInternalOrelse());
+        return node;
+    }
+
+    @Override
+    public Object visitExceptHandler(ExceptHandler node) throws Exception {
+        node.setExceptType(optimize(node.getInternalType()));
+        optimizeBody(node.getInternalBody());
+        return node;
+    }
+
+    @Override
+    public Object visitTryFinally(TryFinally node) throws Exception {
+        optimizeBody(node.getInternalBody());
+        optimizeBody(node.getInternalFinalbody());
+        return node;
+    }
+
+    @Override
+    public Object visitAssert(Assert node) throws Exception {
+        node.setTest(optimize(node.getInternalTest()));
+        node.setMsg(optimize(node.getInternalMsg()));
+        return node;
+    }
+
+    @Override
+    public Object visitExpr(Expr node) throws Exception {
+        node.setValue(optimize(node.getInternalValue()));
+        return node;
+    }
+
+    @Override
+    public Object visitBoolOp(BoolOp node) throws Exception {
+        optimizeAll(node.getInternalValues());
+        return node;
+    }
+
+    @Override
+    public Object visitBinOp(BinOp node) throws Exception {
+        node.setLeft(optimize(node.getInternalLeft()));
+        node.setRight(optimize(node.getInternalRight()));
+        return foldBinOp(node);
+    }
+
+    @Override
+    public Object visitUnaryOp(UnaryOp node) throws Exception {
+        node.setOperand(optimize(node.getInternalOperand()));
+        return foldUnaryOp(node);
+    }
+
+    @Override
+    public Object visitLambda(Lambda node) throws Exception {
+        optimizeArguments(node.getInternalArgs());
+        node.setBody(optimize(node.getInternalBody()));
+        return node;
+    }
+
+    @Override
+    public Object visitIfExp(IfExp node) throws Exception {
+        node.setTest(optimize(node.getInternalTest()));
+        node.setBody(optimize(node.getInternalBody()));
+        node.setOrelse(optimize(node.getInternalOrelse()));
+        Boolean test = truth(node.getInternalTest());
+        if (test != null) {
+            return test ? node.getInternalBody() : node.getInternalOrelse();
+        }
+        return node;
+    }
+
+    @Override
+    public Object visitDict(Dict node) throws Exception {
+        optimizeAll(node.getInternalKeys());
+        optimizeAll(node.getInternalValues());
+        return node;
+    }
+
+    @Override
+    public Object visitSet(Set node) throws Exception {
+        optimizeAll(node.getInternalElts());
+        return node;
+    }
+
+    @Override
+    public Object visitListComp(ListComp node) throws Exception {
+        node.setElt(optimize(node.getInternalElt()));
+        optimizeGenerators(node.getInternalGenerators());
+        return node;
+    }
+
+    @Override
+    public Object visitSetComp(SetComp node) throws Exception {
+        node.setElt(optimize(node.getInternalElt()));
+        optimizeGenerators(node.getInternalGenerators());
+        return node;
+    }
+
+    @Override
+    public Object visitDictComp(DictComp node) throws Exception {
+        node.setKey(optimize(node.getInternalKey()));
+        node.setValue(optimize(node.getInternalValue()));
+        optimizeGenerators(node.getInternalGenerators());
+        return node;
+    }
+
+    @Override
+    public Object visitGeneratorExp(GeneratorExp node) throws Exception {
+        node.setElt(optimize(node.getInternalElt()));
+        optimizeGenerators(node.getInternalGenerators());
+        return node;
+    }
+
+    @Override
+    public Object visitAwait(Await node) throws Exception {
+        node.setValue(optimize(node.getInternalValue()));
+        return node;
+    }
+
+    @Override
+    public Object visitYield(Yield node) throws Exception {
+        node.setValue(optimize(node.getInternalValue()));
+        return node;
+    }
+
+    @Override
+    public Object visitYieldFrom(YieldFrom node) throws Exception {
+        node.setValue(optimize(node.getInternalValue()));
+        return node;
+    }
+
+    @Override
+    public Object visitCompare(Compare node) throws Exception {
+        node.setLeft(optimize(node.getInternalLeft()));
+        optimizeAll(node.getInternalComparators());
+        promoteMembership(node);
+        return node;
+    }
+
+    @Override
+    public Object visitCall(Call node) throws Exception {
+        node.setFunc(optimize(node.getInternalFunc()));
+        optimizeAll(node.getInternalArgs());
+        optimizeKeywords(node.getInternalKeywords());
+        return node;
+    }
+
+    @Override
+    public Object visitFormattedValue(FormattedValue node) throws Exception {
+        node.setValue(optimize(node.getInternalValue()));
+        node.setFormat_spec(optimize(node.getInternalFormat_spec()));
+        return node;
+    }
+
+    @Override
+    public Object visitJoinedStr(JoinedStr node) throws Exception {
+        optimizeAll(node.getInternalValues());
+        return node;
+    }
+
+    @Override
+    public Object visitAttribute(Attribute node) throws Exception {
+        node.setValue(optimize(node.getInternalValue()));
+        return node;
+    }
+
+    @Override
+    public Object visitSubscript(Subscript node) throws Exception {
+        node.setValue(optimize(node.getInternalValue()));
+        visit(node.getInternalSlice());
+        return node;
+    }
+
+    @Override
+    public Object visitStarred(Starred node) throws Exception {
+        node.setValue(optimize(node.getInternalValue()));
+        return node;
+    }
+
+    @Override
+    public Object visitList(org.python.antlr.ast.List node) throws Exception {
+        optimizeAll(node.getInternalElts());
+        return node;
+    }
+
+    @Override
+    public Object visitTuple(Tuple node) throws Exception {
+        optimizeAll(node.getInternalElts());
+        return node;
+    }
+
+    @Override
+    public Object visitSlice(Slice node) throws Exception {
+        node.setLower(optimize(node.getInternalLower()));
+        node.setUpper(optimize(node.getInternalUpper()));
+        node.setStep(optimize(node.getInternalStep()));
+        return node;
+    }
+
+    @Override
+    public Object visitExtSlice(ExtSlice node) throws Exception {
+        for (slice dim : node.getInternalDims()) {
+            visit(dim);
+        }
+        return node;
+    }
+
+    @Override
+    public Object visitIndex(Index node) throws Exception {
+        node.setValue(optimize(node.getInternalValue()));
+        return node;
+    }
+
+    /**
+     * The truth value of a constant test, or null if it is not known at compile time.
+     */
+    private static Boolean truth(expr test) {
+        String singleton = singletonName(test);
+        if (singleton != null) {
+            return singleton.equals("True");
+        }
+        PyObject value = constantValue(test);
+        return value == null ? null : value.__bool__();
+    }
+
+    /**
+     * The value of a numeric, str or bytes literal, or null if <code>node</code> is something
+     * else. Complex literals are left alone, since only imaginary constants can be emitted.
+     */
+    private static PyObject constantValue(expr node) {
+        if (node instanceof Num) {
+            Object n = ((Num) node).getInternalN();
+            if (n instanceof PyLong || n instanceof PyFloat) {
+                return (PyObject) n;
+            }
+        } else if (node instanceof Str) {
+            Object s = ((Str) node).getInternalS();
+            if (s instanceof PyUnicode) {
+                return (PyUnicode) s;
+            }
+        } else if (node instanceof Bytes) {
+            return new PyBytes(((Bytes) node).getInternalS());
+        }
+        return null;
+    }
+
+    private static boolean isLong(PyObject value) {
+        return value.getType() == PyLong.TYPE;
+    }
+
+    private static int bits(PyObject value) {
+        return ((PyLong) value).getValue().bitLength();
+    }
+
+    private static expr foldBinOp(BinOp node) {
+        PyObject left = constantValue(node.getInternalLeft());
+        PyObject right = constantValue(node.getInternalRight());
+        if (left == null || right == null) {
+            return node;
+        }
+        PyObject result;
+        try {
+            switch (node.getInternalOp()) {
+                case Add:
+                    result = left._add(right);
+                    break;
+                case Sub:
+                    result = left._sub(right);
+                    break;
+                case Mult:
+                    if (!safeMultiply(left, right)) {
+                        return node;
+                    }
+                    result = left._mul(right);
+                    break;
+                case Div:
+                    result = left._truediv(right);
+                    break;
+                case FloorDiv:
+                    result = left._floordiv(right);
+                    break;
+                case Mod:
+                    // leave string formatting to run time
+                    if (left instanceof PySequence) {
+                        return node;
+                    }
+                    result = left._mod(right);
+                    break;
+                case Pow:
+                    if (isLong(left) && isLong(right)
+                            && (long) bits(left) * right.asLong() > MAX_INT_BITS) {
+                        return node;
+                    }
+                    result = left._pow(right);
+                    break;
+                case LShift:
+                    if (isLong(left) && isLong(right)
+                            && bits(left) + right.asLong() > MAX_INT_BITS) {
+                        return node;
+                    }
+                    result = left._lshift(right);
+                    break;
+                case RShift:
+                    result = left._rshift(right);
+                    break;
+                case BitOr:
+                    result = left._or(right);
+                    break;
+                case BitXor:
+                    result = left._xor(right);
+                    break;
+                case BitAnd:
+                    result = left._and(right);
+                    break;
+                default:
+                    return node;
+            }
+        } catch (PyException pye) {
+            // raise at run time, as the unoptimized code would
+            return node;
+        }
+        expr folded = toConstant(node, result);
+        return folded != null ? folded : node;
+    }
+
+    /**
+     * Guard against repeating a sequence or multiplying ints into something too large.
+     */
+    private static boolean safeMultiply(PyObject left, PyObject right) {
+        if (isLong(left) && isLong(right)) {
+            return bits(left) + bits(right) <= MAX_INT_BITS;
+        }
+        PyObject seq = left instanceof PySequence ? left : right;
+        PyObject count = seq == left ? right : left;
+        if (seq instanceof PySequence && isLong(count)) {
+            if (bits(count) > 31) {
+                return false;
+            }
+            return (long) seq.__len__() * count.asInt() <= MAX_STR_SIZE;
+        }
+        return true;
+    }
+
+    private static expr foldUnaryOp(UnaryOp node) {
+        PyObject operand = constantValue(node.getInternalOperand());
+        if (operand == null) {
+            return node;
+        }
+        PyObject result;
+        try {
+            switch (node.getInternalOp()) {
+                case USub:
+                    result = operand.__neg__();
+                    break;
+                case UAdd:
+                    result = operand.__pos__();
+                    break;
+                case Invert:
+                    result = operand.__invert__();
+                    break;
+                case Not:
+                    result = operand.__not__();
+                    break;
+                default:
+                    return node;
+            }
+        } catch (PyException pye) {
+            return node;
+        }
+        expr folded = toConstant(node, result);
+        return folded != null ? folded : node;
+    }
+
+    /**
+     * Make a literal node for <code>value</code>, positioned at <code>node</code>, or return null
+     * if the value is of an unsupported type or too large to be worth a constant.
+     */
+    private static expr toConstant(PythonTree node, PyObject value) {
+        if (value instanceof PyBoolean) {
+            return new NameConstant(node, value.__bool__() ? "True" : "False");
+        }
+        if (isLong(value)) {
+            return bits(value) <= MAX_INT_BITS ? new Num(node, value) : null;
+        }
+        if (value.getType() == PyFloat.TYPE) {
+            return new Num(node, value);
+        }
+        if (value.getType() == PyUnicode.TYPE) {
+            return value.__len__() <= MAX_STR_SIZE ? new Str(node, value) : null;
+        }
+        if (value.getType() == PyBytes.TYPE) {
+            return value.__len__() <= MAX_STR_SIZE
+                    ? new Bytes(node, ((PyBytes) value).getString()) : null;
+        }
+        return null;
+    }
+
+    /**
+     * <code>x in [1, 2, 3]</code> becomes <code>x in (1, 2, 3)</code>; the code generator loads a
+     * tuple of constants (or, for a set display, a frozenset) from a single module constant. Only
+     * the last comparator is considered, since in a chain the others are also compared with what
+     * follows them.
+     */
+    private static void promoteMembership(Compare node) {
+        List<cmpopType> ops = node.getInternalOps();
+        List<expr> comparators = node.getInternalComparators();
+        int last = ops.size() - 1;
+        expr comparator = comparators.get(last);
+        if (isMembershipTest(ops.get(last)) && comparator instanceof org.python.antlr.ast.List) {
+            List<expr> elts = ((org.python.antlr.ast.List) comparator).getInternalElts();
+            if (allConstant(elts)) {
+                comparators.set(last, new Tuple(comparator, elts, expr_contextType.Load));
+            }
+        }
+    }
+
+    static boolean isMembershipTest(cmpopType op) {
+        return op == cmpopType.In || op == cmpopType.NotIn;
+    }
+}
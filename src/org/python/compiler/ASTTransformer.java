@@ -0,0 +1,17 @@
+package org.python.compiler;
+
+import org.python.antlr.base.mod;
+
+/**
+ * An AST-to-AST pass run by {@link Module#compile} between scope analysis and code generation.
+ * Transformers rewrite the tree in place: the root <code>mod</code> must be kept, since the scope
+ * information of the module is keyed on it, but any node below it may be replaced. Scopes have
+ * already been computed, so a transformer may drop code but must not introduce new bindings,
+ * functions, classes or comprehensions.
+ *
+ * @see ASTOptimizer#register(ASTTransformer)
+ */
+public interface ASTTransformer {
+
+    void transform(mod tree, CompilationContext context) throws Exception;
+}
@@ -11,6 +11,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
@@ -32,6 +33,7 @@ public class ClassFile
     List<MethodVisitor> methodVisitors;
     List<FieldVisitor> fieldVisitors;
     List<AnnotationVisitor> annotationVisitors;
+    List<Attribute> attributes;
 
     public static String fixName(String n) {
         if (n.indexOf('.') == -1)
@@ -90,6 +92,7 @@ public class ClassFile
         methodVisitors = Collections.synchronizedList(new ArrayList<MethodVisitor>());
         fieldVisitors = Collections.synchronizedList(new ArrayList<FieldVisitor>());
         annotationVisitors = Collections.synchronizedList(new ArrayList<AnnotationVisitor>());
+        attributes = Collections.synchronizedList(new ArrayList<Attribute>());
     }
 
     public void setSource(String name) {
@@ -159,6 +162,10 @@ public class ClassFile
         annotationVisitors.add(av);
     }
     
+    public void addAttribute(Attribute attribute) {
+        attributes.add(attribute);
+    }
+
     public void addField(String name, String type, int access)
         throws IOException
     {
@@ -209,6 +216,9 @@ public class ClassFile
             cw.visitSource(sfilename, null);
         }
         endClassAnnotations();
+        for (Attribute attribute : attributes) {
+            cw.visitAttribute(attribute);
+        }
         endFields();
         endMethods();
 
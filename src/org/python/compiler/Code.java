@@ -32,6 +32,9 @@ public class Code extends MethodVisitor implements Opcodes {
     }
     
     public int getLocal(String type) {
+        if (isWide(type)) {
+            return getWideLocal(type);
+        }
         //Could optimize this to skip arguments?
         for(int l = argcount; l<nlocals; l++) {
             if (locals[l] == null) {
@@ -52,10 +55,38 @@ public class Code extends MethodVisitor implements Opcodes {
     public void freeLocal(int l) {
         if (locals[l] == null) {
             System.out.println("Double free:" + l);
+        } else if (isWide(locals[l])) {
+            locals[l + 1] = null;
         }
         locals[l] = null;
     }
 
+    /** Whether a local of this type takes two slots. */
+    private static boolean isWide(String type) {
+        return type.equals("J") || type.equals("D");
+    }
+
+    /**
+     * Allocate two consecutive slots for a long or double. Such locals cannot be saved across a
+     * yield, so they must not be live in generator bodies.
+     */
+    private int getWideLocal(String type) {
+        for (int l = argcount; l < nlocals - 1; l++) {
+            if (locals[l] == null && locals[l + 1] == null) {
+                locals[l] = locals[l + 1] = type;
+                return l;
+            }
+        }
+        if (nlocals + 1 >= locals.length) {
+            String[] new_locals = new String[locals.length*2];
+            System.arraycopy(locals, 0, new_locals, 0, locals.length);
+            locals = new_locals;
+        }
+        locals[nlocals] = locals[nlocals + 1] = type;
+        nlocals += 2;
+        return nlocals-2;
+    }
+
 
     public int getFinallyLocal(String type) {
         int l = getLocal(type);
@@ -459,6 +490,14 @@ public class Code extends MethodVisitor implements Opcodes {
         mv.visitInsn(IINC);
     }
 
+    public void iinc(int index, int increment) {
+        mv.visitIincInsn(index, increment);
+    }
+
+    public void i2l() {
+        mv.visitInsn(I2L);
+    }
+
     public void iload(int index) {
         mv.visitVarInsn(ILOAD, index);
     }
@@ -503,10 +542,18 @@ public class Code extends MethodVisitor implements Opcodes {
         mv.visitLabel(label);
     }
 
+    public void ladd() {
+        mv.visitInsn(LADD);
+    }
+
     public void lconst_0() {
         mv.visitInsn(LCONST_0);
     }
 
+    public void lconst_1() {
+        mv.visitInsn(LCONST_1);
+    }
+
     public void ldc(Object cst) {
         if (cst instanceof String) {
             String value = (String) cst;
@@ -544,6 +591,10 @@ public class Code extends MethodVisitor implements Opcodes {
         mv.visitInsn(LRETURN);
     }
 
+    public void lstore(int index) {
+        mv.visitVarInsn(LSTORE, index);
+    }
+
     public void newarray(int atype) {
         mv.visitIntInsn(NEWARRAY, atype);
     }
@@ -602,7 +653,9 @@ public class Code extends MethodVisitor implements Opcodes {
     }
     
     public void setline(int line) {
-        mv.visitLineNumber(line, new Label());
+        Label start = new Label();
+        mv.visitLabel(start);
+        mv.visitLineNumber(line, start);
     }
 
     @Override
@@ -30,10 +30,12 @@ import org.python.core.CompareOp;
 import org.python.core.CompilerFlags;
 import org.python.core.ContextGuard;
 import org.python.core.ContextManager;
+import org.python.core.Options;
 import org.python.core.PyCoroutine;
 import org.python.core.PyGenerator;
 import org.python.core.imp;
 import org.python.core.Py;
+import org.python.core.PyBoolean;
 import org.python.core.PyCode;
 import org.python.core.PyComplex;
 import org.python.core.PyDictionary;
@@ -45,11 +47,14 @@ import org.python.core.PyInteger;
 import org.python.core.PyList;
 import org.python.core.PyLong;
 import org.python.core.PyObject;
+import org.python.core.PyRange;
 import org.python.core.PySet;
 import org.python.core.PySlice;
 import org.python.core.PyTuple;
+import org.python.core.PyType;
 import org.python.core.PyUnicode;
 import org.python.core.ThreadState;
+import org.python.core.TraceFunction;
 import org.python.core.imp;
 
 import java.io.IOException;
@@ -156,9 +161,22 @@ public class CodeCompiler extends Visitor implements Opcodes, ClassConstants {
     public void setline(int line) throws Exception {
         if (module.linenumbers) {
             code.setline(line);
+            // The line number table gives the line of a frame on the Java stack, so the frame
+            // only needs telling when it is traced. Generator frames are not on the stack while
+            // suspended, and so always keep their line.
+            Label untraced = null;
+            if (module.lazyLines && !my_scope.generator && !my_scope.async) {
+                untraced = new Label();
+                loadFrame();
+                code.getfield(p(PyFrame.class), "tracefunc", ci(TraceFunction.class));
+                code.ifnull(untraced);
+            }
             loadFrame();
             code.iconst(line);
             code.invokevirtual(p(PyFrame.class), "setline", sig(Void.TYPE, Integer.TYPE));
+            if (untraced != null) {
+                code.label(untraced);
+            }
         }
     }
 
@@ -1371,14 +1389,25 @@ public class CodeCompiler extends Visitor implements Opcodes, ClassConstants {
         Label handler = new Label();
         setline(node);
 
-        // parse the list
-        visit(node.getInternalIter());
+        Call range = countedRange(node);
+        int counter = 0, step = 0, remaining = 0;
+        int iter_tmp;
+        if (range != null) {
+            counter = code.getLocal("J");
+            step = code.getLocal("J");
+            remaining = code.getLocal("I");
+            iter_tmp = code.getLocal(p(PyObject.class));
+            setupCountedRange(range, iter_tmp, counter, step, remaining);
+        } else {
+            // parse the list
+            visit(node.getInternalIter());
 
-        int iter_tmp = code.getLocal(p(PyObject.class));
+            iter_tmp = code.getLocal(p(PyObject.class));
 
-        // set up the loop iterator
-        code.invokevirtual(p(PyObject.class), "__iter__", sig(PyObject.class));
-        code.astore(iter_tmp);
+            // set up the loop iterator
+            code.invokevirtual(p(PyObject.class), "__iter__", sig(PyObject.class));
+            code.astore(iter_tmp);
+        }
 
         int expr_tmp = code.getLocal(p(PyObject.class));
         // do check at end of loop. Saves one opcode ;-)
@@ -1396,6 +1425,24 @@ public class CodeCompiler extends Visitor implements Opcodes, ClassConstants {
         code.label(next_loop);
         code.label(start);
         setline(node);
+        if (range != null) {
+            // a null iterator means range was the builtin: count down instead
+            Label iterate = new Label();
+            code.aload(iter_tmp);
+            code.ifnonnull(iterate);
+            code.iload(remaining);
+            code.ifle(finish_loop);
+            code.iinc(remaining, -1);
+            code.lload(counter);
+            code.invokestatic(p(Py.class), "newInteger", sig(PyObject.class, Long.TYPE));
+            code.astore(expr_tmp);
+            code.lload(counter);
+            code.lload(step);
+            code.ladd();
+            code.lstore(counter);
+            code.goto_(start_loop);
+            code.label(iterate);
+        }
         // get the next element from the list
         code.aload(iter_tmp);
         code.invokevirtual(p(PyObject.class), "__next__", sig(PyObject.class));
@@ -1433,12 +1480,122 @@ public class CodeCompiler extends Visitor implements Opcodes, ClassConstants {
 
         code.freeLocal(iter_tmp);
         code.freeLocal(expr_tmp);
+        if (range != null) {
+            code.freeLocal(counter);
+            code.freeLocal(step);
+            code.freeLocal(remaining);
+        }
 
         code.trycatch(start, end, handler, p(PyException.class));
         // Probably need to detect "guaranteed exits"
         return null;
     }
 
+    /**
+     * The call in <code>for x in range(...)</code>, if the loop may be compiled as a counted
+     * loop: range is called with one to three positional arguments, and the loop is not in a
+     * generator, since primitive locals cannot be saved across a yield.
+     */
+    private Call countedRange(For node) {
+        if (!Options.compileOptimize || my_scope.generator
+                || !(node.getInternalIter() instanceof Call)) {
+            return null;
+        }
+        Call call = (Call) node.getInternalIter();
+        if (!(call.getInternalFunc() instanceof Name)
+                || !((Name) call.getInternalFunc()).getInternalId().equals("range")
+                || !call.getInternalKeywords().isEmpty()) {
+            return null;
+        }
+        int nargs = call.getInternalArgs().size();
+        if (nargs < 1 || nargs > 3) {
+            return null;
+        }
+        for (expr arg : call.getInternalArgs()) {
+            if (arg instanceof Starred) {
+                return null;
+            }
+        }
+        return call;
+    }
+
+    /**
+     * Evaluate <code>range</code> and its arguments. If the name is bound to the builtin range
+     * type, convert the arguments as range() would and set up the counter, step and number of
+     * remaining iterations, leaving <code>iter_tmp</code> null; otherwise make the call and store
+     * the iterator of its result as usual.
+     */
+    private void setupCountedRange(Call range, int iter_tmp, int counter, int step,
+            int remaining) throws Exception {
+        java.util.List<expr> args = range.getInternalArgs();
+        Label generic = new Label();
+        Label done = new Label();
+
+        // both paths must initialize every local for the verifier
+        code.lconst_0();
+        code.lstore(counter);
+        code.lconst_0();
+        code.lstore(step);
+        code.iconst_0();
+        code.istore(remaining);
+
+        visit(range.getInternalFunc());
+        int func = code.getLocal(p(PyObject.class));
+        code.astore(func);
+        int[] values = new int[args.size()];
+        for (int i = 0; i < values.length; i++) {
+            visit(args.get(i));
+            values[i] = code.getLocal(p(PyObject.class));
+            code.astore(values[i]);
+        }
+
+        code.aload(func);
+        code.getstatic(p(PyRange.class), "TYPE", ci(PyType.class));
+        code.if_acmpne(generic);
+        if (values.length > 1) {
+            code.aload(values[0]);
+            code.invokestatic(p(PyRange.class), "loopArg", sig(Long.TYPE, PyObject.class));
+            code.lstore(counter);
+        }
+        code.lload(counter);
+        code.aload(values[values.length > 1 ? 1 : 0]);
+        code.invokestatic(p(PyRange.class), "loopArg", sig(Long.TYPE, PyObject.class));
+        if (values.length > 2) {
+            code.aload(values[2]);
+            code.invokestatic(p(PyRange.class), "loopStep", sig(Integer.TYPE, PyObject.class));
+            code.i2l();
+        } else {
+            code.lconst_1();
+        }
+        code.dup2();
+        code.lstore(step);
+        code.invokestatic(p(PyRange.class), "loopLength",
+                sig(Integer.TYPE, Long.TYPE, Long.TYPE, Long.TYPE));
+        code.istore(remaining);
+        code.aconst_null();
+        code.astore(iter_tmp);
+        code.goto_(done);
+
+        code.label(generic);
+        code.aload(func);
+        loadThreadState();
+        Class<?>[] params = new Class<?>[values.length + 1];
+        params[0] = ThreadState.class;
+        for (int i = 0; i < values.length; i++) {
+            code.aload(values[i]);
+            params[i + 1] = PyObject.class;
+        }
+        code.invokevirtual(p(PyObject.class), "__call__", sig(PyObject.class, params));
+        code.invokevirtual(p(PyObject.class), "__iter__", sig(PyObject.class));
+        code.astore(iter_tmp);
+
+        code.label(done);
+        code.freeLocal(func);
+        for (int value : values) {
+            code.freeLocal(value);
+        }
+    }
+
     public void exceptionTest(int exc, Label end_of_exceptions, TryExcept node, int index)
             throws Exception {
         for (int i = 0; i < node.getInternalHandlers().size(); i++) {
@@ -1686,7 +1843,15 @@ public class CodeCompiler extends Visitor implements Opcodes, ClassConstants {
             code.ifeq(end);
         }
 
-        visit(node.getInternalComparators().get(n - 1));
+        expr comparator = node.getInternalComparators().get(n - 1);
+        if (Options.compileOptimize && comparator instanceof Set
+                && ASTOptimizer.isMembershipTest(node.getInternalOps().get(n - 1))
+                && ASTOptimizer.allConstant(((Set) comparator).getInternalElts())) {
+            // only tested for membership, so a frozenset built once is as good
+            module.frozensetConstant(((Set) comparator).getInternalElts()).get(code);
+        } else {
+            visit(comparator);
+        }
         code.aload(last);
         code.swap();
         visitCmpop(node.getInternalOps().get(n - 1));
@@ -2317,6 +2482,11 @@ public class CodeCompiler extends Visitor implements Opcodes, ClassConstants {
             return seqDel(node.getInternalElts());
         }
 
+        if (Options.compileOptimize && ASTOptimizer.isConstant(node)) {
+            module.tupleConstant(node.getInternalElts()).get(code);
+            return null;
+        }
+
         if (my_scope.generator) {
             int content = makeArray(node.getInternalElts());
             code.new_(p(PyTuple.class));
@@ -2754,7 +2924,8 @@ public class CodeCompiler extends Visitor implements Opcodes, ClassConstants {
     @Override
     public Object visitNameConstant(NameConstant node) throws Exception {
         String name = node.getInternalValue();
-        code.getstatic(p(Py.class), name, ci(PyObject.class));
+        code.getstatic(p(Py.class), name,
+                ci(name.equals("None") ? PyObject.class : PyBoolean.class));
         return null;
     }
 
@@ -40,7 +40,7 @@ public class LegacyCompiler implements PythonCompiler {
         }
 
         public PyCode loadCode() throws Exception {
-            return BytecodeLoader.makeCode(name, ostream().toByteArray(),
+            return BytecodeLoader.makeDynamicCode(name, ostream().toByteArray(),
                     filename);
         }
 
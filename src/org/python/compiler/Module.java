@@ -1,6 +1,8 @@
 // Copyright (c) Corporation for National Research Initiatives
 package org.python.compiler;
 
+import com.google.common.io.CountingOutputStream;
+
 import org.objectweb.asm.Label;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
@@ -10,27 +12,36 @@ import org.python.antlr.ast.Bytes;
 import org.python.antlr.ast.Num;
 import org.python.antlr.ast.Str;
 import org.python.antlr.ast.Suite;
+import org.python.antlr.ast.Tuple;
+import org.python.antlr.base.expr;
 import org.python.antlr.base.mod;
 import org.python.core.CodeBootstrap;
 import org.python.core.CodeFlag;
 import org.python.core.CodeLoader;
 import org.python.core.CompilerFlags;
+import org.python.core.Options;
 import org.python.core.Py;
+import org.python.core.PyBoolean;
 import org.python.core.PyBytes;
 import org.python.core.PyCode;
 import org.python.core.PyComplex;
 import org.python.core.PyException;
 import org.python.core.PyFloat;
 import org.python.core.PyFrame;
+import org.python.core.PyFrozenSet;
 import org.python.core.PyFunctionTable;
 import org.python.core.PyInteger;
 import org.python.core.PyLong;
 import org.python.core.PyObject;
 import org.python.core.PyRunnable;
 import org.python.core.PyRunnableBootstrap;
+import org.python.core.PyTuple;
 import org.python.core.PyUnicode;
 import org.python.core.ThreadState;
+import org.python.core.jfr.Events;
+import org.python.pycode.PyCodeLookup;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -244,6 +255,114 @@ class PyLongConstant extends Constant implements ClassConstants, Opcodes {
 }
 
 
+class PySingletonConstant extends Constant implements ClassConstants, Opcodes {
+
+    /** One of None, True or False. */
+    final String value;
+
+    PySingletonConstant(String value) {
+        this.value = value;
+    }
+
+    @Override
+    void get(Code c) throws IOException {
+        c.getstatic(p(Py.class), value,
+                ci(value.equals("None") ? PyObject.class : PyBoolean.class));
+    }
+
+    @Override
+    void put(Code c) throws IOException {}
+
+    @Override
+    public int hashCode() {
+        return value.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof PySingletonConstant) {
+            return ((PySingletonConstant)o).value.equals(value);
+        } else {
+            return false;
+        }
+    }
+}
+
+
+/**
+ * A tuple or frozenset of constants, built once when the module is loaded. Nested tuples are
+ * built inline, so that the order in which constants are initialized does not matter.
+ */
+class PyTupleConstant extends Constant implements ClassConstants, Opcodes {
+
+    final List<Constant> elements;
+    final boolean frozen;
+
+    PyTupleConstant(List<Constant> elements, boolean frozen) {
+        this.elements = elements;
+        this.frozen = frozen;
+    }
+
+    private Class<? extends PyObject> type() {
+        return frozen ? PyFrozenSet.class : PyTuple.class;
+    }
+
+    @Override
+    void get(Code c) throws IOException {
+        c.getstatic(module.classfile.name, name, ci(type()));
+    }
+
+    @Override
+    void put(Code c) throws IOException {
+        module.classfile.addField(name, ci(type()), access);
+        build(c);
+        c.putstatic(module.classfile.name, name, ci(type()));
+    }
+
+    private void build(Code c) throws IOException {
+        if (frozen) {
+            c.new_(p(PyFrozenSet.class));
+            c.dup();
+        }
+        c.new_(p(PyTuple.class));
+        c.dup();
+        c.iconst(elements.size());
+        c.anewarray(p(PyObject.class));
+        for (int i = 0; i < elements.size(); i++) {
+            Constant element = elements.get(i);
+            c.dup();
+            c.iconst(i);
+            if (element instanceof PyTupleConstant) {
+                ((PyTupleConstant)element).build(c);
+            } else {
+                element.get(c);
+            }
+            c.aastore();
+        }
+        c.iconst_0();
+        c.invokespecial(p(PyTuple.class), "<init>", sig(Void.TYPE, PyObject[].class, Boolean.TYPE));
+        if (frozen) {
+            c.invokespecial(p(PyFrozenSet.class), "<init>", sig(Void.TYPE, PyObject.class));
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return elements.hashCode() + (frozen ? 1 : 0);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof PyTupleConstant) {
+            PyTupleConstant other = (PyTupleConstant)o;
+            return other.frozen == frozen && other.elements.equals(elements);
+        } else {
+            return false;
+        }
+    }
+}
+
+
 class PyCodeConstant extends Constant implements ClassConstants, Opcodes {
 
     final String co_name;
@@ -261,6 +380,8 @@ class PyCodeConstant extends Constant implements ClassConstants, Opcodes {
     final List<String> freevars;
     final int jy_npurecell;
     final int moreflags;
+    /** The class holding the function body, when it is not the module class. */
+    String functionClass;
 
     PyCodeConstant(mod tree, String name, boolean fast_locals, String className, boolean classBody,
             boolean printResults, int firstlineno, ScopeInfo scope, CompilerFlags cflags,
@@ -373,12 +494,58 @@ class PyCodeConstant extends Constant implements ClassConstants, Opcodes {
 
     @Override
     void get(Code c) throws IOException {
-        c.getstatic(module.classfile.name, name, ci(PyCode.class));
+        if (module.splitFunctions) {
+            c.invokestatic(module.classfile.name, name + "$code", sig(PyCode.class));
+        } else {
+            c.getstatic(module.classfile.name, name, ci(PyCode.class));
+        }
     }
 
     @Override
     void put(Code c) throws IOException {
+        if (module.splitFunctions) {
+            putLazy();
+            return;
+        }
         module.classfile.addField(name, ci(PyCode.class), access);
+        newCode(c);
+        c.putstatic(module.classfile.name, name, ci(PyCode.class));
+    }
+
+    /**
+     * Instead of creating the code object in the module constructor, add an accessor that creates
+     * it on first use, so that a module with many functions only pays for those it runs.
+     */
+    private void putLazy() throws IOException {
+        String className = module.classfile.name;
+        module.classfile.addField(name, ci(PyCode.class), ACC_STATIC | ACC_VOLATILE);
+
+        Code c = module.classfile.addMethod(name + "$code", sig(PyCode.class), ACC_STATIC);
+        Label done = new Label();
+        c.getstatic(className, name, ci(PyCode.class));
+        c.dup();
+        c.ifnonnull(done);
+        c.pop();
+        c.invokestatic(className, name + "$make", sig(PyCode.class));
+        c.label(done);
+        c.areturn();
+
+        c = module.classfile.addMethod(name + "$make", sig(PyCode.class),
+                ACC_PRIVATE | ACC_STATIC | ACC_SYNCHRONIZED);
+        done = new Label();
+        c.getstatic(className, name, ci(PyCode.class));
+        c.dup();
+        c.ifnonnull(done);
+        c.pop();
+        newCode(c);
+        c.dup();
+        c.putstatic(className, name, ci(PyCode.class));
+        c.label(done);
+        c.areturn();
+    }
+
+    /** Leave a new code object for this constant on the stack. */
+    private void newCode(Code c) throws IOException {
         c.iconst(argcount);
 
         // Make all var names
@@ -390,14 +557,18 @@ class PyCodeConstant extends Constant implements ClassConstants, Opcodes {
         }
         c.aload(varNameArr);
         c.freeLocal(varNameArr);
-        c.aload(1);
+        if (module.splitFunctions) {
+            c.getstatic(module.classfile.name, "filename", ci(String.class));
+        } else {
+            c.aload(1);
+        }
         c.ldc(co_name);
         c.iconst(co_firstlineno);
 
         c.iconst(arglist ? 1 : 0);
         c.iconst(keywordlist ? 1 : 0);
 
-        c.getstatic(module.classfile.name, "self", "L" + module.classfile.name + ";");
+        c.getstatic(module.classfile.name, "self", ci(PyFunctionTable.class));
 
         c.iconst(id);
 
@@ -440,7 +611,6 @@ class PyCodeConstant extends Constant implements ClassConstants, Opcodes {
                         Integer.TYPE, Boolean.TYPE, Boolean.TYPE, PyFunctionTable.class,
                         Integer.TYPE, String[].class, String[].class, String[].class, PyObject[].class,
                         Integer.TYPE, Integer.TYPE, Integer.TYPE));
-        c.putstatic(module.classfile.name, name, ci(PyCode.class));
     }
 }
 
@@ -452,10 +622,18 @@ public class Module implements Opcodes, ClassConstants, CompilationContext {
     String sfilename;
     Constant mainCode;
     boolean linenumbers;
+    /** Whether statements only record their line in a frame that is being traced. */
+    boolean lazyLines;
     Future futures;
     Hashtable<PythonTree, ScopeInfo> scopes;
     List<PyCodeConstant> codes;
     long mtime;
+    /**
+     * Whether each function body goes in a class of its own, defined on first call, and code
+     * objects are created on first use.
+     */
+    boolean splitFunctions;
+    List<ClassFile> functionClasses;
     private int setter_count = 0;
     private final static int USE_SETTERS_LIMIT = 100;
     private final static int MAX_SETTINGS_PER_SETTER = 4096;
@@ -481,6 +659,7 @@ public class Module implements Opcodes, ClassConstants, CompilationContext {
             this.filename = null;
         }
         codes = new ArrayList<PyCodeConstant>();
+        functionClasses = new ArrayList<ClassFile>();
         futures = new Future();
         scopes = new Hashtable<PythonTree, ScopeInfo>();
     }
@@ -546,6 +725,39 @@ public class Module implements Opcodes, ClassConstants, CompilationContext {
         return findConstant(new PyLongConstant(value));
     }
 
+    /**
+     * A constant for a tuple of literals, as accepted by {@link ASTOptimizer#isConstant(expr)}.
+     */
+    Constant tupleConstant(List<expr> elts) {
+        return findConstant(new PyTupleConstant(elementConstants(elts), false));
+    }
+
+    /**
+     * A constant for a frozenset of literals, used for set displays that are only tested for
+     * membership.
+     */
+    Constant frozensetConstant(List<expr> elts) {
+        return findConstant(new PyTupleConstant(elementConstants(elts), true));
+    }
+
+    private List<Constant> elementConstants(List<expr> elts) {
+        List<Constant> elements = new ArrayList<Constant>(elts.size());
+        for (expr elt : elts) {
+            String singleton = ASTOptimizer.singletonName(elt);
+            if (singleton != null) {
+                elements.add(new PySingletonConstant(singleton));
+            } else if (elt instanceof Tuple) {
+                PyTupleConstant nested =
+                        new PyTupleConstant(elementConstants(((Tuple) elt).getInternalElts()), false);
+                nested.module = this;
+                elements.add(nested);
+            } else {
+                elements.add(constant(elt));
+            }
+        }
+        return elements;
+    }
+
     PyCodeConstant codeConstant(mod tree, String name, boolean fast_locals, String className,
             boolean classBody, boolean printResults, int firstlineno, ScopeInfo scope,
             CompilerFlags cflags) throws Exception {
@@ -562,8 +774,24 @@ public class Module implements Opcodes, ClassConstants, CompilationContext {
 
         CodeCompiler compiler = new CodeCompiler(this, printResults);
 
-        Code c = classfile.addMethod(code.fname, //
-                sig(PyObject.class, PyFrame.class, ThreadState.class), ACC_PUBLIC);
+        Code c;
+        if (splitFunctions && code.id != 0) {
+            // A static method taking the function table where the instance method has its this,
+            // so that frame and thread state are in the same locals. The module body (code 0)
+            // runs once, at import, and stays in the module class.
+            ClassFile function = new ClassFile(classfile.name + "$" + code.fname,
+                    p(Object.class), ACC_PUBLIC);
+            if (sfilename != null) {
+                function.setSource(sfilename);
+            }
+            functionClasses.add(function);
+            code.functionClass = function.name;
+            c = function.addMethod(code.fname, sig(PyObject.class, PyFunctionTable.class,
+                    PyFrame.class, ThreadState.class), ACC_PUBLIC | ACC_STATIC);
+        } else {
+            c = classfile.addMethod(code.fname, //
+                    sig(PyObject.class, PyFrame.class, ThreadState.class), ACC_PUBLIC);
+        }
 
         compiler.parse(tree, c, fast_locals, className, classDoc, classBody, scope, cflags);
         return code;
@@ -598,6 +826,12 @@ public class Module implements Opcodes, ClassConstants, CompilationContext {
         c.return_();
     }
 
+    public void addLazyLines() throws IOException {
+        Code c = classfile.addMethod("hasLazyLines", sig(Boolean.TYPE), ACC_PUBLIC);
+        c.iconst(1);
+        c.ireturn();
+    }
+
     public void addBootstrap() throws IOException {
         Code c = classfile.addMethod(CodeLoader.GET_BOOTSTRAP_METHOD_NAME, //
                 sig(CodeBootstrap.class), ACC_PUBLIC | ACC_STATIC);
@@ -608,9 +842,16 @@ public class Module implements Opcodes, ClassConstants, CompilationContext {
     }
 
     void addConstants(Code c) throws IOException {
-        classfile.addField("self", "L" + classfile.name + ";", ACC_STATIC);
+        // typed by the superclass: a hidden class cannot name itself in a descriptor
+        classfile.addField("self", ci(PyFunctionTable.class), ACC_STATIC);
         c.aload(0);
-        c.putstatic(classfile.name, "self", "L" + classfile.name + ";");
+        c.putstatic(classfile.name, "self", ci(PyFunctionTable.class));
+        if (splitFunctions) {
+            // for code objects created later, outside this constructor
+            classfile.addField("filename", ci(String.class), ACC_STATIC);
+            c.aload(1);
+            c.putstatic(classfile.name, "filename", ci(String.class));
+        }
         Enumeration e = constants.elements();
 
         while (e.hasMoreElements()) {
@@ -645,8 +886,15 @@ public class Module implements Opcodes, ClassConstants, CompilationContext {
         code.tableswitch(0, labels.length - 1, def, labels);
         for (i = 0; i < labels.length; i++) {
             code.label(labels[i]);
-            code.invokevirtual(classfile.name, (codes.get(i)).fname,
-                    sig(PyObject.class, PyFrame.class, ThreadState.class));
+            PyCodeConstant pyc = codes.get(i);
+            if (pyc.functionClass != null) {
+                // resolving the call defines the function class, see BytecodeLoader.Loader
+                code.invokestatic(pyc.functionClass, pyc.fname, sig(PyObject.class,
+                        PyFunctionTable.class, PyFrame.class, ThreadState.class));
+            } else {
+                code.invokevirtual(classfile.name, pyc.fname,
+                        sig(PyObject.class, PyFrame.class, ThreadState.class));
+            }
             code.areturn();
         }
         code.label(def);
@@ -661,9 +909,22 @@ public class Module implements Opcodes, ClassConstants, CompilationContext {
         addRunnable();
         addMain();
         addBootstrap();
+        if (lazyLines) {
+            addLazyLines();
+        }
 
         addFunctions();
 
+        if (!functionClasses.isEmpty()) {
+            SplitFunctionsAttribute split = new SplitFunctionsAttribute();
+            for (ClassFile function : functionClasses) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                function.write(bytes);
+                split.add(function.name.replace('/', '.'), bytes.toByteArray());
+            }
+            classfile.addAttribute(split);
+        }
+
         classfile.addInterface(p(PyRunnable.class));
         if (sfilename != null) {
             classfile.setSource(sfilename);
@@ -739,12 +1000,44 @@ public class Module implements Opcodes, ClassConstants, CompilationContext {
     public static void compile(mod node, OutputStream ostream, String name, String filename,
             boolean linenumbers, boolean printResults, CompilerFlags cflags, long mtime)
             throws Exception {
-        Module module = new Module(name, filename, linenumbers, mtime);
+        compile(node, ostream, name, filename, linenumbers, printResults, cflags, mtime, false);
+    }
+
+    /**
+     * Compile a module, optionally with each function body in a class of its own (see
+     * {@link SplitFunctionsAttribute}). Split modules must be loaded by
+     * {@link org.python.core.BytecodeLoader#makeCode}, which knows where to find those classes.
+     */
+    public static void compile(mod node, OutputStream ostream, String name, String filename,
+            boolean linenumbers, boolean printResults, CompilerFlags cflags, long mtime,
+            boolean splitFunctions) throws Exception {
+        Object event = Events.beginCompile("generate", filename);
+        CountingOutputStream counter = null;
+        if (event != null) {
+            ostream = counter = new CountingOutputStream(ostream);
+        }
+        try {
+            compile(node, ostream, name, filename, linenumbers, printResults, cflags, mtime,
+                    splitFunctions, new Module(name, filename, linenumbers, mtime));
+        } finally {
+            Events.endCompile(event, counter == null ? 0 : counter.getCount());
+        }
+    }
+
+    private static void compile(mod node, OutputStream ostream, String name, String filename,
+            boolean linenumbers, boolean printResults, CompilerFlags cflags, long mtime,
+            boolean splitFunctions, Module module) throws Exception {
+        module.splitFunctions = splitFunctions;
+        // Lines come from stack traces, which leave out code compiled at run time (defined as
+        // hidden classes)
+        module.lazyLines = Options.compileLazyLines && Options.includeJavaStackInExceptions
+                && !name.startsWith(PyCodeLookup.class.getPackage().getName() + ".");
         if (cflags == null) {
             cflags = new CompilerFlags();
         }
         module.futures.preprocessFutures(node, cflags);
         new ScopesCompiler(module, module.scopes).parse(node);
+        ASTOptimizer.optimize(node, module);
 
         // Add __doc__ if it exists
 
@@ -799,7 +1092,8 @@ public class Module implements Opcodes, ClassConstants, CompilationContext {
         code.anewarray(p(PyObject.class));
         for (int i = 0; i < num_setters; i++) {
             Code setter = this.classfile.addMethod("set$$" + setter_count, //
-                    sig(Void.TYPE, PyObject[].class), ACC_STATIC | ACC_PRIVATE);
+                    sig(Void.TYPE, PyObject[].class),
+                    splitFunctions ? ACC_STATIC : ACC_STATIC | ACC_PRIVATE);
 
             for (int j = 0; (j < MAX_SETTINGS_PER_SETTER)
                     && ((i * MAX_SETTINGS_PER_SETTER + j) < n); j++) {
@@ -0,0 +1,879 @@
+package org.python.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+import org.python.core.BytecodeLoader;
+import org.python.core.CodeFlag;
+import org.python.core.Opcode;
+import org.python.core.Py;
+import org.python.core.PyBytecode;
+import org.python.core.PyCode;
+import org.python.core.PyDictionary;
+import org.python.core.PyException;
+import org.python.core.PyFrame;
+import org.python.core.PyFunction;
+import org.python.core.PyFunctionTable;
+import org.python.core.PyObject;
+import org.python.core.PySlice;
+import org.python.core.PyTraceback;
+import org.python.core.PyUnicode;
+import org.python.pycode.PyCodeLookup;
+
+/**
+ * Translates the instructions of a {@link PyBytecode} into a JVM method, once the code object
+ * has run often enough to be worth it. The Python value stack becomes the JVM operand stack, and
+ * each instruction becomes the calls the interpreter would make for it.
+ * <p>
+ * Only part of the instruction set is translated: code with exception handlers, with blocks,
+ * yields, closures or instructions outside that part keeps being interpreted, which is what
+ * {@link #compile} returning null means. The translation also leaves out tracing, so a traced
+ * frame is always interpreted.
+ */
+public class PyBytecodeCompiler implements Opcodes, ClassConstants {
+
+    private static final AtomicInteger count = new AtomicInteger();
+
+    private static final String HELPERS = "org/python/compiler/PyBytecodeCompiler";
+
+    /** A loop block on the static block stack: where BREAK_LOOP goes, and the stack depth there. */
+    private static final class Block {
+
+        final int handler;
+        final int level;
+        final Block next;
+
+        Block(int handler, int level, Block next) {
+            this.handler = handler;
+            this.level = level;
+            this.next = next;
+        }
+
+        static boolean same(Block a, Block b) {
+            for (; a != null && b != null; a = a.next, b = b.next) {
+                if (a.handler != b.handler || a.level != b.level) {
+                    return false;
+                }
+            }
+            return a == b;
+        }
+    }
+
+    private final PyBytecode code;
+    private final byte[] co_code;
+    /** Stack depth before each reachable instruction, -1 elsewhere. */
+    private final int[] depths;
+    /** Block stack before each reachable instruction. */
+    private final Block[] blocks;
+    /** Offsets at which a new line starts. */
+    private final boolean[] lineStarts;
+    private final Deque<Integer> work = new ArrayDeque<Integer>();
+    private Label[] labels;
+    private Code c;
+
+    private PyBytecodeCompiler(PyBytecode code) {
+        this.code = code;
+        co_code = code.co_code;
+        depths = new int[co_code.length];
+        blocks = new Block[co_code.length];
+        lineStarts = new boolean[co_code.length];
+    }
+
+    /**
+     * Return a function table whose function 0 runs <code>code</code> in a frame, or null if the
+     * code uses anything that is not translated.
+     */
+    public static PyFunctionTable compile(PyBytecode code) {
+        if (code.co_flags.isFlagSet(CodeFlag.CO_GENERATOR)
+                || code.co_flags.isFlagSet(CodeFlag.CO_COROUTINE)
+                || code.co_cellvars != null && code.co_cellvars.length > 0
+                || code.co_freevars != null && code.co_freevars.length > 0) {
+            return null;
+        }
+        PyBytecodeCompiler compiler = new PyBytecodeCompiler(code);
+        if (!compiler.analyze()) {
+            return null;
+        }
+        String name = PyCodeLookup.class.getPackage().getName() + "._pybc"
+                + count.getAndIncrement();
+        try {
+            Class<?> c = BytecodeLoader.makeDynamicClass(name, compiler.generate(name));
+            return (PyFunctionTable) c.getConstructor(PyObject[].class, String[].class)
+                    .newInstance(code.co_consts, code.co_names);
+        } catch (IOException | ReflectiveOperationException e) {
+            throw Py.JavaError(e);
+        }
+    }
+
+    private int opcode(int pc) {
+        return co_code[pc] & 0xff;
+    }
+
+    private int oparg(int pc) {
+        return (co_code[pc + 1] & 0xff) + ((co_code[pc + 2] & 0xff) << 8);
+    }
+
+    private static int length(int opcode) {
+        return opcode >= Opcode.HAVE_ARGUMENT ? 3 : 1;
+    }
+
+    /** Record the state before pc, reporting whether it agrees with what is known already. */
+    private boolean flow(int pc, int depth, Block block) {
+        if (pc < 0 || pc >= co_code.length || depth < 0) {
+            return false;
+        }
+        if (depths[pc] == -1) {
+            depths[pc] = depth;
+            blocks[pc] = block;
+            work.push(pc);
+            return true;
+        }
+        return depths[pc] == depth && Block.same(blocks[pc], block);
+    }
+
+    /**
+     * Work out the stack depth and loop blocks before each reachable instruction, checking that
+     * every instruction can be translated and that the states meeting at a jump target agree.
+     */
+    private boolean analyze() {
+        java.util.Arrays.fill(depths, -1);
+        flow(0, 0, null);
+        while (!work.isEmpty()) {
+            int pc = work.pop();
+            int opcode = opcode(pc);
+            int next = pc + length(opcode);
+            if (next > co_code.length) {
+                return false;
+            }
+            int oparg = opcode >= Opcode.HAVE_ARGUMENT ? oparg(pc) : 0;
+            int depth = depths[pc];
+            Block block = blocks[pc];
+            boolean ok;
+            switch (opcode) {
+                case Opcode.JUMP_FORWARD:
+                    ok = flow(next + oparg, depth, block);
+                    break;
+                case Opcode.JUMP_ABSOLUTE:
+                    ok = flow(oparg, depth, block);
+                    break;
+                case Opcode.JUMP_IF_FALSE:
+                case Opcode.JUMP_IF_TRUE:
+                    ok = depth > 0 && flow(next, depth, block) && flow(next + oparg, depth, block);
+                    break;
+                case Opcode.FOR_ITER:
+                    ok = depth > 0 && flow(next, depth + 1, block)
+                            && flow(next + oparg, depth - 1, block);
+                    break;
+                case Opcode.RETURN_VALUE:
+                    ok = depth > 0;
+                    break;
+                case Opcode.RAISE_VARARGS:
+                    ok = oparg <= 3 && depth >= oparg;
+                    break;
+                case Opcode.SETUP_LOOP:
+                    ok = flow(next, depth, new Block(next + oparg, depth, block));
+                    break;
+                case Opcode.POP_BLOCK:
+                    ok = block != null && depth >= block.level
+                            && flow(next, block.level, block.next);
+                    break;
+                case Opcode.BREAK_LOOP:
+                    ok = block != null && depth >= block.level
+                            && flow(block.handler, block.level, block.next);
+                    break;
+                default:
+                    int effect = stackEffect(opcode, oparg);
+                    ok = effect != Integer.MIN_VALUE && depth >= pops(opcode, oparg)
+                            && flow(next, depth + effect, block);
+            }
+            if (!ok) {
+                return false;
+            }
+        }
+
+        // line starts, as in PyBytecode.LineCache
+        int addr = 0;
+        lineStarts[0] = true;
+        for (int p = 0; p + 1 < code.co_lnotab.length; p += 2) {
+            addr += code.co_lnotab[p] & 0xff;
+            if (addr < lineStarts.length) {
+                lineStarts[addr] = true;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The change in stack depth made by an instruction that falls through to the next one, or
+     * Integer.MIN_VALUE if it is not translated.
+     */
+    private static int stackEffect(int opcode, int oparg) {
+        switch (opcode) {
+            case Opcode.NOP:
+            case Opcode.ROT_TWO:
+            case Opcode.ROT_THREE:
+            case Opcode.ROT_FOUR:
+            case Opcode.UNARY_POSITIVE:
+            case Opcode.UNARY_NEGATIVE:
+            case Opcode.UNARY_NOT:
+            case Opcode.UNARY_CONVERT:
+            case Opcode.UNARY_INVERT:
+            case Opcode.DELETE_NAME:
+            case Opcode.DELETE_GLOBAL:
+            case Opcode.DELETE_FAST:
+            case Opcode.LOAD_ATTR:
+            case Opcode.GET_ITER:
+                return 0;
+            case Opcode.LOAD_FAST:
+            case Opcode.LOAD_CONST:
+            case Opcode.DUP_TOP:
+            case Opcode.LOAD_LOCALS:
+            case Opcode.LOAD_NAME:
+            case Opcode.LOAD_GLOBAL:
+            case Opcode.BUILD_MAP:
+            case Opcode.IMPORT_FROM:
+                return 1;
+            case Opcode.DUP_TOPX:
+                return oparg == 2 || oparg == 3 ? oparg : Integer.MIN_VALUE;
+            case Opcode.STORE_FAST:
+            case Opcode.POP_TOP:
+            case Opcode.STORE_NAME:
+            case Opcode.DELETE_ATTR:
+            case Opcode.STORE_GLOBAL:
+            case Opcode.IMPORT_NAME:
+            case Opcode.IMPORT_STAR:
+                return -1;
+            case Opcode.LIST_APPEND:
+            case Opcode.DELETE_SUBSCR:
+            case Opcode.STORE_ATTR:
+                return -2;
+            case Opcode.STORE_SUBSCR:
+                return -3;
+            case Opcode.UNPACK_SEQUENCE:
+                return oparg - 1;
+            case Opcode.BUILD_TUPLE:
+            case Opcode.BUILD_LIST:
+                return 1 - oparg;
+            case Opcode.BUILD_SLICE:
+                return oparg == 2 || oparg == 3 ? 1 - oparg : Integer.MIN_VALUE;
+            case Opcode.COMPARE_OP:
+                return oparg <= Opcode.PyCmp_IS_NOT ? -1 : Integer.MIN_VALUE;
+            case Opcode.CALL_FUNCTION:
+                return -callArgs(oparg);
+            case Opcode.CALL_FUNCTION_VAR:
+            case Opcode.CALL_FUNCTION_KW:
+                return -callArgs(oparg) - 1;
+            case Opcode.CALL_FUNCTION_VAR_KW:
+                return -callArgs(oparg) - 2;
+            case Opcode.MAKE_FUNCTION:
+                return -oparg - 1;
+            default:
+                if (binaryMethod(opcode) != null) {
+                    return -1;
+                }
+                return Integer.MIN_VALUE;
+        }
+    }
+
+    /** How many values an instruction takes off the stack. */
+    private static int pops(int opcode, int oparg) {
+        switch (opcode) {
+            case Opcode.DUP_TOPX:
+                return oparg;
+            case Opcode.ROT_TWO:
+                return 2;
+            case Opcode.ROT_THREE:
+                return 3;
+            case Opcode.ROT_FOUR:
+                return 4;
+            case Opcode.UNPACK_SEQUENCE:
+                return 1;
+            case Opcode.MAKE_FUNCTION:
+                return oparg + 2;
+            case Opcode.CALL_FUNCTION:
+            case Opcode.CALL_FUNCTION_VAR:
+            case Opcode.CALL_FUNCTION_KW:
+            case Opcode.CALL_FUNCTION_VAR_KW:
+                return 1 - stackEffect(opcode, oparg);
+            default:
+                return Math.max(0, -stackEffect(opcode, oparg));
+        }
+    }
+
+    /** The positional and keyword argument values of a call. */
+    private static int callArgs(int oparg) {
+        return (oparg & 0xff) + 2 * ((oparg >> 8) & 0xff);
+    }
+
+    /** The PyObject method the interpreter calls for a binary or in-place operator. */
+    private static String binaryMethod(int opcode) {
+        switch (opcode) {
+            case Opcode.BINARY_POWER: return "_pow";
+            case Opcode.BINARY_MULTIPLY: return "_mul";
+            case Opcode.BINARY_DIVIDE: return "_truediv";
+            case Opcode.BINARY_TRUE_DIVIDE: return "_truediv";
+            case Opcode.BINARY_FLOOR_DIVIDE: return "_floordiv";
+            case Opcode.BINARY_MODULO: return "_mod";
+            case Opcode.BINARY_ADD: return "_add";
+            case Opcode.BINARY_SUBTRACT: return "_sub";
+            case Opcode.BINARY_SUBSCR: return "__getitem__";
+            case Opcode.BINARY_LSHIFT: return "_lshift";
+            case Opcode.BINARY_RSHIFT: return "_rshift";
+            case Opcode.BINARY_AND: return "_and";
+            case Opcode.BINARY_XOR: return "_xor";
+            case Opcode.BINARY_OR: return "_or";
+            case Opcode.INPLACE_POWER: return "_ipow";
+            case Opcode.INPLACE_MULTIPLY: return "_imul";
+            case Opcode.INPLACE_DIVIDE: return "_itruediv";
+            case Opcode.INPLACE_TRUE_DIVIDE: return "_itruediv";
+            case Opcode.INPLACE_FLOOR_DIVIDE: return "_ifloordiv";
+            case Opcode.INPLACE_MODULO: return "_imod";
+            case Opcode.INPLACE_ADD: return "_iadd";
+            case Opcode.INPLACE_SUBTRACT: return "_isub";
+            case Opcode.INPLACE_LSHIFT: return "_ilshift";
+            case Opcode.INPLACE_RSHIFT: return "_irshift";
+            case Opcode.INPLACE_AND: return "_iand";
+            case Opcode.INPLACE_XOR: return "_ixor";
+            case Opcode.INPLACE_OR: return "_ior";
+            default: return null;
+        }
+    }
+
+    private static String unaryMethod(int opcode) {
+        switch (opcode) {
+            case Opcode.UNARY_POSITIVE: return "__pos__";
+            case Opcode.UNARY_NEGATIVE: return "__neg__";
+            case Opcode.UNARY_NOT: return "__not__";
+            case Opcode.UNARY_INVERT: return "__invert__";
+            default: return null;
+        }
+    }
+
+    private static final String[] COMPARE_OPS = {"LT", "LE", "EQ", "NE", "GT", "GE"};
+    private static final String[] COMPARE_METHODS = {"_in", "_notin", "_is", "_isnot"};
+
+    private byte[] generate(String name) throws IOException {
+        ClassFile cf = new ClassFile(name, "org/python/core/PyFunctionTable", ACC_PUBLIC);
+        cf.setSource(code.co_filename);
+        cf.addField("consts", $pyObjArr, ACC_FINAL);
+        cf.addField("names", $strArr, ACC_FINAL);
+
+        Code init = cf.addMethod("<init>", "(" + $pyObjArr + $strArr + ")V", ACC_PUBLIC);
+        init.aload(0);
+        init.invokespecial("org/python/core/PyFunctionTable", "<init>", "()V");
+        init.aload(0);
+        init.aload(1);
+        init.putfield(cf.name, "consts", $pyObjArr);
+        init.aload(0);
+        init.aload(2);
+        init.putfield(cf.name, "names", $strArr);
+        init.return_();
+
+        c = cf.addMethod("call_function", "(I" + $pyFrame + $threadState + ")" + $pyObj,
+                ACC_PUBLIC);
+        labels = new Label[co_code.length];
+        for (int pc = 0; pc < co_code.length; pc++) {
+            if (depths[pc] != -1) {
+                labels[pc] = new Label();
+            }
+        }
+        for (int pc = 0; pc < co_code.length; pc++) {
+            if (depths[pc] != -1) {
+                c.label(labels[pc]);
+                if (lineStarts[pc]) {
+                    // what PyBytecode.getline goes by
+                    c.aload(2);
+                    c.iconst(pc);
+                    c.putfield("org/python/core/PyFrame", "f_lasti", "I");
+                }
+                instruction(cf.name, pc);
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cf.write(out);
+        return out.toByteArray();
+    }
+
+    private void loadFrame() {
+        c.aload(2);
+    }
+
+    private void loadName(String className, int oparg) {
+        c.aload(0);
+        c.getfield(className, "names", $strArr);
+        c.iconst(oparg);
+        c.aaload();
+    }
+
+    /** Emit a call to the helper of this class called <code>name</code>. */
+    private void helper(String name, String type) {
+        c.invokestatic(HELPERS, name, type);
+    }
+
+    /** Replace the top n values on the stack by an array of them, in stack order. */
+    private void popArray(int n) {
+        int[] temps = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            temps[i] = c.getLocal($pyObj);
+            c.astore(temps[i]);
+        }
+        c.iconst(n);
+        c.anewarray("org/python/core/PyObject");
+        for (int i = 0; i < n; i++) {
+            c.dup();
+            c.iconst(i);
+            c.aload(temps[i]);
+            c.aastore();
+            c.freeLocal(temps[i]);
+        }
+    }
+
+    /** Pop values down to the stack depth given. */
+    private void popTo(int depth, int level) {
+        for (; depth > level; depth--) {
+            c.pop();
+        }
+    }
+
+    private void instruction(String className, int pc) {
+        int opcode = opcode(pc);
+        int next = pc + length(opcode);
+        int oparg = opcode >= Opcode.HAVE_ARGUMENT ? oparg(pc) : 0;
+        String method = binaryMethod(opcode);
+        if (method != null) {
+            c.invokevirtual("org/python/core/PyObject", method, "(" + $pyObj + ")" + $pyObj);
+            return;
+        }
+        method = unaryMethod(opcode);
+        if (method != null) {
+            c.invokevirtual("org/python/core/PyObject", method, "()" + $pyObj);
+            return;
+        }
+        switch (opcode) {
+            case Opcode.NOP:
+            case Opcode.SETUP_LOOP:
+                break;
+            case Opcode.LOAD_FAST:
+                loadFrame();
+                c.iconst(oparg);
+                c.invokevirtual("org/python/core/PyFrame", "getlocal", "(I)" + $pyObj);
+                break;
+            case Opcode.LOAD_CONST:
+                c.aload(0);
+                c.getfield(className, "consts", $pyObjArr);
+                c.iconst(oparg);
+                c.aaload();
+                break;
+            case Opcode.STORE_FAST: {
+                int value = c.getLocal($pyObj);
+                c.astore(value);
+                loadFrame();
+                c.iconst(oparg);
+                c.aload(value);
+                c.freeLocal(value);
+                c.invokevirtual("org/python/core/PyFrame", "setlocal", "(I" + $pyObj + ")V");
+                break;
+            }
+            case Opcode.POP_TOP:
+                c.pop();
+                break;
+            case Opcode.ROT_TWO:
+                c.swap();
+                break;
+            case Opcode.ROT_THREE:
+                c.dup_x2();
+                c.pop();
+                break;
+            case Opcode.ROT_FOUR: {
+                popArray(4);
+                int items = c.getLocal($pyObjArr);
+                c.astore(items);
+                for (int i : new int[] {3, 0, 1, 2}) {
+                    c.aload(items);
+                    c.iconst(i);
+                    c.aaload();
+                }
+                c.freeLocal(items);
+                break;
+            }
+            case Opcode.DUP_TOP:
+                c.dup();
+                break;
+            case Opcode.DUP_TOPX:
+                if (oparg == 2) {
+                    c.dup2();
+                } else {
+                    popArray(3);
+                    int items = c.getLocal($pyObjArr);
+                    c.astore(items);
+                    for (int i = 0; i < 6; i++) {
+                        c.aload(items);
+                        c.iconst(i % 3);
+                        c.aaload();
+                    }
+                    c.freeLocal(items);
+                }
+                break;
+            case Opcode.UNARY_CONVERT:
+                c.invokevirtual("org/python/core/PyObject", "__repr__", "()" + $pyUnicode);
+                break;
+            case Opcode.LIST_APPEND:
+                c.swap();
+                c.checkcast("org/python/core/PyList");
+                c.swap();
+                c.invokevirtual("org/python/core/PyList", "append", "(" + $pyObj + ")V");
+                break;
+            case Opcode.STORE_SUBSCR:
+                // value obj key -> obj key value
+                c.dup2_x1();
+                c.pop2();
+                c.invokevirtual("org/python/core/PyObject", "__setitem__",
+                        "(" + $pyObj + $pyObj + ")V");
+                break;
+            case Opcode.DELETE_SUBSCR:
+                c.invokevirtual("org/python/core/PyObject", "__delitem__", "(" + $pyObj + ")V");
+                break;
+            case Opcode.RAISE_VARARGS:
+                popArray(oparg);
+                helper("raise", "(" + $pyObjArr + ")" + $pyExc);
+                c.athrow();
+                break;
+            case Opcode.LOAD_LOCALS:
+                loadFrame();
+                c.getfield("org/python/core/PyFrame", "f_locals", $pyObj);
+                break;
+            case Opcode.RETURN_VALUE:
+                c.areturn();
+                break;
+            case Opcode.POP_BLOCK:
+                popTo(depths[pc], blocks[pc].level);
+                break;
+            case Opcode.BREAK_LOOP:
+                popTo(depths[pc], blocks[pc].level);
+                c.goto_(labels[blocks[pc].handler]);
+                break;
+            case Opcode.STORE_NAME:
+                loadFrame();
+                c.swap();
+                loadName(className, oparg);
+                c.swap();
+                c.invokevirtual("org/python/core/PyFrame", "setlocal", "(" + $str + $pyObj + ")V");
+                break;
+            case Opcode.DELETE_NAME:
+                loadFrame();
+                loadName(className, oparg);
+                c.invokevirtual("org/python/core/PyFrame", "dellocal", "(" + $str + ")V");
+                break;
+            case Opcode.UNPACK_SEQUENCE: {
+                c.iconst(oparg);
+                helper("unpackSequence", "(" + $pyObj + "I)" + $pyObjArr);
+                int items = c.getLocal($pyObjArr);
+                c.astore(items);
+                for (int i = 0; i < oparg; i++) {
+                    c.aload(items);
+                    c.iconst(i);
+                    c.aaload();
+                }
+                c.freeLocal(items);
+                break;
+            }
+            case Opcode.STORE_ATTR:
+                // v obj -> obj name v
+                c.swap();
+                loadName(className, oparg);
+                c.swap();
+                c.invokevirtual("org/python/core/PyObject", "__setattr__",
+                        "(" + $str + $pyObj + ")V");
+                break;
+            case Opcode.DELETE_ATTR:
+                loadName(className, oparg);
+                c.invokevirtual("org/python/core/PyObject", "__delattr__", "(" + $str + ")V");
+                break;
+            case Opcode.STORE_GLOBAL:
+                loadFrame();
+                c.swap();
+                loadName(className, oparg);
+                c.swap();
+                c.invokevirtual("org/python/core/PyFrame", "setglobal", "(" + $str + $pyObj + ")V");
+                break;
+            case Opcode.DELETE_GLOBAL:
+                loadFrame();
+                loadName(className, oparg);
+                c.invokevirtual("org/python/core/PyFrame", "delglobal", "(" + $str + ")V");
+                break;
+            case Opcode.LOAD_NAME:
+                loadFrame();
+                loadName(className, oparg);
+                c.invokevirtual("org/python/core/PyFrame", "getname", "(" + $str + ")" + $pyObj);
+                break;
+            case Opcode.LOAD_GLOBAL:
+                loadFrame();
+                loadName(className, oparg);
+                c.invokevirtual("org/python/core/PyFrame", "getglobal", "(" + $str + ")" + $pyObj);
+                break;
+            case Opcode.DELETE_FAST:
+                loadFrame();
+                c.iconst(oparg);
+                c.invokevirtual("org/python/core/PyFrame", "dellocal", "(I)V");
+                break;
+            case Opcode.BUILD_TUPLE:
+                popArray(oparg);
+                helper("buildTuple", "(" + $pyObjArr + ")" + $pyObj);
+                break;
+            case Opcode.BUILD_LIST:
+                popArray(oparg);
+                helper("buildList", "(" + $pyObjArr + ")" + $pyObj);
+                break;
+            case Opcode.BUILD_MAP:
+                c.new_("org/python/core/PyDictionary");
+                c.dup();
+                c.invokespecial("org/python/core/PyDictionary", "<init>", "()V");
+                break;
+            case Opcode.LOAD_ATTR:
+                loadName(className, oparg);
+                c.invokevirtual("org/python/core/PyObject", "__getattr__",
+                        "(" + $str + ")" + $pyObj);
+                break;
+            case Opcode.COMPARE_OP:
+                if (oparg <= Opcode.PyCmp_GE) {
+                    c.getstatic("org/python/core/CompareOp", COMPARE_OPS[oparg],
+                            "Lorg/python/core/CompareOp;");
+                    c.invokevirtual("org/python/core/PyObject", "richCompare",
+                            "(" + $pyObj + "Lorg/python/core/CompareOp;)" + $pyObj);
+                } else {
+                    c.invokevirtual("org/python/core/PyObject",
+                            COMPARE_METHODS[oparg - Opcode.PyCmp_IN], "(" + $pyObj + ")" + $pyObj);
+                }
+                break;
+            case Opcode.IMPORT_NAME:
+                // level fromlist -> frame name fromlist level
+                c.swap();
+                loadFrame();
+                c.dup_x2();
+                c.pop();
+                loadName(className, oparg);
+                c.dup_x2();
+                c.pop();
+                helper("importName", "(" + $pyFrame + $str + $pyObj + $pyObj + ")" + $pyObj);
+                break;
+            case Opcode.IMPORT_STAR:
+                loadFrame();
+                c.invokestatic("org/python/core/imp", "importAll", "(" + $pyObj + $pyFrame + ")V");
+                break;
+            case Opcode.IMPORT_FROM:
+                c.dup();
+                loadName(className, oparg);
+                helper("importFrom", "(" + $pyObj + $str + ")" + $pyObj);
+                break;
+            case Opcode.JUMP_FORWARD:
+                c.goto_(labels[next + oparg]);
+                break;
+            case Opcode.JUMP_ABSOLUTE:
+                c.goto_(labels[oparg]);
+                break;
+            case Opcode.JUMP_IF_FALSE:
+                c.dup();
+                c.invokevirtual("org/python/core/PyObject", "__bool__", "()Z");
+                c.ifeq(labels[next + oparg]);
+                break;
+            case Opcode.JUMP_IF_TRUE:
+                c.dup();
+                c.invokevirtual("org/python/core/PyObject", "__bool__", "()Z");
+                c.ifne(labels[next + oparg]);
+                break;
+            case Opcode.GET_ITER:
+                helper("getIter", "(" + $pyObj + ")" + $pyObj);
+                break;
+            case Opcode.FOR_ITER: {
+                Label more = new Label();
+                c.dup();
+                helper("forIter", "(" + $pyObj + ")" + $pyObj);
+                c.dup();
+                c.ifnonnull(more);
+                c.pop2();
+                c.goto_(labels[next + oparg]);
+                c.label(more);
+                break;
+            }
+            case Opcode.CALL_FUNCTION: {
+                int na = oparg & 0xff;
+                int nk = (oparg >> 8) & 0xff;
+                if (nk == 0 && na <= 4) {
+                    StringBuilder type = new StringBuilder("(");
+                    for (int i = 0; i < na; i++) {
+                        type.append($pyObj);
+                    }
+                    c.invokevirtual("org/python/core/PyObject", "__call__",
+                            type.append(")").append($pyObj).toString());
+                } else {
+                    popArray(na + 2 * nk);
+                    c.iconst(na);
+                    c.iconst(nk);
+                    helper("call", "(" + $pyObj + $pyObjArr + "II)" + $pyObj);
+                }
+                break;
+            }
+            case Opcode.CALL_FUNCTION_VAR:
+            case Opcode.CALL_FUNCTION_KW:
+            case Opcode.CALL_FUNCTION_VAR_KW: {
+                int na = oparg & 0xff;
+                int nk = (oparg >> 8) & 0xff;
+                int flags = opcode - Opcode.CALL_FUNCTION;
+                boolean var = (flags & 1) != 0;
+                boolean kw = (flags & 2) != 0;
+                popArray(na + 2 * nk + (var ? 1 : 0) + (kw ? 1 : 0));
+                c.iconst(na);
+                c.iconst(nk);
+                c.iconst(var ? 1 : 0);
+                c.iconst(kw ? 1 : 0);
+                helper("callExtra", "(" + $pyObj + $pyObjArr + "IIZZ)" + $pyObj);
+                break;
+            }
+            case Opcode.MAKE_FUNCTION:
+                popArray(oparg + 2);
+                loadFrame();
+                helper("makeFunction", "(" + $pyObjArr + $pyFrame + ")" + $pyObj);
+                break;
+            case Opcode.BUILD_SLICE:
+                popArray(oparg);
+                helper("buildSlice", "(" + $pyObjArr + ")" + $pyObj);
+                break;
+            default:
+                throw new IllegalStateException("untranslated opcode " + opcode);
+        }
+    }
+
+    // Called by the generated code, doing what PyBytecode.interpret does for the instruction
+
+    public static PyException raise(PyObject[] args) {
+        switch (args.length) {
+            case 3: {
+                PyException pye = PyException.doRaise(args[1]);
+                pye.traceback = (PyTraceback) args[2];
+                return pye;
+            }
+            case 2:
+                return PyException.doRaise(args[1], null);
+            default:
+                return PyException.doRaise(null, null);
+        }
+    }
+
+    public static PyObject[] unpackSequence(PyObject v, int n) {
+        int i = n;
+        PyObject items[] = new PyObject[n];
+        for (PyObject item : v.asIterable()) {
+            if (i <= 0) {
+                throw Py.ValueError("too many values to unpack");
+            }
+            i--;
+            items[i] = item;
+        }
+        if (i > 0) {
+            throw Py.ValueError(String.format("need more than %d value%s to unpack",
+                    i, i == 1 ? "" : "s"));
+        }
+        return items;
+    }
+
+    public static PyObject buildTuple(PyObject[] items) {
+        return new org.python.core.PyTuple(items);
+    }
+
+    public static PyObject buildList(PyObject[] items) {
+        return new org.python.core.PyList(items);
+    }
+
+    public static PyObject buildSlice(PyObject[] args) {
+        return new PySlice(args[0], args[1], args.length == 3 ? args[2] : null);
+    }
+
+    public static PyObject importName(PyFrame f, String name, PyObject fromlist, PyObject level) {
+        PyObject __import__ = f.f_builtins.__finditem__("__import__");
+        if (__import__ == null) {
+            throw Py.ImportError("__import__ not found", "__import__");
+        }
+        PyObject pyName = Py.newString(name);
+        if (level.asInt() != -1) {
+            return __import__.__call__(new PyObject[] {pyName, f.f_globals, f.f_locals, fromlist,
+                    level});
+        }
+        return __import__.__call__(new PyObject[] {pyName, f.f_globals, f.f_locals, fromlist});
+    }
+
+    public static PyObject importFrom(PyObject module, String name) {
+        try {
+            return module.__getattr__(name);
+        } catch (PyException pye) {
+            if (pye.match(Py.AttributeError)) {
+                throw Py.ImportError(String.format("cannot import name %.230s", name), name);
+            }
+            throw pye;
+        }
+    }
+
+    public static PyObject getIter(PyObject v) {
+        PyObject it = v.__iter__();
+        return it != null ? it : v;
+    }
+
+    /** The next item of an iterator, or null at its end. */
+    public static PyObject forIter(PyObject it) {
+        try {
+            return it.__next__();
+        } catch (PyException pye) {
+            if (!pye.match(Py.StopIteration)) {
+                throw pye;
+            }
+            return null;
+        }
+    }
+
+    public static PyObject call(PyObject callable, PyObject[] params, int na, int nk) {
+        if (nk == 0) {
+            return callable.__call__(params);
+        }
+        PyObject args[] = new PyObject[na + nk];
+        String keywords[] = new String[nk];
+        System.arraycopy(params, 0, args, 0, na);
+        for (int i = na, j = 0; j < nk; i += 2, j++) {
+            keywords[j] = params[i].toString();
+            args[na + j] = params[i + 1];
+        }
+        return callable.__call__(args, keywords);
+    }
+
+    public static PyObject callExtra(PyObject callable, PyObject[] params, int na, int nk,
+            boolean var, boolean kw) {
+        int n = na + 2 * nk;
+        PyObject[] starargs = var ? new PyObject[] {params[n]} : new PyObject[0];
+        PyObject[] kwargs = kw ? new PyObject[] {params[params.length - 1]} : new PyObject[0];
+        PyObject args[] = new PyObject[na + nk];
+        String keywords[] = new String[nk];
+        System.arraycopy(params, 0, args, 0, na);
+        for (int i = na, j = 0; j < nk; i += 2, j++) {
+            keywords[j] = params[i].toString();
+            args[na + j] = params[i + 1];
+        }
+        return callable._callextra(args, keywords, starargs, kwargs);
+    }
+
+    /** Make a function from defaults..., kw_defaults, code. */
+    public static PyObject makeFunction(PyObject[] args, PyFrame f) {
+        int n = args.length - 2;
+        PyObject[] defaults = new PyObject[n];
+        System.arraycopy(args, 0, defaults, 0, n);
+        PyCode code = (PyCode) args[n + 1];
+        PyObject doc = null;
+        if (code instanceof PyBytecode && ((PyBytecode) code).co_consts.length > 0) {
+            doc = ((PyBytecode) code).co_consts[0];
+        }
+        return new PyFunction(f.f_globals, defaults, (PyDictionary) args[n], code, doc);
+    }
+}
@@ -0,0 +1,107 @@
+package org.python.compiler;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.ByteVector;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * A class file attribute carrying the classes that hold the function bodies of a module compiled
+ * with <code>python.compile.splitFunctions</code>. The module class is the unit that gets cached,
+ * put in jars and loaded, so its function classes travel inside it; the JVM ignores the attribute,
+ * and {@link org.python.core.BytecodeLoader} defines each class only when the module first calls
+ * into it.
+ */
+public class SplitFunctionsAttribute extends Attribute {
+
+    public static final String NAME = "org.python.SplitFunctions";
+
+    private final Map<String, byte[]> classes;
+
+    public SplitFunctionsAttribute() {
+        this(new LinkedHashMap<String, byte[]>());
+    }
+
+    private SplitFunctionsAttribute(Map<String, byte[]> classes) {
+        super(NAME);
+        this.classes = classes;
+    }
+
+    /** Add a class, by its binary name, to those carried by this attribute. */
+    public void add(String name, byte[] data) {
+        classes.put(name, data);
+    }
+
+    public boolean isEmpty() {
+        return classes.isEmpty();
+    }
+
+    /**
+     * Return the classes carried by the class file <code>cr</code>, keyed by binary name, or null
+     * if it has none.
+     */
+    public static Map<String, byte[]> read(ClassReader cr) {
+        final SplitFunctionsAttribute[] found = {null};
+        cr.accept(new ClassVisitor(Opcodes.ASM5) {
+
+            @Override
+            public FieldVisitor visitField(int access, String name, String desc,
+                    String signature, Object value) {
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc,
+                    String signature, String[] exceptions) {
+                return null;
+            }
+
+            @Override
+            public void visitAttribute(Attribute attr) {
+                if (attr instanceof SplitFunctionsAttribute) {
+                    found[0] = (SplitFunctionsAttribute) attr;
+                }
+            }
+        }, new Attribute[] {new SplitFunctionsAttribute()},
+                ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+        return found[0] == null ? null : found[0].classes;
+    }
+
+    @Override
+    protected Attribute read(ClassReader cr, int off, int len, char[] buf, int codeOff,
+            Label[] labels) {
+        Map<String, byte[]> read = new LinkedHashMap<String, byte[]>();
+        int count = cr.readInt(off);
+        off += 4;
+        for (int i = 0; i < count; i++) {
+            String name = cr.readUTF8(off, buf);
+            int size = cr.readInt(off + 2);
+            byte[] data = new byte[size];
+            System.arraycopy(cr.b, off + 6, data, 0, size);
+            read.put(name, data);
+            off += 6 + size;
+        }
+        return new SplitFunctionsAttribute(read);
+    }
+
+    @Override
+    protected ByteVector write(ClassWriter cw, byte[] code, int len, int maxStack, int maxLocals) {
+        ByteVector out = new ByteVector();
+        out.putInt(classes.size());
+        for (Map.Entry<String, byte[]> entry : classes.entrySet()) {
+            byte[] data = entry.getValue();
+            out.putShort(cw.newUTF8(entry.getKey()));
+            out.putInt(data.length);
+            out.putByteArray(data, 0, data.length);
+        }
+        return out;
+    }
+}
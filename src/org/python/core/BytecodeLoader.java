@@ -1,12 +1,22 @@
 // Copyright (c) Corporation for National Research Initiatives
 package org.python.core;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.objectweb.asm.ClassReader;
 import org.python.Version;
+import org.python.compiler.SplitFunctionsAttribute;
+import org.python.core.jfr.Events;
+import org.python.pycode.PyCodeLookup;
 import org.python.util.Generic;
 
 /**
@@ -36,6 +46,7 @@ public class BytecodeLoader {
             }
         }
         Class<?> c = loader.loadClassFromBytes(name, data);
+        defined(data);
         BytecodeNotification.notify(name, data, c);
         return c;
     }
@@ -66,8 +77,88 @@ public class BytecodeLoader {
      *            the java byte code.
      */
     public static PyCode makeCode(String name, byte[] data, String filename) {
+        Object event = Events.beginCompile("define", filename);
+        ImportTime.defined(data.length);
+        try {
+            return loadCode(makeClass(name, data), filename);
+        } finally {
+            Events.endCompile(event, data.length);
+        }
+    }
+
+    /**
+     * Turn the java byte code for python code compiled at run time (by <code>compile()</code>,
+     * <code>exec()</code>, <code>eval()</code> or an embedding interpreter) into a java class.
+     * <p>
+     * On Java 15 and later the class is defined as a hidden class, which is cheap to define and
+     * is unloaded as soon as its code object is unreachable. Otherwise, as for modules, each class
+     * gets a class loader of its own.
+     *
+     * @param name
+     *            the name of the class, in the <code>org.python.pycode</code> package
+     * @param data
+     *            the java byte code.
+     */
+    public static PyCode makeDynamicCode(String name, byte[] data, String filename) {
+        Object event = Events.beginCompile("define", filename);
+        try {
+            return loadCode(makeDynamicClass(name, data), filename);
+        } finally {
+            Events.endCompile(event, data.length);
+        }
+    }
+
+    /**
+     * Turn java byte code generated at run time into a java class, as a hidden class where the
+     * JVM supports them (see {@link #makeDynamicCode}).
+     *
+     * @param name
+     *            the name of the class, in the <code>org.python.pycode</code> package
+     * @param data
+     *            the java byte code.
+     */
+    public static Class<?> makeDynamicClass(String name, byte[] data) {
+        if (defineHiddenClass != null && name.startsWith(PYCODE_PACKAGE)) {
+            try {
+                Lookup pycode = PyCodeLookup.lookup(MethodHandles.lookup());
+                Lookup lookup = (Lookup) defineHiddenClass.invoke(pycode, data, false,
+                        hiddenClassOptions);
+                Class<?> c = lookup.lookupClass();
+                defined(data);
+                BytecodeNotification.notify(name, data, c);
+                return c;
+            } catch (InvocationTargetException | IllegalAccessException e) {
+                // defined below instead, as a normal class
+            }
+        }
+        return makeClass(name, data);
+    }
+
+    /** The number of classes defined from generated byte code, and their total size. */
+    private static final LongAdder classCount = new LongAdder();
+    private static final LongAdder classBytes = new LongAdder();
+
+    private static void defined(byte[] data) {
+        classCount.increment();
+        classBytes.add(data.length);
+    }
+
+    /** The number of classes defined from generated byte code so far, by all interpreters. */
+    static long getClassCount() {
+        return classCount.sum();
+    }
+
+    /**
+     * The total size of the class files defined so far, by all interpreters: a rough measure of
+     * the metaspace they take, which the JVM does not report by class loader.
+     */
+    static long getClassBytes() {
+        return classBytes.sum();
+    }
+
+    /** Make an instance of the class of a compiled module, and return its main code. */
+    static PyCode loadCode(Class<?> c, String filename) {
         try {
-            Class<?> c = makeClass(name, data);
             Object o = c.getConstructor(new Class[] {String.class})
                     .newInstance(new Object[] {filename});
             return ((PyRunnable)o).getMain();
@@ -76,10 +167,36 @@ public class BytecodeLoader {
         }
     }
 
+    private static final String PYCODE_PACKAGE = PyCodeLookup.class.getPackage().getName() + ".";
+
+    /** Lookup.defineHiddenClass, or null before Java 15. */
+    private static final Method defineHiddenClass;
+
+    /** An empty Lookup.ClassOption[], for defineHiddenClass. */
+    private static final Object hiddenClassOptions;
+
+    static {
+        Method define = null;
+        Object options = null;
+        try {
+            Class<?> option = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+            options = Array.newInstance(option, 0);
+            define = Lookup.class.getMethod("defineHiddenClass", byte[].class, Boolean.TYPE,
+                    options.getClass());
+        } catch (ReflectiveOperationException e) {
+            define = null;
+        }
+        defineHiddenClass = define;
+        hiddenClassOptions = options;
+    }
+
     public static class Loader extends URLClassLoader {
 
         private List<ClassLoader> parents = Generic.list();
 
+        /** Function classes of split modules, by name, until they are first loaded. */
+        private final Map<String, byte[]> functionClasses = Generic.map();
+
         public Loader() {
             super(new URL[0]);
             parents.add(imp.getSyspathJavaLoader());
@@ -97,6 +214,14 @@ public class BytecodeLoader {
             if (c != null) {
                 return c;
             }
+            synchronized (functionClasses) {
+                byte[] data = functionClasses.remove(name);
+                if (data != null) {
+                    defined(data);
+                    return defineClass(name, data, 0, data.length,
+                            getClass().getProtectionDomain());
+                }
+            }
             for (ClassLoader loader : parents) {
                 try {
                     return loader.loadClass(name);
@@ -114,6 +239,12 @@ public class BytecodeLoader {
                     // even 'baz.__init__' which is compiled as just 'baz'
                     ClassReader cr = new ClassReader(data);
                     name = cr.getClassName().replace('/', '.');
+                    Map<String, byte[]> split = SplitFunctionsAttribute.read(cr);
+                    if (split != null) {
+                        synchronized (functionClasses) {
+                            functionClasses.putAll(split);
+                        }
+                    }
                 } catch (RuntimeException re) {
                     // Probably an invalid .class, fallback to the
                     // specified name
@@ -0,0 +1,148 @@
+/* Copyright (c) Jython Developers */
+package org.python.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.python.antlr.base.mod;
+
+/**
+ * A bounded cache of the code objects compiled from source strings by <code>compile()</code>,
+ * <code>exec()</code> and <code>eval()</code>, so that evaluating the same expression over and
+ * over again parses and generates code for it only once. Entries are keyed on everything that
+ * determines the compiled code: the source, the file name, the mode, the compiler flags and the
+ * optimization settings. They keep the flags the compilation left behind, such as those set by
+ * <code>__future__</code> imports, to set them again on a hit.
+ * <p>
+ * What is kept is the class generated for the code, not the code object: each hit makes a new
+ * instance of it, so that every call returns code objects of its own, as compiling again would,
+ * and no state hung on them is shared between callers or interpreters.
+ * <p>
+ * The cache is shared by all interpreters and configured by the registry option
+ * <code>python.compile.cachespec</code>, a Guava <code>CacheBuilderSpec</code>;
+ * <code>maximumSize=0</code> disables it.
+ */
+class CompiledCodeCache {
+
+    private static final class Key {
+
+        private final String source;
+        private final String filename;
+        private final CompileMode kind;
+        private final int flags;
+        private final String encoding;
+        private final int optimize;
+        private final boolean astOptimize;
+
+        Key(String source, String filename, CompileMode kind, CompilerFlags cflags) {
+            this.source = source;
+            this.filename = filename;
+            this.kind = kind;
+            this.flags = cflags == null ? 0 : cflags.toBits();
+            this.encoding = cflags == null ? null : cflags.encoding;
+            this.optimize = Options.optimize;
+            this.astOptimize = Options.compileOptimize;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = source.hashCode();
+            h = 31 * h + (filename == null ? 0 : filename.hashCode());
+            h = 31 * h + kind.hashCode();
+            h = 31 * h + optimize;
+            return 31 * h + flags;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return source.equals(other.source) && kind == other.kind && flags == other.flags
+                    && optimize == other.optimize && astOptimize == other.astOptimize
+                    && equal(filename, other.filename) && equal(encoding, other.encoding);
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    /** The class of a compiled code object and the compiler flags as its compilation left them. */
+    private static final class Compiled {
+
+        private final Class<?> table;
+        private final int flags;
+        private final String encoding;
+
+        Compiled(Class<?> table, CompilerFlags cflags) {
+            this.table = table;
+            this.flags = cflags == null ? 0 : cflags.toBits();
+            this.encoding = cflags == null ? null : cflags.encoding;
+        }
+
+        /** Set the flags, as compiling the source again would. */
+        void applyTo(CompilerFlags cflags) {
+            if (cflags != null) {
+                for (CodeFlag flag : CodeFlag.parse(flags)) {
+                    cflags.setFlag(flag);
+                }
+                cflags.encoding = encoding;
+            }
+        }
+    }
+
+    private enum CACHE {
+        INSTANCE(Options.compileCacheSpec);
+        private final Cache<Key, Compiled> cache;
+
+        private CACHE(String spec) {
+            CacheBuilder<Object, Object> builder;
+            try {
+                builder = CacheBuilder.from(spec);
+            } catch (IllegalArgumentException iae) {
+                Py.writeWarning("compile", String.format(
+                        "Incompatible options in python.compile.cachespec '%s' due to: %s",
+                        spec, iae.getMessage()));
+                Py.writeMessage("compile", String.format(
+                        "Defaulting python.compile.cachespec to '%s'",
+                        Options.compileCacheSpecDefault));
+                builder = CacheBuilder.from(Options.compileCacheSpecDefault);
+            }
+            cache = builder.build();
+        }
+    }
+
+    private CompiledCodeCache() {}
+
+    /**
+     * Compile <code>source</code>, or return a new instance of the code compiled for it earlier
+     * with the same file name, mode and flags.
+     */
+    static PyCode compile(String source, String filename, CompileMode kind,
+            CompilerFlags cflags) {
+        Key key = new Key(source, filename, kind, cflags);
+        Cache<Key, Compiled> cache = CACHE.INSTANCE.cache;
+        Compiled compiled = cache.getIfPresent(key);
+        if (compiled == null) {
+            mod node = ParserFacade.parse(source, kind, filename, cflags);
+            PyCode code = Py.compile_flags(node, filename, kind, cflags);
+            if (code instanceof PyTableCode) {
+                cache.put(key, new Compiled(((PyTableCode) code).funcs.getClass(), cflags));
+            }
+            return code;
+        }
+        compiled.applyTo(cflags);
+        return BytecodeLoader.loadCode(compiled.table, filename);
+    }
+
+    /** The approximate number of code objects in the cache. */
+    static long size() {
+        return CACHE.INSTANCE.cache.size();
+    }
+
+    static void clear() {
+        CACHE.INSTANCE.cache.invalidateAll();
+    }
+}
@@ -24,6 +24,21 @@ public class Deriveds {
         self.proxyInit();
     }
 
+    /**
+     * Whether instances of a type defined in Python get their attributes with
+     * object.__getattribute__, noting it on the type as __findattr_ex__ does.
+     */
+    static boolean usesObjectGetattribute(PyType type) {
+        if (type.getUsesObjectGetattribute()) {
+            return true;
+        }
+        if (type.builtin || type.lookup("__getattribute__") != objectGetattribute) {
+            return false;
+        }
+        type.setUsesObjectGetattribute(true);
+        return true;
+    }
+
     /**
      * Deriveds' __findattr_ex__ implementation.
      *
@@ -68,6 +83,15 @@ public class Deriveds {
             }
         }
 
+        return getattrFallback(self, type, name, pyName, firstAttributeError);
+    }
+
+    /**
+     * What __findattr_ex__ does when __getattribute__ finds nothing or raises AttributeError:
+     * call __getattr__ if the type has one, or else raise that AttributeError, if any.
+     */
+    static PyObject getattrFallback(PyObject self, PyType type, String name, PyUnicode pyName,
+                                    PyException firstAttributeError) {
         PyObject getattr = type.lookup("__getattr__");
         if (getattr != null) {
             return getattr.__get__(self, type).__call__(pyName != null
@@ -0,0 +1,125 @@
+/* Copyright (c) Jython Developers */
+package org.python.core;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import org.python.core.util.PlatformUtil;
+
+/**
+ * Listings of the directories on <code>sys.path</code> and below, so that looking in each of them
+ * for a Java class, resource or package costs one stat of a directory, to see whether it changed,
+ * instead of a failed open or stat of every candidate file. This is how importlib's
+ * <code>FileFinder</code> finds Python modules.
+ * <p>
+ * A listing is read again when the modification time of its directory changes, and all of them
+ * are dropped by <code>importlib.invalidate_caches()</code>, through
+ * {@link JavaImporter}. The registry option <code>python.import.dircache</code> turns the cache
+ * off, for file systems that do not update the modification time of a directory.
+ */
+public class DirectoryCache {
+
+    /** Listings kept, beyond which the least recently used are dropped. */
+    private static final int MAX_DIRECTORIES = 4096;
+
+    private static final class Listing {
+
+        final long mtime;
+        final Set<String> names;
+
+        Listing(long mtime, String[] names) {
+            this.mtime = mtime;
+            this.names = names == null ? Collections.<String> emptySet()
+                    : new HashSet<String>(Arrays.asList(names));
+        }
+    }
+
+    private static final Cache<String, Listing> listings =
+            CacheBuilder.newBuilder().maximumSize(MAX_DIRECTORIES).build();
+
+    private DirectoryCache() {}
+
+    /**
+     * Whether a file may exist at a path relative to a directory. False means that some directory
+     * on the way, unchanged since it was last listed, did not contain the next name, so that
+     * there is no need to look for the file itself. Paths with <code>.</code> or
+     * <code>..</code> components are not looked up in the listings, as the names in them need not
+     * be in any listing.
+     *
+     * @param dir the directory, such as an entry of <code>sys.path</code>
+     * @param path the path of the file, its components separated by
+     *            <code>File.separatorChar</code> or by <code>/</code>, as in resource names
+     * @return false if the file certainly does not exist
+     */
+    public static boolean mayExist(File dir, String path) {
+        if (!Options.importDirectoryCache
+                || (Options.caseok && PlatformUtil.isCaseInsensitive())) {
+            return true;
+        }
+        if (hasDotComponent(path)) {
+            return true;
+        }
+        int start = 0;
+        while (start < path.length()) {
+            int end = separatorIndex(path, start);
+            if (end > start) {
+                String name = path.substring(start, end);
+                if (!list(dir).contains(name)) {
+                    return false;
+                }
+                dir = new File(dir, name);
+            }
+            start = end + 1;
+        }
+        return true;
+    }
+
+    /** Whether a component of a path is <code>.</code> or <code>..</code>. */
+    private static boolean hasDotComponent(String path) {
+        int start = 0;
+        while (start < path.length()) {
+            int end = separatorIndex(path, start);
+            int length = end - start;
+            if ((length == 1 || length == 2) && path.charAt(start) == '.'
+                    && path.charAt(end - 1) == '.') {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /** The index of the next separator in a path from start on, or its length if none. */
+    private static int separatorIndex(String path, int start) {
+        for (int i = start; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == File.separatorChar || c == '/') {
+                return i;
+            }
+        }
+        return path.length();
+    }
+
+    /** Forget all listings, so that directories are read again when next looked in. */
+    public static void invalidate() {
+        listings.invalidateAll();
+    }
+
+    private static Set<String> list(File dir) {
+        String key = dir.getPath();
+        // 0 if dir does not exist, when the listing is empty
+        long mtime = dir.lastModified();
+        Listing listing = listings.getIfPresent(key);
+        if (listing == null || listing.mtime != mtime) {
+            listing = new Listing(mtime, dir.list());
+            listings.put(key, listing);
+        }
+        return listing.names;
+    }
+}
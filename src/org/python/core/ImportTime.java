@@ -0,0 +1,260 @@
+package org.python.core;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records how long each module took to import, like <code>-X importtime</code> of CPython, to
+ * find the imports that make startup slow. It is on when {@link Options#importTime} is set, by
+ * the registry option <code>python.import.time</code> or the <code>-X importtime</code> command
+ * line option, and reports when the JVM exits: as a tree on <code>stderr</code>, or as CSV in a
+ * file.
+ * <p>
+ * For each module not yet in <code>sys.modules</code> when imported, it records the time taken
+ * by the import itself (self) and with the imports it made in turn (cumulative), where the module
+ * came from, and the size of the class files defined for it. The origin is one of
+ * <code>source</code> (compiled on import), <code>compiled</code> (loaded from a
+ * <code>$py.class</code> file), <code>builtin</code>, <code>java</code> (a Java package or
+ * class), <code>missing</code> (the import failed) or <code>other</code>.
+ * <p>
+ * At most {@link #maxRecords} imports are kept, so that a long running program that imports
+ * freely does not hold on to ever more of them: later imports are only counted. The imports are
+ * forgotten once reported.
+ */
+public final class ImportTime {
+
+    /** One import, with those it made in turn. */
+    private static final class Record {
+
+        final String name;
+        final Record parent;
+        final String thread;
+        final List<Record> imports = new ArrayList<Record>(0);
+        final long start = System.nanoTime();
+        long cumulative;
+        long children;
+        String origin;
+        long bytes;
+
+        Record(String name, Record parent) {
+            this.name = name;
+            this.parent = parent;
+            this.thread = Thread.currentThread().getName();
+        }
+
+        int depth() {
+            int depth = 0;
+            for (Record r = parent; r != null; r = r.parent) {
+                depth++;
+            }
+            return depth;
+        }
+    }
+
+    /** The innermost import in progress on each thread. */
+    private static final ThreadLocal<Record> current = new ThreadLocal<Record>();
+
+    /** Imports made outside of any other, in the order they began; guarded by the class. */
+    private static final List<Record> roots = new ArrayList<Record>();
+
+    /** The most imports kept; package visible for testing. */
+    static int maxRecords = 100000;
+
+    /** Imports kept, and imports made once {@link #maxRecords} were; guarded by the class. */
+    private static int recorded, dropped;
+
+    private static boolean hooked;
+
+    private ImportTime() {}
+
+    /**
+     * Begin the import of a module that is not yet in <code>sys.modules</code>.
+     *
+     * @return a handle to pass to {@link #end(Object, PyObject)}, or null when not recording
+     */
+    static Object begin(String module) {
+        if (Options.importTime == null) {
+            return null;
+        }
+        Record parent = current.get();
+        Record record = new Record(module, parent);
+        synchronized (ImportTime.class) {
+            if (!hooked) {
+                hook();
+            }
+            if (recorded >= maxRecords) {
+                dropped++;
+                return null;
+            }
+            recorded++;
+            if (parent == null) {
+                roots.add(record);
+            } else {
+                parent.imports.add(record);
+            }
+        }
+        current.set(record);
+        return record;
+    }
+
+    static void end(Object handle, PyObject module) {
+        if (handle == null) {
+            return;
+        }
+        Record record = (Record) handle;
+        record.cumulative = System.nanoTime() - record.start;
+        if (module == null || module == Py.None) {
+            record.origin = "missing";
+        } else if (record.origin == null) {
+            record.origin = module instanceof PyJavaPackage || module instanceof PyJavaType
+                    ? "java" : "other";
+        }
+        if (record.parent != null) {
+            record.parent.children += record.cumulative;
+        }
+        current.set(record.parent);
+    }
+
+    /**
+     * Say where the module of the innermost import in progress on this thread came from, if not
+     * already said.
+     */
+    public static void origin(String origin) {
+        Record record = current.get();
+        if (record != null && record.origin == null) {
+            record.origin = origin;
+        }
+    }
+
+    /** Add to the size of the class files defined for the innermost import on this thread. */
+    static void defined(int bytes) {
+        Record record = current.get();
+        if (record != null) {
+            record.bytes += bytes;
+        }
+    }
+
+    /**
+     * Write the imports recorded so far as an indented tree, with a line for each import, in
+     * the order they began.
+     */
+    public static synchronized void printTree(Writer out) {
+        PrintWriter pw = new PrintWriter(out);
+        pw.println("import time: self [us] | cumulative | origin   | bytecode | imported package");
+        long total = 0;
+        for (Record root : roots) {
+            printTree(pw, root, 0);
+            total += root.cumulative;
+        }
+        pw.printf("import time: %d imports, %d us in all%n", count(roots), micros(total));
+        if (dropped > 0) {
+            pw.printf("import time: %d more imports not recorded%n", dropped);
+        }
+        pw.flush();
+    }
+
+    private static void printTree(PrintWriter pw, Record record, int depth) {
+        StringBuilder indent = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            indent.append("  ");
+        }
+        pw.printf("import time: %9d | %10d | %-8s | %8d | %s%s%n", micros(self(record)),
+                micros(record.cumulative), record.origin, record.bytes, indent, record.name);
+        for (Record child : record.imports) {
+            printTree(pw, child, depth + 1);
+        }
+    }
+
+    /**
+     * Write the imports recorded so far as CSV, with a header line, in the order they began.
+     * Times are in microseconds.
+     */
+    public static synchronized void writeCsv(Writer out) {
+        PrintWriter pw = new PrintWriter(out);
+        pw.println("module,parent,depth,self_us,cumulative_us,origin,bytecode_bytes,thread");
+        for (Record root : roots) {
+            writeCsv(pw, root);
+        }
+        pw.flush();
+    }
+
+    private static void writeCsv(PrintWriter pw, Record record) {
+        pw.printf("%s,%s,%d,%d,%d,%s,%d,%s%n", record.name,
+                record.parent == null ? "" : record.parent.name, record.depth(),
+                micros(self(record)), micros(record.cumulative), record.origin, record.bytes,
+                csvField(record.thread));
+        for (Record child : record.imports) {
+            writeCsv(pw, child);
+        }
+    }
+
+    /** Forget the imports recorded so far. */
+    public static synchronized void clear() {
+        roots.clear();
+        recorded = 0;
+        dropped = 0;
+    }
+
+    private static long self(Record record) {
+        return record.cumulative - record.children;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private static int count(List<Record> records) {
+        int n = records.size();
+        for (Record record : records) {
+            n += count(record.imports);
+        }
+        return n;
+    }
+
+    private static String csvField(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) {
+            return s;
+        }
+        return '"' + s.replace("\"", "\"\"") + '"';
+    }
+
+    private static void hook() {
+        hooked = true;
+        try {
+            Runtime.getRuntime().addShutdownHook(new Thread("Jython Import Time") {
+
+                @Override
+                public void run() {
+                    report();
+                }
+            });
+        } catch (SecurityException e) {
+            // then only printTree and writeCsv report
+        }
+    }
+
+    private static void report() {
+        String dest = Options.importTime;
+        if (dest == null) {
+            return;
+        }
+        if (dest.equalsIgnoreCase("true") || dest.equalsIgnoreCase("tree")) {
+            printTree(new OutputStreamWriter(System.err, StandardCharsets.UTF_8));
+        } else {
+            try (Writer out = new OutputStreamWriter(new FileOutputStream(dest),
+                    StandardCharsets.UTF_8)) {
+                writeCsv(out);
+            } catch (IOException e) {
+                System.err.println("import time: can't write " + dest + ": " + e);
+            }
+        }
+        clear();
+    }
+}
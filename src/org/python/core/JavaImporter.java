@@ -66,6 +66,7 @@ public class JavaImporter extends PyObject {
 
     @ExposedMethod
     public PyObject JavaImporter_create_module(PyObject spec) {
+        imp.importOrigin("java");
         return lookupName(spec.__findattr__("name").asString());
     }
 
@@ -76,9 +77,20 @@ public class JavaImporter extends PyObject {
 
     @ExposedMethod
     public PyObject JavaImporter_load_module(String name) {
+        imp.importOrigin("java");
         return lookupName(name);
     }
 
+    /**
+     * Forget the listings of the directories on sys.path, and the Java packages and classes found
+     * or found missing, as <code>importlib.invalidate_caches()</code> asks of every finder.
+     */
+    @ExposedMethod
+    public void JavaImporter_invalidate_caches() {
+        DirectoryCache.invalidate();
+        PySystemState.packageManager.invalidateCaches();
+    }
+
     public static final PyObject lookupName(String name) {
         PyObject ret = PySystemState.packageManager.lookupName(name.intern());
         if (ret == null && name.startsWith("java.")) {
@@ -156,6 +156,16 @@ public class Opcode {
     /* Support for opargs more than 16 bits long */
     public static final int EXTENDED_ARG = 143;
 
+    /* Quickened forms, which PyBytecode writes over its own copy of the instructions once it has
+       seen the operand types; they never appear in co_code */
+    public static final int BINARY_ADD_LONG = 34;	/* also INPLACE_ADD */
+    public static final int BINARY_SUBTRACT_LONG = 35;	/* also INPLACE_SUBTRACT */
+    public static final int BINARY_ADD_FLOAT = 36;
+    public static final int BINARY_SUBTRACT_FLOAT = 37;
+    public static final int COMPARE_OP_LONG = 200;
+    public static final int LOAD_GLOBAL_CACHED = 201;
+    public static final int LOAD_ATTR_CACHED = 202;
+
     // comparison opcodes (on the oparg), just put in this class too
     public static final int PyCmp_LT = 0;
     public static final int PyCmp_LE = 1;
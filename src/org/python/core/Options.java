@@ -99,6 +99,81 @@ public class Options {
     // but this is user visible as of 2.7.
     public static int optimize = 0;
 
+    /**
+     * Whether the compiler runs its AST optimizer (constant folding, dead code removal and so
+     * on) before generating code. Set by the registry option <code>python.compile.optimize</code>.
+     */
+    public static boolean compileOptimize = true;
+
+    /**
+     * Cache spec for the cache of code compiled from strings by compile(), exec() and eval(). The
+     * value is a CacheBuilderSpec string; maximumSize=0 disables the cache.
+     */
+    public static final String compileCacheSpecDefault = "maximumSize=256";
+    public static String compileCacheSpec = compileCacheSpecDefault;
+
+    /**
+     * Whether modules compiled on import put each function body in a class of its own, defined
+     * the first time the function is called, and create their code objects on first use. This
+     * trades a little call overhead for faster imports of large modules of which only a few
+     * functions are used. Set by the registry option <code>python.compile.splitFunctions</code>.
+     */
+    public static boolean compileSplitFunctions = false;
+
+    /**
+     * Whether compiled modules leave it to the line number table of their classes to say which
+     * line a frame is at, only updating the frame itself when it is traced. Tracebacks then take
+     * their line numbers from the Java stack of the exception, so this has no effect unless
+     * {@link #includeJavaStackInExceptions} is set too. A Java exception thrown without a stack
+     * trace leaves the line unknown, and reading <code>f_lineno</code> walks the Java stack. Set
+     * by the registry option <code>python.compile.lazyLines</code>.
+     */
+    public static boolean compileLazyLines = false;
+
+    /**
+     * Whether code run by the Python bytecode interpreter ({@link PyBytecode}) rewrites its
+     * instructions as it runs into forms specialized to the types and names it has seen. Set by
+     * the registry option <code>python.bytecode.quicken</code>.
+     */
+    public static boolean bytecodeQuicken = true;
+
+    /**
+     * How many calls (a loop iteration counting for a sixteenth of one) it takes before code run
+     * by the Python bytecode interpreter is translated to JVM bytecode, as far as its
+     * instructions allow, or -1 to always interpret it. Set by the registry option
+     * <code>python.bytecode.compileThreshold</code>.
+     */
+    public static int bytecodeCompileThreshold = 1000;
+
+    /**
+     * Whether each {@link PySystemState} registers a {@link PySystemStateMXBean} with the
+     * platform MBean server, reporting live statistics of the interpreter. Set by the registry
+     * option <code>python.jmx</code>.
+     */
+    public static boolean jmx = false;
+
+    /**
+     * Whether the directories on <code>sys.path</code> are listed once, and the listings reused
+     * until the directory changes, when looking for Java classes, resources and packages in them
+     * (see {@link DirectoryCache}). Set by the registry option <code>python.import.dircache</code>.
+     */
+    public static boolean importDirectoryCache = true;
+
+    /**
+     * Where {@link ImportTime} reports how long each import took when the JVM exits: null for
+     * nowhere, <code>"true"</code> for a tree on <code>stderr</code>, or otherwise the name of a
+     * CSV file. Set by the registry option <code>python.import.time</code>, or the command line
+     * option <code>-X importtime[=file]</code>.
+     */
+    public static String importTime = null;
+
+    /**
+     * How many scripts each JSR 223 script engine keeps compiled, by their text, so that
+     * evaluating the same script again does not compile it again; 0 for none. Set by the
+     * registry option <code>python.jsr223.scriptCacheSize</code>.
+     */
+    public static int jsr223ScriptCacheSize = 256;
+
     /**
      * Enable division warning. The value maps to the registry values of
      * <ul>
@@ -133,6 +208,18 @@ public class Options {
         return prop.equalsIgnoreCase("true") || prop.equalsIgnoreCase("yes");
     }
 
+    private static int getIntOption(String name, int defaultValue) {
+        String prop = PySystemState.registry.getProperty("python." + name);
+        if (prop == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(prop.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
     private static String getStringOption(String name, String defaultValue) {
         String prop = PySystemState.registry.getProperty("python." + name);
         if (prop == null) {
@@ -203,5 +290,33 @@ public class Options {
         Options.sreCacheSpec = getStringOption("sre.cachespec", Options.sreCacheSpec);
 
         Options.importSite = getBooleanOption("import.site", Options.importSite);
+
+        Options.compileOptimize = getBooleanOption("compile.optimize", Options.compileOptimize);
+
+        Options.compileCacheSpec = getStringOption("compile.cachespec", Options.compileCacheSpec);
+
+        Options.compileSplitFunctions =
+                getBooleanOption("compile.splitFunctions", Options.compileSplitFunctions);
+
+        Options.compileLazyLines = getBooleanOption("compile.lazyLines", Options.compileLazyLines);
+
+        Options.bytecodeQuicken = getBooleanOption("bytecode.quicken", Options.bytecodeQuicken);
+
+        Options.bytecodeCompileThreshold =
+                getIntOption("bytecode.compileThreshold", Options.bytecodeCompileThreshold);
+
+        Options.jmx = getBooleanOption("jmx", Options.jmx);
+
+        Options.importDirectoryCache =
+                getBooleanOption("import.dircache", Options.importDirectoryCache);
+
+        Options.importTime = getStringOption("import.time", Options.importTime);
+        if (Options.importTime != null
+                && (Options.importTime.isEmpty() || Options.importTime.equalsIgnoreCase("false"))) {
+            Options.importTime = null;
+        }
+
+        Options.jsr223ScriptCacheSize =
+                getIntOption("jsr223.scriptCacheSize", Options.jsr223ScriptCacheSize);
     }
 }
@@ -14,6 +14,7 @@ import org.python.antlr.base.mod;
 import org.python.core.io.StreamIO;
 import org.python.core.io.TextIOInputStream;
 import org.python.core.io.UniversalIOWrapper;
+import org.python.core.jfr.Events;
 import org.python.core.util.StringUtil;
 
 import java.io.BufferedInputStream;
@@ -123,7 +124,7 @@ public class ParserFacade {
         try {
             bufReader = prepBufReader(reader, cflags, filename);
             // first, try parsing as an expression
-            return parse(bufReader, CompileMode.eval, filename, cflags);
+            return parseOnly(bufReader, CompileMode.eval, filename, cflags);
         } catch (Throwable t) {
             if (bufReader == null) {
                 throw Py.JavaError(t); // can't do any more
@@ -131,10 +132,12 @@ public class ParserFacade {
             try {
                 // then, try parsing as a module
                 bufReader.reset();
-                return parse(bufReader, CompileMode.exec, filename, cflags);
+                return parseOnly(bufReader, CompileMode.exec, filename, cflags);
             } catch (Throwable tt) {
                 throw fixParseError(bufReader, tt, filename);
             }
+        } finally {
+            close(bufReader);
         }
     }
 
@@ -155,9 +158,14 @@ public class ParserFacade {
                                  // reader, for the benefit of fixParseError and
                                  // validPartialSentence
         if (kind != null) {
-            CharStream cs = new NoCloseReaderStream(reader);
-            BaseParser parser = new BaseParser(cs, filename, cflags.encoding);
-            return kind.dispatch(parser);
+            Object event = Events.beginCompile("parse", filename);
+            try {
+                CharStream cs = new NoCloseReaderStream(reader);
+                BaseParser parser = new BaseParser(cs, filename, cflags.encoding);
+                return kind.dispatch(parser);
+            } finally {
+                Events.endCompile(event, 0);
+            }
         } else {
             throw Py.ValueError("parse kind must be eval, exec, or single");
         }
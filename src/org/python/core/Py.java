@@ -46,8 +46,6 @@ class BootstrapTypesSingleton {
         BOOTSTRAP_TYPES = Generic.set();
         BOOTSTRAP_TYPES.add(PyObject.class);
         BOOTSTRAP_TYPES.add(PyType.class);
-        BOOTSTRAP_TYPES.add(PyBuiltinCallable.class);
-        BOOTSTRAP_TYPES.add(PyDataDescr.class);
     }
 
     private static class LazyHolder {
@@ -2403,8 +2401,7 @@ public final class Py {
         } else {
             data += "\n\n";
         }
-        mod node = ParserFacade.parse(data, kind, filename, cflags);
-        return Py.compile_flags(node, filename, kind, cflags);
+        return CompiledCodeCache.compile(data, filename, kind, cflags);
     }
 
     public static PyObject compile_command_flags(String string, String filename,
@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.python.compiler.PyBytecodeCompiler;
+
 public class PyBytecode extends PyBaseCode implements Traverseproc {
 
     // for debugging
@@ -48,6 +50,25 @@ public class PyBytecode extends PyBaseCode implements Traverseproc {
     private final static int CALL_FLAG_VAR = 1;
     private final static int CALL_FLAG_KW = 2;
 
+    // quickening: the interpreter runs a copy of co_code in which instructions are replaced, as
+    // they run, by forms specialized to what they have seen (see Opcode.BINARY_ADD_LONG and
+    // following), with inline caches and fallback counts indexed by instruction offset
+    private volatile byte[] quickCode;
+    private Object[] inlineCaches;
+    private byte[] deopts;
+    /** Times an instruction may fall back from its quickened form before it stays generic. */
+    private final static int MAX_DEOPTS = 8;
+
+    // tiering: once called often enough (see Options.bytecodeCompileThreshold), the code is
+    // translated by PyBytecodeCompiler into a JVM method, which runs instead of the interpreter
+    // for frames that are not traced; a call already running carries on interpreting
+    private volatile PyFunctionTable compiled;
+    private boolean compileTried;
+    private int invocations;
+    private int backedges;
+    /** How many loop iterations count as much as one call towards the threshold. */
+    private final static int BACKEDGES_PER_CALL = 16;
+
     // follows new.code's interface
     public PyBytecode(int argcount, int nlocals, int stacksize, int flags,
             String codestring, PyObject[] constants, String[] names, String varnames[],
@@ -266,8 +287,249 @@ public class PyBytecode extends PyBaseCode implements Traverseproc {
         }
     }
 
+    /**
+     * Return the instructions to run: the copy of co_code that is quickened as it runs, made on
+     * first use, unless quickening is off or we are debugging (which shows the opcodes run).
+     */
+    private byte[] quickened() {
+        if (!Options.bytecodeQuicken || debug) {
+            return co_code;
+        }
+        byte[] code = quickCode;
+        if (code == null) {
+            synchronized (this) {
+                if (quickCode == null) {
+                    inlineCaches = new Object[co_code.length];
+                    deopts = new byte[co_code.length];
+                    quickCode = co_code.clone();
+                }
+                code = quickCode;
+            }
+        }
+        return code;
+    }
+
+    private void quicken(byte[] code, int instr, int opcode) {
+        if (deopts[instr] < MAX_DEOPTS) {
+            code[instr] = (byte) opcode;
+        }
+    }
+
+    /** A quickened instruction met what it was not made for: go back to the original. */
+    private void deoptimize(byte[] code, int instr) {
+        deopts[instr]++;
+        code[instr] = co_code[instr];
+    }
+
+    private void quickenArithmetic(byte[] code, int instr, PyObject a, PyObject b, int longOpcode,
+            int floatOpcode) {
+        Class<?> type = a.getClass();
+        if (type == b.getClass()) {
+            if (type == PyLong.class) {
+                quicken(code, instr, longOpcode);
+            } else if (type == PyFloat.class) {
+                quicken(code, instr, floatOpcode);
+            }
+        }
+    }
+
+    /** Deoptimize a quickened addition or subtraction and do what the original does instead. */
+    private PyObject deoptimizeArithmetic(byte[] code, int instr, PyObject a, PyObject b) {
+        deoptimize(code, instr);
+        switch (co_code[instr]) {
+            case Opcode.BINARY_ADD:
+                return a._add(b);
+            case Opcode.BINARY_SUBTRACT:
+                return a._sub(b);
+            case Opcode.INPLACE_ADD:
+                return a._iadd(b);
+            default:
+                return a._isub(b);
+        }
+    }
+
+    private final static CompareOp[] COMPARE_OPS = {
+        CompareOp.LT, CompareOp.LE, CompareOp.EQ, CompareOp.NE, CompareOp.GT, CompareOp.GE
+    };
+
+    private static PyObject compareLong(int oparg, int c) {
+        switch (oparg) {
+            case Opcode.PyCmp_LT:
+                return Py.newBoolean(c < 0);
+            case Opcode.PyCmp_LE:
+                return Py.newBoolean(c <= 0);
+            case Opcode.PyCmp_EQ:
+                return Py.newBoolean(c == 0);
+            case Opcode.PyCmp_NE:
+                return Py.newBoolean(c != 0);
+            case Opcode.PyCmp_GT:
+                return Py.newBoolean(c > 0);
+            default:
+                return Py.newBoolean(c >= 0);
+        }
+    }
+
+    /**
+     * The value a global name had, good for as long as neither the globals nor the builtins it was
+     * looked up in have changed.
+     */
+    private static class GlobalCache {
+
+        final PyStringMap globals;
+        final int globalsVersion;
+        final PyStringMap builtins;
+        final int builtinsVersion;
+        final PyObject value;
+
+        GlobalCache(PyStringMap globals, int globalsVersion, PyStringMap builtins,
+                int builtinsVersion, PyObject value) {
+            this.globals = globals;
+            this.globalsVersion = globalsVersion;
+            this.builtins = builtins;
+            this.builtinsVersion = builtinsVersion;
+            this.value = value;
+        }
+
+        boolean isValid(PyFrame f) {
+            return f.f_globals == globals && f.f_builtins == builtins
+                    && globals.version() == globalsVersion && builtins.version() == builtinsVersion;
+        }
+    }
+
+    /** Look up a global name and remember where it was found in the inline cache at instr. */
+    private PyObject loadGlobalCached(PyFrame f, byte[] code, int instr, String name) {
+        if (f.f_builtins == null) {
+            f.f_builtins = Py.getThreadState().systemState.builtins;
+        }
+        if (!(f.f_globals instanceof PyStringMap && f.f_builtins instanceof PyStringMap)) {
+            // versions are only kept by PyStringMap: never cache here
+            deopts[instr] = MAX_DEOPTS;
+            code[instr] = co_code[instr];
+            return f.getglobal(name);
+        }
+        PyStringMap globals = (PyStringMap) f.f_globals;
+        PyStringMap builtins = (PyStringMap) f.f_builtins;
+        int globalsVersion = globals.version();
+        int builtinsVersion = builtins.version();
+        PyObject value = f.getglobal(name);
+        Object cached = inlineCaches[instr];
+        if (cached instanceof GlobalCache && ((GlobalCache) cached).globals != globals) {
+            // this code runs against more than one module
+            deoptimize(code, instr);
+        }
+        inlineCaches[instr] = new GlobalCache(globals, globalsVersion, builtins, builtinsVersion,
+                value);
+        return value;
+    }
+
+    /**
+     * What an attribute name means on instances of a type that gets attributes the way object
+     * does, for as long as the type and its bases have not changed.
+     */
+    private static class AttrCache {
+
+        final PyType type;
+        final Object versionTag;
+        final PyObject descr;
+
+        AttrCache(PyType type, Object versionTag, PyObject descr) {
+            this.type = type;
+            this.versionTag = versionTag;
+            this.descr = descr;
+        }
+
+        /** As PyObject.object___findattr__, except that the type lookup is done already. */
+        PyObject get(PyObject obj, String name) {
+            if (descr != null && descr.isDataDescr()) {
+                return descr.__get__(obj, type);
+            }
+            PyObject dict = obj.fastGetDict();
+            if (dict != null) {
+                PyObject value = dict.__finditem__(name);
+                if (value != null) {
+                    return value;
+                }
+            }
+            if (descr != null && descr.implementsDescrGet()) {
+                return descr.__get__(obj, type);
+            }
+            return descr;
+        }
+    }
+
+    /**
+     * Load an attribute, through the inline cache at instr while the object is of the type last
+     * seen there. Anything not found this way, and objects of builtin types or of types with their
+     * own __getattribute__, take the ordinary route.
+     */
+    private PyObject loadAttrCached(PyObject obj, byte[] code, int instr, String name) {
+        PyType type = obj.getType();
+        Object cached = inlineCaches[instr];
+        AttrCache cache = null;
+        if (cached instanceof AttrCache) {
+            cache = (AttrCache) cached;
+            if (cache.type != type || cache.versionTag != type.getVersionTag()) {
+                cache = null;
+            }
+        }
+        if (cache == null) {
+            boolean cacheable = Deriveds.usesObjectGetattribute(type);
+            if (cached != null || !cacheable) {
+                deoptimize(code, instr);
+            }
+            if (!cacheable) {
+                return obj.__getattr__(name);
+            }
+            Object versionTag = type.getVersionTag();
+            cache = new AttrCache(type, versionTag, type.lookup(name));
+            inlineCaches[instr] = cache;
+        }
+        PyObject value;
+        try {
+            value = cache.get(obj, name);
+        } catch (PyException pye) {
+            if (!pye.match(Py.AttributeError)) {
+                throw pye;
+            }
+            // as raised by a property, say: __getattr__ gets its turn, as in __findattr_ex__
+            value = Deriveds.getattrFallback(obj, type, name, null, pye);
+        }
+        return value != null ? value : obj.__getattr__(name);
+    }
+
+    /** Whether the code has now been run often enough to be translated. */
+    private boolean isHot() {
+        int threshold = Options.bytecodeCompileThreshold;
+        return threshold >= 0 && !compileTried
+                && ++invocations + backedges / BACKEDGES_PER_CALL >= threshold;
+    }
+
+    /** Translate the code, once; null if it cannot be. */
+    private synchronized PyFunctionTable compile() {
+        if (!compileTried) {
+            compileTried = true;
+            try {
+                compiled = PyBytecodeCompiler.compile(this);
+            } catch (RuntimeException e) {
+                Py.writeDebug("bytecode", "cannot compile " + co_name + ": " + e);
+            }
+            Py.writeDebug("bytecode", (compiled != null ? "compiled " : "interpreting ") + co_name);
+        }
+        return compiled;
+    }
+
     @Override
     protected PyObject interpret(PyFrame f, ThreadState ts) {
+        if (f.tracefunc == null && !debug) {
+            PyFunctionTable table = compiled;
+            if (table == null && isHot()) {
+                table = compile();
+            }
+            if (table != null) {
+                return table.call_function(0, f, ts);
+            }
+        }
+
         final PyStack stack = new PyStack(co_stacksize);
         int next_instr = -1;
         int opcode;    /* Current opcode */
@@ -277,6 +539,9 @@ public class PyBytecode extends PyBaseCode implements Traverseproc {
         LineCache lineCache = null;
         int last_line = -1;
         int line = 0;
+        final byte[] instructions = quickened();
+        final boolean quickening = instructions != co_code;
+        int instr; /* Offset of the current instruction */
 
         // XXX - optimization opportunities
         // 1. consider detaching the setting/getting of frame fields to improve performance, instead do this
@@ -338,10 +603,11 @@ public class PyBytecode extends PyBaseCode implements Traverseproc {
                     stack.push((PyObject) generatorInput);
                 }
 
-                opcode = getUnsigned(co_code, next_instr);
+                instr = next_instr;
+                opcode = getUnsigned(instructions, next_instr);
                 if (opcode >= Opcode.HAVE_ARGUMENT) {
                     next_instr += 2;
-                    oparg = (getUnsigned(co_code, next_instr) << 8) + getUnsigned(co_code, next_instr - 1);
+                    oparg = (getUnsigned(instructions, next_instr) << 8) + getUnsigned(instructions, next_instr - 1);
                 }
                 print_debug(count, next_instr, line, opcode, oparg, stack, f);
 
@@ -461,6 +727,9 @@ public class PyBytecode extends PyBaseCode implements Traverseproc {
                         PyObject b = stack.pop();
                         PyObject a = stack.pop();
                         stack.push(a._add(b));
+                        if (quickening) {
+                            quickenArithmetic(instructions, instr, a, b, Opcode.BINARY_ADD_LONG, Opcode.BINARY_ADD_FLOAT);
+                        }
                         break;
                     }
 
@@ -468,6 +737,53 @@ public class PyBytecode extends PyBaseCode implements Traverseproc {
                         PyObject b = stack.pop();
                         PyObject a = stack.pop();
                         stack.push(a._sub(b));
+                        if (quickening) {
+                            quickenArithmetic(instructions, instr, a, b, Opcode.BINARY_SUBTRACT_LONG, Opcode.BINARY_SUBTRACT_FLOAT);
+                        }
+                        break;
+                    }
+
+                    case Opcode.BINARY_ADD_LONG: {
+                        PyObject b = stack.pop();
+                        PyObject a = stack.pop();
+                        if (a.getClass() == PyLong.class && b.getClass() == PyLong.class) {
+                            stack.push(Py.newLong(((PyLong) a).getValue().add(((PyLong) b).getValue())));
+                        } else {
+                            stack.push(deoptimizeArithmetic(instructions, instr, a, b));
+                        }
+                        break;
+                    }
+
+                    case Opcode.BINARY_SUBTRACT_LONG: {
+                        PyObject b = stack.pop();
+                        PyObject a = stack.pop();
+                        if (a.getClass() == PyLong.class && b.getClass() == PyLong.class) {
+                            stack.push(Py.newLong(((PyLong) a).getValue().subtract(((PyLong) b).getValue())));
+                        } else {
+                            stack.push(deoptimizeArithmetic(instructions, instr, a, b));
+                        }
+                        break;
+                    }
+
+                    case Opcode.BINARY_ADD_FLOAT: {
+                        PyObject b = stack.pop();
+                        PyObject a = stack.pop();
+                        if (a.getClass() == PyFloat.class && b.getClass() == PyFloat.class) {
+                            stack.push(new PyFloat(((PyFloat) a).getValue() + ((PyFloat) b).getValue()));
+                        } else {
+                            stack.push(deoptimizeArithmetic(instructions, instr, a, b));
+                        }
+                        break;
+                    }
+
+                    case Opcode.BINARY_SUBTRACT_FLOAT: {
+                        PyObject b = stack.pop();
+                        PyObject a = stack.pop();
+                        if (a.getClass() == PyFloat.class && b.getClass() == PyFloat.class) {
+                            stack.push(new PyFloat(((PyFloat) a).getValue() - ((PyFloat) b).getValue()));
+                        } else {
+                            stack.push(deoptimizeArithmetic(instructions, instr, a, b));
+                        }
                         break;
                     }
 
@@ -567,6 +883,9 @@ public class PyBytecode extends PyBaseCode implements Traverseproc {
                         PyObject b = stack.pop();
                         PyObject a = stack.pop();
                         stack.push(a._iadd(b));
+                        if (quickening) {
+                            quickenArithmetic(instructions, instr, a, b, Opcode.BINARY_ADD_LONG, Opcode.BINARY_ADD_FLOAT);
+                        }
                         break;
                     }
 
@@ -574,6 +893,9 @@ public class PyBytecode extends PyBaseCode implements Traverseproc {
                         PyObject b = stack.pop();
                         PyObject a = stack.pop();
                         stack.push(a._isub(b));
+                        if (quickening) {
+                            quickenArithmetic(instructions, instr, a, b, Opcode.BINARY_SUBTRACT_LONG, Opcode.BINARY_SUBTRACT_FLOAT);
+                        }
                         break;
                     }
 
@@ -798,8 +1120,23 @@ public class PyBytecode extends PyBaseCode implements Traverseproc {
                         break;
 
                     case Opcode.LOAD_GLOBAL:
-                        stack.push(f.getglobal(co_names[oparg]));
+                        if (quickening && deopts[instr] < MAX_DEOPTS) {
+                            instructions[instr] = (byte) Opcode.LOAD_GLOBAL_CACHED;
+                            stack.push(loadGlobalCached(f, instructions, instr, co_names[oparg]));
+                        } else {
+                            stack.push(f.getglobal(co_names[oparg]));
+                        }
+                        break;
+
+                    case Opcode.LOAD_GLOBAL_CACHED: {
+                        Object cached = inlineCaches[instr];
+                        if (cached instanceof GlobalCache && ((GlobalCache) cached).isValid(f)) {
+                            stack.push(((GlobalCache) cached).value);
+                        } else {
+                            stack.push(loadGlobalCached(f, instructions, instr, co_names[oparg]));
+                        }
                         break;
+                    }
 
                     case Opcode.DELETE_FAST:
                         f.dellocal(oparg);
@@ -890,7 +1227,28 @@ public class PyBytecode extends PyBaseCode implements Traverseproc {
 
                     case Opcode.LOAD_ATTR: {
                         String name = co_names[oparg];
-                        stack.push(stack.pop().__getattr__(name));
+                        if (quickening && deopts[instr] < MAX_DEOPTS) {
+                            instructions[instr] = (byte) Opcode.LOAD_ATTR_CACHED;
+                            stack.push(loadAttrCached(stack.pop(), instructions, instr, name));
+                        } else {
+                            stack.push(stack.pop().__getattr__(name));
+                        }
+                        break;
+                    }
+
+                    case Opcode.LOAD_ATTR_CACHED:
+                        stack.push(loadAttrCached(stack.pop(), instructions, instr, co_names[oparg]));
+                        break;
+
+                    case Opcode.COMPARE_OP_LONG: {
+                        PyObject b = stack.pop();
+                        PyObject a = stack.pop();
+                        if (a.getClass() == PyLong.class && b.getClass() == PyLong.class) {
+                            stack.push(compareLong(oparg, ((PyLong) a).getValue().compareTo(((PyLong) b).getValue())));
+                        } else {
+                            deoptimize(instructions, instr);
+                            stack.push(a.richCompare(b, COMPARE_OPS[oparg]));
+                        }
                         break;
                     }
 
@@ -898,6 +1256,10 @@ public class PyBytecode extends PyBaseCode implements Traverseproc {
                         PyObject b = stack.pop();
                         PyObject a = stack.pop();
 
+                        if (quickening && oparg <= Opcode.PyCmp_GE && a.getClass() == PyLong.class
+                                && b.getClass() == PyLong.class) {
+                            quicken(instructions, instr, Opcode.COMPARE_OP_LONG);
+                        }
                         switch (oparg) {
 
                             case Opcode.PyCmp_LT:
@@ -997,6 +1359,9 @@ public class PyBytecode extends PyBaseCode implements Traverseproc {
                         break;
 
                     case Opcode.JUMP_ABSOLUTE:
+                        if (oparg <= instr) {
+                            backedges++;
+                        }
                         next_instr = oparg;
                         break;
 
@@ -1151,9 +1516,9 @@ public class PyBytecode extends PyBaseCode implements Traverseproc {
                     }
 
                     case Opcode.EXTENDED_ARG:
-                        opcode = getUnsigned(co_code, next_instr++);
+                        opcode = getUnsigned(instructions, next_instr++);
                         next_instr += 2;
-                        oparg = oparg << 16 | ((getUnsigned(co_code, next_instr) << 8) + getUnsigned(co_code, next_instr - 1));
+                        oparg = oparg << 16 | ((getUnsigned(instructions, next_instr) << 8) + getUnsigned(instructions, next_instr - 1));
                         break;
 
                     default:
@@ -2,6 +2,8 @@
 package org.python.core;
 import java.io.*;
 
+import org.python.core.jfr.Events;
+
 /**
  * A wrapper for all python exception. Note that the well-known python exceptions are <b>not</b>
  * subclasses of PyException. Instead the python exception class is stored in the <code>type</code>
@@ -41,6 +43,14 @@ public class PyException extends RuntimeException implements Traverseproc
 
     private boolean normalized = false;
 
+    /**
+     * The Java stack where this exception was raised, and how far {@link #tracebackHere} has got
+     * through it. Compiled code only records its current line in a frame that is traced, so the
+     * line of other frames comes from here.
+     */
+    private StackTraceElement[] javaStack;
+    private int javaStackIndex;
+
     public PyException() {
         this(Py.None, Py.None);
     }
@@ -87,6 +97,7 @@ public class PyException extends RuntimeException implements Traverseproc
         if (value instanceof PyBaseException) {
             ((PyBaseException) value).wrapper = this;
         }
+        Events.exceptionCreated(type, this.value);
     }
 
     public PyException(PyObject type, String value) {
@@ -198,7 +209,7 @@ public class PyException extends RuntimeException implements Traverseproc
         if (!isReRaise && here != null) {
             // the frame is either inapplicable or already registered (from a finally)
             // during a re-raise
-            traceback = new PyTraceback(traceback, here);
+            traceback = new PyTraceback(traceback, here, lineOf(here));
             // since this is called after normalize, we can only amend it
             if (value instanceof PyBaseException) {
                 traceback.tb_next = ((PyBaseException) value).__traceback__;
@@ -212,6 +223,30 @@ public class PyException extends RuntimeException implements Traverseproc
         isReRaise = isFinally;
     }
 
+    private int lineOf(PyFrame frame) {
+        if (!(frame.f_code instanceof PyTableCode)) {
+            return frame.f_code.getline(frame);
+        }
+        if (frame.tracefunc == null && ((PyTableCode) frame.f_code).funcs.hasLazyLines()) {
+            if (javaStack == null) {
+                // exceptions converted from Java ones have not been thrown themselves
+                Throwable raised = getCause() != null ? getCause() : this;
+                javaStack = raised.getStackTrace();
+            }
+            PyTableCode code = (PyTableCode) frame.f_code;
+            for (int i = javaStackIndex; i < javaStack.length; i++) {
+                if (code.isFrameOf(javaStack[i])) {
+                    javaStackIndex = i + 1;
+                    if (javaStack[i].getLineNumber() > 0) {
+                        frame.f_lineno = javaStack[i].getLineNumber();
+                    }
+                    break;
+                }
+            }
+        }
+        return frame.f_lineno;
+    }
+
     public static PyException doRaise(PyObject value) {
         return doRaise(value, null);
     }
@@ -13,4 +13,12 @@ import java.io.Serializable;
 
 public abstract class PyFunctionTable implements Serializable {
     abstract public PyObject call_function(int index, PyFrame frame, ThreadState ts);
+
+    /**
+     * Whether the functions of this table only record their current line in a frame that is
+     * traced, leaving it to the line number tables of their classes otherwise.
+     */
+    public boolean hasLazyLines() {
+        return false;
+    }
 }
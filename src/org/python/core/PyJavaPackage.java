@@ -6,7 +6,10 @@ package org.python.core;
 import org.python.core.packagecache.PackageManager;
 import org.python.expose.ExposedType;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.function.Supplier;
 
 /**
  * A representation of java package.
@@ -19,9 +22,12 @@ public class PyJavaPackage extends PyObject implements Traverseproc {
     public PyStringMap __dict__;
 
     /** Its keys are the names of statically known classes.
-     * E.g. from jars pre-scan.
+     * E.g. from jars pre-scan. See {@link #getClassSet()}.
      */
     public PyStringMap clsSet;
+
+    /** Class names from {@link #addPlaceholders(Supplier)} not yet in clsSet. */
+    private List<Supplier<String>> pendingPlaceholders;
     public String __file__;
 
     /** (Control) package manager whose hierarchy contains this java pkg.
@@ -107,6 +113,35 @@ public class PyJavaPackage extends PyObject implements Traverseproc {
         }
     }
 
+    /**
+     * Add statically known classes when they are first asked for, with
+     * {@link #getClassSet()}, rather than now.
+     *
+     * @param classes
+     *            supplies their names as comma-separated string
+     */
+    public synchronized void addPlaceholders(Supplier<String> classes) {
+        if (pendingPlaceholders == null) {
+            pendingPlaceholders = new ArrayList<Supplier<String>>();
+        }
+        pendingPlaceholders.add(classes);
+    }
+
+    /**
+     * The statically known classes, {@link #clsSet}, including those added by
+     * {@link #addPlaceholders(Supplier)}.
+     */
+    public synchronized PyStringMap getClassSet() {
+        if (pendingPlaceholders != null) {
+            List<Supplier<String>> pending = pendingPlaceholders;
+            pendingPlaceholders = null;
+            for (Supplier<String> classes : pending) {
+                addPlaceholders(classes.get());
+            }
+        }
+        return clsSet;
+    }
+
     public PyObject __dir__() {
         return __mgr__.doDir(this,false,false);
     }
@@ -0,0 +1,169 @@
+package org.python.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.python.expose.ExposedMethod;
+import org.python.expose.ExposedType;
+
+/**
+ * The lock held by a thread while it loads one module, so that different modules may be imported
+ * in parallel while a second import of the same module waits for the first to finish. This is the
+ * Java counterpart of {@code _ModuleLock} in {@code importlib._bootstrap}, which it replaces (see
+ * {@link org.python.modules._imp#_get_module_lock(String)}), so that imports started from Java
+ * and from importlib take the same locks.
+ * <p>
+ * The lock is reentrant. A thread that would wait for a lock held, directly or through a chain of
+ * other waiting threads, by itself would never wake up: this happens when two threads import two
+ * modules that import each other. It gets a {@code _DeadlockError} instead, which the import
+ * machinery treats as permission to use the partially initialized module, just as a single
+ * thread does in a circular import.
+ * <p>
+ * Every import gets the lock of its module under the import lock of the interpreter, as importlib
+ * does, so that a thread holding that lock through <code>_imp.acquire_lock()</code> keeps other
+ * threads from starting imports until it releases it.
+ */
+@Untraversable
+@ExposedType(name = "_imp._ModuleLock", isBaseType = false)
+public class PyModuleLock extends PyObject {
+
+    /** The lock each thread is waiting for, if any. */
+    private static final ConcurrentMap<Thread, PyModuleLock> blockingOn =
+            new ConcurrentHashMap<Thread, PyModuleLock>();
+
+    private final String name;
+
+    private volatile Thread owner;
+
+    private int count;
+
+    PyModuleLock(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the lock for the named module, creating it if no thread holds or waits for one.
+     * Waits while another thread holds the import lock of the interpreter.
+     */
+    public static PyModuleLock get(PySystemState sys, String name) {
+        ReentrantLock importLock = sys.getImportLock();
+        importLock.lock();
+        try {
+            PyModuleLock lock = sys.moduleLocks.get(name);
+            if (lock == null) {
+                lock = new PyModuleLock(name);
+                PyModuleLock other = sys.moduleLocks.putIfAbsent(name, lock);
+                if (other != null) {
+                    lock = other;
+                }
+            }
+            return lock;
+        } finally {
+            importLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until no other thread is loading the named module, which it may have put into
+     * sys.modules before running its body. Gives up without waiting if that would deadlock.
+     */
+    static void awaitLoaded(PySystemState sys, String name) {
+        PyModuleLock lock = sys.moduleLocks.get(name);
+        if (lock == null || lock.owner == null || lock.owner == Thread.currentThread()) {
+            return;
+        }
+        try {
+            lock.acquire();
+        } catch (PyException pye) {
+            if (pye.match(deadlockError())) {
+                // a concurrent circular import: accept the partially initialized module
+                return;
+            }
+            throw pye;
+        }
+        lock.release();
+    }
+
+    /**
+     * Acquires the lock, waiting for another thread to release it if necessary.
+     *
+     * @return true
+     * @throws PyException {@code _DeadlockError} if waiting would never end
+     */
+    @ExposedMethod
+    public final boolean acquire() {
+        Thread me = Thread.currentThread();
+        synchronized (this) {
+            if (count == 0 || owner == me) {
+                owner = me;
+                count++;
+                return true;
+            }
+        }
+        blockingOn.put(me, this);
+        try {
+            synchronized (this) {
+                while (count != 0) {
+                    if (hasDeadlock(me)) {
+                        throw new PyException(deadlockError(),
+                                String.format("deadlock detected by %s", toString()));
+                    }
+                    wait();
+                }
+                owner = me;
+                count = 1;
+                return true;
+            }
+        } catch (InterruptedException e) {
+            throw new PyException(Py.KeyboardInterrupt, "interrupted import");
+        } finally {
+            blockingOn.remove(me);
+        }
+    }
+
+    /**
+     * Releases the lock, waking up the threads waiting for it if this thread no longer holds it.
+     */
+    @ExposedMethod
+    public final synchronized void release() {
+        if (owner != Thread.currentThread()) {
+            throw Py.RuntimeError("cannot release un-acquired lock");
+        }
+        if (--count == 0) {
+            owner = null;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Whether the owner of this lock is waiting, perhaps through a chain of other threads, for a
+     * lock held by the given thread.
+     */
+    private boolean hasDeadlock(Thread me) {
+        Thread thread = owner;
+        // a chain longer than the number of waiting threads must be a cycle not involving me
+        for (int i = blockingOn.size(); thread != null && i >= 0; i--) {
+            PyModuleLock lock = blockingOn.get(thread);
+            if (lock == null) {
+                return false;
+            }
+            thread = lock.owner;
+            if (thread == me) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static PyObject deadlockError() {
+        PyObject importlib = Py.getSystemState().importlib;
+        PyObject error = importlib == null ? null : importlib.__findattr__("_DeadlockError");
+        return error == null ? Py.RuntimeError : error;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("_ModuleLock('%s') at %s", name, Py.idstr(this));
+    }
+}
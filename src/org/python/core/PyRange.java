@@ -40,16 +40,7 @@ public class PyRange extends PySequence {
             throw Py.ValueError("range() arg 3 must not be zero");
         }
 
-        int n;
-        long listep = istep;
-        if (listep > 0) {
-            n = getLenOfRange(ilow, ihigh, listep);
-        } else {
-            n = getLenOfRange(ihigh, ilow, -listep);
-        }
-        if (n < 0) {
-            throw Py.OverflowError("range() result has too many items");
-        }
+        int n = loopLength(ilow, ihigh, istep);
         start = ilow;
         len = n;
         step = istep;
@@ -67,18 +58,57 @@ public class PyRange extends PySequence {
         long ihigh;
         int istep = 1;
         if (args.length == 1) {
-            ihigh = ap.getLong(0);
+            ihigh = loopArg(ap.getPyObject(0));
         } else {
-            ilow = ap.getLong(0);
-            ihigh = ap.getLong(1);
-            istep = ap.getInt(2, 1);
-            if (istep == 0) {
-                throw Py.ValueError("range() arg 3 must not be zero");
+            ilow = loopArg(ap.getPyObject(0));
+            ihigh = loopArg(ap.getPyObject(1));
+            if (args.length > 2) {
+                istep = loopStep(args[2]);
             }
         }
         return new PyRange(ilow, ihigh, istep);
     }
 
+    /**
+     * Convert the start or stop argument of <code>range()</code>, as <code>range.__new__</code>
+     * does: through <code>__index__</code>, so that neither floats nor strings are accepted.
+     */
+    public static long loopArg(PyObject arg) {
+        return arg.__index__().asLong();
+    }
+
+    /**
+     * Convert the step argument of <code>range()</code>, as <code>range.__new__</code> does.
+     */
+    public static int loopStep(PyObject step) {
+        int istep = step.__index__().asInt();
+        if (istep == 0) {
+            throw Py.ValueError("range() arg 3 must not be zero");
+        }
+        return istep;
+    }
+
+    /**
+     * The number of items in range(start, stop, step), for a non-zero step.
+     * <p>
+     * This, {@link #loopArg(PyObject)} and {@link #loopStep(PyObject)} are called by the counted loops the compiler emits for
+     * <code>for x in range(...)</code>, which iterate without creating the range or its iterator.
+     *
+     * @throws PyException OverflowError if the length does not fit in a Java int
+     */
+    public static int loopLength(long start, long stop, long step) {
+        int n;
+        if (step > 0) {
+            n = getLenOfRange(start, stop, step);
+        } else {
+            n = getLenOfRange(stop, start, -step);
+        }
+        if (n < 0) {
+            throw Py.OverflowError("range() result has too many items");
+        }
+        return n;
+    }
+
     /**
      * Return number of items in range (lo, hi, step).  step > 0 required.  Return
      * a value < 0 if & only if the true value is too large to fit in a Java int.
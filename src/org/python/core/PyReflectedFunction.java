@@ -6,6 +6,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Set;
 
+import org.python.core.jfr.Events;
 import org.python.util.Generic;
 
 public class PyReflectedFunction extends PyObject implements Traverseproc {
@@ -156,6 +157,15 @@ public class PyReflectedFunction extends PyObject implements Traverseproc {
 
     @Override
     public PyObject __call__(PyObject self, PyObject[] args, String[] keywords) {
+        Object event = Events.beginReflectedCall();
+        try {
+            return callReflected(self, args, keywords);
+        } finally {
+            Events.endReflectedCall(event, this);
+        }
+    }
+
+    private PyObject callReflected(PyObject self, PyObject[] args, String[] keywords) {
         ReflectedCallData callData = new ReflectedCallData();
         ReflectedArgs match = null;
         for (int i = 0; i < nargs && match == null; i++) {
@@ -10,6 +10,11 @@ import org.python.expose.ExposedNew;
 import org.python.expose.ExposedType;
 import org.python.util.Generic;
 
+import com.google.common.collect.ForwardingConcurrentMap;
+import com.google.common.collect.ForwardingIterator;
+import com.google.common.collect.ForwardingMapEntry;
+import com.google.common.collect.ForwardingSet;
+
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
@@ -17,6 +22,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * Special fast dict implementation for __dict__ instances. Allows interned String keys in addition
@@ -34,8 +40,221 @@ public class PyStringMap extends PyObject implements Traverseproc {
 
     private final ConcurrentMap<Object, PyObject> table;
 
+    private static final AtomicIntegerFieldUpdater<PyStringMap> VERSION =
+            AtomicIntegerFieldUpdater.newUpdater(PyStringMap.class, "version");
+
+    /** Counts changes, but only once someone has asked for it through {@link #version()}. */
+    private volatile int version;
+    private volatile boolean versioned;
+
+    /** The table as returned by {@link #getMap()}, made on first use. */
+    private transient volatile ConcurrentMap<Object, PyObject> mapView;
+
+    /**
+     * The entries of this map, keyed by interned String or by PyObject. Changes made through it,
+     * and through its views, are counted by {@link #version()} as any others.
+     */
     public ConcurrentMap<Object, PyObject> getMap() {
-        return table;
+        ConcurrentMap<Object, PyObject> view = mapView;
+        if (view == null) {
+            mapView = view = new CountingMap();
+        }
+        return view;
+    }
+
+    /**
+     * A number that changes whenever this map does, from the first call of this method on, for
+     * callers that cache what they looked up here (see {@link PyBytecode}). Read it before the
+     * lookup.
+     */
+    int version() {
+        if (!versioned) {
+            versioned = true;
+        }
+        return version;
+    }
+
+    private void changed() {
+        if (versioned) {
+            VERSION.incrementAndGet(this);
+        }
+    }
+
+    /** The table, counting the changes made through it and its views. */
+    private final class CountingMap extends ForwardingConcurrentMap<Object, PyObject> {
+
+        @Override
+        protected ConcurrentMap<Object, PyObject> delegate() {
+            return table;
+        }
+
+        @Override
+        public PyObject put(Object key, PyObject value) {
+            PyObject old = table.put(key, value);
+            changed();
+            return old;
+        }
+
+        @Override
+        public PyObject putIfAbsent(Object key, PyObject value) {
+            PyObject old = table.putIfAbsent(key, value);
+            if (old == null) {
+                changed();
+            }
+            return old;
+        }
+
+        @Override
+        public void putAll(Map<? extends Object, ? extends PyObject> map) {
+            table.putAll(map);
+            changed();
+        }
+
+        @Override
+        public PyObject remove(Object key) {
+            PyObject old = table.remove(key);
+            if (old != null) {
+                changed();
+            }
+            return old;
+        }
+
+        @Override
+        public boolean remove(Object key, Object value) {
+            boolean removed = table.remove(key, value);
+            if (removed) {
+                changed();
+            }
+            return removed;
+        }
+
+        @Override
+        public PyObject replace(Object key, PyObject value) {
+            PyObject old = table.replace(key, value);
+            if (old != null) {
+                changed();
+            }
+            return old;
+        }
+
+        @Override
+        public boolean replace(Object key, PyObject oldValue, PyObject newValue) {
+            boolean replaced = table.replace(key, oldValue, newValue);
+            if (replaced) {
+                changed();
+            }
+            return replaced;
+        }
+
+        @Override
+        public void clear() {
+            table.clear();
+            changed();
+        }
+
+        @Override
+        public Set<Object> keySet() {
+            return new StandardKeySet();
+        }
+
+        @Override
+        public Collection<PyObject> values() {
+            return new StandardValues();
+        }
+
+        @Override
+        public Set<Entry<Object, PyObject>> entrySet() {
+            return new ForwardingSet<Entry<Object, PyObject>>() {
+
+                @Override
+                protected Set<Entry<Object, PyObject>> delegate() {
+                    return table.entrySet();
+                }
+
+                @Override
+                public Iterator<Entry<Object, PyObject>> iterator() {
+                    return new CountingIterator(table.entrySet().iterator());
+                }
+
+                @Override
+                public boolean add(Entry<Object, PyObject> entry) {
+                    boolean added = table.entrySet().add(entry);
+                    if (added) {
+                        changed();
+                    }
+                    return added;
+                }
+
+                @Override
+                public boolean addAll(Collection<? extends Entry<Object, PyObject>> entries) {
+                    return standardAddAll(entries);
+                }
+
+                @Override
+                public boolean remove(Object entry) {
+                    boolean removed = table.entrySet().remove(entry);
+                    if (removed) {
+                        changed();
+                    }
+                    return removed;
+                }
+
+                @Override
+                public boolean removeAll(Collection<?> entries) {
+                    return standardRemoveAll(entries);
+                }
+
+                @Override
+                public boolean retainAll(Collection<?> entries) {
+                    return standardRetainAll(entries);
+                }
+
+                @Override
+                public void clear() {
+                    CountingMap.this.clear();
+                }
+            };
+        }
+    }
+
+    /** Iterates over the entries of the table, counting removals and values set. */
+    private final class CountingIterator extends ForwardingIterator<Entry<Object, PyObject>> {
+
+        private final Iterator<Entry<Object, PyObject>> it;
+
+        CountingIterator(Iterator<Entry<Object, PyObject>> it) {
+            this.it = it;
+        }
+
+        @Override
+        protected Iterator<Entry<Object, PyObject>> delegate() {
+            return it;
+        }
+
+        @Override
+        public Entry<Object, PyObject> next() {
+            final Entry<Object, PyObject> entry = it.next();
+            return new ForwardingMapEntry<Object, PyObject>() {
+
+                @Override
+                protected Entry<Object, PyObject> delegate() {
+                    return entry;
+                }
+
+                @Override
+                public PyObject setValue(PyObject value) {
+                    PyObject old = entry.setValue(value);
+                    changed();
+                    return old;
+                }
+            };
+        }
+
+        @Override
+        public void remove() {
+            it.remove();
+            changed();
+        }
     }
 
     public PyStringMap() {
@@ -169,6 +388,7 @@ public class PyStringMap extends PyObject implements Traverseproc {
         } else {
             table.put(key, value);
         }
+        changed();
     }
 
     @Override
@@ -182,9 +402,11 @@ public class PyStringMap extends PyObject implements Traverseproc {
             table.remove(pyToKey(key));
         } else if (key instanceof PyUnicode) {
             __setitem__(((PyUnicode)key).internedString(), value);
+            return;
         } else {
             table.put(key, value);
         }
+        changed();
     }
 
     @Override
@@ -193,6 +415,7 @@ public class PyStringMap extends PyObject implements Traverseproc {
         if (ret == null) {
             throw Py.KeyError(key);
         }
+        changed();
     }
 
     @Override
@@ -209,6 +432,7 @@ public class PyStringMap extends PyObject implements Traverseproc {
             if (ret == null) {
                 throw Py.KeyError(key);
             }
+            changed();
         }
     }
 
@@ -237,6 +461,7 @@ public class PyStringMap extends PyObject implements Traverseproc {
     @ExposedMethod(doc = BuiltinDocs.dict_clear_doc)
     final void stringmap_clear() {
         table.clear();
+        changed();
     }
 
     @Override
@@ -357,6 +582,7 @@ public class PyStringMap extends PyObject implements Traverseproc {
     private void merge(PyObject other) {
         if (other instanceof PyStringMap) {
             table.putAll(((PyStringMap)other).table);
+            changed();
         } else if (other instanceof PyDictionary) {
             mergeFromKeys(other, ((PyDictionary)other).keys_as_list());
         } else {
@@ -433,7 +659,11 @@ public class PyStringMap extends PyObject implements Traverseproc {
     final PyObject stringmap_setdefault(PyObject key, PyObject failobj) {
         Object internedKey = (key instanceof PyUnicode) ? ((PyUnicode)key).internedString() : key;
         PyObject oldValue = table.putIfAbsent(internedKey, failobj);
-        return oldValue == null ? failobj : oldValue;
+        if (oldValue == null) {
+            changed();
+            return failobj;
+        }
+        return oldValue;
     }
 
     /**
@@ -451,6 +681,7 @@ public class PyStringMap extends PyObject implements Traverseproc {
         }
         PyTuple tuple = itemTuple(it.next());
         it.remove();
+        changed();
         return tuple;
     }
 
@@ -476,6 +707,7 @@ public class PyStringMap extends PyObject implements Traverseproc {
                 return failobj;
             }
         }
+        changed();
         return value;
     }
 
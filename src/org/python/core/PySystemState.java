@@ -1,6 +1,7 @@
 // Copyright (c) Corporation for National Research Initiatives
 package org.python.core;
 
+import com.google.common.collect.MapMaker;
 import jnr.posix.util.Platform;
 import org.python.Version;
 import org.python.core.adapter.ClassicPyObjectAdapter;
@@ -47,6 +48,7 @@ import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -136,6 +138,9 @@ public class PySystemState extends PyObject implements AutoCloseable, Closeable,
     public PyObject sysdict;
     public Map<String, PyModule> modules_reloading;
     private ReentrantLock importLock;
+    /** Locks of the modules being imported, see {@link PyModuleLock}. */
+    final ConcurrentMap<String, PyModuleLock> moduleLocks =
+            new MapMaker().weakValues().makeMap();
     private ClassLoader syspathJavaLoader;
     public PyList path;
 
@@ -174,6 +179,13 @@ public class PySystemState extends PyObject implements AutoCloseable, Closeable,
 
     private int recursionlimit = 1000;
 
+    /**
+     * The number of modules loaded by imports, and the time spent in imports that are not nested
+     * in another, reported by {@link PySystemStateMXBean}.
+     */
+    final LongAdder importCount = new LongAdder();
+    final LongAdder importNanos = new LongAdder();
+
     private codecs.CodecState codecState;
 
     /** true when a SystemRestart is triggered. */
@@ -248,6 +260,13 @@ public class PySystemState extends PyObject implements AutoCloseable, Closeable,
         __dict__.__setitem__("displayhook", __displayhook__);
         __dict__.__setitem__("excepthook", __excepthook__);
 
+        if (Options.jmx) {
+            PySystemStateMonitor.register(this);
+        }
+        if (Py.defaultSystemState != null) {
+            // a state of its own for an interpreter, made after the default one
+            initSys();
+        }
     }
 
     void reload() throws PyIgnoreMethodTag {
@@ -485,7 +504,7 @@ public class PySystemState extends PyObject implements AutoCloseable, Closeable,
         if (ts.tracefunc == null) {
             return Py.None;
         } else {
-            return ((PythonTraceFunction)ts.tracefunc).tracefunc;
+            return ts.tracefunc.getTraceObject();
         }
     }
 
@@ -503,7 +522,7 @@ public class PySystemState extends PyObject implements AutoCloseable, Closeable,
         if (ts.profilefunc == null) {
             return Py.None;
         } else {
-            return ((PythonTraceFunction)ts.profilefunc).tracefunc;
+            return ts.profilefunc.getTraceObject();
         }
     }
 
@@ -1099,69 +1118,86 @@ public class PySystemState extends PyObject implements AutoCloseable, Closeable,
             Py.defaultSystemState.setClassLoader(classLoader);
         }
         Py.initClassExceptions(getDefaultBuiltins());
-        PyModuleDef spec = new PyModuleDef("sys");
-        PyObject sysmod = _imp.create_builtin(spec);
-        _imp.exec_builtin(sysmod);
-        Py.defaultSystemState.modules.__setitem__("sys", sysmod);
-        Py.defaultSystemState.sysdict = ((PyModule) sysmod).__dict__;
-        Py.defaultSystemState.sysdict.__setitem__("modules", Py.defaultSystemState.modules);
-        Py.setSystemState(Py.defaultSystemState);
-
-        // init sys
-        SysModule.setObject("builtin_module_names", PySystemState.builtin_module_names);
-        SysModule.setObject("byteorder", Py.defaultSystemState.byteorder);
-        SysModule.setObject("copyright", Py.defaultSystemState.copyright);
-        SysModule.setObject("dont_write_bytecode", Py.newBoolean(Py.defaultSystemState.dont_write_bytecode));
-        SysModule.setObject("executable", Py.defaultSystemState.executable);
-        SysModule.setObject("exec_prefix", Py.defaultSystemState.exec_prefix);
-        SysModule.setObject("exec_prefix", Py.defaultSystemState.exec_prefix);
-        SysModule.setObject("flags", Py.java2py(Py.defaultSystemState.flags));
-        SysModule.setObject("implementation", Py.defaultSystemState.implementation);
-        SysModule.setObject("maxsize", new PyLong(Py.defaultSystemState.maxsize));
-        SysModule.setObject("meta_path", Py.defaultSystemState.meta_path);
-        SysModule.setObject("path", Py.defaultSystemState.path);
-        SysModule.setObject("path_hooks", Py.defaultSystemState.path_hooks);
-        SysModule.setObject("path_importer_cache", Py.defaultSystemState.path_importer_cache);
-        SysModule.setObject("platform", Py.defaultSystemState.platform);
-        SysModule.setObject("prefix", Py.defaultSystemState.prefix);
-        SysModule.setObject("version", Py.defaultSystemState.version);
-        SysModule.setObject("version_info", Py.defaultSystemState.version_info);
-        SysModule.setObject("warnoptions", Py.defaultSystemState.warnoptions);
-        SysModule.setObject("base_prefix", Py.defaultSystemState.base_prefix);
-        SysModule.setObject("base_exec_prefix", Py.defaultSystemState.base_exec_prefix);
-        SysModule.setObject("exec_prefix", Py.defaultSystemState.exec_prefix);
-        SysModule.setObject("prefix", Py.defaultSystemState.prefix);
-
-        SysModule.setObject("ps1", Py.defaultSystemState.ps1);
-        SysModule.setObject("ps2", Py.defaultSystemState.ps2);
-
-        SysModule.setObject("argv", Py.defaultSystemState.argv);
-        SysModule.setObject("displayhook", Py.defaultSystemState.__displayhook__);
-        SysModule.setObject("__displayhook__", Py.defaultSystemState.__displayhook__);
-        SysModule.setObject("excepthook", Py.defaultSystemState.__excepthook__);
-        SysModule.setObject("__excepthook__", Py.defaultSystemState.__excepthook__);
-        // end init sys
-
-        // Make sure that Exception classes have been loaded
-        new PySyntaxError("", 1, 1, "", "");
-
-        // Cause sys to export the console handler that was installed
-        SysModule.setObject("_jy_console", Py.java2py(Py.getConsole()));
+        Py.defaultSystemState.initSys();
+        return Py.defaultSystemState;
+    }
 
+    /**
+     * Makes the <code>sys</code> module of this state, with the standard streams, and installs
+     * importlib in it. The default state is set up so in {@link #doInitialize}, once the builtin
+     * exceptions exist; those made later, for an interpreter of their own, when constructed.
+     */
+    private void initSys() {
+        PySystemState previous = Py.setSystemState(this);
         try {
-            InputStream _frozen_importlib_input =  new FileInputStream(new File("src/resources/frozen_importlib/_frozen_importlib.class"));
-            InputStream _frozen_importlib_external_input =  new FileInputStream(new File("src/resources/frozen_importlib/_frozen_importlib_external.class"));
-            PyObject _frozen_importlib = imp.loadFromCompiled("_frozen_importlib", _frozen_importlib_input, "_bootstrap.py", "_frozen_importlib.class");
-            imp.loadFromCompiled("_frozen_importlib_external", _frozen_importlib_external_input, "_bootstrap_external.py", "_frozen_importlib_external.class");
-            Py.defaultSystemState.importlib = _frozen_importlib;
-            _frozen_importlib.invoke("_install", sysmod, imp.loadBuiltin("_imp"));
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        }
-
-        Py.defaultSystemState.initstdio();
-        Py.defaultSystemState.initEncoding();
-        return Py.defaultSystemState;
+            PyModuleDef spec = new PyModuleDef("sys");
+            PyObject sysmod = _imp.create_builtin(spec);
+            _imp.exec_builtin(sysmod);
+            modules.__setitem__("sys", sysmod);
+            sysdict = ((PyModule) sysmod).__dict__;
+            sysdict.__setitem__("modules", modules);
+
+            // init sys
+            SysModule.setObject("builtin_module_names", PySystemState.builtin_module_names);
+            SysModule.setObject("byteorder", byteorder);
+            SysModule.setObject("copyright", copyright);
+            SysModule.setObject("dont_write_bytecode", Py.newBoolean(dont_write_bytecode));
+            SysModule.setObject("executable", executable);
+            SysModule.setObject("exec_prefix", exec_prefix);
+            SysModule.setObject("exec_prefix", exec_prefix);
+            SysModule.setObject("flags", Py.java2py(flags));
+            SysModule.setObject("implementation", implementation);
+            SysModule.setObject("maxsize", new PyLong(maxsize));
+            SysModule.setObject("meta_path", meta_path);
+            SysModule.setObject("path", path);
+            SysModule.setObject("path_hooks", path_hooks);
+            SysModule.setObject("path_importer_cache", path_importer_cache);
+            SysModule.setObject("platform", platform);
+            SysModule.setObject("prefix", prefix);
+            SysModule.setObject("version", version);
+            SysModule.setObject("version_info", version_info);
+            SysModule.setObject("warnoptions", warnoptions);
+            SysModule.setObject("base_prefix", base_prefix);
+            SysModule.setObject("base_exec_prefix", base_exec_prefix);
+            SysModule.setObject("exec_prefix", exec_prefix);
+            SysModule.setObject("prefix", prefix);
+
+            SysModule.setObject("ps1", ps1);
+            SysModule.setObject("ps2", ps2);
+
+            SysModule.setObject("argv", argv);
+            SysModule.setObject("displayhook", __displayhook__);
+            SysModule.setObject("__displayhook__", __displayhook__);
+            SysModule.setObject("excepthook", __excepthook__);
+            SysModule.setObject("__excepthook__", __excepthook__);
+            // end init sys
+
+            // Make sure that Exception classes have been loaded
+            new PySyntaxError("", 1, 1, "", "");
+
+            // Cause sys to export the console handler that was installed
+            SysModule.setObject("_jy_console", Py.java2py(Py.getConsole()));
+
+            try {
+                InputStream _frozen_importlib_input =  new FileInputStream(new File("src/resources/frozen_importlib/_frozen_importlib.class"));
+                InputStream _frozen_importlib_external_input =  new FileInputStream(new File("src/resources/frozen_importlib/_frozen_importlib_external.class"));
+                PyObject _frozen_importlib = imp.loadFromCompiled("_frozen_importlib", _frozen_importlib_input, "_bootstrap.py", "_frozen_importlib.class");
+                imp.loadFromCompiled("_frozen_importlib_external", _frozen_importlib_external_input, "_bootstrap_external.py", "_frozen_importlib_external.class");
+                importlib = _frozen_importlib;
+                PyObject impModule = imp.loadBuiltin("_imp");
+                _frozen_importlib.invoke("_install", sysmod, impModule);
+                // importlib and imp share the module locks
+                _frozen_importlib.__setattr__("_get_module_lock",
+                        impModule.__getattr__("_get_module_lock"));
+            } catch (FileNotFoundException e) {
+                e.printStackTrace();
+            }
+
+            initstdio();
+            initEncoding();
+        } finally {
+            Py.setSystemState(previous);
+        }
     }
 
     private static PyTuple getVersionInfo() {
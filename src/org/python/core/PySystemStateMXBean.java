@@ -0,0 +1,75 @@
+/* Copyright (c) Jython Developers */
+package org.python.core;
+
+/**
+ * Live statistics of an interpreter, one {@link PySystemState}, and operations on its caches, for
+ * monitoring through JMX. When the registry option <code>python.jmx</code> is set, each
+ * <code>PySystemState</code> registers one with the platform MBean server under the name
+ * <code>org.python:type=PySystemState,id=</code><i>n</i>, and unregisters it when closed.
+ * <p>
+ * Some of the figures are shared by all interpreters in the JVM, as noted below.
+ */
+public interface PySystemStateMXBean {
+
+    /** The number of modules in <code>sys.modules</code>. */
+    int getModuleCount();
+
+    /** The number of modules loaded by imports. */
+    long getImportCount();
+
+    /** The time spent in imports, not counting an import again for those nested in it. */
+    long getImportTimeMillis();
+
+    /** The number of method cache lookups that were hits, for all interpreters. */
+    long getMethodCacheHits();
+
+    /** The number of method cache lookups that were misses, for all interpreters. */
+    long getMethodCacheMisses();
+
+    /** The fraction of method cache lookups that were hits, or 0 if there were none. */
+    double getMethodCacheHitRate();
+
+    /** The number of live threads that have run code in this interpreter. */
+    int getThreadCount();
+
+    /** The deepest recursion reached by any of those threads. */
+    int getMaxRecursionDepth();
+
+    int getRecursionLimit();
+
+    /** The number of classes defined from generated byte code, for all interpreters. */
+    long getCompiledClassCount();
+
+    /**
+     * The size of the class files of those classes, for all interpreters: a rough measure of the
+     * metaspace they take.
+     */
+    long getCompiledClassBytes();
+
+    /**
+     * The approximate number of code objects in the cache of code compiled by
+     * <code>compile()</code>, <code>exec()</code> and <code>eval()</code>, for all interpreters.
+     */
+    long getCompileCacheSize();
+
+    /**
+     * The number of objects awaiting delayed finalization by the gc module, for all
+     * interpreters.
+     */
+    int getPendingFinalizationCount();
+
+    /** Empty the method cache of all types. */
+    void clearMethodCache();
+
+    /** Empty the cache of code compiled from strings. */
+    void clearCompileCache();
+
+    /**
+     * Empty <code>sys.path_importer_cache</code>, so that the importers for the entries of
+     * <code>sys.path</code> are found again.
+     */
+    void clearPathImporterCache();
+
+    /** Start the import and method cache counts and the recursion depths again from now. */
+    void resetStatistics();
+}
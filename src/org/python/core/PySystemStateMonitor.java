@@ -0,0 +1,184 @@
+/* Copyright (c) Jython Developers */
+package org.python.core;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.python.modules.gc;
+
+/**
+ * The {@link PySystemStateMXBean} of a <code>PySystemState</code>. It refers to the interpreter
+ * weakly, so that registering it with the MBean server does not keep the interpreter alive; the
+ * interpreter unregisters it when closed, or when collected once another is created.
+ */
+class PySystemStateMonitor implements PySystemStateMXBean {
+
+    private static final AtomicInteger ids = new AtomicInteger();
+
+    private final WeakReference<PySystemState> sys;
+
+    private PySystemStateMonitor(PySystemState sys) {
+        this.sys = new WeakReference<>(sys);
+    }
+
+    /**
+     * Register an MBean for <code>sys</code> with the platform MBean server, writing a warning
+     * if that fails rather than failing to create the interpreter.
+     *
+     * @return the name it is registered under, or null
+     */
+    static ObjectName register(PySystemState sys) {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(
+                    "org.python:type=PySystemState,id=" + ids.getAndIncrement());
+            server.registerMBean(new PySystemStateMonitor(sys), name);
+            PyType.MethodCache.counting = true;
+            sys.registerCloser(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    server.unregisterMBean(name);
+                    return null;
+                }
+            });
+            return name;
+        } catch (JMException | SecurityException e) {
+            Py.writeWarning("jmx", "cannot register interpreter MBean: " + e);
+            return null;
+        }
+    }
+
+    private PySystemState sys() {
+        PySystemState state = sys.get();
+        if (state == null) {
+            throw new IllegalStateException("interpreter no longer exists");
+        }
+        return state;
+    }
+
+    @Override
+    public int getModuleCount() {
+        return sys().modules.__len__();
+    }
+
+    @Override
+    public long getImportCount() {
+        return sys().importCount.sum();
+    }
+
+    @Override
+    public long getImportTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(sys().importNanos.sum());
+    }
+
+    @Override
+    public long getMethodCacheHits() {
+        return PyType.methodCache.hits.sum();
+    }
+
+    @Override
+    public long getMethodCacheMisses() {
+        return PyType.methodCache.misses.sum();
+    }
+
+    @Override
+    public double getMethodCacheHitRate() {
+        long hits = getMethodCacheHits();
+        long lookups = hits + getMethodCacheMisses();
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public int getThreadCount() {
+        PySystemState state = sys();
+        int count = 0;
+        for (ThreadState ts : ThreadStateMapping.getThreadStates().values()) {
+            if (ts.systemState == state) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int getMaxRecursionDepth() {
+        PySystemState state = sys();
+        int depth = 0;
+        for (ThreadState ts : ThreadStateMapping.getThreadStates().values()) {
+            if (ts.systemState == state) {
+                depth = Math.max(depth, ts.max_call_depth);
+            }
+        }
+        return depth;
+    }
+
+    @Override
+    public int getRecursionLimit() {
+        return sys().getrecursionlimit();
+    }
+
+    @Override
+    public long getCompiledClassCount() {
+        return BytecodeLoader.getClassCount();
+    }
+
+    @Override
+    public long getCompiledClassBytes() {
+        return BytecodeLoader.getClassBytes();
+    }
+
+    @Override
+    public long getCompileCacheSize() {
+        return CompiledCodeCache.size();
+    }
+
+    @Override
+    public int getPendingFinalizationCount() {
+        return gc.getDelayedFinalizationCount();
+    }
+
+    @Override
+    public void clearMethodCache() {
+        PyType.methodCache.clear();
+    }
+
+    @Override
+    public void clearCompileCache() {
+        CompiledCodeCache.clear();
+    }
+
+    @Override
+    public void clearPathImporterCache() {
+        PyObject cache = sys().path_importer_cache;
+        if (cache instanceof PyDictionary) {
+            // keep the importer of Java packages, which sys.path_hooks cannot recreate
+            PyObject entry = Py.newUnicode(JavaImporter.JAVA_IMPORT_PATH_ENTRY);
+            PyObject java = cache.__finditem__(entry);
+            ((PyDictionary) cache).clear();
+            if (java != null) {
+                cache.__setitem__(entry, java);
+            }
+        }
+    }
+
+    @Override
+    public void resetStatistics() {
+        PySystemState state = sys();
+        state.importCount.reset();
+        state.importNanos.reset();
+        PyType.methodCache.hits.reset();
+        PyType.methodCache.misses.reset();
+        for (ThreadState ts : ThreadStateMapping.getThreadStates().values()) {
+            if (ts.systemState == state) {
+                ts.max_call_depth = ts.call_depth;
+            }
+        }
+    }
+}
@@ -168,6 +168,55 @@ public class PyTableCode extends PyBaseCode
         return new PyLong(co_firstlineno);
     }
 
+    /**
+     * Whether <code>element</code> is a Java stack frame running this code: the method
+     * <code>name$id</code> of the function table, or of its own class when the module was compiled
+     * with split functions.
+     */
+    boolean isFrameOf(StackTraceElement element) {
+        String method = element.getMethodName();
+        String suffix = "$" + func_id;
+        int nameLength = method.length() - suffix.length();
+        // a '$' before the id is a helper such as set$$1, not a function body
+        if (nameLength < 1 || !method.endsWith(suffix) || method.charAt(nameLength - 1) == '$') {
+            return false;
+        }
+        String table = funcs.getClass().getName();
+        String cls = element.getClassName();
+        return cls.equals(table) || cls.length() == table.length() + 1 + method.length()
+                && cls.startsWith(table) && cls.endsWith(method)
+                && cls.charAt(table.length()) == '$';
+    }
+
+    /**
+     * Unless it is traced, a frame of compiled code does not keep its current line up to date, so
+     * look for it on the Java stack of the current thread.
+     */
+    @Override
+    protected int getline(PyFrame f) {
+        if (!funcs.hasLazyLines()) {
+            return f.f_lineno;
+        }
+        // the frame is the depth-th frame of this code down from the top of the Python stack
+        int depth = 0;
+        PyFrame frame = Py.getThreadState().frame;
+        for (; frame != null && frame != f; frame = frame.f_back) {
+            if (frame.f_code == this) {
+                depth++;
+            }
+        }
+        if (frame == null) {
+            // finished, suspended or on another thread
+            return f.f_lineno;
+        }
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            if (isFrameOf(element) && depth-- == 0) {
+                return element.getLineNumber() > 0 ? element.getLineNumber() : f.f_lineno;
+            }
+        }
+        return f.f_lineno;
+    }
+
     @Override
     public PyObject call(ThreadState ts, PyFrame frame, PyObject closure) {
         if (ts.systemState == null) {
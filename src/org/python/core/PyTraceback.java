@@ -23,10 +23,14 @@ public class PyTraceback extends PyObject implements Traverseproc {
     public int tb_lineno;
 
     public PyTraceback(PyTraceback next, PyFrame frame) {
+        this(next, frame, frame.f_code.getline(frame));
+    }
+
+    public PyTraceback(PyTraceback next, PyFrame frame, int lineno) {
         super(TYPE);
         tb_next = next;
         tb_frame = frame;
-        tb_lineno = frame.f_code.getline(frame);
+        tb_lineno = lineno;
     }
 
     private String tracebackInfo() {
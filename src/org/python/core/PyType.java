@@ -5,12 +5,15 @@ import java.io.Serializable;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.python.core.jfr.Events;
 import org.python.expose.ExposeAsSuperclass;
 import org.python.expose.ExposedDelete;
 import org.python.expose.ExposedGet;
@@ -19,6 +22,7 @@ import org.python.expose.ExposedNew;
 import org.python.expose.ExposedSet;
 import org.python.expose.ExposedType;
 import org.python.expose.MethodType;
+import org.python.expose.BaseTypeBuilder;
 import org.python.expose.TypeBuilder;
 import org.python.modules._weakref.WeakrefModule;
 import org.python.antlr.ast.cmpopType;
@@ -80,6 +84,13 @@ public class PyType extends PyObject implements Serializable, Traverseproc {
     /** Whether this type has a __dict__. */
     protected boolean needs_userdict;
 
+    /**
+     * The builder of a builtin type whose dict has yet to be made, with the names it will have,
+     * or null. The dict is made when first asked for, see {@link #fastGetDict()}.
+     */
+    private volatile BaseTypeBuilder pendingBuilder;
+    private Set<String> pendingNames;
+
     /** Whether this type has a __weakref__ slot (however all types are weakrefable). */
     protected boolean needs_weakref;
 
@@ -99,7 +110,7 @@ public class PyType extends PyObject implements Serializable, Traverseproc {
     private Set<WeakReference<PyType>> subclasses = Generic.set();
 
     /** Global mro cache. */
-    private static final MethodCache methodCache = new MethodCache();
+    static final MethodCache methodCache = new MethodCache();
 
     /** Mapping of Java classes to their PyTypes. */
     private static Map<Class<?>, PyType> class_to_type;
@@ -530,7 +541,24 @@ public class PyType extends PyObject implements Serializable, Traverseproc {
         }
         TypeBuilder builder = classToBuilder.get(underlying_class);
         name = builder.getName();
-        dict = builder.getDict(this);
+        String[] names = builder instanceof BaseTypeBuilder
+                ? ((BaseTypeBuilder) builder).getNames() : null;
+        if (names != null) {
+            // what is needed of the dict now can be told from the names in it
+            pendingNames = Generic.set();
+            pendingNames.addAll(Arrays.asList(names));
+            pendingBuilder = (BaseTypeBuilder) builder;
+        } else {
+            buildDict(builder);
+        }
+        setIsBaseType(builder.getIsBaseType());
+        needs_userdict = defines("__dict__");
+        instantiable = defines("__new__");
+        cacheDescrBinds();
+    }
+
+    private void buildDict(TypeBuilder builder) {
+        PyObject dict = builder.getDict(this);
         String doc = builder.getDoc();
         // XXX: Can't create a __doc__ str until the PyUnicode types are
         // created
@@ -548,10 +576,34 @@ public class PyType extends PyObject implements Serializable, Traverseproc {
             }
             dict.__setitem__("__doc__", docObj);
         }
-        setIsBaseType(builder.getIsBaseType());
-        needs_userdict = dict.__finditem__("__dict__") != null;
-        instantiable = dict.__finditem__("__new__") != null;
-        cacheDescrBinds();
+        this.dict = dict;
+    }
+
+    /**
+     * Makes the dict of a builtin type whose dict was left to be made on first use. Types are
+     * made holding the lock of this class, which making the dict may need again.
+     */
+    private void buildPendingDict() {
+        synchronized (PyType.class) {
+            BaseTypeBuilder builder = pendingBuilder;
+            if (builder != null) {
+                buildDict(builder);
+                pendingNames = null;
+                pendingBuilder = null;
+            }
+        }
+    }
+
+    /** Whether this type's own dict has the name, without making a dict left to be made. */
+    private boolean defines(String name) {
+        if (pendingBuilder != null) {
+            synchronized (PyType.class) {
+                if (pendingBuilder != null) {
+                    return pendingNames.contains(name);
+                }
+            }
+        }
+        return dict.__finditem__(name) != null;
     }
 
     /**
@@ -571,9 +623,35 @@ public class PyType extends PyObject implements Serializable, Traverseproc {
      * Determine if this type is a descriptor, and if so what kind.
      */
     private void cacheDescrBinds() {
-        hasGet = lookup_mro("__get__") != null;
-        hasSet = lookup_mro("__set__") != null;
-        hasDelete = lookup_mro("__delete__") != null;
+        hasGet = definedInMro("__get__");
+        hasSet = definedInMro("__set__");
+        hasDelete = definedInMro("__delete__");
+    }
+
+    /** Whether a type of the mro has the name, as {@link #lookup_mro} tells, but lazily. */
+    private boolean definedInMro(String name) {
+        PyObject[] mro = this.mro;
+        if (mro == null) {
+            return false;
+        }
+        for (PyObject t : mro) {
+            if (t instanceof PyType) {
+                PyType type = (PyType) t;
+                if (type.dict == null && type.pendingBuilder == null) {
+                    // still being made: as lookup_mro, which skips it
+                    continue;
+                }
+                if (type.defines(name)) {
+                    return true;
+                }
+            } else {
+                PyObject dict = t.fastGetDict();
+                if (dict != null && dict.__finditem__(name) != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     public PyObject getStatic() {
@@ -1255,7 +1333,11 @@ public class PyType extends PyObject implements Serializable, Traverseproc {
         }
         classToBuilder.put(forClass, builder);
 
-        if (class_to_type.containsKey(forClass)) {
+        if (class_to_type == null || !class_to_type.containsKey(forClass)) {
+            // Builders make no objects until their dicts are asked for, so a bootstrap type may
+            // have its builder before it is made, and then needs no bootstrapping
+            BootstrapTypesSingleton.getInstance().remove(forClass);
+        } else {
             if (!BootstrapTypesSingleton.getInstance().remove(forClass)) {
                 Py.writeWarning("init", "Bootstrapping class not in BootstrapTypesSingleton.getInstance()[class="
                                 + forClass + "]");
@@ -1613,12 +1695,15 @@ public class PyType extends PyObject implements Serializable, Traverseproc {
      * to __dict__ (or anything else affecting attribute lookups).
      */
     protected void invalidateMethodCache() {
+        final int[] types = new int[1];
         traverse_hierarchy(false, new OnType() {
                 public boolean onType(PyType type) {
                     type.versionTag = new Object();
+                    types[0]++;
                     return false;
                 }
             });
+        Events.methodCacheInvalidated(name, types[0]);
     }
 
     public PyObject __call__(PyObject[] args, String[] keywords) {
@@ -1704,12 +1789,15 @@ public class PyType extends PyObject implements Serializable, Traverseproc {
      * through {@link #addMethod} and {@link #removeMethod}, or unexpected mro errors can occur.
      */
     public PyObject fastGetDict() {
+        if (pendingBuilder != null) {
+            buildPendingDict();
+        }
         return dict;
     }
 
     @ExposedGet(name = "__dict__")
     public PyObject getDict() {
-        return new PyDictProxy(dict);
+        return new PyDictProxy(fastGetDict());
     }
 
     @ExposedSet(name = "__dict__")
@@ -1729,7 +1817,7 @@ public class PyType extends PyObject implements Serializable, Traverseproc {
      */
     @ExposedGet(name = "__doc__")
     public PyObject getDoc() {
-        PyObject doc = dict.__finditem__("__doc__");
+        PyObject doc = fastGetDict().__finditem__("__doc__");
         if (doc == null) {
             return Py.None;
         }
@@ -1740,6 +1828,14 @@ public class PyType extends PyObject implements Serializable, Traverseproc {
         return usesObjectGetattribute;
     }
 
+    /**
+     * An object that is replaced whenever the attributes of this type, or of one of its bases,
+     * change: what was looked up on the type is still good while the tag is the same.
+     */
+    Object getVersionTag() {
+        return versionTag;
+    }
+
     void setUsesObjectGetattribute(boolean usesObjectGetattribute) {
         this.usesObjectGetattribute = usesObjectGetattribute;
     }
@@ -1771,7 +1867,7 @@ public class PyType extends PyObject implements Serializable, Traverseproc {
 
     @ExposedGet(name = "__abstractmethods__")
     public PyObject getAbstractmethods() {
-        PyObject result = dict.__finditem__("__abstractmethods__");
+        PyObject result = fastGetDict().__finditem__("__abstractmethods__");
         if (result == null) {
             noAttributeError("__abstractmethods__");
         }
@@ -1782,7 +1878,7 @@ public class PyType extends PyObject implements Serializable, Traverseproc {
     public void setAbstractmethods(PyObject value) {
         // __abstractmethods__ should only be set once on a type, in abc.ABCMeta.__new__,
         // so this function doesn't do anything special to update subclasses
-        dict.__setitem__("__abstractmethods__", value);
+        fastGetDict().__setitem__("__abstractmethods__", value);
         postSetattr("__abstractmethods__");
         tp_flags = value.__bool__()
                 ? tp_flags | Py.TPFLAGS_IS_ABSTRACT
@@ -1982,6 +2078,15 @@ public class PyType extends PyObject implements Serializable, Traverseproc {
         /** Size of the cache exponent (2 ** SIZE_EXP). */
         public static final int SIZE_EXP = 11;
 
+        /**
+         * Whether lookups are counted in {@link #hits} and {@link #misses}. Set once the first
+         * {@link PySystemStateMXBean} is registered, so that otherwise lookups cost nothing more.
+         */
+        static boolean counting;
+
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+
         public MethodCache() {
             table = new AtomicReferenceArray<MethodCacheEntry>(1 << SIZE_EXP);
             clear();
@@ -2000,8 +2105,14 @@ public class PyType extends PyObject implements Serializable, Traverseproc {
             MethodCacheEntry entry = table.get(index);
 
             if (entry.isValid(versionTag, name)) {
+                if (counting) {
+                    hits.increment();
+                }
                 return entry.get(where);
             }
+            if (counting) {
+                misses.increment();
+            }
 
             // Always cache where
             if (where == null) {
@@ -0,0 +1,173 @@
+package org.python.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A profiler that periodically samples the Python stack of every thread from a background thread,
+ * by walking the frame chain of each {@link ThreadState}. Unlike a profile or trace function it
+ * adds nothing to the threads being profiled, so it can be left running in production.
+ * <p>
+ * Samples are aggregated by stack and written in the collapsed stack format used by flame graph
+ * tools: one line per distinct stack, its frames from the outermost to the innermost separated by
+ * <code>;</code>, then a space and the number of samples.
+ * <p>
+ * The frames are read without synchronization while their threads run on, so a sample taken just
+ * as a thread calls or returns may be slightly off. That evens out over many samples.
+ */
+public class SamplingProfiler implements Runnable {
+
+    /** Frames deeper than this are dropped from the innermost end of a sample. */
+    private static final int MAX_DEPTH = 1024;
+
+    private final long intervalNanos;
+    private final boolean threads;
+    private final boolean idle;
+
+    /** Sample counts by collapsed stack, guarded by itself. */
+    private final Map<String, long[]> counts = new TreeMap<>();
+    private long samples;
+
+    private volatile Thread sampler;
+
+    /**
+     * @param intervalNanos time between samples
+     * @param threads whether to start each stack with the name of its thread
+     * @param idle whether to sample threads that are blocked or waiting, rather than only those
+     *            that are runnable
+     */
+    public SamplingProfiler(long intervalNanos, boolean threads, boolean idle) {
+        if (intervalNanos <= 0) {
+            throw new IllegalArgumentException("sampling interval must be positive");
+        }
+        this.intervalNanos = intervalNanos;
+        this.threads = threads;
+        this.idle = idle;
+    }
+
+    public synchronized void start() {
+        if (sampler != null) {
+            throw new IllegalStateException("profiler already running");
+        }
+        sampler = new Thread(this, "Jython Sampling Profiler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * Stop sampling, waiting for a sample in progress to finish. Samples taken so far are kept.
+     */
+    public synchronized void stop() {
+        Thread thread = sampler;
+        if (thread == null) {
+            return;
+        }
+        sampler = null;
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return sampler != null;
+    }
+
+    @Override
+    public void run() {
+        Thread self = Thread.currentThread();
+        while (sampler == self) {
+            LockSupport.parkNanos(this, intervalNanos);
+            if (sampler == self) {
+                sample(self);
+            }
+        }
+    }
+
+    private void sample(Thread self) {
+        List<String> stack = new ArrayList<>();
+        StringBuilder collapsed = new StringBuilder();
+        for (Map.Entry<Thread, ThreadState> entry :
+                ThreadStateMapping.getThreadStates().entrySet()) {
+            Thread thread = entry.getKey();
+            PyFrame frame = entry.getValue().frame;
+            if (frame == null || thread == self
+                    || !idle && thread.getState() != Thread.State.RUNNABLE) {
+                continue;
+            }
+            stack.clear();
+            for (; frame != null && stack.size() < MAX_DEPTH; frame = frame.f_back) {
+                stack.add(describe(frame.f_code));
+            }
+            collapsed.setLength(0);
+            if (threads) {
+                collapsed.append(clean(thread.getName()));
+            }
+            for (int i = stack.size() - 1; i >= 0; i--) {
+                if (collapsed.length() > 0) {
+                    collapsed.append(';');
+                }
+                collapsed.append(stack.get(i));
+            }
+            String key = collapsed.toString();
+            synchronized (counts) {
+                long[] count = counts.get(key);
+                if (count == null) {
+                    counts.put(key, count = new long[1]);
+                }
+                count[0]++;
+                samples++;
+            }
+        }
+    }
+
+    private static String describe(PyBaseCode code) {
+        if (code == null) {
+            return "?";
+        }
+        return clean(code.co_name + " (" + code.co_filename + ":" + code.co_firstlineno + ")");
+    }
+
+    /** The separator and line breaks may not appear within a frame of the collapsed format. */
+    private static String clean(String name) {
+        return name.replace(';', ':').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    /** The number of stacks sampled so far, which may be several per interval. */
+    public long getSamples() {
+        synchronized (counts) {
+            return samples;
+        }
+    }
+
+    public void clear() {
+        synchronized (counts) {
+            counts.clear();
+            samples = 0;
+        }
+    }
+
+    /**
+     * Write the samples taken so far in collapsed stack format, ordered by stack.
+     */
+    public void writeCollapsed(Appendable out) throws IOException {
+        synchronized (counts) {
+            for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+                out.append(entry.getKey()).append(' ')
+                        .append(Long.toString(entry.getValue()[0])).append('\n');
+            }
+        }
+    }
+}
@@ -1,11 +1,12 @@
 
 package org.python.core;
 import java.io.*;
-import java.util.zip.*;
+
+import org.python.core.util.ZipIndex;
 
 @Untraversable
 public class SyspathArchive extends PyBytes {
-    private ZipFile zipFile;
+    private ZipIndex zipIndex;
 
     public SyspathArchive(String archiveName) throws IOException {
         super(archiveName);
@@ -13,15 +14,15 @@ public class SyspathArchive extends PyBytes {
         if(archiveName == null) {
             throw new IOException("path '" + archiveName + "' not an archive");
         }
-        this.zipFile = new ZipFile(new File(archiveName));
+        this.zipIndex = ZipIndex.get(new File(archiveName));
         if(PySystemState.isPackageCacheEnabled()) {
             PySystemState.packageManager.addJar(archiveName, true);
         }
     }
 
-    SyspathArchive(ZipFile zipFile, String archiveName) {
+    SyspathArchive(ZipIndex zipIndex, String archiveName) {
         super(archiveName);
-        this.zipFile = zipFile;
+        this.zipIndex = zipIndex;
     }
 
     static String getArchiveName(String dir) {
@@ -45,7 +46,7 @@ public class SyspathArchive extends PyBytes {
     }
 
     public SyspathArchive makeSubfolder(String folder) {
-        return new SyspathArchive(this.zipFile, super.toString() + "/" + folder);
+        return new SyspathArchive(this.zipIndex, super.toString() + "/" + folder);
     }
 
     private String makeEntry(String entry) {
@@ -58,8 +59,12 @@ public class SyspathArchive extends PyBytes {
         }
     }
 
-    ZipEntry getEntry(String entryName) {
-        return this.zipFile.getEntry(makeEntry(entryName));
+    /**
+     * The number of an entry of the archive, for {@link #getBytes(int)}, or -1 if there is none
+     * so named.
+     */
+    int getEntry(String entryName) {
+        return this.zipIndex.find(makeEntry(entryName));
     }
 
     public String asUriCompatibleString() {
@@ -70,39 +75,7 @@ public class SyspathArchive extends PyBytes {
         return result;
     }
 
-    InputStream getInputStream(ZipEntry entry) throws IOException {
-        InputStream istream = this.zipFile.getInputStream(entry);
-
-        // Some jdk1.1 VMs have problems with detecting the end of a zip
-        // stream correctly. If you read beyond the end, you get a
-        // EOFException("Unexpected end of ZLIB input stream"), not a
-        // -1 return value.
-        // XXX: Since 1.1 is no longer supported, we should review the usefulness
-        // of this workaround.
-        // As a workaround we read the file fully here, but only getSize()
-        // bytes.
-        int len = (int) entry.getSize();
-        byte[] buffer = new byte[len];
-        int off = 0;
-        while (len > 0) {
-            int l = istream.read(buffer, off, buffer.length - off);
-            if (l < 0)
-                return null;
-            off += l;
-            len -= l;
-        }
-        istream.close();
-        return new ByteArrayInputStream(buffer);
-    }
-
-/*
-    protected void finalize() {
-        System.out.println("closing zip file " + toString());
-        try {
-            zipFile.close();
-        } catch (IOException e) {
-            Py.writeDebug("import", "closing zipEntry failed");
-        }
+    byte[] getBytes(int entry) throws IOException {
+        return this.zipIndex.read(entry);
     }
-*/
 }
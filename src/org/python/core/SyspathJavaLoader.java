@@ -14,8 +14,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
-import java.util.StringTokenizer;
-import java.util.zip.ZipEntry;
 
 import org.python.core.util.RelativeFile;
 
@@ -59,10 +57,11 @@ public class SyspathJavaLoader extends ClassLoader {
      
     private byte[] getBytesFromDir(String dir, String name) {
     	try { 
-    		File file = getFile(dir, name);
-	        if (file == null) {
-	            return null;
-	        }
+    		String path = name.replace('.', File.separatorChar) + ".class";
+    		if (!DirectoryCache.mayExist(new RelativeFile(dir), path)) {
+    		    return null;
+    		}
+    		File file = new RelativeFile(dir, path);
 	        return getBytesFromInputStream(new FileInputStream(file), (int)file.length());
         } catch (FileNotFoundException e) {
             return null;
@@ -74,16 +73,15 @@ public class SyspathJavaLoader extends ClassLoader {
     
     private byte[] getBytesFromArchive(SyspathArchive archive, String name) {
         String entryname = name.replace('.', SLASH_CHAR) + ".class";
-        ZipEntry ze = archive.getEntry(entryname);
-        if (ze == null) {
+        int entry = archive.getEntry(entryname);
+        if (entry < 0) {
             return null;
         }
         try {
-			return getBytesFromInputStream(archive.getInputStream(ze), 
-					                       (int)ze.getSize());
-		} catch (IOException e) {
-			return null;
-		}
+            return archive.getBytes(entry);
+        } catch (IOException e) {
+            return null;
+        }
     }
 
     protected Package definePackageForClass(String name) {
@@ -149,8 +147,7 @@ public class SyspathJavaLoader extends ClassLoader {
             PyObject entry = replacePathItem(sys, i, path);
             if (entry instanceof SyspathArchive) {
                 SyspathArchive archive = (SyspathArchive) entry;
-                ZipEntry ze = archive.getEntry(entryRes);
-                if (ze != null) {
+                if (archive.getEntry(entryRes) >= 0) {
                 	try {
 						return new URL("jar:file:" + archive.asUriCompatibleString() + "!/" + entryRes);
 					} catch (MalformedURLException e) {
@@ -165,7 +162,7 @@ public class SyspathJavaLoader extends ClassLoader {
             String dir = sys.getPath(entry.toString());
             try {
 				File resource = new File(dir, res);
-				if (!resource.exists()) {
+				if (!DirectoryCache.mayExist(new File(dir), res) || !resource.exists()) {
 					continue;
 				}
 				return resource.toURI().toURL();
@@ -198,8 +195,7 @@ public class SyspathJavaLoader extends ClassLoader {
             PyObject entry = replacePathItem(sys, i, path);
             if (entry instanceof SyspathArchive) {
                 SyspathArchive archive = (SyspathArchive) entry;
-                ZipEntry ze = archive.getEntry(entryRes);
-                if (ze != null) {
+                if (archive.getEntry(entryRes) >= 0) {
                     try {
                         resources.add(new URL("jar:file:" + archive.asUriCompatibleString() + "!/" + entryRes));
                     } catch (MalformedURLException e) {
@@ -214,7 +210,7 @@ public class SyspathJavaLoader extends ClassLoader {
             String dir = sys.getPath(entry.toString());
             try {
                 File resource = new File(dir, res);
-                if (!resource.exists()) {
+                if (!DirectoryCache.mayExist(new File(dir), res) || !resource.exists()) {
                     continue;
                 }
                 resources.add(resource.toURI().toURL());
@@ -243,20 +239,4 @@ public class SyspathJavaLoader extends ClassLoader {
         return path;
     }
 
-    private File getFile(String dir, String name) {
-        String accum = "";
-        boolean first = true;
-        for (StringTokenizer t = new StringTokenizer(name, "."); t
-                .hasMoreTokens();) {
-            String token = t.nextToken();
-            if (!first) {
-                accum += File.separator;
-            }
-            accum += token;
-            first = false;
-        }
-        return new RelativeFile(dir, accum + ".class");
-    }
-
-
 }
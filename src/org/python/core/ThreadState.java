@@ -14,6 +14,12 @@ public class ThreadState {
 
     public int call_depth;
 
+    /** The deepest call_depth reached, reported by {@link PySystemStateMXBean}. */
+    public int max_call_depth;
+
+    /** The number of imports in progress on this thread, nested within one another. */
+    public int import_depth;
+
     public boolean tracing;
 
     public PyList reprStack;
@@ -2,6 +2,7 @@ package org.python.core;
 
 import com.google.common.collect.MapMaker;
 
+import java.util.HashMap;
 import java.util.Map;
 
 class ThreadStateMapping {
@@ -39,6 +40,14 @@ class ThreadStateMapping {
         return ts;
     }
 
+    /**
+     * A snapshot of the threads that have a {@link ThreadState}, for tools such as the sampling
+     * profiler that inspect other threads.
+     */
+    static Map<Thread, ThreadState> getThreadStates() {
+        return new HashMap<>(cachedThreadState);
+    }
+
     public static void enterCall(ThreadState ts) {
         if (ts.call_depth == 0) {
             scopedThreadState.get()[0] = ts;
@@ -46,7 +55,9 @@ class ThreadStateMapping {
         } else if (ts.call_depth > ts.systemState.getrecursionlimit()) {
             throw Py.RecursionError("maximum recursion depth exceeded");
         }
-        ts.call_depth++;
+        if (++ts.call_depth > ts.max_call_depth) {
+            ts.max_call_depth = ts.call_depth;
+        }
     }
 
     public static void exitCall(ThreadState ts) {
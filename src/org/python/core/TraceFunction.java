@@ -9,4 +9,12 @@ public abstract class TraceFunction {
     public abstract TraceFunction traceLine(PyFrame frame, int line);
 
     public abstract TraceFunction traceException(PyFrame frame, PyException exc);
+
+    /**
+     * The object reported by <code>sys.gettrace()</code> or <code>sys.getprofile()</code> while
+     * this function is installed.
+     */
+    public PyObject getTraceObject() {
+        return Py.None;
+    }
 }
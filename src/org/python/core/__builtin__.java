@@ -1646,30 +1646,26 @@ class CompileFunction extends PyBuiltinFunction {
         cflags = Py.getCompilerFlags(cflags, dont_inherit);
 
         mod ast = py2node(source);
-        if (ast == null) {
-            if (!(source instanceof PyBytes) && !(source instanceof PyUnicode)) {
-                throw Py.TypeError("expected a readable buffer object");
+        if (ast != null) {
+            if (cflags.only_ast) {
+                return Py.java2py(ast);
             }
-            cflags.source_is_utf8 = source instanceof PyUnicode;
-
-            String data = source.toString();
-
-            if (data.contains("\0")) {
-                throw Py.TypeError("compile() expected string without null bytes");
-            }
-            if (cflags != null && cflags.dont_imply_dedent) {
-                data += "\n";
-            } else {
-                data += "\n\n";
-            }
-            ast = ParserFacade.parse(data, kind, filename, cflags);
+            return Py.compile_flags(ast, filename, kind, cflags);
+        }
+        if (!(source instanceof PyBytes) && !(source instanceof PyUnicode)) {
+            throw Py.TypeError("expected a readable buffer object");
         }
+        cflags.source_is_utf8 = source instanceof PyUnicode;
 
-        if (cflags.only_ast) {
-            return Py.java2py(ast);
-        } else {
-            return Py.compile_flags(ast, filename, kind, cflags);
+        String data = source.toString();
+        if (!cflags.only_ast) {
+            return Py.compile_flags(data, filename, kind, cflags);
+        }
+        if (data.contains("\0")) {
+            throw Py.TypeError("compile() expected string without null bytes");
         }
+        data += cflags.dont_imply_dedent ? "\n" : "\n\n";
+        return Py.java2py(ParserFacade.parse(data, kind, filename, cflags));
     }
 
     /**
@@ -15,6 +15,7 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import org.python.Version;
 import org.python.compiler.Module;
+import org.python.core.jfr.Events;
 import org.python.core.util.FileUtil;
 import org.python.core.util.PlatformUtil;
 import org.python.modules.Setup;
@@ -143,18 +144,25 @@ public class imp {
      */
     public static PyModule addModule(String name) {
         name = name.intern();
-        PyObject modules = Py.getSystemState().modules;
-        PyModule module = (PyModule)modules.__finditem__(name);
-        if (module != null) {
+        PySystemState sys = Py.getSystemState();
+        PyObject modules = sys.modules;
+        ReentrantLock importLock = sys.getImportLock();
+        importLock.lock();
+        try {
+            PyModule module = (PyModule)modules.__finditem__(name);
+            if (module != null) {
+                return module;
+            }
+            module = new PyModule(name, null);
+            PyModule __builtin__ = (PyModule)modules.__finditem__("__builtin__");
+            PyObject __dict__ = module.__getattr__("__dict__");
+            __dict__.__setitem__("__builtins__", __builtin__.__getattr__("__dict__"));
+            __dict__.__setitem__("__package__", Py.None);
+            modules.__setitem__(name, module);
             return module;
+        } finally {
+            importLock.unlock();
         }
-        module = new PyModule(name, null);
-        PyModule __builtin__ = (PyModule)modules.__finditem__("__builtin__");
-        PyObject __dict__ = module.__getattr__("__dict__");
-        __dict__.__setitem__("__builtins__", __builtin__.__getattr__("__dict__"));
-        __dict__.__setitem__("__package__", Py.None);
-        modules.__setitem__(name, module);
-        return module;
     }
 
     /**
@@ -226,6 +234,7 @@ public class imp {
             return null;
         }
         PyCode code;
+        importOrigin("compiled");
         try {
             code = BytecodeLoader.makeCode(name + Version.PY_CACHE_TAG, data.getBytes(), //
                     source == CodeImport.compiled_only ? data.getFilename() : sourceName);
@@ -376,8 +385,10 @@ public class imp {
             org.python.antlr.base.mod node;
             CompilerFlags cflags = new CompilerFlags();
             bufReader = ParserFacade.prepBufReader(fp, cflags, filename, false);
+            importOrigin("source");
             node = ParserFacade.parseOnly(bufReader, CompileMode.exec, filename, cflags);
-            Module.compile(node, ofp, name + Version.PY_CACHE_TAG, filename, true, false, null, mtime);
+            Module.compile(node, ofp, name + Version.PY_CACHE_TAG, filename, true, false, null, mtime,
+                    Options.compileSplitFunctions);
             return ofp.toByteArray();
         } catch (Throwable t) {
             throw ParserFacade.fixParseError(bufReader, t, filename);
@@ -426,8 +437,6 @@ public class imp {
         if (!(c instanceof PyTableCode)) {
             throw Py.TypeError(String.format("expected TableCode, got %s", c.getType().fastGetName()));
         }
-        ReentrantLock importLock = Py.getSystemState().getImportLock();
-        importLock.lock();
         try {
             PyFrame f = new PyFrame((PyTableCode) c, module.__dict__, module.__dict__, null);
             c.call(Py.getThreadState(), f);
@@ -435,9 +444,6 @@ public class imp {
         } catch (Throwable t) {
             removeModule(name);
             throw t;
-        } finally {
-            if (importLock.isLocked())
-                importLock.unlock();
         }
     }
 
@@ -508,6 +514,7 @@ public class imp {
     public static PyObject loadBuiltin(String name) {
         if (name == "__builtin__" || name == "builtins") {
             Py.writeComment(IMPORT_LOG, "'" + name + "' as __builtin__ in builtin modules");
+            importOrigin("builtin");
             return new PyModule("__builtin__", Py.getSystemState().builtins);
         }
         String mod = PySystemState.getBuiltin(name);
@@ -515,6 +522,7 @@ public class imp {
             Class c = Py.findClassEx(mod, "builtin modules");
             if (c != null) {
                 Py.writeComment(IMPORT_LOG, "'" + name + "' as " + mod + " in builtin modules");
+                importOrigin("builtin");
                 try {
                     if (PyObject.class.isAssignableFrom(c)) { // xxx ok?
                         return PyType.fromClass(c);
@@ -610,14 +618,7 @@ public class imp {
      */
     public static PyObject load(String name) {
         PyUnicode.checkEncoding(name);
-        ReentrantLock importLock = Py.getSystemState().getImportLock();
-        importLock.lock();
-        try {
-            return import_first(name, new StringBuilder());
-        } finally {
-            if (importLock.isLocked())
-                importLock.unlock();
-        }
+        return import_first(name, new StringBuilder());
     }
 
     /**
@@ -709,6 +710,49 @@ public class imp {
         return modname.intern();
     }
 
+    /** An import in progress, as recorded for -X importtime and for Flight Recorder. */
+    private static final class ImportRecord {
+
+        final Object timing;
+        final Object event;
+
+        ImportRecord(Object timing, Object event) {
+            this.timing = timing;
+            this.event = event;
+        }
+    }
+
+    /**
+     * Begin the import of a module that is not yet in <code>sys.modules</code>.
+     *
+     * @return what to pass to {@link #endImport(ImportRecord, PyObject)}, or null when nothing is
+     *         recording imports
+     */
+    private static ImportRecord beginImport(String fullName) {
+        Object event = Events.beginImport(fullName);
+        Object timing = ImportTime.begin(fullName);
+        return event == null && timing == null ? null : new ImportRecord(timing, event);
+    }
+
+    /** End an import begun with {@link #beginImport(String)}, with null if it failed. */
+    private static void endImport(ImportRecord record, PyObject module) {
+        if (record != null) {
+            boolean found = module != null && module != Py.None;
+            Events.endImport(record.event, found);
+            ImportTime.end(record.timing, module);
+        }
+    }
+
+    /**
+     * Say where the module of the innermost import in progress on this thread came from, for
+     * -X importtime and for Flight Recorder: <code>"source"</code>, <code>"compiled"</code>,
+     * <code>"builtin"</code> or <code>"java"</code>.
+     */
+    public static void importOrigin(String origin) {
+        Events.importOrigin(origin);
+        ImportTime.origin(origin);
+    }
+
     /**
      *
      * @param mod a previously loaded module
@@ -725,14 +769,29 @@ public class imp {
 
         String fullName = parentNameBuffer.toString().intern();
 
-        PySystemState sys = Py.getSystemState();
+        ThreadState ts = Py.getThreadState();
+        PySystemState sys = ts.systemState;
         PyObject modules = sys.modules;
         PyObject ret = modules.__finditem__(fullName);
         if (ret != null) {
+            // it may be there because another thread is running its body
+            PyModuleLock.awaitLoaded(sys, fullName);
             return ret;
         }
+        // Only this module is locked while it loads: other threads may import others meanwhile
+        PyModuleLock lock = PyModuleLock.get(sys, fullName);
+        lock.acquire();
+        ImportRecord record = beginImport(fullName);
+        boolean found = false;
+        long start = ts.import_depth++ == 0 ? System.nanoTime() : 0;
         try {
-            return sys.importlib.invoke("_find_and_load", new PyUnicode(fullName), sys.builtins.__finditem__("__import__"));
+            ret = modules.__finditem__(fullName);
+            if (ret == null) {
+                ret = sys.importlib.invoke("_find_and_load_unlocked", new PyUnicode(fullName),
+                        sys.builtins.__finditem__("__import__"));
+            }
+            found = ret != null && ret != Py.None;
+            return ret;
         } catch (PyException pye) {
             /**
              * remove trackback that from '_bootstrap.py' or '_bootstrap_external.py' in case of ImportError
@@ -762,6 +821,15 @@ public class imp {
                 tb = next;
             }
             throw pye;
+        } finally {
+            lock.release();
+            if (--ts.import_depth == 0) {
+                sys.importNanos.add(System.nanoTime() - start);
+            }
+            if (found) {
+                sys.importCount.increment();
+            }
+            endImport(record, found ? ret : null);
         }
     }
 
@@ -778,7 +846,15 @@ public class imp {
             String fullName, PyObject fromlist) {
         PyObject ret = import_next(null, parentNameBuffer, name, fullName, fromlist);
         if (ret == null || ret == Py.None) {
-            if (JavaImportHelper.tryAddPackage(fullName, fromlist)) {
+            boolean added;
+            ReentrantLock importLock = Py.getSystemState().getImportLock();
+            importLock.lock();
+            try {
+                added = JavaImportHelper.tryAddPackage(fullName, fromlist);
+            } finally {
+                importLock.unlock();
+            }
+            if (added) {
                 ret = import_next(null, parentNameBuffer, name, fullName, fromlist);
             }
         }
@@ -979,14 +1055,7 @@ public class imp {
      */
     public static PyObject importName(String name, boolean top) {
         PyUnicode.checkEncoding(name);
-        ReentrantLock importLock = Py.getSystemState().getImportLock();
-        importLock.lock();
-        try {
-            return import_module_level(name, top, null, null, DEFAULT_LEVEL);
-        } finally {
-            if (importLock.isLocked())
-                importLock.unlock();
-        }
+        return import_module_level(name, top, null, null, DEFAULT_LEVEL);
     }
 
     /**
@@ -1000,14 +1069,7 @@ public class imp {
     public static PyObject importName(String name, boolean top, PyObject modDict,
             PyObject fromlist, int level) {
         PyUnicode.checkEncoding(name);
-        ReentrantLock importLock = Py.getSystemState().getImportLock();
-        importLock.lock();
-        try {
-            return import_module_level(name, top, modDict, fromlist, level);
-        } finally {
-            if (importLock.isLocked())
-                importLock.unlock();
-        }
+        return import_module_level(name, top, modDict, fromlist, level);
     }
 
     /**
@@ -1044,19 +1106,12 @@ public class imp {
      */
     public static PyObject[] importFromAs(String mod, String[] names, String[] asnames,
             PyFrame frame, int level) {
-        PyObject module;
-        ReentrantLock importLock = Py.getSystemState().getImportLock();
-        importLock.lock();
-        try {
-            PyObject[] fromList = new PyObject[names.length];
-            for (int i = 0; i < names.length; i++) {
-                fromList[i] = new PyUnicode(names[i]);
-            }
-            module = import_module_level(mod, false, frame.f_globals, new PyTuple(fromList), level);
-        } finally {
-            if (importLock.isLocked())
-                importLock.unlock();
+        PyObject[] fromList = new PyObject[names.length];
+        for (int i = 0; i < names.length; i++) {
+            fromList[i] = new PyUnicode(names[i]);
         }
+        PyObject module = import_module_level(mod, false, frame.f_globals, new PyTuple(fromList),
+                level);
         PyObject[] submods = new PyObject[names.length];
         for (int i = 0; i < names.length; i++) {
             PyObject submod = module.__findattr__(names[i]);
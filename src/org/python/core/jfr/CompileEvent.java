@@ -0,0 +1,42 @@
+package org.python.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.python.Compile")
+@Label("Python Compilation")
+@Category({"Jython", "Compiler"})
+@Description("A phase of compiling Python code: parse, generate or define")
+final class CompileEvent extends jdk.jfr.Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Filename")
+    String filename;
+
+    @Label("Bytecode Size")
+    @Description("Size of the class files generated or defined")
+    @DataAmount
+    long bytes;
+
+    static CompileEvent start(String phase, String filename) {
+        CompileEvent event = new CompileEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.phase = phase;
+        event.filename = filename;
+        event.begin();
+        return event;
+    }
+
+    void finish(long bytes) {
+        end();
+        this.bytes = bytes;
+        commit();
+    }
+}
@@ -0,0 +1,144 @@
+package org.python.core.jfr;
+
+import org.python.core.PyObject;
+import org.python.core.PyReflectedFunction;
+import org.python.core.PyType;
+import org.python.core.PyUnicode;
+import org.python.core.ReflectedArgs;
+
+/**
+ * Java Flight Recorder events for interpreter activity: imports, compilation, exception creation,
+ * delayed finalization, method cache invalidation and reflected calls of Java methods.
+ * <p>
+ * The runtime reports through these methods only, which refer to the event classes just when
+ * <code>jdk.jfr</code> is present, so Jython still runs on a JVM without it. When no recording
+ * has an event enabled, reporting it costs a flag test.
+ * <p>
+ * Methods that begin an event return it as an opaque handle to pass to the matching end method,
+ * or null when it is not being recorded.
+ */
+public final class Events {
+
+    /** Whether this JVM has the Flight Recorder API. */
+    public static final boolean AVAILABLE = available();
+
+    private Events() {}
+
+    private static boolean available() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /** Begin the import of a module that is not yet in <code>sys.modules</code>. */
+    public static Object beginImport(String module) {
+        return AVAILABLE ? ImportEvent.start(module) : null;
+    }
+
+    /**
+     * Say where the module of the innermost import in progress on this thread came from:
+     * <code>"source"</code>, <code>"compiled"</code>, <code>"builtin"</code> or
+     * <code>"java"</code>.
+     */
+    public static void importOrigin(String origin) {
+        if (AVAILABLE) {
+            ImportEvent.origin(origin);
+        }
+    }
+
+    public static void endImport(Object event, boolean found) {
+        if (event != null) {
+            ((ImportEvent) event).finish(found);
+        }
+    }
+
+    /**
+     * Begin a phase of compilation: <code>"parse"</code>, <code>"generate"</code> (of class
+     * files) or <code>"define"</code> (of classes from them).
+     */
+    public static Object beginCompile(String phase, String filename) {
+        return AVAILABLE ? CompileEvent.start(phase, filename) : null;
+    }
+
+    /**
+     * @param bytes the size of the class files generated or defined, or 0
+     */
+    public static void endCompile(Object event, long bytes) {
+        if (event != null) {
+            ((CompileEvent) event).finish(bytes);
+        }
+    }
+
+    /**
+     * Report the creation of a Python exception. The message is recorded only when the value is
+     * a string, so that no Python code runs.
+     */
+    public static void exceptionCreated(PyObject type, PyObject value) {
+        if (AVAILABLE) {
+            ExceptionEvent event = new ExceptionEvent();
+            if (event.isEnabled()) {
+                event.type = (type instanceof PyType ? (PyType) type : type.getType())
+                        .fastGetName();
+                if (value instanceof PyUnicode) {
+                    event.message = ((PyUnicode) value).getString();
+                }
+                event.commit();
+            }
+        }
+    }
+
+    public static Object beginFinalization() {
+        if (AVAILABLE) {
+            FinalizationEvent event = new FinalizationEvent();
+            if (event.isEnabled()) {
+                event.begin();
+                return event;
+            }
+        }
+        return null;
+    }
+
+    public static void endFinalization(Object event, int objects) {
+        if (event != null) {
+            FinalizationEvent finalization = (FinalizationEvent) event;
+            finalization.end();
+            finalization.objects = objects;
+            finalization.commit();
+        }
+    }
+
+    /**
+     * Report that the method cache entries of a type were invalidated.
+     *
+     * @param types how many types were invalidated: the type and its subtypes
+     */
+    public static void methodCacheInvalidated(String type, int types) {
+        if (AVAILABLE) {
+            MethodCacheEvent event = new MethodCacheEvent();
+            if (event.isEnabled()) {
+                event.type = type;
+                event.types = types;
+                event.commit();
+            }
+        }
+    }
+
+    public static Object beginReflectedCall() {
+        return AVAILABLE ? ReflectedCallEvent.start() : null;
+    }
+
+    public static void endReflectedCall(Object event, PyReflectedFunction function) {
+        if (event != null) {
+            ReflectedCallEvent call = (ReflectedCallEvent) event;
+            call.end();
+            ReflectedArgs first = function.argslist[0];
+            call.method = first == null ? function.__name__
+                    : first.declaringClass.getName() + "." + function.__name__;
+            call.overloads = function.nargs;
+            call.commit();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.python.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.python.Exception")
+@Label("Python Exception")
+@Category({"Jython", "Exceptions"})
+@Description("Creation of a Python exception")
+final class ExceptionEvent extends jdk.jfr.Event {
+
+    @Label("Type")
+    String type;
+
+    @Label("Message")
+    String message;
+}
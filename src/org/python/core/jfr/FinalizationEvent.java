@@ -0,0 +1,17 @@
+package org.python.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.python.DelayedFinalization")
+@Label("Delayed Finalization")
+@Category({"Jython", "GC"})
+@Description("A run of the gc module's delayed finalization")
+final class FinalizationEvent extends jdk.jfr.Event {
+
+    @Label("Objects")
+    @Description("Objects whose finalizers were delayed or that may have been resurrected")
+    int objects;
+}
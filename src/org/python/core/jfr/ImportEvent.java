@@ -0,0 +1,59 @@
+package org.python.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.python.Import")
+@Label("Python Import")
+@Category({"Jython", "Import"})
+@Description("Import of a module not yet in sys.modules")
+final class ImportEvent extends jdk.jfr.Event {
+
+    /** The innermost import in progress on each thread, to which compilation is attributed. */
+    private static final ThreadLocal<ImportEvent> current = new ThreadLocal<>();
+
+    @Label("Module")
+    String module;
+
+    @Label("Origin")
+    @Description("source if compiled from source, compiled if loaded from compiled code,"
+            + " java for a Java package or class, otherwise builtin")
+    String origin;
+
+    @Label("Found")
+    boolean found;
+
+    private transient ImportEvent outer;
+
+    static ImportEvent start(String module) {
+        ImportEvent event = new ImportEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.module = module;
+        event.outer = current.get();
+        current.set(event);
+        event.begin();
+        return event;
+    }
+
+    static void origin(String origin) {
+        ImportEvent event = current.get();
+        if (event != null && event.origin == null) {
+            event.origin = origin;
+        }
+    }
+
+    void finish(boolean found) {
+        end();
+        current.set(outer);
+        outer = null;
+        this.found = found;
+        if (origin == null) {
+            origin = "builtin";
+        }
+        commit();
+    }
+}
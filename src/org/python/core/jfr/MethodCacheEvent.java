@@ -0,0 +1,20 @@
+package org.python.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.python.MethodCacheInvalidation")
+@Label("Method Cache Invalidation")
+@Category({"Jython", "Types"})
+@Description("Invalidation of the method cache entries of a type and its subtypes")
+final class MethodCacheEvent extends jdk.jfr.Event {
+
+    @Label("Type")
+    String type;
+
+    @Label("Types Invalidated")
+    @Description("The type and the subtypes it was invalidated with")
+    int types;
+}
@@ -0,0 +1,28 @@
+package org.python.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("org.python.ReflectedCall")
+@Label("Java Reflected Call")
+@Category({"Jython", "Java Integration"})
+@Description("Call of a Java method through reflection, including choosing the overload")
+final class ReflectedCallEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Overloads")
+    int overloads;
+
+    static ReflectedCallEvent start() {
+        ReflectedCallEvent event = new ReflectedCallEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+}
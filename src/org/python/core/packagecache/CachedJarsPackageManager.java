@@ -4,13 +4,13 @@
 package org.python.core.packagecache;
 
 import org.python.core.Options;
+import org.python.core.PyJavaPackage;
 import org.python.util.Generic;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
-import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -18,18 +18,34 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Modifier;
 import java.net.URL;
-import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.security.AccessControlException;
+import java.util.Collections;
+import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 /**
  * Abstract package manager that gathers info about statically known classes
  * from a set of jars. This info can be eventually cached. Off-the-shelf this
- * class offers a local file-system based cache impl.
+ * class offers a local file-system based cache impl, a {@link PackageIndex}
+ * in the cache directory.
+ * <p>
+ * The storage hooks of the <code>packages.idx</code> and <code>.pkc</code> files it
+ * replaced ({@link #inOpenIndex}, {@link #outOpenIndex}, {@link #inOpenCacheFile},
+ * {@link #deleteCacheFile} and {@link #outCreateCacheFile}) are kept for the subclasses
+ * that call them, but are deprecated and no longer called: overriding them no longer
+ * changes where the cache is kept.
  */
 public abstract class CachedJarsPackageManager extends PackageManager {
 
@@ -94,9 +110,8 @@ public abstract class CachedJarsPackageManager extends PackageManager {
         return (acc & Modifier.PUBLIC) != Modifier.PUBLIC;
     }
 
-    private boolean indexModified;
-
-    private Map<String,JarXEntry> jarfiles;
+    /** The index of the cache directory, or null if not caching. */
+    private PackageIndex index;
 
     private static String listToString(List<String> list) {
         int n = list.size();
@@ -113,9 +128,8 @@ public abstract class CachedJarsPackageManager extends PackageManager {
     // Add a single class from zipFile to zipPackages
     // Only add valid, public classes
     private void addZipEntry(Map<String, List<String>[]> zipPackages, ZipEntry entry,
-            ZipInputStream zip) throws IOException {
+            InputStream zip) throws IOException {
         String name = entry.getName();
-        // System.err.println("entry: "+name);
         if (!name.endsWith(".class")) {
             return;
         }
@@ -157,9 +171,20 @@ public abstract class CachedJarsPackageManager extends PackageManager {
     private List<String>[] createGenericStringListArray(){
         return new List[] { Generic.list(), Generic.list() };
     }
-    
-    // Extract all of the packages in a single jarfile
-    private Map<String, String> getZipPackages(InputStream jarin) throws IOException {
+
+    // Turn the class lists of each package into comma-separated Strings
+    private static Map<String, String[]> toStrings(Map<String, List<String>[]> zipPackages) {
+        Map<String, String[]> transformed = Generic.map();
+        for (Entry<String,List<String>[]> kv : zipPackages.entrySet()) {
+            List<String>[] vec = kv.getValue();
+            transformed.put(kv.getKey(),
+                    new String[] {listToString(vec[0]), listToString(vec[1])});
+        }
+        return transformed;
+    }
+
+    // Extract all of the packages in a jar read as a stream
+    private Map<String, String[]> getZipPackages(InputStream jarin) throws IOException {
         Map<String, List<String>[]> zipPackages = Generic.map();
 
         ZipInputStream zip = new ZipInputStream(jarin);
@@ -170,286 +195,200 @@ public abstract class CachedJarsPackageManager extends PackageManager {
             zip.closeEntry();
         }
 
-        // Turn each vector into a comma-separated String
-        Map<String, String> transformed = Generic.map();
-        for (Entry<String,List<String>[]> kv : zipPackages.entrySet()) {
-            List<String>[] vec = kv.getValue();
-            String classes = listToString(vec[0]);
-            if (vec[1].size() > 0) {
-                classes += '@' + listToString(vec[1]);
+        return toStrings(zipPackages);
+    }
+
+    // Extract all of the packages in a local jar, with what is needed to validate them later
+    private PackageIndex.Jar scanJar(String jarcanon, File jarfile, long mtime, long size,
+            PackageIndex.Jar previous) throws IOException {
+        ZipFile zip = new ZipFile(jarfile);
+        try {
+            long fingerprint = PackageIndex.fingerprint(zip);
+            if (previous != null && previous.size == size
+                    && previous.fingerprint == fingerprint) {
+                debug("jar touched but unchanged, '" + jarcanon + "'");
+                return previous.touched(mtime);
             }
-            transformed.put(kv.getKey(), classes);
+            comment((previous == null ? "processing new jar, '" : "processing modified jar, '")
+                    + jarcanon + "'");
+            Map<String, List<String>[]> zipPackages = Generic.map();
+            for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();) {
+                ZipEntry entry = e.nextElement();
+                if (!entry.getName().endsWith(".class")) {
+                    continue;
+                }
+                InputStream in = zip.getInputStream(entry);
+                try {
+                    addZipEntry(zipPackages, entry, in);
+                } finally {
+                    in.close();
+                }
+            }
+            return new PackageIndex.Jar(jarcanon, mtime, size, fingerprint,
+                    toStrings(zipPackages));
+        } finally {
+            zip.close();
         }
-
-        return transformed;
     }
 
     /**
      * Gathers classes info from jar specified by jarurl URL. Eventually just
      * using previously cached info. Eventually updated info is not cached.
-     * Persistent cache storage access goes through inOpenCacheFile() and
-     * outCreateCacheFile().
      */
     public void addJarToPackages(java.net.URL jarurl) {
-        addJarToPackages(jarurl, null, false);
+        addJarToPackages(jarurl, false);
     }
 
     /**
-     * Gathers classes info from jar specified by jarurl URL. Eventually just
-     * using previously cached info. Eventually updated info is (re-)cached if
-     * param cache is true. Persistent cache storage access goes through
-     * inOpenCacheFile() and outCreateCacheFile().
+     * Gathers classes info from jar specified by jarurl URL. A <code>file:</code> URL is treated
+     * as a local jar, see {@link #addJarToPackages(File, boolean)}; the contents of any other
+     * are read every time and never cached.
      */
     public void addJarToPackages(URL jarurl, boolean cache) {
-        addJarToPackages(jarurl, null, cache);
+        if (jarurl.getProtocol().equals("file")) {
+            // ??pending: need to use java2 URLDecoder.decode?
+            String jarfilename = jarurl.getFile().replace('/', File.separatorChar);
+            addJarToPackages(new File(jarfilename), cache);
+            return;
+        }
+        InputStream jarin = null;
+        try {
+            jarin = jarurl.openStream();
+            addPackages(getZipPackages(jarin), jarurl.toString());
+        } catch (IOException ioe) {
+            warning("skipping bad jar, '" + jarurl + "'");
+        } finally {
+            if (jarin != null) {
+                try {
+                    jarin.close();
+                } catch (IOException ignore) {
+                    //ignore
+                }
+            }
+        }
     }
 
     /**
      * Gathers classes info from jar specified by File jarfile. Eventually just
      * using previously cached info. Eventually updated info is not cached.
-     * Persistent cache storage access goes through inOpenCacheFile() and
-     * outCreateCacheFile().
      */
     public void addJarToPackages(File jarfile) {
-        addJarToPackages(null, jarfile, false);
+        addJarToPackages(jarfile, false);
     }
 
     /**
      * Gathers classes info from jar specified by File jarfile. Eventually just
      * using previously cached info. Eventually updated info is (re-)cached if
-     * param cache is true. Persistent cache storage access goes through
-     * inOpenCacheFile() and outCreateCacheFile().
+     * param cache is true.
      */
     public void addJarToPackages(File jarfile, boolean cache) {
-        addJarToPackages(null, jarfile, cache);
+        addJarsToPackages(Collections.singletonList(jarfile), cache);
     }
 
-    private void addJarToPackages(URL jarurl, File jarfile, boolean cache) {
-        try {
-            boolean caching = this.jarfiles != null;
-
-            URLConnection jarconn = null;
-            boolean localfile = true;
-
-            if (jarfile == null) {
-                jarconn = jarurl.openConnection();
-                // This is necessary because 'file:' url-connections
-                // return always 0 through getLastModified (bug?).
-                // And in order to handle localfiles (from urls too)
-                // uniformly.
-                if (jarconn.getURL().getProtocol().equals("file")) {
-                    // ??pending: need to use java2 URLDecoder.decode?
-                    String jarfilename = jarurl.getFile();
-                    jarfilename = jarfilename.replace('/', File.separatorChar);
-                    jarfile = new File(jarfilename);
-                } else {
-                    localfile = false;
+    /**
+     * Gathers classes info from several jars, as {@link #addJarToPackages(File, boolean)} would
+     * one after the other. The jars missing from the cache, or changed since they were cached,
+     * are scanned in parallel on the common fork-join pool; a jar whose modification time
+     * changed but whose size and central directory did not is not scanned again. The packages
+     * are then added in the order of the list, so that the first jar providing a package is the
+     * one recorded as its <code>__file__</code>, as when adding them one by one.
+     */
+    public void addJarsToPackages(List<File> jarfiles, boolean cache) {
+        int n = jarfiles.size();
+        PackageIndex.Jar[] jars = new PackageIndex.Jar[n];
+        List<ForkJoinTask<PackageIndex.Jar>> scans = Generic.list();
+        for (int i = 0; i < n; i++) {
+            scans.add(null);
+            final File jarfile = jarfiles.get(i);
+            final String jarcanon;
+            final long mtime;
+            final long size;
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(jarfile.toPath(),
+                        BasicFileAttributes.class);
+                if (!attrs.isRegularFile()) {
+                    continue;
                 }
+                jarcanon = jarfile.getCanonicalPath();
+                mtime = attrs.lastModifiedTime().toMillis();
+                size = attrs.size();
+            } catch (IOException | InvalidPathException | SecurityException e) {
+                // the jar does not exist, or cannot be seen
+                continue;
             }
-
-            if (localfile && !jarfile.exists()) {
-                return;
+            final PackageIndex.Jar cached = index == null ? null : index.get(jarcanon);
+            if (cached != null && cached.mtime == mtime && cached.size == size) {
+                debug("reading cache, '" + jarcanon + "'");
+                jars[i] = cached;
+                continue;
             }
+            scans.set(i, ForkJoinPool.commonPool().submit(new Callable<PackageIndex.Jar>() {
 
-            Map<String, String> zipPackages = null;
-
-            long mtime = 0;
-            String jarcanon = null;
-            JarXEntry entry = null;
-            boolean brandNew = false;
-
-            if (caching) {
-
-                if (localfile) {
-                    mtime = jarfile.lastModified();
-                    jarcanon = jarfile.getCanonicalPath();
-                } else {
-                    mtime = jarconn.getLastModified();
-                    jarcanon = jarurl.toString();
+                @Override
+                public PackageIndex.Jar call() throws IOException {
+                    return scanJar(jarcanon, jarfile, mtime, size, cached);
                 }
-
-                entry = this.jarfiles.get(jarcanon);
-
-                if ((entry == null || !(new File(entry.cachefile).exists()))
-                        && cache) {
-                    comment("processing new jar, '" + jarcanon + "'");
-
-                    String jarname;
-                    if (localfile) {
-                        jarname = jarfile.getName();
-                    } else {
-                        jarname = jarurl.getFile();
-                        int slash = jarname.lastIndexOf('/');
-                        if (slash != -1)
-                            jarname = jarname.substring(slash + 1);
-                    }
-                    jarname = jarname.substring(0, jarname.length() - 4);
-
-                    entry = new JarXEntry(jarname);
-                    this.jarfiles.put(jarcanon, entry);
-
-                    brandNew = true;
-                }
-
-                if (mtime != 0 && entry != null && entry.mtime == mtime) {
-                    zipPackages = readCacheFile(entry, jarcanon);
-                }
-
-            }
-
-            if (zipPackages == null) {
-                caching = caching && cache;
-
-                if (caching) {
-                    this.indexModified = true;
-                    if (entry.mtime != 0) {
-                        comment("processing modified jar, '" + jarcanon + "'");
-                    }
-                    entry.mtime = mtime;
-                }
-
-                InputStream jarin = null;
+            }));
+        }
+        for (int i = 0; i < n; i++) {
+            ForkJoinTask<PackageIndex.Jar> scan = scans.get(i);
+            if (scan != null) {
                 try {
-                    if (jarconn == null) {
-                        jarin = new BufferedInputStream(
-                                new FileInputStream(jarfile));
-                    } else {
-                        jarin = jarconn.getInputStream();
-                    }
-
-                    zipPackages = getZipPackages(jarin);
-                } finally {
-                    if (jarin != null) {
-                        jarin.close();
-                    }
+                    jars[i] = scan.join();
+                } catch (RuntimeException e) {
+                    // silently skip any bad jars
+                    warning("skipping bad jar, '" + jarfiles.get(i) + "'");
+                    continue;
                 }
-
-                if (caching) {
-                    writeCacheFile(entry, jarcanon, zipPackages, brandNew);
+                if (cache && index != null) {
+                    index.put(jars[i]);
                 }
             }
-
-            addPackages(zipPackages, jarcanon);
-        } catch (IOException ioe) {
-            // silently skip any bad directories
-            warning("skipping bad jar, '"
-                    + (jarfile != null ? jarfile.toString() : jarurl.toString())
-                    + "'");
-        }
-
-    }
-
-    private void addPackages(Map<String,String> zipPackages, String jarfile) {
-        for (Entry<String,String> entry : zipPackages.entrySet()) {
-            String pkg = entry.getKey();
-            String classes = entry.getValue();
-
-            int idx = classes.indexOf('@');
-            if (idx >= 0 && Options.respectJavaAccessibility) {
-                classes = classes.substring(0, idx);
+            if (jars[i] != null) {
+                addPackages(jars[i]);
             }
-
-            makeJavaPackage(pkg, classes, jarfile);
         }
     }
 
-    // Read in cache file storing package info for a single .jar
-    // Return null and delete this cachefile if it is invalid
-    @SuppressWarnings("empty-statement")
-    private Map<String, String> readCacheFile(JarXEntry entry, String jarcanon) {
-        String cachefile = entry.cachefile;
-        long mtime = entry.mtime;
-
-        debug("reading cache, '" + jarcanon + "'");
-
-        DataInputStream istream = null;
-        try {
-            istream = inOpenCacheFile(cachefile);
-            String old_jarcanon = istream.readUTF();
-            long old_mtime = istream.readLong();
-            if ((!old_jarcanon.equals(jarcanon)) || (old_mtime != mtime)) {
-                comment("invalid cache file: " + cachefile + ", " + jarcanon
-                        + ":" + old_jarcanon + ", " + mtime + ":" + old_mtime);
-                deleteCacheFile(cachefile);
-                return null;
-            }
-            Map<String, String> packs = Generic.map();
-            try {
-                while (true) {
-                    String packageName = istream.readUTF();
-                    String classes = istream.readUTF();
-                    // XXX: Handle multiple chunks of classes and concatenate them
-                    // together. Multiple chunks were added in 2.5.2 (for #1595) in this
-                    // way to maintain compatibility with the pre 2.5.2 format. In the
-                    // future we should consider changing the cache format to prepend a
-                    // count of chunks to avoid this check
-                    if (packs.containsKey(packageName)) {
-                        classes = packs.get(packageName) + classes;
-                    }
-                    packs.put(packageName, classes);
-                }
-            } catch (EOFException eof) {
-                //ignore
-            }
-
-            return packs;
-        } catch (IOException ioe) {
-            // if (cachefile.exists()) cachefile.delete();
-            return null;
-        } finally {
-            if (istream != null) {
-                try {
-                    istream.close();
-                } catch (IOException ignore) {
-                    //ignore
-                }
+    private void addPackages(Map<String, String[]> zipPackages, String jarfile) {
+        for (Entry<String, String[]> entry : zipPackages.entrySet()) {
+            String[] classes = entry.getValue();
+            PyJavaPackage p = makeJavaPackage(entry.getKey(), classes[0], jarfile);
+            if (!Options.respectJavaAccessibility) {
+                p.addPlaceholders(classes[1]);
             }
         }
     }
 
-    // Write a cache file storing package info for a single .jar
-    private void writeCacheFile(JarXEntry entry, String jarcanon,
-            Map<String,String> zipPackages, boolean brandNew) {
-        DataOutputStream ostream = null;
-        try {
-            ostream = outCreateCacheFile(entry, brandNew);
-            ostream.writeUTF(jarcanon);
-            ostream.writeLong(entry.mtime);
-            comment("rewriting cachefile for '" + jarcanon + "'");
-
-            for (Entry<String,String> kv : zipPackages.entrySet()) {
-                String classes = kv.getValue();
-                // Make sure each package is not larger than 64k
-                for (String part : splitString(classes, 65535)) {
-                    // For each chunk, write the package name followed by the classes. 
-                    ostream.writeUTF(kv.getKey());
-                    ostream.writeUTF(part);
+    private void addPackages(PackageIndex.Jar jar) {
+        final String jarfile = jar.path;
+        jar.visitPackages(new PackageIndex.PackageVisitor() {
+
+            @Override
+            public void visit(String name, Supplier<String> publicClasses,
+                    Supplier<String> otherClasses) {
+                PyJavaPackage p = makeJavaPackage(name, null, jarfile);
+                p.addPlaceholders(publicClasses);
+                if (!Options.respectJavaAccessibility) {
+                    p.addPlaceholders(otherClasses);
                 }
             }
-        } catch (IOException ioe) {
-            warning("can't write cache file for '" + jarcanon + "'");
-        } finally {
-            if (ostream != null) {
-                try {
-                    ostream.close();
-                } catch (IOException ignore) {
-                    //ignore
-                }
-            }
-        }
+        });
     }
 
     /**
      * Split up a string into several chunks based on a certain size
-     * 
+     *
      *  The writeCacheFile method will use the writeUTF method on a
-     *  DataOutputStream which only allows writing 64k chunks, so use 
+     *  DataOutputStream which only allows writing 64k chunks, so use
      *  this utility method to split it up
-     * 
+     *
      * @param str - The string to split up into chunks
      * @param maxLength - The max size a string should be
      * @return - An array of strings, each of which will not be larger than maxLength
+     * @deprecated the {@link PackageIndex} has no such limit, so this is no longer used
      */
+    @Deprecated
     protected static String[] splitString(String str, int maxLength) {
         if (str == null) {
             return null;
@@ -469,85 +408,48 @@ public abstract class CachedJarsPackageManager extends PackageManager {
     }
 
     /**
-     * Initializes cache. Eventually reads back cache index. Index persistent
-     * storage is accessed through inOpenIndex().
+     * Initializes cache. Maps the latest index of the cache directory, if there is one, see
+     * {@link #useCacheDir}, and deletes the older ones that it can.
      */
     protected void initCache() {
-        this.indexModified = false;
-        this.jarfiles = Generic.map();
-
-        DataInputStream istream = null;
+        this.index = new PackageIndex();
+        if (this.cachedir == null) {
+            return;
+        }
         try {
-            istream = inOpenIndex();
-            if (istream == null) {
-                return;
-            }
-
-            try {
-                while (true) {
-                    String jarcanon = istream.readUTF();
-                    String cachefile = istream.readUTF();
-                    long mtime = istream.readLong();
-                    this.jarfiles.put(jarcanon, new JarXEntry(cachefile, mtime));
-                }
-            } catch (EOFException eof) {
-                //ignore
-            }
+            this.index = PackageIndex.read(this.cachedir);
         } catch (IOException ioe) {
             warning("invalid index file");
-        } finally {
-            if (istream != null) {
-                try {
-                    istream.close();
-                } catch (IOException ignore) {
-                    //ignore
-                }
-            }
         }
+        PackageIndex.deleteStale(this.cachedir, PackageIndex.latestGeneration(this.cachedir));
     }
 
     /**
-     * Write back cache index. Index persistent storage is accessed through
-     * outOpenIndex().
+     * Writes back the index of the cache directory, if jars were scanned.
      */
     public void saveCache() {
-        if (jarfiles == null || !indexModified) {
+        if (index == null || !index.isModified() || cachedir == null) {
             return;
         }
 
-        indexModified = false;
-
         comment("writing modified index file");
 
-        DataOutputStream ostream = null;
         try {
-            ostream = outOpenIndex();
-            for (Entry<String,JarXEntry> entry : jarfiles.entrySet()) {
-                String jarcanon = entry.getKey();
-                JarXEntry xentry = entry.getValue();
-                ostream.writeUTF(jarcanon);
-                ostream.writeUTF(xentry.cachefile);
-                ostream.writeLong(xentry.mtime);
-            }
+            index.write(this.cachedir);
         } catch (IOException ioe) {
             warning("can't write index file");
-        } finally {
-            if (ostream != null) {
-                try {
-                    ostream.close();
-                } catch (IOException ignore) {
-                    //ignore
-                }
-            }
         }
     }
 
-    // hooks for changing cache storage
+    // hooks for changing cache storage, no longer called
 
     /**
      * To pass a cachefile id by ref. And for internal use. See
      * outCreateCacheFile
+     *
+     * @deprecated the cache is kept in a {@link PackageIndex}
      */
+    @Deprecated
     public static class JarXEntry extends Object {
         /** cachefile id */
         public String cachefile;
@@ -566,10 +468,13 @@ public abstract class CachedJarsPackageManager extends PackageManager {
     }
 
     /**
-     * Open cache index for reading from persistent storage - hook. Must Return
-     * null if this is absent. This default impl is part of the off-the-shelf
-     * local file-system cache impl. Can be overriden.
+     * Open the <code>packages.idx</code> index of the old cache format for reading. Returns
+     * null if this is absent.
+     *
+     * @deprecated the cache is kept in a {@link PackageIndex}, which {@link #initCache} reads
+     *             without calling this
      */
+    @Deprecated
     protected DataInputStream inOpenIndex() throws IOException {
         File indexFile = new File(this.cachedir, "packages.idx");
 
@@ -584,10 +489,12 @@ public abstract class CachedJarsPackageManager extends PackageManager {
     }
 
     /**
-     * Open cache index for writing back to persistent storage - hook. This
-     * default impl is part of the off-the-shelf local file-system cache impl.
-     * Can be overriden.
+     * Open the <code>packages.idx</code> index of the old cache format for writing.
+     *
+     * @deprecated the cache is kept in a {@link PackageIndex}, which {@link #saveCache} writes
+     *             without calling this
      */
+    @Deprecated
     protected DataOutputStream outOpenIndex() throws IOException {
         File indexFile = new File(this.cachedir, "packages.idx");
 
@@ -596,10 +503,11 @@ public abstract class CachedJarsPackageManager extends PackageManager {
     }
 
     /**
-     * Open cache file for reading from persistent storage - hook. This default
-     * impl is part of the off-the-shelf local file-system cache impl. Can be
-     * overriden.
+     * Open a cache file of the old cache format for reading.
+     *
+     * @deprecated the cache is kept in a {@link PackageIndex}, with no file per jar
      */
+    @Deprecated
     protected DataInputStream inOpenCacheFile(String cachefile)
             throws IOException {
         return new DataInputStream(new BufferedInputStream(new FileInputStream(
@@ -607,23 +515,25 @@ public abstract class CachedJarsPackageManager extends PackageManager {
     }
 
     /**
-     * Delete (invalidated) cache file from persistent storage - hook. This
-     * default impl is part of the off-the-shelf local file-system cache impl.
-     * Can be overriden.
+     * Delete a cache file of the old cache format.
+     *
+     * @deprecated the cache is kept in a {@link PackageIndex}, with no file per jar
      */
+    @Deprecated
     protected void deleteCacheFile(String cachefile) {
         new File(cachefile).delete();
     }
 
     /**
-     * Create/open cache file for rewriting back to persistent storage - hook.
-     * If create is false, cache file is supposed to exist and must be opened
-     * for rewriting, entry.cachefile is a valid cachefile id. If create is
-     * true, cache file must be created. entry.cachefile is a flat jarname to be
-     * used to produce a valid cachefile id (to be put back in entry.cachefile
-     * on exit). This default impl is part of the off-the-shelf local
-     * file-system cache impl. Can be overriden.
+     * Create/open a cache file of the old cache format for writing. If create is false, cache
+     * file is supposed to exist and must be opened for rewriting, entry.cachefile is a valid
+     * cachefile id. If create is true, cache file must be created. entry.cachefile is a flat
+     * jarname to be used to produce a valid cachefile id (to be put back in entry.cachefile
+     * on exit).
+     *
+     * @deprecated the cache is kept in a {@link PackageIndex}, with no file per jar
      */
+    @Deprecated
     protected DataOutputStream outCreateCacheFile(JarXEntry entry,
             boolean create) throws IOException {
         File cachefile = null;
@@ -634,7 +544,6 @@ public abstract class CachedJarsPackageManager extends PackageManager {
             String jarname = entry.cachefile;
             while (true) {
                 cachefile = new File(this.cachedir, jarname + suffix + ".pkc");
-                // System.err.println("try cachefile: "+cachefile);
                 if (!cachefile.exists()) {
                     break;
                 }
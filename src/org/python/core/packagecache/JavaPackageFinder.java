@@ -0,0 +1,331 @@
+// Copyright (c) Jython Developers
+
+package org.python.core.packagecache;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.python.core.Options;
+import org.python.core.Py;
+import org.python.core.PyJavaPackage;
+import org.python.core.PyList;
+import org.python.core.PyObject;
+import org.python.core.PySystemState;
+import org.python.core.imp;
+
+/**
+ * Finds Java packages, and lists their classes, when they are first looked for, by asking the
+ * class loader and, for the modules of the JDK, the <code>jrt:</code> file system, so that the
+ * class path need not be scanned before the first Java import. Answers, yes and no, are kept.
+ * <p>
+ * Whether a package exists is asked of <code>sys.classLoader</code>, if set, and otherwise of
+ * the class loader of Jython, which sees the class path but not <code>sys.path</code>. Negative
+ * answers are kept until that class loader changes or
+ * <code>importlib.invalidate_caches()</code> is called. Classes are loaded through
+ * {@link org.python.core.Py#findClassEx}, which also looks on <code>sys.path</code>, so the
+ * classes found missing are forgotten as well when <code>sys.path</code> is rebound or any of its
+ * entries is added, removed or replaced by another object.
+ * <p>
+ * A package in a jar is found only if the jar has an entry for its directory, as nearly all do;
+ * the registry option <code>python.packages.scan</code> scans the class path beforehand as
+ * before, for the jars that do not.
+ */
+final class JavaPackageFinder {
+
+    private final CachedJarsPackageManager mgr;
+
+    /** Package name to whether it exists. */
+    private final ConcurrentMap<String, Boolean> packages = new ConcurrentHashMap<String, Boolean>();
+
+    /** Names of classes that could not be loaded. */
+    private final Set<String> missingClasses =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /** Names of the packages whose classes were added by {@link #addClasses(PyJavaPackage)}. */
+    private final Set<String> listedPackages =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    /** The packages of the JDK modules and their parents, or empty before Java 9. */
+    private volatile Set<String> jdkPackages;
+
+    private volatile FileSystem jrt;
+
+    private volatile boolean jrtLooked;
+
+    /** The class loader {@link #packages} were looked for in. */
+    private volatile Object packagesGeneration;
+
+    /** What {@link #missingClasses} depend on. */
+    private volatile ClassesGeneration classesGeneration;
+
+    JavaPackageFinder(CachedJarsPackageManager mgr) {
+        this.mgr = mgr;
+    }
+
+    /** Whether the named package exists, dotted and in full. */
+    boolean packageExists(String name) {
+        ClassLoader loader = loader();
+        if (loader != packagesGeneration) {
+            packages.clear();
+            packagesGeneration = loader;
+        }
+        Boolean exists = packages.get(name);
+        if (exists == null) {
+            exists = jdkPackages().contains(name) || inClassLoader(loader, name);
+            packages.put(name, exists);
+        }
+        return exists;
+    }
+
+    /** Whether loading the named class failed since the class path last changed. */
+    boolean isMissingClass(String name) {
+        PySystemState sys = Py.getSystemState();
+        ClassesGeneration generation = classesGeneration;
+        if (generation == null || !generation.isCurrent(sys)) {
+            missingClasses.clear();
+            classesGeneration = new ClassesGeneration(sys);
+        }
+        return missingClasses.contains(name);
+    }
+
+    void addMissingClass(String name) {
+        missingClasses.add(name);
+    }
+
+    /** Forget all answers, as after the class path changed. */
+    void invalidate() {
+        packages.clear();
+        missingClasses.clear();
+        listedPackages.clear();
+    }
+
+    /**
+     * Adds the classes found by {@link #listClasses(String)} to those statically known of a
+     * package, the first time it is listed.
+     */
+    void addClasses(PyJavaPackage jpkg) {
+        if (jpkg.__name__.length() != 0 && listedPackages.add(jpkg.__name__)) {
+            jpkg.addPlaceholders(listClasses(jpkg.__name__));
+        }
+    }
+
+    /**
+     * Lists the classes of a package that are not filtered out by the package manager, in the
+     * JDK modules and in the jars and directories of the class loader.
+     *
+     * @return their names, separated by commas
+     */
+    String listClasses(String name) {
+        String path = name.replace('.', '/');
+        Set<String> classes = new TreeSet<String>();
+        FileSystem fs = jrt();
+        if (fs != null) {
+            Path modules = fs.getPath("/packages", name);
+            if (Files.isDirectory(modules)) {
+                try (DirectoryStream<Path> links = Files.newDirectoryStream(modules)) {
+                    for (Path module : links) {
+                        Path dir = fs.getPath("/modules", module.getFileName().toString(), path);
+                        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir,
+                                "*.class")) {
+                            for (Path file : files) {
+                                try (InputStream in = Files.newInputStream(file)) {
+                                    addClass(classes, file.getFileName().toString(), in);
+                                }
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    mgr.warning("can't list the classes of JDK package '" + name + "'");
+                }
+            }
+        }
+        ClassLoader loader = loader();
+        if (loader != null) {
+            try {
+                Enumeration<URL> urls = loader.getResources(path + "/");
+                while (urls.hasMoreElements()) {
+                    listClasses(classes, urls.nextElement(), path);
+                }
+            } catch (IOException e) {
+                mgr.warning("can't list the classes of package '" + name + "'");
+            }
+        }
+        StringBuilder ret = new StringBuilder();
+        for (String cls : classes) {
+            if (ret.length() > 0) {
+                ret.append(',');
+            }
+            ret.append(cls);
+        }
+        return ret.toString();
+    }
+
+    private void listClasses(Set<String> classes, URL url, String path) throws IOException {
+        if (url.getProtocol().equals("file")) {
+            File[] files;
+            try {
+                files = new File(url.toURI()).listFiles();
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                return;
+            }
+            if (files == null) {
+                return;
+            }
+            for (File file : files) {
+                if (file.getName().endsWith(".class") && file.isFile()) {
+                    try (InputStream in = new FileInputStream(file)) {
+                        addClass(classes, file.getName(), in);
+                    }
+                }
+            }
+            return;
+        }
+        URLConnection conn = url.openConnection();
+        if (!(conn instanceof JarURLConnection)) {
+            return;
+        }
+        // the jar is shared with the class loader, so it is not closed here
+        JarFile jar = ((JarURLConnection) conn).getJarFile();
+        String prefix = path + "/";
+        for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements();) {
+            JarEntry entry = e.nextElement();
+            String entryName = entry.getName();
+            if (entryName.startsWith(prefix) && entryName.endsWith(".class")
+                    && entryName.indexOf('/', prefix.length()) < 0) {
+                try (InputStream in = jar.getInputStream(entry)) {
+                    addClass(classes, entryName.substring(prefix.length()), in);
+                }
+            }
+        }
+    }
+
+    private void addClass(Set<String> classes, String fileName, InputStream in)
+            throws IOException {
+        String name = fileName.substring(0, fileName.length() - ".class".length());
+        if (mgr.filterByName(name, false)) {
+            return;
+        }
+        if (Options.respectJavaAccessibility) {
+            int access = PackageManager.checkAccess(in);
+            if (access == -1 || mgr.filterByAccess(name, access)) {
+                return;
+            }
+        }
+        classes.add(name);
+    }
+
+    private boolean inClassLoader(ClassLoader loader, String name) {
+        if (loader == null) {
+            return false;
+        }
+        try {
+            Enumeration<URL> urls = loader.getResources(name.replace('.', '/') + "/");
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                if (!url.getProtocol().equals("file")
+                        || !new File(new File(url.toURI()), "__init__.py").exists()) {
+                    // not a Python package that happens to be on the class path
+                    return true;
+                }
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            // a bad class path entry: look no further
+        }
+        return false;
+    }
+
+    private Set<String> jdkPackages() {
+        Set<String> names = jdkPackages;
+        if (names == null) {
+            names = new HashSet<String>();
+            FileSystem fs = jrt();
+            if (fs != null) {
+                try (DirectoryStream<Path> dirs = Files.newDirectoryStream(fs.getPath("/packages"))) {
+                    for (Path dir : dirs) {
+                        String pkg = dir.getFileName().toString();
+                        // with the parent packages, such as java for java.util
+                        for (int dot = pkg.length(); dot > 0; dot = pkg.lastIndexOf('.', dot - 1)) {
+                            names.add(pkg.substring(0, dot));
+                        }
+                    }
+                } catch (IOException e) {
+                    mgr.warning("can't list the JDK packages");
+                }
+            }
+            jdkPackages = names;
+        }
+        return names;
+    }
+
+    private FileSystem jrt() {
+        if (!jrtLooked) {
+            try {
+                jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+            } catch (RuntimeException e) {
+                // before Java 9, where the JDK classes are in jars the class loader can see
+            }
+            jrtLooked = true;
+        }
+        return jrt;
+    }
+
+    private static ClassLoader loader() {
+        ClassLoader loader = Py.getSystemState().getClassLoader();
+        return loader != null ? loader : imp.getParentClassLoader();
+    }
+
+    /**
+     * What the classes that could be loaded depend on: the class loader, and the list that is
+     * <code>sys.path</code> with the entries it had, so that replacing an entry is seen.
+     */
+    private static final class ClassesGeneration {
+
+        private final ClassLoader loader;
+        private final PyList path;
+        private final PyObject[] entries;
+
+        ClassesGeneration(PySystemState sys) {
+            loader = sys.getClassLoader();
+            path = sys.path;
+            entries = path.getArray();
+        }
+
+        boolean isCurrent(PySystemState sys) {
+            if (sys.getClassLoader() != loader || sys.path != path) {
+                return false;
+            }
+            synchronized (path) {
+                if (path.size() != entries.length) {
+                    return false;
+                }
+                for (int i = 0; i < entries.length; i++) {
+                    if (path.pyget(i) != entries[i]) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+// Copyright (c) Jython Developers
+
+package org.python.core.packagecache;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The packages and classes of every jar scanned by a {@link CachedJarsPackageManager}, kept in a
+ * binary file of the cache directory. The file is memory-mapped when read, and only the header of
+ * each jar is decoded then; the package names of a jar are decoded when it is found on the class
+ * path, and its class names when a package is listed.
+ * <p>
+ * As the file stays mapped, and a mapped file cannot be replaced on some platforms, each update is
+ * written to a file of its own, <code>packages.</code><i>N</i><code>.bin</code> for the next
+ * generation <i>N</i>, and the latest generation is the one read. Older generations are deleted
+ * when they can be, which is once no process maps them on those platforms.
+ * <p>
+ * The file holds a magic number, a format version and the number of jars, followed by a record
+ * for each jar:
+ *
+ * <pre>
+ * int     length of the rest of the record
+ * string  path of the jar
+ * long    modification time
+ * long    size
+ * long    fingerprint of the central directory, see {@link #fingerprint(ZipFile)}
+ * int     number of packages
+ *         for each package: string name, string public classes, string other classes
+ * </pre>
+ *
+ * where a string is its length in bytes followed by its UTF-8 encoding, and class names are
+ * separated by commas.
+ */
+final class PackageIndex {
+
+    private static final String FILE_PREFIX = "packages.";
+
+    private static final String FILE_SUFFIX = ".bin";
+
+    /** Times to look for the latest generation again, if deleted as it was being opened. */
+    private static final int READ_ATTEMPTS = 3;
+
+    private static final int MAGIC = 0x4a504b49; // "JPKI"
+
+    private static final int VERSION = 1;
+
+    /** What is known of one jar, read from the index or from the jar itself. */
+    static final class Jar {
+
+        final String path;
+
+        final long mtime;
+
+        final long size;
+
+        final long fingerprint;
+
+        /** The record in the mapped index, or null if scanned by this process. */
+        private final ByteBuffer record;
+
+        /** The offset in {@link #record} of the number of packages. */
+        private final int packagesOffset;
+
+        /** Package name to public and other classes, if scanned by this process. */
+        private final Map<String, String[]> scanned;
+
+        private Jar(String path, long mtime, long size, long fingerprint, ByteBuffer record,
+                int packagesOffset) {
+            this.path = path;
+            this.mtime = mtime;
+            this.size = size;
+            this.fingerprint = fingerprint;
+            this.record = record;
+            this.packagesOffset = packagesOffset;
+            this.scanned = null;
+        }
+
+        Jar(String path, long mtime, long size, long fingerprint,
+                Map<String, String[]> packages) {
+            this.path = path;
+            this.mtime = mtime;
+            this.size = size;
+            this.fingerprint = fingerprint;
+            this.record = null;
+            this.packagesOffset = 0;
+            this.scanned = packages;
+        }
+
+        /** This entry with another modification time, for a jar that was touched but not changed. */
+        Jar touched(long newMtime) {
+            if (record == null) {
+                return new Jar(path, newMtime, size, fingerprint, scanned);
+            }
+            return new Jar(path, newMtime, size, fingerprint, record, packagesOffset);
+        }
+
+        /** Calls the visitor for each package of the jar, in no particular order. */
+        void visitPackages(PackageVisitor visitor) {
+            if (record == null) {
+                for (Map.Entry<String, String[]> entry : scanned.entrySet()) {
+                    final String[] classes = entry.getValue();
+                    visitor.visit(entry.getKey(), constant(classes[0]), constant(classes[1]));
+                }
+                return;
+            }
+            ByteBuffer buf = record.duplicate();
+            buf.position(packagesOffset);
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                String name = readString(buf);
+                Supplier<String> publicClasses = lazyString(buf);
+                Supplier<String> otherClasses = lazyString(buf);
+                visitor.visit(name, publicClasses, otherClasses);
+            }
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            if (record != null && record.getLong(mtimeOffset()) == mtime) {
+                // unchanged: copy the mapped bytes
+                ByteBuffer buf = record.duplicate();
+                buf.position(0);
+                byte[] bytes = new byte[buf.remaining()];
+                buf.get(bytes);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                return;
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream body = new DataOutputStream(bytes);
+            writeString(body, path);
+            body.writeLong(mtime);
+            body.writeLong(size);
+            body.writeLong(fingerprint);
+            if (record != null) {
+                ByteBuffer buf = record.duplicate();
+                buf.position(packagesOffset);
+                byte[] packages = new byte[buf.remaining()];
+                buf.get(packages);
+                body.write(packages);
+            } else {
+                body.writeInt(scanned.size());
+                for (Map.Entry<String, String[]> entry : scanned.entrySet()) {
+                    writeString(body, entry.getKey());
+                    writeString(body, entry.getValue()[0]);
+                    writeString(body, entry.getValue()[1]);
+                }
+            }
+            body.flush();
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        }
+
+        private int mtimeOffset() {
+            // the mtime follows the path, and the three longs precede the packages
+            return packagesOffset - 3 * 8;
+        }
+    }
+
+    /** Receives the packages of a jar; class names are decoded only if asked for. */
+    interface PackageVisitor {
+
+        void visit(String name, Supplier<String> publicClasses, Supplier<String> otherClasses);
+    }
+
+    private final Map<String, Jar> jars = new LinkedHashMap<String, Jar>();
+
+    private boolean modified;
+
+    /** The generation of the file this index was read from or written to, or 0 if none. */
+    private int generation;
+
+    Jar get(String path) {
+        return jars.get(path);
+    }
+
+    void put(Jar jar) {
+        jars.put(jar.path, jar);
+        modified = true;
+    }
+
+    boolean isModified() {
+        return modified;
+    }
+
+    int getGeneration() {
+        return generation;
+    }
+
+    /** The file of a generation of the index in a cache directory. */
+    static File file(File dir, int generation) {
+        return new File(dir, FILE_PREFIX + generation + FILE_SUFFIX);
+    }
+
+    /** The generation of a file of the index, or 0 if the name is not that of one. */
+    private static int generationOf(String name) {
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(
+                    name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length())));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** The latest generation of the index in a cache directory, or 0 if there is none. */
+    static int latestGeneration(File dir) {
+        int latest = 0;
+        String[] names = dir.list();
+        if (names != null) {
+            for (String name : names) {
+                latest = Math.max(latest, generationOf(name));
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * Deletes the files of the generations of the index before the given one. Those that cannot
+     * be deleted, as still mapped by some process, are left for next time.
+     */
+    static void deleteStale(File dir, int current) {
+        String[] names = dir.list();
+        if (names == null) {
+            return;
+        }
+        for (String name : names) {
+            int generation = generationOf(name);
+            if (generation > 0 && generation < current) {
+                new File(dir, name).delete();
+            }
+        }
+    }
+
+    /**
+     * Maps and reads the latest generation of the index in a cache directory.
+     *
+     * @return the index, empty if there is none
+     * @throws IOException if the file cannot be read or is not an index of this version
+     */
+    static PackageIndex read(File dir) throws IOException {
+        for (int attempt = 1;; attempt++) {
+            int generation = latestGeneration(dir);
+            PackageIndex index = new PackageIndex();
+            index.generation = generation;
+            if (generation == 0) {
+                return index;
+            }
+            ByteBuffer buf;
+            try (RandomAccessFile raf = new RandomAccessFile(file(dir, generation), "r");
+                    FileChannel channel = raf.getChannel()) {
+                // the mapping remains valid after the channel is closed
+                buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (FileNotFoundException e) {
+                // replaced by a later generation and deleted meanwhile
+                if (attempt < READ_ATTEMPTS) {
+                    continue;
+                }
+                throw e;
+            }
+            index.readJars(buf);
+            return index;
+        }
+    }
+
+    private void readJars(ByteBuffer buf) throws IOException {
+        try {
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                throw new IOException("not a package index of version " + VERSION);
+            }
+            int count = buf.getInt();
+            for (int i = 0; i < count; i++) {
+                int length = buf.getInt();
+                int end = buf.position() + length;
+                ByteBuffer record = buf.slice();
+                record.limit(length);
+                String path = readString(record);
+                long mtime = record.getLong();
+                long size = record.getLong();
+                long fingerprint = record.getLong();
+                jars.put(path,
+                        new Jar(path, mtime, size, fingerprint, record, record.position()));
+                buf.position(end);
+            }
+        } catch (RuntimeException e) {
+            // BufferUnderflowException or IllegalArgumentException from a truncated file
+            throw new IOException("truncated package index", e);
+        }
+    }
+
+    /**
+     * Writes the index as the next generation in a cache directory, and deletes the older ones
+     * that it can. It is written to a temporary file first, then given the name of the
+     * generation, so that processes sharing the cache directory never read a partly written
+     * index, and never replace one another's.
+     */
+    void write(File dir) throws IOException {
+        File tmp = File.createTempFile("packages", ".tmp", dir);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(jars.size());
+                for (Jar jar : jars.values()) {
+                    jar.write(out);
+                }
+            }
+            int next = Math.max(generation, latestGeneration(dir)) + 1;
+            while (true) {
+                try {
+                    publish(tmp.toPath(), file(dir, next).toPath());
+                    break;
+                } catch (FileAlreadyExistsException e) {
+                    // another process wrote this generation meanwhile
+                    next++;
+                }
+            }
+            generation = next;
+            modified = false;
+        } finally {
+            tmp.delete();
+        }
+        deleteStale(dir, generation);
+    }
+
+    /**
+     * Gives a file a second name, failing with {@link FileAlreadyExistsException} if that exists.
+     * A hard link is made, which fails atomically. Where there are none, the file is moved
+     * instead, which only checks first: two processes writing the same generation at once may
+     * then lose one of the two, which is only a cache.
+     */
+    static void publish(Path file, Path target) throws IOException {
+        try {
+            Files.createLink(target, file);
+            return;
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (UnsupportedOperationException | IOException e) {
+            // no hard links in this file system
+        }
+        Files.move(file, target);
+    }
+
+    /**
+     * A hash of the names, sizes and CRCs of the entries of a zip file, read from its central
+     * directory without inflating anything, so that a jar whose modification time changed but
+     * whose contents did not need not be scanned again.
+     */
+    static long fingerprint(ZipFile zip) {
+        long hash = 1125899906842597L;
+        for (Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements();) {
+            ZipEntry entry = e.nextElement();
+            hash = 31 * hash + entry.getName().hashCode();
+            hash = 31 * hash + entry.getSize();
+            hash = 31 * hash + entry.getCrc();
+        }
+        return hash;
+    }
+
+    private static Supplier<String> constant(final String value) {
+        return new Supplier<String>() {
+
+            @Override
+            public String get() {
+                return value;
+            }
+        };
+    }
+
+    /** Skips a string of the buffer, returning something that decodes it when asked. */
+    private static Supplier<String> lazyString(ByteBuffer buf) {
+        int length = buf.getInt();
+        final ByteBuffer bytes = buf.slice();
+        bytes.limit(length);
+        buf.position(buf.position() + length);
+        return new Supplier<String>() {
+
+            @Override
+            public String get() {
+                return decode(bytes.duplicate());
+            }
+        };
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        ByteBuffer bytes = buf.slice();
+        bytes.limit(length);
+        buf.position(buf.position() + length);
+        return decode(bytes);
+    }
+
+    private static String decode(ByteBuffer bytes) {
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
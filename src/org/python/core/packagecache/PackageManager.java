@@ -3,9 +3,6 @@
 
 package org.python.core.packagecache;
 
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
-import org.objectweb.asm.Opcodes;
 import org.python.core.Py;
 import org.python.core.PyJavaPackage;
 import org.python.core.PyList;
@@ -13,6 +10,9 @@ import org.python.core.PyObject;
 import org.python.core.PyStringMap;
 import org.python.core.util.FileUtil;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 
@@ -82,14 +82,21 @@ public abstract class PackageManager extends Object {
      */
     public abstract void addJar(String jarfile, boolean cache);
 
+    /**
+     * Forget what was found missing, or present, since the class path may have changed - hook.
+     * Called by <code>importlib.invalidate_caches()</code>. This default impl does nothing.
+     */
+    public void invalidateCaches() {
+    }
+
     /**
      * Basic helper implementation of {@link #doDir}. It merges information
-     * from jpkg {@link PyJavaPackage#clsSet} and {@link PyJavaPackage#__dict__}.
+     * from jpkg {@link PyJavaPackage#getClassSet()} and {@link PyJavaPackage#__dict__}.
      */
     protected PyList basicDoDir(PyJavaPackage jpkg, boolean instantiate,
             boolean exclpkgs) {
         PyStringMap dict = jpkg.__dict__;
-        PyStringMap cls = jpkg.clsSet;
+        PyStringMap cls = jpkg.getClassSet();
 
         if (!instantiate) {
             PyList ret = (PyList) cls.keys();
@@ -170,39 +177,70 @@ public abstract class PackageManager extends Object {
     }
 
 
-    private static class AccessVisitor extends ClassVisitor {
-
-        private int class_access;
-
-        public AccessVisitor() throws IOException {
-            super(Opcodes.ASM5);
-        }
-
-        @Override
-        public void visit(int version, int access, String name,
-                          String signature, String superName, String[] interfaces) {
-            class_access = access;
-        }
-
-        public int getClassAccess() {
-            return class_access;
-        }
-    }
-
     /**
      * Check that a given stream is a valid Java .class file. And return its
-     * access permissions as an int.
+     * access permissions as an int. Only the constant pool is read, to find
+     * them after it, so that this works for class files of any version.
      */
     static protected int checkAccess(java.io.InputStream cstream)
             throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(cstream));
         try {
-            ClassReader reader = new ClassReader(cstream);
-            AccessVisitor visitor = new AccessVisitor();
-            reader.accept(visitor, 0);
-            return visitor.getClassAccess();
-        } catch (RuntimeException e) {
+            if (in.readInt() != 0xCAFEBABE) {
+                return -1;
+            }
+            in.readUnsignedShort(); // minor_version
+            in.readUnsignedShort(); // major_version
+            int count = in.readUnsignedShort();
+            for (int i = 1; i < count; i++) {
+                int tag = in.readUnsignedByte();
+                switch (tag) {
+                    case 1: // Utf8
+                        skip(in, in.readUnsignedShort());
+                        break;
+                    case 7: // Class
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        skip(in, 2);
+                        break;
+                    case 15: // MethodHandle
+                        skip(in, 3);
+                        break;
+                    case 3: // Integer
+                    case 4: // Float
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        skip(in, 4);
+                        break;
+                    case 5: // Long
+                    case 6: // Double, both taking two entries
+                        skip(in, 8);
+                        i++;
+                        break;
+                    default:
+                        return -1;
+                }
+            }
+            return in.readUnsignedShort();
+        } catch (EOFException e) {
             return -1;
         }
     }
 
+    private static void skip(DataInputStream in, int n) throws IOException {
+        while (n > 0) {
+            int skipped = in.skipBytes(n);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            n -= skipped;
+        }
+    }
+
 }
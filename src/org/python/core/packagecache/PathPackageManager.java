@@ -4,6 +4,7 @@
 package org.python.core.packagecache;
 
 import org.python.Version;
+import org.python.core.DirectoryCache;
 import org.python.core.Py;
 import org.python.core.PyBytes;
 import org.python.core.PyJavaPackage;
@@ -12,12 +13,14 @@ import org.python.core.PyObject;
 import org.python.core.PyUnicode;
 import org.python.core.imp;
 import org.python.core.util.RelativeFile;
+import org.python.util.Generic;
 
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.util.List;
 
 /**
  * Path package manager. Gathering classes info dynamically from a set of
@@ -47,6 +50,9 @@ public abstract class PathPackageManager extends CachedJarsPackageManager {
             }
             String dir = entry.toString();
 
+            if (!DirectoryCache.mayExist(new RelativeFile(dir), child)) {
+                continue;
+            }
             File f = new RelativeFile(dir, child);
             try {
                 if (f.isDirectory() && imp.caseok(f, name)) {
@@ -149,7 +155,7 @@ public abstract class PathPackageManager extends CachedJarsPackageManager {
                 }
 
                 // for opt maybe we should some hash-set for ret
-                if (jpkg.__dict__.__contains__(name) || jpkg.clsSet.__contains__(name)
+                if (jpkg.__dict__.__contains__(name) || jpkg.getClassSet().__contains__(name)
                         || ret.__contains__(name)) {
                     continue;
                 }
@@ -217,16 +223,17 @@ public abstract class PathPackageManager extends CachedJarsPackageManager {
 
     /**
      * Adds "classpath" entry. Calls {@link #addDirectory} if path refers to a
-     * dir, {@link #addJarToPackages(java.io.File, boolean)} with param cache
-     * true if path refers to a jar.
+     * dir, {@link #addJarsToPackages(java.util.List, boolean)} with param cache
+     * true for the entries that refer to a jar.
      */
     public void addClassPath(String path) {
         PyList paths = new PyBytes(path).split(java.io.File.pathSeparator);
+        List<File> jars = Generic.list();
 
         for (int i = 0; i < paths.__len__(); i++) {
             String entry = paths.pyget(i).toString();
             if (entry.endsWith(".jar") || entry.endsWith(".zip")) {
-                addJarToPackages(new File(entry), true);
+                jars.add(new File(entry));
             } else {
                 File dir = new File(entry);
                 if (entry.length() == 0 || dir.isDirectory()) {
@@ -234,6 +241,7 @@ public abstract class PathPackageManager extends CachedJarsPackageManager {
                 }
             }
         }
+        addJarsToPackages(jars, true);
     }
 
     public PyList doDir(PyJavaPackage jpkg, boolean instantiate,
@@ -7,7 +7,9 @@ import org.python.core.Py;
 import org.python.core.PyJavaPackage;
 import org.python.core.PyList;
 import org.python.core.PySystemState;
+import org.python.util.Generic;
 
+import java.util.List;
 import java.util.Properties;
 import java.util.StringTokenizer;
 import java.io.*;
@@ -33,8 +35,17 @@ public class SysPackageManager extends PathPackageManager {
         Py.writeDebug("*sys-package-mgr*", msg);
     }
 
+    private final JavaPackageFinder finder = new JavaPackageFinder(this);
+
+    /**
+     * Java packages are found when first imported, see {@link JavaPackageFinder}. The class path
+     * is scanned beforehand only if the registry option <code>python.packages.scan</code> is
+     * true, and the package cache is not skipped.
+     */
     public SysPackageManager(File cachedir, Properties registry) {
-        if (useCacheDir(cachedir)) {
+        boolean scan = Boolean.parseBoolean(
+                registry.getProperty("python.packages.scan", "false").trim());
+        if (scan && useCacheDir(cachedir)) {
             initCache();
             findAllPackages(registry);
             saveCache();
@@ -49,10 +60,15 @@ public class SysPackageManager extends PathPackageManager {
     }
 
     public void addJarDir(String jdir, boolean cache) {
-        addJarDir(jdir, cache, cache);
+        List<File> jars = Generic.list();
+        listJars(jdir, jars);
+        addJarsToPackages(jars, cache);
+        if (cache) {
+            saveCache();
+        }
     }
 
-    private void addJarDir(String jdir, boolean cache, boolean saveCache) {
+    private void listJars(String jdir, List<File> jars) {
         File file = new File(jdir);
         if (!file.isDirectory()) {
             return;
@@ -61,22 +77,21 @@ public class SysPackageManager extends PathPackageManager {
         for (int i = 0; i < files.length; i++) {
             String entry = files[i];
             if (entry.endsWith(".jar") || entry.endsWith(".zip")) {
-                addJarToPackages(new File(jdir, entry), cache);
+                jars.add(new File(jdir, entry));
             }
         }
-        if (saveCache) {
-            saveCache();
-        }
     }
 
     private void addJarPath(String path) {
+        List<File> jars = Generic.list();
         StringTokenizer tok = new StringTokenizer(path,
                 java.io.File.pathSeparator);
         while (tok.hasMoreTokens()) {
             // ??pending: do jvms trim? how is interpreted entry=""?
             String entry = tok.nextToken();
-            addJarDir(entry, true, false);
+            listJars(entry, jars);
         }
+        addJarsToPackages(jars, true);
     }
 
     private void findAllPackages(Properties registry) {
@@ -130,11 +145,19 @@ public class SysPackageManager extends PathPackageManager {
         if (pkg != null && pkg.length() > 0) {
             name = pkg + '.' + name;
         }
-        return Py.findClassEx(name, reason);
+        if (finder.isMissingClass(name)) {
+            return null;
+        }
+        Class c = Py.findClassEx(name, reason);
+        if (c == null) {
+            finder.addMissingClass(name);
+        }
+        return c;
     }
 
     public PyList doDir(PyJavaPackage jpkg, boolean instantiate,
             boolean exclpkgs) {
+        finder.addClasses(jpkg);
         PyList basic = basicDoDir(jpkg, instantiate, exclpkgs);
         PyList ret = new PyList();
 
@@ -150,7 +173,15 @@ public class SysPackageManager extends PathPackageManager {
     }
 
     public boolean packageExists(String pkg, String name) {
-        return packageExists(this.searchPath, pkg, name);
+        if (packageExists(this.searchPath, pkg, name)) {
+            return true;
+        }
+        return finder.packageExists(pkg.length() == 0 ? name : pkg + '.' + name);
+    }
+
+    @Override
+    public void invalidateCaches() {
+        finder.invalidate();
     }
 
 }
@@ -0,0 +1,384 @@
+/* Copyright (c) Jython Developers */
+package org.python.core.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * The central directory of a zip archive, read once for each version of the file and shared by
+ * everything that reads from it: <code>zipimport</code> and the archives on <code>sys.path</code>
+ * searched for Java classes ({@link org.python.core.SyspathArchive}).
+ * <p>
+ * The archive is memory-mapped. The names of the entries stay in the mapping, found through a
+ * table of <code>int</code>s, and entries are read straight out of it, so that an index costs a
+ * few bytes per entry however many modules are imported from it, and reading an entry costs no
+ * system call. An index is read again when the size or modification time of its file changes;
+ * a file rewritten in place with neither changing is not noticed, as by <code>ZipFile</code>.
+ * <p>
+ * Entry names are taken to be UTF-8, as by <code>ZipFile</code>. Archives larger than 2 GiB
+ * cannot be mapped and are refused.
+ */
+public final class ZipIndex {
+
+    /** Indexes kept, beyond which the least recently used are dropped. */
+    private static final int MAX_ARCHIVES = 256;
+
+    private static final Cache<String, ZipIndex> indexes =
+            CacheBuilder.newBuilder().maximumSize(MAX_ARCHIVES).build();
+
+    private static final int LOCSIG = 0x04034b50;
+    private static final int CENSIG = 0x02014b50;
+    private static final int ENDSIG = 0x06054b50;
+    private static final int ZIP64_LOCSIG = 0x07064b50;
+    private static final int ZIP64_ENDSIG = 0x06064b50;
+    private static final int LOCHDR = 30;
+    private static final int CENHDR = 46;
+    private static final int ENDHDR = 22;
+    private static final int ZIP64_LOCHDR = 20;
+    private static final long ZIP64_MAGICVAL = 0xFFFFFFFFL;
+
+    private final File file;
+
+    private final long mtime;
+
+    private final long size;
+
+    /** The whole archive, little-endian; read only with absolute gets or duplicates. */
+    private final ByteBuffer buf;
+
+    /** Offset in {@link #buf} of the central directory header of each entry. */
+    private final int[] headers;
+
+    /** Offset in {@link #buf} of the local header of each entry. */
+    private final int[] locals;
+
+    /** Open-addressed hash table of entry number + 1, 0 for an empty slot. */
+    private final int[] table;
+
+    private ZipIndex(File file, long mtime, long size) throws IOException {
+        this.file = file;
+        this.mtime = mtime;
+        this.size = size;
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("zip file too large to map: " + file);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                FileChannel channel = raf.getChannel()) {
+            // the mapping remains valid after the channel is closed
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        try {
+            int end = findEnd();
+            long count = buf.getShort(end + 10) & 0xFFFF;
+            long cenSize = buf.getInt(end + 12) & ZIP64_MAGICVAL;
+            long cenOffset = buf.getInt(end + 16) & ZIP64_MAGICVAL;
+            int cenEnd = end;
+            if ((count == 0xFFFF || cenOffset == ZIP64_MAGICVAL || cenSize == ZIP64_MAGICVAL)
+                    && end >= ZIP64_LOCHDR && buf.getInt(end - ZIP64_LOCHDR) == ZIP64_LOCSIG) {
+                int end64 = checkedOffset(buf.getLong(end - ZIP64_LOCHDR + 8));
+                if (buf.getInt(end64) != ZIP64_ENDSIG) {
+                    throw new IOException("bad zip64 end header");
+                }
+                count = buf.getLong(end64 + 32);
+                cenSize = buf.getLong(end64 + 40);
+                cenOffset = buf.getLong(end64 + 48);
+                cenEnd = end64;
+            }
+            // data such as a launcher script may precede the archive
+            long base = cenEnd - cenSize - cenOffset;
+            // each entry takes at least a header of the directory, whatever count says
+            if (cenSize < 0 || cenSize > cenEnd || cenOffset < 0 || base < 0 || count < 0
+                    || count > cenSize / CENHDR) {
+                throw new IOException("bad central directory in " + file);
+            }
+            int n = (int) count;
+            headers = new int[n];
+            locals = new int[n];
+            int pos = checkedOffset(cenEnd - cenSize);
+            for (int i = 0; i < n; i++) {
+                if (buf.getInt(pos) != CENSIG) {
+                    throw new IOException("bad central directory header");
+                }
+                headers[i] = pos;
+                locals[i] = checkedOffset(base + field(i, 42, 2));
+                pos += CENHDR + nameLength(i) + (buf.getShort(pos + 30) & 0xFFFF)
+                        + (buf.getShort(pos + 32) & 0xFFFF);
+            }
+            table = new int[Integer.highestOneBit(Math.max(n, 1) * 2) * 2];
+            for (int i = 0; i < n; i++) {
+                int slot = hash(headers[i] + CENHDR, nameLength(i)) & (table.length - 1);
+                while (table[slot] != 0) {
+                    slot = (slot + 1) & (table.length - 1);
+                }
+                table[slot] = i + 1;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("truncated zip file: " + file, e);
+        }
+    }
+
+    /**
+     * Returns the index of an archive, reading it if not yet read in this process, or if the file
+     * changed since.
+     *
+     * @throws IOException if the file cannot be read or is not a zip archive
+     */
+    public static ZipIndex get(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        long mtime = attrs.lastModifiedTime().toMillis();
+        ZipIndex index = indexes.getIfPresent(key);
+        if (index == null || index.mtime != mtime || index.size != attrs.size()) {
+            index = new ZipIndex(file, mtime, attrs.size());
+            indexes.put(key, index);
+        }
+        return index;
+    }
+
+    /** Forget all indexes, so that archives are read again when next used. */
+    public static void invalidate() {
+        indexes.invalidateAll();
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /** The modification time of the archive when it was indexed, in milliseconds. */
+    public long lastModified() {
+        return mtime;
+    }
+
+    /** The number of entries. */
+    public int size() {
+        return headers.length;
+    }
+
+    /**
+     * Finds an entry.
+     *
+     * @param name its name, with '/' separating directories
+     * @return the number of the entry, or -1 if there is none so named
+     */
+    public int find(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int h = 0;
+        for (byte b : bytes) {
+            h = 31 * h + b;
+        }
+        for (int slot = h & (table.length - 1);; slot = (slot + 1) & (table.length - 1)) {
+            int i = table[slot] - 1;
+            if (i < 0) {
+                return -1;
+            }
+            if (nameLength(i) == bytes.length && nameEquals(headers[i] + CENHDR, bytes)) {
+                return i;
+            }
+        }
+    }
+
+    public String getName(int i) {
+        ByteBuffer name = buf.duplicate();
+        name.position(headers[i] + CENHDR);
+        name.limit(headers[i] + CENHDR + nameLength(i));
+        return StandardCharsets.UTF_8.decode(name).toString();
+    }
+
+    public boolean isDirectory(int i) {
+        int length = nameLength(i);
+        return length > 0 && buf.get(headers[i] + CENHDR + length - 1) == '/';
+    }
+
+    /** The compression method, {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}. */
+    public int getMethod(int i) {
+        return buf.getShort(headers[i] + 10) & 0xFFFF;
+    }
+
+    public int getDosTime(int i) {
+        return buf.getShort(headers[i] + 12) & 0xFFFF;
+    }
+
+    public int getDosDate(int i) {
+        return buf.getShort(headers[i] + 14) & 0xFFFF;
+    }
+
+    public long getCrc(int i) {
+        return buf.getInt(headers[i] + 16) & ZIP64_MAGICVAL;
+    }
+
+    public long getCompressedSize(int i) {
+        return field(i, 20, 1);
+    }
+
+    public long getSize(int i) {
+        return field(i, 24, 0);
+    }
+
+    /** The offset of the local header of the entry in the file. */
+    public long getOffset(int i) {
+        return locals[i];
+    }
+
+    /** The uncompressed contents of an entry. */
+    public byte[] read(int i) throws IOException {
+        try {
+            return readEntry(i);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+                | IllegalArgumentException e) {
+            // the headers say the entry goes on past the end of the file
+            throw new IOException("truncated entry '" + getName(i) + "' in " + file, e);
+        }
+    }
+
+    private byte[] readEntry(int i) throws IOException {
+        int loc = locals[i];
+        if (buf.getInt(loc) != LOCSIG) {
+            throw new IOException("bad local header of '" + getName(i) + "' in " + file);
+        }
+        int data = loc + LOCHDR + (buf.getShort(loc + 26) & 0xFFFF)
+                + (buf.getShort(loc + 28) & 0xFFFF);
+        int csize = checkedOffset(getCompressedSize(i));
+        long entrySize = getSize(i);
+        if (entrySize < 0 || entrySize > Integer.MAX_VALUE - 8) {
+            throw new IOException("entry '" + getName(i) + "' too large in " + file);
+        }
+        int length = (int) entrySize;
+        ByteBuffer src = buf.duplicate();
+        src.position(data);
+        switch (getMethod(i)) {
+            case ZipEntry.STORED: {
+                byte[] bytes = new byte[length];
+                src.get(bytes);
+                return bytes;
+            }
+            case ZipEntry.DEFLATED: {
+                // an extra byte, as the inflater needs in nowrap mode
+                byte[] input = new byte[csize + 1];
+                src.get(input, 0, csize);
+                byte[] bytes = new byte[length];
+                Inflater inflater = new Inflater(true);
+                try {
+                    inflater.setInput(input);
+                    int off = 0;
+                    while (off < length && !inflater.finished()) {
+                        int n = inflater.inflate(bytes, off, length - off);
+                        if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            throw new IOException("truncated entry '" + getName(i) + "'");
+                        }
+                        off += n;
+                    }
+                } catch (DataFormatException e) {
+                    throw new IOException("bad entry '" + getName(i) + "' in " + file, e);
+                } finally {
+                    inflater.end();
+                }
+                return bytes;
+            }
+            default:
+                throw new IOException("unsupported compression method " + getMethod(i)
+                        + " of '" + getName(i) + "' in " + file);
+        }
+    }
+
+    public InputStream getInputStream(int i) throws IOException {
+        return new ByteArrayInputStream(read(i));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("<ZipIndex of %s, %d entries>", file, headers.length);
+    }
+
+    private int nameLength(int i) {
+        return buf.getShort(headers[i] + 28) & 0xFFFF;
+    }
+
+    private boolean nameEquals(int offset, byte[] bytes) {
+        for (int k = 0; k < bytes.length; k++) {
+            if (buf.get(offset + k) != bytes[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hash(int offset, int length) {
+        int h = 0;
+        for (int k = 0; k < length; k++) {
+            h = 31 * h + buf.get(offset + k);
+        }
+        return h;
+    }
+
+    /**
+     * A 32-bit field of a central directory header, or its value in the zip64 extra field if it
+     * holds 0xFFFFFFFF.
+     *
+     * @param which the place of the field in the zip64 extra field: 0 for the size, 1 for the
+     *            compressed size, 2 for the local header offset
+     */
+    private long field(int i, int at, int which) {
+        int header = headers[i];
+        long value = buf.getInt(header + at) & ZIP64_MAGICVAL;
+        if (value != ZIP64_MAGICVAL) {
+            return value;
+        }
+        int extra = header + CENHDR + nameLength(i);
+        int extraEnd = extra + (buf.getShort(header + 30) & 0xFFFF);
+        while (extra + 4 <= extraEnd) {
+            int id = buf.getShort(extra) & 0xFFFF;
+            int length = buf.getShort(extra + 2) & 0xFFFF;
+            if (id == 0x0001) {
+                // only the fields that overflowed are present, in this order
+                int pos = extra + 4;
+                int[] fields = {24, 20, 42};
+                for (int k = 0; k < fields.length; k++) {
+                    if ((buf.getInt(header + fields[k]) & ZIP64_MAGICVAL) == ZIP64_MAGICVAL) {
+                        if (k == which) {
+                            return buf.getLong(pos);
+                        }
+                        pos += 8;
+                    }
+                }
+            }
+            extra += 4 + length;
+        }
+        return value;
+    }
+
+    private int findEnd() throws IOException {
+        int min = (int) Math.max(0, size - ENDHDR - 0xFFFF);
+        for (int pos = (int) size - ENDHDR; pos >= min; pos--) {
+            // the end header is followed by its comment, if any
+            if (buf.getInt(pos) == ENDSIG
+                    && pos + ENDHDR + (buf.getShort(pos + 20) & 0xFFFF) <= size) {
+                return pos;
+            }
+        }
+        throw new IOException("not a zip file: " + file);
+    }
+
+    private int checkedOffset(long offset) throws IOException {
+        if (offset < 0 || offset > size) {
+            throw new IOException("bad offset in zip file: " + file);
+        }
+        return (int) offset;
+    }
+}
@@ -8,6 +8,12 @@ import org.python.core.PyObject;
 import org.python.core.PyStringMap;
 import org.python.core.PyType;
 
+/**
+ * The base class of the builders generated for exposed types. A generated builder passes the
+ * names its type's dict will have to its constructor, and makes the method and data descriptors
+ * themselves, each an instance of a class of its own, only when {@link #getDict(PyType)} is first
+ * called, so that types whose dict is never used cost no more than their builder.
+ */
 public class BaseTypeBuilder implements TypeBuilder {
 
     private PyNewWrapper newWrapper;
@@ -26,6 +32,11 @@ public class BaseTypeBuilder implements TypeBuilder {
 
     private String doc;
 
+    /** The names of the entries getDict will make, or null if the descriptors were given. */
+    private String[] names;
+
+    private boolean made;
+
     public BaseTypeBuilder(String name,
                            Class<?> typeClass,
                            Class<?> baseClass,
@@ -42,9 +53,58 @@ public class BaseTypeBuilder implements TypeBuilder {
         this.descrs = descrs;
         this.meths = meths;
         this.newWrapper = newWrapper;
+        this.made = true;
+    }
+
+    /**
+     * Creates a builder that makes its descriptors on first use, with {@link #makeMethods()},
+     * {@link #makeDescriptors()} and {@link #makeNewWrapper()}.
+     *
+     * @param names the names of all the entries of the dict those will make
+     */
+    public BaseTypeBuilder(String name,
+                           Class<?> typeClass,
+                           Class<?> baseClass,
+                           boolean isBaseType,
+                           String doc,
+                           String[] names) {
+        this.typeClass = typeClass;
+        this.baseClass = baseClass;
+        this.isBaseType = isBaseType;
+        this.doc = doc;
+        this.name = name;
+        this.names = names;
+    }
+
+    protected PyBuiltinMethod[] makeMethods() {
+        return new PyBuiltinMethod[0];
+    }
+
+    protected PyDataDescr[] makeDescriptors() {
+        return new PyDataDescr[0];
+    }
+
+    protected PyNewWrapper makeNewWrapper() {
+        return null;
+    }
+
+    /**
+     * The names of all the entries of the dict {@link #getDict(PyType)} makes, known without
+     * making it, or null if this builder was given its descriptors already made.
+     */
+    public String[] getNames() {
+        return names;
     }
 
     public PyObject getDict(PyType type) {
+        synchronized (this) {
+            if (!made) {
+                meths = makeMethods();
+                descrs = makeDescriptors();
+                newWrapper = makeNewWrapper();
+                made = true;
+            }
+        }
         PyObject dict = new PyStringMap();
         for(PyBuiltinMethod func : meths) {
             PyMethodDescr pmd = func.makeDescriptor(type);
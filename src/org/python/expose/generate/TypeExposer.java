@@ -1,6 +1,8 @@
 package org.python.expose.generate;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import org.python.core.BytecodeLoader;
@@ -106,6 +108,8 @@ public class TypeExposer extends Exposer {
     }
 
     protected void generate() {
+        // The constructor only passes the names in the dict: the descriptors, each of a class of
+        // its own, are made by the methods below when the dict is first asked for.
         startConstructor();
         mv.visitVarInsn(ALOAD, 0);
         mv.visitLdcInsn(getName());
@@ -117,13 +121,34 @@ public class TypeExposer extends Exposer {
         } else {
             mv.visitLdcInsn(doc);
         }
+        List<String> names = Generic.list();
+        for(MethodExposer exposer : methods) {
+            names.addAll(Arrays.asList(exposer.getNames()));
+        }
+        for(DescriptorExposer desc : descriptors) {
+            names.add(desc.getName());
+        }
+        if(ne != null) {
+            names.add("__new__");
+        }
+        mv.visitLdcInsn(names.size());
+        mv.visitTypeInsn(ANEWARRAY, STRING.getInternalName());
+        for(int i = 0; i < names.size(); i++) {
+            mv.visitInsn(DUP);
+            mv.visitLdcInsn(i);
+            mv.visitLdcInsn(names.get(i));
+            mv.visitInsn(AASTORE);
+        }
+        superConstructor(STRING, CLASS, CLASS, BOOLEAN, STRING, ASTRING);
+        endConstructor();
+
+        startMethod("makeMethods", ABUILTIN_METHOD);
         mv.visitLdcInsn(numNames);
         mv.visitTypeInsn(ANEWARRAY, BUILTIN_METHOD.getInternalName());
-        mv.visitVarInsn(ASTORE, 1);
         int i = 0;
         for(MethodExposer exposer : methods) {
             for(final String name : exposer.getNames()) {
-                mv.visitVarInsn(ALOAD, 1);
+                mv.visitInsn(DUP);
                 mv.visitLdcInsn(i++);
                 instantiate(exposer.getGeneratedType(), new Instantiator(STRING) {
 
@@ -134,25 +159,26 @@ public class TypeExposer extends Exposer {
                 mv.visitInsn(AASTORE);
             }
         }
-        mv.visitVarInsn(ALOAD, 1);
+        endMethod(ARETURN);
+
+        startMethod("makeDescriptors", ADATA_DESCR);
         mv.visitLdcInsn(descriptors.size());
         mv.visitTypeInsn(ANEWARRAY, DATA_DESCR.getInternalName());
-        mv.visitVarInsn(ASTORE, 2);
         i = 0;
         for(DescriptorExposer desc : descriptors) {
-            mv.visitVarInsn(ALOAD, 2);
+            mv.visitInsn(DUP);
             mv.visitLdcInsn(i++);
             instantiate(desc.getGeneratedType());
             mv.visitInsn(AASTORE);
         }
-        mv.visitVarInsn(ALOAD, 2);
+        endMethod(ARETURN);
+
+        startMethod("makeNewWrapper", PYNEWWRAPPER);
         if(ne != null) {
             instantiate(ne.getGeneratedType());
         } else {
             mv.visitInsn(ACONST_NULL);
         }
-        superConstructor(STRING, CLASS, CLASS, BOOLEAN, STRING, ABUILTIN_METHOD, ADATA_DESCR,
-                         PYNEWWRAPPER);
-        endConstructor();
+        endMethod(ARETURN);
     }
 }
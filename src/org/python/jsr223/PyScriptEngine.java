@@ -1,10 +1,16 @@
 package org.python.jsr223;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import org.python.core.*;
 import java.io.Reader;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.script.AbstractScriptEngine;
 import javax.script.Bindings;
 import javax.script.Compilable;
@@ -14,17 +20,48 @@ import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineFactory;
 import javax.script.ScriptException;
-import javax.script.SimpleBindings;
 import org.python.util.PythonInterpreter;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 public class PyScriptEngine extends AbstractScriptEngine implements Compilable, Invocable, AutoCloseable {
 
+    /** Calls a Python callable with the arguments of a method of an interface. */
+    private static final MethodHandle CALL;
+
+    /** Converts a result of a Python callable to the return type of a method of an interface. */
+    private static final MethodHandle TO_JAVA;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            CALL = MethodHandles.filterArguments(
+                    lookup.findVirtual(PyObject.class, "__call__",
+                            MethodType.methodType(PyObject.class, PyObject[].class)),
+                    1, lookup.findStatic(PyScriptEngine.class, "toPython",
+                            MethodType.methodType(PyObject[].class, Object[].class)));
+            TO_JAVA = lookup.findStatic(PyScriptEngine.class, "toJava",
+                    MethodType.methodType(Object.class, Class.class, PyObject.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     private final PythonInterpreter interp;
     private final ScriptEngineFactory factory;
 
+    /** Scripts compiled from strings, by their file name and text; null if not kept. */
+    private final Cache<ScriptKey, PyCode> scripts;
+
     PyScriptEngine(ScriptEngineFactory factory) {
         this.factory = factory;
+        context.setBindings(createBindings(), ScriptContext.ENGINE_SCOPE);
         interp = PythonInterpreter.threadLocalStateInterpreter(new PyScriptEngineScope(this, context));
+        int cacheSize = Options.jsr223ScriptCacheSize;
+        scripts = cacheSize > 0
+                ? CacheBuilder.newBuilder().maximumSize(cacheSize).<ScriptKey, PyCode> build()
+                : null;
     }
 
     public Object eval(String script, ScriptContext context) throws ScriptException {
@@ -36,7 +73,7 @@ public class PyScriptEngine extends AbstractScriptEngine implements Compilable,
             interp.setIn(context.getReader());
             interp.setOut(context.getWriter());
             interp.setErr(context.getErrorWriter());
-            interp.setLocals(new PyScriptEngineScope(this, context));
+            interp.setLocals(scope(context));
             return interp.eval(code).__tojava__(Object.class);
         } catch (PyException pye) {
             throw scriptException(pye);
@@ -48,7 +85,7 @@ public class PyScriptEngine extends AbstractScriptEngine implements Compilable,
     }
 
     public Bindings createBindings() {
-        return new SimpleBindings();
+        return new PyScriptEngineBindings();
     }
 
     public ScriptEngineFactory getFactory() {
@@ -66,11 +103,24 @@ public class PyScriptEngine extends AbstractScriptEngine implements Compilable,
     private PyCode compileScript(String script, ScriptContext context) throws ScriptException {
         try {
             String filename = (String) context.getAttribute(ScriptEngine.FILENAME);
+            ScriptKey key = null;
+            if (scripts != null) {
+                key = new ScriptKey(filename, script);
+                PyCode code = scripts.getIfPresent(key);
+                if (code != null) {
+                    return code;
+                }
+            }
+            PyCode code;
             if (filename == null) {
-                return interp.compile(script);
+                code = interp.compile(script);
             } else {
-                return interp.compile(script, filename);
+                code = interp.compile(script, filename);
+            }
+            if (key != null) {
+                scripts.put(key, code);
             }
+            return code;
         } catch (PyException pye) {
             throw scriptException(pye);
         }
@@ -92,7 +142,7 @@ public class PyScriptEngine extends AbstractScriptEngine implements Compilable,
     public Object invokeMethod(Object thiz, String name, Object... args) throws ScriptException,
             NoSuchMethodException {
         try {
-            interp.setLocals(new PyScriptEngineScope(this, context));
+            interp.setLocals(scope(context));
             if (!(thiz instanceof PyObject)) {
                 thiz = Py.java2py(thiz);
             }
@@ -116,7 +166,7 @@ public class PyScriptEngine extends AbstractScriptEngine implements Compilable,
     public Object invokeFunction(String name, Object... args) throws ScriptException,
             NoSuchMethodException {
         try {
-            interp.setLocals(new PyScriptEngineScope(this, context));
+            interp.setLocals(scope(context));
             PyObject function = interp.get(name);
             if (function == null) {
                 throw new NoSuchMethodException(name);
@@ -144,8 +194,9 @@ public class PyScriptEngine extends AbstractScriptEngine implements Compilable,
         if (clazz == null || !clazz.isInterface()) {
             throw new IllegalArgumentException("interface expected");
         }
-        interp.setLocals(new PyScriptEngineScope(this, context));
         final PyObject thiz = Py.java2py(obj);
+        // the calls and conversions of each method, made when it is first called
+        final Map<Method, MethodHandle> handles = new ConcurrentHashMap<Method, MethodHandle>();
         @SuppressWarnings("unchecked")
         T proxy = (T) Proxy.newProxyInstance(
             clazz.getClassLoader(),
@@ -153,17 +204,15 @@ public class PyScriptEngine extends AbstractScriptEngine implements Compilable,
             new InvocationHandler() {
                 public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
                     try {
-                        interp.setLocals(new PyScriptEngineScope(PyScriptEngine.this, context));
                         PyObject pyMethod = thiz.__findattr__(method.getName());
                         if (pyMethod == null)
                             throw new NoSuchMethodException(method.getName());
-                        PyObject result;
-                        if(args != null) {
-                            result = pyMethod.__call__(Py.javas2pys(args));
-                        } else {
-                            result = pyMethod.__call__();
+                        MethodHandle handle = handles.get(method);
+                        if (handle == null) {
+                            handle = callHandle(method.getReturnType());
+                            handles.put(method, handle);
                         }
-                        return result.__tojava__(Object.class);
+                        return handle.invokeExact(pyMethod, args);
                     } catch (PyException pye) {
                         throw scriptException(pye);
                     }
@@ -172,6 +221,49 @@ public class PyScriptEngine extends AbstractScriptEngine implements Compilable,
         return proxy;
     }
 
+    /**
+     * The globals to run in with a context: the map of its engine scope itself when that is made
+     * by this engine and there are no other bindings to look in, or else a {@link
+     * PyScriptEngineScope} over all of its scopes.
+     */
+    private PyObject scope(ScriptContext context) {
+        Bindings engineScope = context.getBindings(ScriptContext.ENGINE_SCOPE);
+        if (engineScope instanceof PyScriptEngineBindings) {
+            List<Integer> scopes = context.getScopes();
+            Bindings globalScope = context.getBindings(ScriptContext.GLOBAL_SCOPE);
+            if (scopes.size() <= 2 && (globalScope == null || globalScope.isEmpty())) {
+                return ((PyScriptEngineBindings) engineScope).getDict();
+            }
+        }
+        return new PyScriptEngineScope(this, context);
+    }
+
+    /**
+     * A handle that calls a Python callable with an array of Java arguments, and converts its
+     * result to a return type, of type <code>(PyObject, Object[])Object</code>.
+     */
+    private static MethodHandle callHandle(Class<?> returnType) {
+        Class<?> type = returnType.isPrimitive() ? boxed(returnType) : returnType;
+        MethodHandle toJava = MethodHandles.insertArguments(TO_JAVA, 0, type);
+        return MethodHandles.filterReturnValue(CALL, toJava);
+    }
+
+    private static PyObject[] toPython(Object[] args) {
+        return args == null ? Py.EmptyObjects : Py.javas2pys(args);
+    }
+
+    private static Object toJava(Class<?> type, PyObject result) {
+        if (type == Void.class) {
+            return null;
+        }
+        Object value = result.__tojava__(type);
+        return value == Py.NoConversion ? result.__tojava__(Object.class) : value;
+    }
+
+    private static Class<?> boxed(Class<?> primitive) {
+        return MethodType.methodType(primitive).wrap().returnType();
+    }
+
     private static ScriptException scriptException(PyException pye) {
         ScriptException se = null;
         try {
@@ -214,6 +306,32 @@ public class PyScriptEngine extends AbstractScriptEngine implements Compilable,
         return se;
     }
 
+    /** A script compiled from a string, as cached by its file name and text. */
+    private static final class ScriptKey {
+        private final String filename;
+        private final String script;
+
+        ScriptKey(String filename, String script) {
+            this.filename = filename;
+            this.script = script;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ScriptKey)) {
+                return false;
+            }
+            ScriptKey other = (ScriptKey) obj;
+            return script.equals(other.script)
+                    && (filename == null ? other.filename == null : filename.equals(other.filename));
+        }
+
+        @Override
+        public int hashCode() {
+            return script.hashCode() * 31 + (filename == null ? 0 : filename.hashCode());
+        }
+    }
+
     private class PyCompiledScript extends CompiledScript {
         private PyCode code;
 
@@ -0,0 +1,199 @@
+package org.python.jsr223;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.script.Bindings;
+
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.python.core.PyStringMap;
+import org.python.core.PyType;
+
+/**
+ * The bindings made by {@link PyScriptEngine#createBindings()}, kept as Python objects in a
+ * {@link PyStringMap}. When these are the engine scope of a context with nothing in its other
+ * scopes, scripts run with that map itself as their namespace, and names are looked up and set
+ * without going through {@link PyScriptEngineScope}. Values are converted only when put or got
+ * from Java, as {@link PyScriptEngineScope} converts them, except that the object put from Java
+ * is got back as it was for as long as a script leaves the name bound to it, as it would be from
+ * {@link javax.script.SimpleBindings}: a <code>Float</code> stays a <code>Float</code>, not the
+ * <code>Double</code> its Python <code>float</code> converts to.
+ */
+public final class PyScriptEngineBindings extends AbstractMap<String, Object> implements Bindings {
+
+    private final PyStringMap dict = new PyStringMap();
+
+    /** The objects put from Java, by name, with what they were converted to. */
+    private final Map<String, Original> originals = new ConcurrentHashMap<String, Original>();
+
+    /** An object put from Java, and the Python object bound in its place. */
+    private static final class Original {
+
+        final Object java;
+        final PyObject value;
+
+        Original(Object java, PyObject value) {
+            this.java = java;
+            this.value = value;
+        }
+    }
+
+    PyScriptEngineBindings() {}
+
+    /** The map the bindings are kept in, by name. */
+    PyStringMap getDict() {
+        return dict;
+    }
+
+    @Override
+    public Object put(String name, Object value) {
+        checkKey(name);
+        PyObject old = dict.__finditem__(name);
+        Object result = toJava(name, old);
+        PyObject converted = Py.java2py(value);
+        dict.__setitem__(name.intern(), converted);
+        if (value == null) {
+            originals.remove(name);
+        } else {
+            originals.put(name, new Original(value, converted));
+        }
+        return result;
+    }
+
+    @Override
+    public Object get(Object key) {
+        checkKey(key);
+        String name = (String)key;
+        return toJava(name, dict.__finditem__(name));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        checkKey(key);
+        return dict.__finditem__((String)key) != null;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        checkKey(key);
+        String name = (String)key;
+        PyObject old = dict.__finditem__(name);
+        if (old != null) {
+            // through __delitem__, for the version of the map to count it
+            dict.__delitem__(name);
+        }
+        Object result = toJava(name, old);
+        originals.remove(name);
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        dict.clear();
+        originals.clear();
+    }
+
+    @Override
+    public int size() {
+        return dict.__len__();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        return new AbstractSet<Map.Entry<String, Object>>() {
+
+            @Override
+            public int size() {
+                return dict.__len__();
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, Object>> iterator() {
+                // over the names bound when asked, as a script may bind more meanwhile
+                final List<String> names = new ArrayList<String>();
+                for (Object key : dict.getMap().keySet()) {
+                    if (key instanceof String) {
+                        names.add((String)key);
+                    }
+                }
+                return new Iterator<Map.Entry<String, Object>>() {
+
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < names.size();
+                    }
+
+                    @Override
+                    public Map.Entry<String, Object> next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        String name = names.get(next++);
+                        return new SimpleEntry<String, Object>(name, get(name)) {
+
+                            @Override
+                            public Object setValue(Object value) {
+                                put(getKey(), value);
+                                return super.setValue(value);
+                            }
+                        };
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (next == 0) {
+                            throw new IllegalStateException();
+                        }
+                        PyScriptEngineBindings.this.remove(names.get(next - 1));
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * The Java object for the value bound to <code>name</code>: the one put, if the name is
+     * still bound to what it was converted to, otherwise the value converted.
+     */
+    private Object toJava(String name, PyObject value) {
+        Original original = originals.get(name);
+        if (original != null) {
+            if (original.value == value) {
+                return original.java;
+            }
+            // rebound or deleted by a script since
+            originals.remove(name, original);
+        }
+        return toJava(value);
+    }
+
+    private static Object toJava(PyObject value) {
+        if (value == null) {
+            return null;
+        }
+        return value instanceof PyType ? value : value.__tojava__(Object.class);
+    }
+
+    /** As {@link javax.script.SimpleBindings} checks its keys. */
+    private static void checkKey(Object key) {
+        if (key == null) {
+            throw new NullPointerException("key can not be null");
+        }
+        if (!(key instanceof String)) {
+            throw new ClassCastException("key should be a String");
+        }
+        if (((String)key).isEmpty()) {
+            throw new IllegalArgumentException("key can not be empty");
+        }
+    }
+}
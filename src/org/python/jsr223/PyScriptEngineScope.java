@@ -13,6 +13,7 @@ import org.python.core.PyIterator;
 import org.python.core.PyList;
 import org.python.core.PyObject;
 import org.python.core.PyBytes;
+import org.python.core.PyStringMap;
 import org.python.core.PyType;
 import org.python.core.Visitproc;
 import org.python.core.Untraversable;
@@ -130,6 +131,13 @@ public final class PyScriptEngineScope extends PyObject {
 
     @Override
     public PyObject __finditem__(String key) {
+        PyStringMap dict = engineDict();
+        if (dict != null) {
+            PyObject value = dict.__finditem__(key);
+            if (value != null) {
+                return value;
+            }
+        }
         int scope = context.getAttributesScope(key);
         if (scope == -1)
             return null;
@@ -147,6 +155,11 @@ public final class PyScriptEngineScope extends PyObject {
         int scope = context.getAttributesScope(key);
         if (scope == -1)
             scope = ScriptContext.ENGINE_SCOPE;
+        PyStringMap dict;
+        if (scope == ScriptContext.ENGINE_SCOPE && (dict = engineDict()) != null) {
+            dict.__setitem__(key, value);
+            return;
+        }
         context.setAttribute(key,
                              value instanceof PyType ? value : value.__tojava__(Object.class),
                              scope);
@@ -166,6 +179,16 @@ public final class PyScriptEngineScope extends PyObject {
         context.removeAttribute(key, scope);
     }
 
+    /**
+     * The map of the engine scope, when made by a {@link PyScriptEngine}, to get and set Python
+     * objects in without converting them; or null.
+     */
+    private PyStringMap engineDict() {
+        Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+        return bindings instanceof PyScriptEngineBindings
+                ? ((PyScriptEngineBindings) bindings).getDict() : null;
+    }
+
     private Map<PyObject, PyObject> getMap() {
         ScopeIterator iterator = new ScopeIterator(this);
         Map<PyObject, PyObject> map = new HashMap<PyObject, PyObject>(iterator.size());
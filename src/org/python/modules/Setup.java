@@ -68,6 +68,8 @@ public class Setup {
             "_datetime:org.python.modules._datetime.DatetimeModule",
             "_functools:org.python.modules._functools._functools",
             "_imp:org.python.modules._imp",
+            "_jyprofile",
+            "_lsprof:org.python.modules._lsprof._lsprof",
             "_multibytecodec:org.python.modules.cjkcodecs._multibytecodec",
             "_multiprocessing:org.python.modules._multiprocessing._multiprocessing",
             "_posixsubprocess",
@@ -17,6 +17,7 @@ import org.python.core.Py;
 import org.python.core.PyFile;
 import org.python.core.PyList;
 import org.python.core.PyModule;
+import org.python.core.PyModuleLock;
 import org.python.core.PyObject;
 import org.python.core.PyUnicode;
 import org.python.core.PySystemState;
@@ -52,6 +53,7 @@ public class _imp {
         String modName = PyObject.asName(name);
         for (String newmodule : Setup.newbuiltinModules) {
             if (modName.equals(newmodule.split(":")[0])) {
+                imp.importOrigin("builtin");
                 return new PyModule(modName, new PyStringMap());
             }
         }
@@ -166,7 +168,8 @@ public class _imp {
      * Acquires the interpreter's import lock for the current thread.
      *
      * This lock should be used by import hooks to ensure
-     * thread-safety when importing modules.
+     * thread-safety when importing modules. While it is held,
+     * other threads wait before starting to import any module.
      *
      */
     @ExposedFunction
@@ -180,14 +183,11 @@ public class _imp {
      */
     @ExposedFunction
     public static void release_lock() {
-        try{
-            ReentrantLock importLock = Py.getSystemState().getImportLock();
-            // XXX (isaiah) remove this once we sort it out
-            if (importLock.isLocked())
-                importLock.unlock();
-        } catch(IllegalMonitorStateException e){
+        ReentrantLock importLock = Py.getSystemState().getImportLock();
+        if (!importLock.isHeldByCurrentThread()) {
             throw Py.RuntimeError("not holding the import lock");
         }
+        importLock.unlock();
     }
 
     /**
@@ -200,6 +200,18 @@ public class _imp {
         return Py.getSystemState().getImportLock().isHeldByCurrentThread();
     }
 
+    /**
+     * Returns the lock that serializes imports of the named module. This replaces the function of
+     * the same name in importlib, so that it uses the same locks as imports started from Java.
+     *
+     * @param name the name of the module
+     * @return the {@link PyModuleLock} of the module
+     */
+    @ExposedFunction
+    public static PyObject _get_module_lock(String name) {
+        return PyModuleLock.get(Py.getSystemState(), name);
+    }
+
     /**
      * Returns the list of file suffixes used to identify extension modules.
      */
@@ -239,6 +251,7 @@ public class _imp {
     public static final PyObject _compile_bytecode(PyObject name, PyObject data, PyObject filename) {
         if (data instanceof PyBytes) {
             byte[] bytes = ((PyBytes) data).toBytes();
+            imp.importOrigin("compiled");
             return BytecodeLoader.makeCode(name.toString() + Version.PY_CACHE_TAG, bytes, filename.toString());
         }
         throw Py.TypeError(String.format("bytes expected, found %s", data.getType().getName()));
@@ -0,0 +1,89 @@
+package org.python.modules;
+
+import org.python.core.Py;
+import org.python.core.SamplingProfiler;
+import org.python.expose.ExposedFunction;
+import org.python.expose.ExposedModule;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Control of the sampling profiler, one per JVM, from Python code.
+ */
+@ExposedModule(doc = "Sampling profiler for Jython, with output in collapsed stack format.")
+public class _jyprofile {
+
+    private static SamplingProfiler profiler;
+
+    @ExposedFunction(defaults = {"0.01", "false", "false"},
+            doc = "start(interval=0.01, threads=False, idle=False)\n\n"
+                    + "Start sampling the Python stack of every thread each interval seconds.\n"
+                    + "If threads is true each stack starts with its thread name; if idle is\n"
+                    + "true, threads that are blocked or waiting are sampled too. Any earlier\n"
+                    + "samples are discarded.")
+    public static synchronized void start(double interval, boolean threads, boolean idle) {
+        if (profiler != null && profiler.isRunning()) {
+            throw Py.RuntimeError("profiler already running");
+        }
+        long nanos = (long) (interval * 1e9);
+        if (!(nanos > 0)) {
+            throw Py.ValueError("interval must be positive");
+        }
+        profiler = new SamplingProfiler(nanos, threads, idle);
+        profiler.start();
+    }
+
+    @ExposedFunction(doc = "stop()\n\nStop sampling, keeping the samples taken so far.")
+    public static synchronized void stop() {
+        if (profiler != null) {
+            profiler.stop();
+        }
+    }
+
+    @ExposedFunction(doc = "is_running() -> bool")
+    public static synchronized boolean is_running() {
+        return profiler != null && profiler.isRunning();
+    }
+
+    @ExposedFunction(doc = "samples() -> int\n\nThe number of stacks sampled so far.")
+    public static synchronized long samples() {
+        return profiler == null ? 0 : profiler.getSamples();
+    }
+
+    @ExposedFunction(doc = "clear()\n\nDiscard the samples taken so far.")
+    public static synchronized void clear() {
+        if (profiler != null) {
+            profiler.clear();
+        }
+    }
+
+    @ExposedFunction(doc = "collapsed() -> str\n\n"
+            + "The samples taken so far in collapsed stack format, one 'frame;frame count'\n"
+            + "line per distinct stack, as read by flame graph tools.")
+    public static synchronized String collapsed() {
+        StringBuilder out = new StringBuilder();
+        if (profiler != null) {
+            try {
+                profiler.writeCollapsed(out);
+            } catch (IOException e) {
+                // a StringBuilder does not throw
+                throw Py.IOError(e);
+            }
+        }
+        return out.toString();
+    }
+
+    @ExposedFunction(doc = "dump(filename)\n\n"
+            + "Write the samples taken so far to filename in collapsed stack format.")
+    public static synchronized void dump(String filename) {
+        try (Writer out = new FileWriter(filename)) {
+            if (profiler != null) {
+                profiler.writeCollapsed(out);
+            }
+        } catch (IOException e) {
+            throw Py.IOError(e);
+        }
+    }
+}
@@ -0,0 +1,455 @@
+/* Copyright (c) Jython Developers */
+package org.python.modules._lsprof;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.python.core.ArgParser;
+import org.python.core.Py;
+import org.python.core.PyBaseCode;
+import org.python.core.PyException;
+import org.python.core.PyFrame;
+import org.python.core.PyList;
+import org.python.core.PyObject;
+import org.python.core.PyType;
+import org.python.core.ThreadState;
+import org.python.core.TraceFunction;
+import org.python.expose.ExposedMethod;
+import org.python.expose.ExposedNew;
+import org.python.expose.ExposedType;
+
+/**
+ * The deterministic profiler of <code>cProfile</code>. Enabling it installs a Java
+ * {@link TraceFunction} as the profile function of the current thread, so each call and return of
+ * Python code costs a table lookup and two reads of the clock rather than a call into Python.
+ * <p>
+ * Each thread keeps its own statistics in primitive arrays, with no locking while it runs, and
+ * <code>getstats()</code> adds them up. Calls of built-in functions are not seen by the profile
+ * function, so their time counts as inline time of their callers, as with
+ * <code>builtins=False</code> in CPython.
+ */
+@ExposedType(name = "_lsprof.Profiler", doc = PyProfiler.Profiler_doc)
+public class PyProfiler extends PyObject {
+
+    public static final PyType TYPE = PyType.fromClass(PyProfiler.class);
+
+    public static final String Profiler_doc =
+        "Profiler(custom_timer=None, time_unit=None, subcalls=True, builtins=True)\n\n" +
+        "    Builds a profiler object using the specified timer function.\n" +
+        "    The default timer is a fast built-in one based on real time.\n" +
+        "    For custom timer functions returning integers, time_unit can\n" +
+        "    be a float specifying a scale (i.e. how long each integer unit\n" +
+        "    is, in seconds).\n";
+
+    /** The custom timer, or null to use {@link System#nanoTime()}. */
+    private PyObject timer;
+
+    /** Seconds per unit returned by the custom timer, or 0 if it returns seconds. */
+    private double timeunit;
+
+    private boolean subcalls = true;
+
+    /** Accepted for compatibility only, since calls of built-in functions are not seen. */
+    private boolean builtins = true;
+
+    /**
+     * The statistics of each thread this profiler is enabled in, guarded by itself. Threads are
+     * held weakly, so one that ends without disabling the profiler is let go with its statistics.
+     */
+    private final Map<Thread, Recorder> recorders = new WeakHashMap<>();
+
+    /** The statistics of threads that disabled the profiler, guarded by recorders. */
+    private final Map<PyBaseCode, long[]> disabledEntries = new IdentityHashMap<>();
+    private final Map<PyBaseCode, Map<PyBaseCode, long[]>> disabledCalls =
+            new IdentityHashMap<>();
+
+    public PyProfiler() {
+        this(TYPE);
+    }
+
+    public PyProfiler(PyType subType) {
+        super(subType);
+    }
+
+    @ExposedNew
+    @ExposedMethod
+    final void Profiler___init__(PyObject[] args, String[] keywords) {
+        ArgParser ap = new ArgParser("Profiler", args, keywords,
+                new String[] {"timer", "timeunit", "subcalls", "builtins"}, 0);
+        PyObject timer = ap.getPyObject(0, Py.None);
+        this.timer = timer == Py.None ? null : timer;
+        timeunit = Py.py2double(ap.getPyObject(1, Py.newFloat(0.0)));
+        subcalls = ap.getPyObject(2, Py.True).__bool__();
+        builtins = ap.getPyObject(3, Py.True).__bool__();
+    }
+
+    @ExposedMethod(doc = "enable(subcalls=True, builtins=True)\n\n" +
+            "Start collecting profiling information.\n" +
+            "If 'subcalls' is True, also records for each function\n" +
+            "statistics separated according to its current caller.\n" +
+            "If 'builtins' is True, records the time spent in\n" +
+            "built-in functions separately from their caller.\n")
+    final void Profiler_enable(PyObject[] args, String[] keywords) {
+        ArgParser ap = new ArgParser("enable", args, keywords,
+                new String[] {"subcalls", "builtins"}, 0);
+        PyObject subcalls = ap.getPyObject(0, null);
+        if (subcalls != null) {
+            this.subcalls = subcalls.__bool__();
+        }
+        PyObject builtins = ap.getPyObject(1, null);
+        if (builtins != null) {
+            this.builtins = builtins.__bool__();
+        }
+        ThreadState ts = Py.getThreadState();
+        Recorder recorder;
+        synchronized (recorders) {
+            recorder = recorders.get(Thread.currentThread());
+            if (recorder == null) {
+                recorder = new Recorder();
+                recorders.put(Thread.currentThread(), recorder);
+            }
+        }
+        ts.profilefunc = recorder;
+    }
+
+    @ExposedMethod(doc = "disable()\n\nStop collecting profiling information.\n")
+    final void Profiler_disable() {
+        ThreadState ts = Py.getThreadState();
+        TraceFunction profilefunc = ts.profilefunc;
+        if (profilefunc instanceof Recorder && ((Recorder) profilefunc).owner() == this) {
+            ts.profilefunc = null;
+            Recorder recorder = (Recorder) profilefunc;
+            recorder.flush();
+            // keep the statistics, but not the thread
+            synchronized (recorders) {
+                recorders.remove(Thread.currentThread());
+                recorder.addTo(disabledEntries, disabledCalls);
+            }
+        }
+    }
+
+    @ExposedMethod(doc = "clear()\n\nClear all profiling information collected so far.\n")
+    final void Profiler_clear() {
+        synchronized (recorders) {
+            for (Recorder recorder : recorders.values()) {
+                recorder.clear();
+            }
+            disabledEntries.clear();
+            disabledCalls.clear();
+        }
+    }
+
+    @ExposedMethod(doc = "getstats() -> list of profiler_entry objects\n\n" +
+            "Return all information collected by the profiler.\n" +
+            "Each profiler_entry is a tuple-like object with the\n" +
+            "following attributes:\n\n" +
+            "    code          code object\n" +
+            "    callcount     how many times this was called\n" +
+            "    reccallcount  how many times called recursively\n" +
+            "    totaltime     total time in this entry\n" +
+            "    inlinetime    inline time in this entry (not in subcalls)\n" +
+            "    calls         details of the calls\n\n" +
+            "The calls attribute is either None or a list of\n" +
+            "profiler_subentry objects:\n\n" +
+            "    code          called code object\n" +
+            "    callcount     how many times this is called\n" +
+            "    reccallcount  how many times this is called recursively\n" +
+            "    totaltime     total time spent in this call\n" +
+            "    inlinetime    inline time (not in further subcalls)\n")
+    final PyObject Profiler_getstats() {
+        // code -> {callcount, reccallcount, totaltime, inlinetime}
+        Map<PyBaseCode, long[]> entries = new IdentityHashMap<>();
+        Map<PyBaseCode, Map<PyBaseCode, long[]>> calls = new IdentityHashMap<>();
+        synchronized (recorders) {
+            for (Map.Entry<PyBaseCode, long[]> entry : disabledEntries.entrySet()) {
+                entries.put(entry.getKey(), entry.getValue().clone());
+            }
+            for (Map.Entry<PyBaseCode, Map<PyBaseCode, long[]>> caller : disabledCalls.entrySet()) {
+                Map<PyBaseCode, long[]> callees = new IdentityHashMap<>();
+                for (Map.Entry<PyBaseCode, long[]> callee : caller.getValue().entrySet()) {
+                    callees.put(callee.getKey(), callee.getValue().clone());
+                }
+                calls.put(caller.getKey(), callees);
+            }
+            for (Recorder recorder : recorders.values()) {
+                recorder.addTo(entries, calls);
+            }
+        }
+        // times are recorded in nanoseconds
+        double scale = 1e-9;
+        PyList stats = new PyList();
+        for (Map.Entry<PyBaseCode, long[]> entry : entries.entrySet()) {
+            PyObject subentries = Py.None;
+            if (subcalls) {
+                PyList list = new PyList();
+                Map<PyBaseCode, long[]> callees = calls.get(entry.getKey());
+                if (callees != null) {
+                    for (Map.Entry<PyBaseCode, long[]> callee : callees.entrySet()) {
+                        long[] s = callee.getValue();
+                        list.append(new PyProfilerSubentry(callee.getKey(), Py.newInteger(s[0]),
+                                Py.newInteger(s[1]), Py.newFloat(s[2] * scale),
+                                Py.newFloat(s[3] * scale)));
+                    }
+                }
+                subentries = list;
+            }
+            long[] s = entry.getValue();
+            stats.append(new PyProfilerEntry(entry.getKey(), Py.newInteger(s[0]),
+                    Py.newInteger(s[1]), Py.newFloat(s[2] * scale), Py.newFloat(s[3] * scale),
+                    subentries));
+        }
+        return stats;
+    }
+
+    /** Account for the end of a call taking <code>tt</code>, of which <code>it</code> inline. */
+    private static void record(long[] stats, int[] levels, int i, long tt, long it) {
+        if (--levels[i] == 0) {
+            stats[4 * i + 2] += tt;
+        } else {
+            stats[4 * i + 1]++;
+        }
+        stats[4 * i + 3] += it;
+        stats[4 * i]++;
+    }
+
+    /**
+     * Records the calls made by one thread. Only that thread updates the tables, so they need no
+     * locking; <code>getstats()</code> and <code>clear()</code> are meant to be called while the
+     * profiler is disabled.
+     */
+    private class Recorder extends TraceFunction {
+
+        private final Map<PyBaseCode, Integer> entries = new IdentityHashMap<>();
+        private PyBaseCode[] codes;
+        /** The callcount, reccallcount, totaltime and inlinetime of each entry. */
+        private long[] stats;
+        /** How many calls of each entry are in progress. */
+        private int[] levels;
+
+        /**
+         * An open addressing table from the caller and callee entries of each subentry, packed
+         * into a long plus one so that zero marks a free slot, to the number of the subentry.
+         */
+        private long[] subkeys;
+        private int[] subindex;
+        /** The caller and callee entries of each subentry. */
+        private int[] pairs;
+        private long[] substats;
+        private int[] sublevels;
+        private int nsubs;
+
+        /** The calls in progress, each with its entry and subentry (or -1). */
+        private PyFrame[] frames;
+        private int[] contexts;
+        /** The start time of each call in progress, and the time spent in its subcalls. */
+        private long[] times;
+        private int depth;
+
+        /** Whether the custom timer is running, so its own calls are not recorded. */
+        private boolean timing;
+
+        Recorder() {
+            clear();
+        }
+
+        PyProfiler owner() {
+            return PyProfiler.this;
+        }
+
+        @Override
+        public PyObject getTraceObject() {
+            return PyProfiler.this;
+        }
+
+        void clear() {
+            entries.clear();
+            codes = new PyBaseCode[16];
+            stats = new long[16 * 4];
+            levels = new int[16];
+            subkeys = new long[64];
+            subindex = new int[64];
+            pairs = new int[16 * 2];
+            substats = new long[16 * 4];
+            sublevels = new int[16];
+            nsubs = 0;
+            frames = new PyFrame[32];
+            contexts = new int[32 * 2];
+            times = new long[32 * 2];
+            depth = 0;
+        }
+
+        private long now() {
+            if (timer == null) {
+                return System.nanoTime();
+            }
+            timing = true;
+            try {
+                double t = Py.py2double(timer.__call__());
+                return (long) (t * (timeunit > 0 ? timeunit : 1.0) * 1e9);
+            } catch (PyException e) {
+                Py.writeUnraisable(e, timer);
+                return 0;
+            } finally {
+                timing = false;
+            }
+        }
+
+        @Override
+        public TraceFunction traceCall(PyFrame frame) {
+            if (timing) {
+                return this;
+            }
+            int entry = entry(frame.f_code);
+            levels[entry]++;
+            int sub = -1;
+            if (subcalls && depth > 0) {
+                sub = subentry(contexts[2 * (depth - 1)], entry);
+                sublevels[sub]++;
+            }
+            if (depth == frames.length) {
+                frames = Arrays.copyOf(frames, depth * 2);
+                contexts = Arrays.copyOf(contexts, depth * 4);
+                times = Arrays.copyOf(times, depth * 4);
+            }
+            frames[depth] = frame;
+            contexts[2 * depth] = entry;
+            contexts[2 * depth + 1] = sub;
+            times[2 * depth + 1] = 0;
+            // read the clock last, so that the bookkeeping above is not timed
+            times[2 * depth++] = now();
+            return this;
+        }
+
+        @Override
+        public TraceFunction traceReturn(PyFrame frame, PyObject ret) {
+            if (!timing) {
+                exit(frame, now());
+            }
+            return this;
+        }
+
+        @Override
+        public TraceFunction traceLine(PyFrame frame, int line) {
+            return this;
+        }
+
+        @Override
+        public TraceFunction traceException(PyFrame frame, PyException exc) {
+            if (!timing) {
+                exit(frame, now());
+            }
+            return this;
+        }
+
+        private void exit(PyFrame frame, long now) {
+            if (depth == 0 || frames[depth - 1] != frame) {
+                // a call that started before the profiler was enabled or cleared
+                return;
+            }
+            frames[--depth] = null;
+            long tt = now - times[2 * depth];
+            long it = tt - times[2 * depth + 1];
+            if (depth > 0) {
+                times[2 * (depth - 1) + 1] += tt;
+            }
+            record(stats, levels, contexts[2 * depth], tt, it);
+            int sub = contexts[2 * depth + 1];
+            if (sub >= 0) {
+                record(substats, sublevels, sub, tt, it);
+            }
+        }
+
+        /** End the calls still in progress, as if they returned now. */
+        void flush() {
+            long now = now();
+            while (depth > 0) {
+                exit(frames[depth - 1], now);
+            }
+        }
+
+        private int entry(PyBaseCode code) {
+            Integer i = entries.get(code);
+            if (i != null) {
+                return i;
+            }
+            int n = entries.size();
+            if (n == codes.length) {
+                codes = Arrays.copyOf(codes, n * 2);
+                stats = Arrays.copyOf(stats, n * 8);
+                levels = Arrays.copyOf(levels, n * 2);
+            }
+            codes[n] = code;
+            entries.put(code, n);
+            return n;
+        }
+
+        private int subentry(int caller, int callee) {
+            long key = ((long) caller << 32 | callee) + 1;
+            int mask = subkeys.length - 1;
+            int h = slot(key, mask);
+            for (; subkeys[h] != 0; h = (h + 1) & mask) {
+                if (subkeys[h] == key) {
+                    return subindex[h];
+                }
+            }
+            int n = nsubs++;
+            if (n == sublevels.length) {
+                pairs = Arrays.copyOf(pairs, n * 4);
+                substats = Arrays.copyOf(substats, n * 8);
+                sublevels = Arrays.copyOf(sublevels, n * 2);
+            }
+            pairs[2 * n] = caller;
+            pairs[2 * n + 1] = callee;
+            subkeys[h] = key;
+            subindex[h] = n;
+            if (nsubs * 2 > subkeys.length) {
+                rehash();
+            }
+            return n;
+        }
+
+        private int slot(long key, int mask) {
+            return (Long.hashCode(key) * 0x9E3779B9 >>> 8) & mask;
+        }
+
+        private void rehash() {
+            long[] keys = subkeys;
+            int[] index = subindex;
+            subkeys = new long[keys.length * 2];
+            subindex = new int[keys.length * 2];
+            int mask = subkeys.length - 1;
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    int h = slot(keys[i], mask);
+                    while (subkeys[h] != 0) {
+                        h = (h + 1) & mask;
+                    }
+                    subkeys[h] = keys[i];
+                    subindex[h] = index[i];
+                }
+            }
+        }
+
+        /** Add the statistics of this thread to those of the others. */
+        void addTo(Map<PyBaseCode, long[]> entryStats,
+                   Map<PyBaseCode, Map<PyBaseCode, long[]>> callStats) {
+            for (int i = 0; i < entries.size(); i++) {
+                add(entryStats.computeIfAbsent(codes[i], k -> new long[4]), stats, i);
+            }
+            for (int i = 0; i < nsubs; i++) {
+                Map<PyBaseCode, long[]> callees = callStats.computeIfAbsent(codes[pairs[2 * i]],
+                        k -> new IdentityHashMap<>());
+                add(callees.computeIfAbsent(codes[pairs[2 * i + 1]], k -> new long[4]),
+                        substats, i);
+            }
+        }
+
+        private void add(long[] total, long[] stats, int i) {
+            for (int j = 0; j < 4; j++) {
+                total[j] += stats[4 * i + j];
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/* Copyright (c) Jython Developers */
+package org.python.modules._lsprof;
+
+import org.python.core.PyObject;
+import org.python.core.PyTuple;
+import org.python.core.PyType;
+import org.python.expose.ExposedGet;
+import org.python.expose.ExposedType;
+
+/**
+ * The statistics of one code object, as returned by <code>Profiler.getstats()</code>.
+ */
+@ExposedType(name = "_lsprof.profiler_entry", isBaseType = false)
+public class PyProfilerEntry extends PyTuple {
+
+    public static final PyType TYPE = PyType.fromClass(PyProfilerEntry.class);
+
+    @ExposedGet(doc = "code object or built-in function name")
+    public PyObject code;
+
+    @ExposedGet(doc = "how many times this is called")
+    public PyObject callcount;
+
+    @ExposedGet(doc = "how many times called recursively")
+    public PyObject reccallcount;
+
+    @ExposedGet(doc = "total time in this entry")
+    public PyObject totaltime;
+
+    @ExposedGet(doc = "inline time in this entry (not in subcalls)")
+    public PyObject inlinetime;
+
+    @ExposedGet(doc = "details of the calls")
+    public PyObject calls;
+
+    PyProfilerEntry(PyObject... vals) {
+        super(TYPE, vals);
+        code = vals[0];
+        callcount = vals[1];
+        reccallcount = vals[2];
+        totaltime = vals[3];
+        inlinetime = vals[4];
+        calls = vals[5];
+    }
+}
@@ -0,0 +1,42 @@
+/* Copyright (c) Jython Developers */
+package org.python.modules._lsprof;
+
+import org.python.core.PyObject;
+import org.python.core.PyTuple;
+import org.python.core.PyType;
+import org.python.expose.ExposedGet;
+import org.python.expose.ExposedType;
+
+/**
+ * The statistics of the calls from one code object to another, as listed in the
+ * <code>calls</code> of a {@link PyProfilerEntry}.
+ */
+@ExposedType(name = "_lsprof.profiler_subentry", isBaseType = false)
+public class PyProfilerSubentry extends PyTuple {
+
+    public static final PyType TYPE = PyType.fromClass(PyProfilerSubentry.class);
+
+    @ExposedGet(doc = "called code object or built-in function name")
+    public PyObject code;
+
+    @ExposedGet(doc = "how many times this is called")
+    public PyObject callcount;
+
+    @ExposedGet(doc = "how many times this is called recursively")
+    public PyObject reccallcount;
+
+    @ExposedGet(doc = "total time spent in this call")
+    public PyObject totaltime;
+
+    @ExposedGet(doc = "inline time (not in further subcalls)")
+    public PyObject inlinetime;
+
+    PyProfilerSubentry(PyObject... vals) {
+        super(TYPE, vals);
+        code = vals[0];
+        callcount = vals[1];
+        reccallcount = vals[2];
+        totaltime = vals[3];
+        inlinetime = vals[4];
+    }
+}
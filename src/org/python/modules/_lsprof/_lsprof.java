@@ -0,0 +1,22 @@
+/* Copyright (c) Jython Developers */
+package org.python.modules._lsprof;
+
+import org.python.core.PyObject;
+import org.python.expose.ExposedModule;
+import org.python.expose.ModuleInit;
+
+/**
+ * The Python _lsprof module, the deterministic profiler behind <code>cProfile</code>.
+ */
+@ExposedModule(doc = _lsprof.__doc__)
+public class _lsprof {
+
+    public static final String __doc__ = "Fast profiler";
+
+    @ModuleInit
+    public static void classDictInit(PyObject dict) {
+        dict.__setitem__("Profiler", PyProfiler.TYPE);
+        dict.__setitem__("profiler_entry", PyProfilerEntry.TYPE);
+        dict.__setitem__("profiler_subentry", PyProfilerSubentry.TYPE);
+    }
+}
@@ -61,7 +61,7 @@ public class _warnings {
             lineno = Py.One;
         } else {
             globals = f.f_globals;
-            lineno = new PyLong(f.f_lineno);
+            lineno = new PyLong(f.getline());
         }
         registry = globals.__finditem__("__warningregistry__");
         if (registry == null) {
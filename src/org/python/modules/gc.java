@@ -10,6 +10,7 @@ import org.python.core.TraverseprocDerived;
 import org.python.core.Untraversable;
 import org.python.core.Visitproc;
 import org.python.core.finalization.FinalizeTrigger;
+import org.python.core.jfr.Events;
 import org.python.modules._weakref.GlobalRef;
 
 import java.lang.ref.Reference;
@@ -853,6 +854,16 @@ public class gc {
         }
 
         public void run() {
+            Object event = Events.beginFinalization();
+            int objects = delayedFinalizables.size() + resurrectionCritics.size();
+            try {
+                finalizeDelayed();
+            } finally {
+                Events.endFinalization(event, objects);
+            }
+        }
+
+        private void finalizeDelayed() {
             if ((gcFlags & VERBOSE_DELAYED) != 0) {
                 writeDebug("gc", "run delayed finalization. Index: "+
                         gcMonitoredRunCount);
@@ -1037,6 +1048,15 @@ public class gc {
                 && FinalizeTrigger.hasActiveTrigger(ob);
     }
 
+    /**
+     * The number of objects registered for delayed finalization and not yet finalized.
+     */
+    public static int getDelayedFinalizationCount() {
+        IdentityHashMap<PyObject, PyObject> delayed = delayedFinalizables;
+        IdentityHashMap<PyObject, PyObject> critics = resurrectionCritics;
+        return (delayed == null ? 0 : delayed.size()) + (critics == null ? 0 : critics.size());
+    }
+
     public static void registerForDelayedFinalization(PyObject ob) {
         if (isResurrectionCritic(ob)) {
             resurrectionCritics.put(ob, ob);
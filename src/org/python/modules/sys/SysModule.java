@@ -64,6 +64,16 @@ public class SysModule {
         return Py.getSystemState().gettrace();
     }
 
+    @ExposedFunction
+    public static void setprofile(PyObject profilefunc) {
+        Py.getSystemState().setprofile(profilefunc);
+    }
+
+    @ExposedFunction
+    public static final PyObject getprofile() {
+        return Py.getSystemState().getprofile();
+    }
+
     @ExposedFunction
     public static PyObject registerCloser(final PyObject closer) {
         Callable<Void> resourceCloser = new Callable<Void>() {
@@ -17,7 +17,7 @@ import org.python.core.PyTuple;
 import org.python.core.PyType;
 import org.python.core.PyUnicode;
 import org.python.core.imp;
-import org.python.core.util.FileUtil;
+import org.python.core.util.ZipIndex;
 import org.python.expose.ExposedGet;
 import org.python.expose.ExposedMethod;
 import org.python.expose.ExposedNew;
@@ -26,14 +26,10 @@ import org.python.expose.ExposedType;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Enumeration;
 import java.util.function.BiFunction;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
 
 @ExposedType(name = "zipimporter")
 public class PyZipImporter extends PyObject {
@@ -45,18 +41,18 @@ public class PyZipImporter extends PyObject {
     @ExposedGet
     public String prefix;
 
-    @ExposedGet
-    public PyObject files;
+    /** The archive as last read, shared with other importers and with sys.path. */
+    private ZipIndex index;
 
     public PyZipImporter(PyType type) {
         super(TYPE);
     }
 
-    public PyZipImporter(String archivePath, String prefix, PyObject files) {
+    public PyZipImporter(String archivePath, String prefix, ZipIndex index) {
         this(TYPE);
         this.archive = archivePath;
         this.prefix = prefix;
-        this.files = files;
+        this.index = index;
     }
 
     @ExposedNew
@@ -75,11 +71,7 @@ public class PyZipImporter extends PyObject {
             throw Py.ImportError(String.format("cannot handle %s", archivePath));
         }
         String filename = archive.toAbsolutePath().toString();
-        PyObject files = ZipImportModule._zip_directory_cache.__finditem__(filename);
-        if (files == null) {
-            files = readDirectory(filename);
-            ZipImportModule._zip_directory_cache.__setitem__(filename, files);
-        }
+        ZipIndex index = readIndex(filename);
         String prefix = "";
         if (!filename.equals(archivePath)) {
             prefix = archivePath.substring(filename.length() + 1);
@@ -87,7 +79,24 @@ public class PyZipImporter extends PyObject {
                 prefix += File.separator;
             }
         }
-        return new PyZipImporter(filename, prefix, files);
+        return new PyZipImporter(filename, prefix, index);
+    }
+
+    /**
+     * The table of contents of the archive, see {@link #readZipFile}, made when first asked for
+     * and kept in <code>zipimport._zip_directory_cache</code> while the archive is unchanged.
+     */
+    @ExposedGet(name = "files")
+    public PyObject getFiles() {
+        ZipIndex current = index();
+        PyObject files = ZipImportModule._zip_directory_cache.__finditem__(archive);
+        if (files == null || ZipImportModule.directoryIndexes.get(archive) != current) {
+            files = new PyDictionary();
+            readZipFile(current, files);
+            ZipImportModule._zip_directory_cache.__setitem__(archive, files);
+            ZipImportModule.directoryIndexes.put(archive, current);
+        }
+        return files;
     }
 
     @ExposedMethod
@@ -106,7 +115,7 @@ public class PyZipImporter extends PyObject {
     @Deprecated
     @ExposedMethod
     public final PyObject zipimporter_load_module(String fullname) {
-        return getEntry(fullname, (entry, inputStream) -> {
+        return getEntry(fullname, (entry, data) -> {
             PyModule mod = imp.addModule(fullname);
             imp.createFromCode(fullname, (PyCode) zipimporter_get_code(fullname));
             String folder = archive + File.separator + prefix;
@@ -126,45 +135,33 @@ public class PyZipImporter extends PyObject {
 
     @ExposedMethod
     public final PyObject zipimporter_is_package(String fullname) {
-        return getEntry(fullname, (entry, input) -> Py.newBoolean(entry._package));
+        return getEntry(fullname, (entry, data) -> Py.newBoolean(entry._package));
     }
 
     @ExposedMethod
     public final PyObject zipimporter_get_source(String fullname) {
-        return getEntry(fullname, (entry, inputStream) -> {
-            try {
-                if (entry.binary) {
-                    return Py.None;
-                }
-                return new PyUnicode(FileUtil.readBytes(inputStream));
-            } catch (IOException e) {
-                throw ZipImportModule.ZipImportError(e.getMessage());
+        return getEntry(fullname, (entry, data) -> {
+            if (entry.binary) {
+                return Py.None;
             }
+            return new PyUnicode(data.get());
         });
     }
 
     @ExposedMethod
     public final PyObject zipimporter_get_data(String filename) {
-        ZipFile zipFile = null;
         if (filename.startsWith(archive)) {
             filename = filename.substring(archive.length() + 1);
         }
-        try {
-            zipFile = new ZipFile(new File(archive));
-            ZipEntry zipEntry = zipFile.getEntry(prefix + filename);
-            if (zipEntry != null) {
-                return new PyBytes(FileUtil.readBytes(zipFile.getInputStream(zipEntry)));
-            }
+        ZipIndex current = index();
+        int i = current.find(entryName(prefix + filename));
+        if (i < 0) {
             throw ZipImportModule.ZipImportError(filename);
+        }
+        try {
+            return new PyBytes(current.read(i));
         } catch (IOException e) {
             throw ZipImportModule.ZipImportError(e.getMessage());
-        } finally {
-            if (zipFile != null) {
-                try {
-                    zipFile.close();
-                } catch (IOException e) {
-                }
-            }
         }
     }
 
@@ -175,36 +172,28 @@ public class PyZipImporter extends PyObject {
 
     @ExposedMethod
     public final PyObject zipimporter_get_filename(String fullname) {
-        return getEntry(fullname, (entry, inputStream) -> {
+        return getEntry(fullname, (entry, data) -> {
             return new PyUnicode(archive + File.separator + prefix + entry.sourcePath(fullname));
         });
     }
 
     @ExposedMethod
     public final PyObject zipimporter_get_code(String fullname) {
-        try {
-            long mtime = Files.getLastModifiedTime(new File(archive).toPath()).toMillis();
-            return getEntry(fullname, (entry, inputStream) -> {
-                byte[] codeBytes;
-                if (entry.binary) {
-                    try {
-                        codeBytes = imp.readCode(fullname, inputStream, false, mtime);
-                    } catch (IOException ioe) {
-                        throw Py.ImportError(ioe.getMessage() + "[path=" + entry.path(fullname) + "]");
-                    }
-                } else {
-                    try {
-                        byte[] bytes = FileUtil.readBytes(inputStream);
-                        codeBytes = imp.compileSource(fullname, new ByteArrayInputStream(bytes), entry.path(fullname));
-                    } catch (IOException e) {
-                        throw ZipImportModule.ZipImportError(e.getMessage());
-                    }
+        return getEntry(fullname, (entry, data) -> {
+            byte[] codeBytes;
+            if (entry.binary) {
+                try {
+                    codeBytes = imp.readCode(fullname, new ByteArrayInputStream(data.get()), false,
+                            data.mtime);
+                } catch (IOException ioe) {
+                    throw Py.ImportError(ioe.getMessage() + "[path=" + entry.path(fullname) + "]");
                 }
-                return BytecodeLoader.makeCode(fullname + Version.PY_CACHE_TAG, codeBytes, entry.path(fullname));
-            });
-        } catch (IOException e) {
-            throw ZipImportModule.ZipImportError(e.getMessage());
-        }
+            } else {
+                codeBytes = imp.compileSource(fullname, new ByteArrayInputStream(data.get()),
+                        entry.path(fullname));
+            }
+            return BytecodeLoader.makeCode(fullname + Version.PY_CACHE_TAG, codeBytes, entry.path(fullname));
+        });
     }
 
     @ExposedMethod
@@ -215,7 +204,7 @@ public class PyZipImporter extends PyObject {
         PyObject target = ap.getPyObject(2, Py.None);
         PyObject moduleSpec = Py.getSystemState().importlib.__findattr__("ModuleSpec");
         PyObject spec = moduleSpec.__call__(new PyUnicode(fullname), this);
-        return getEntry(fullname, (entry, inputStream) -> {
+        return getEntry(fullname, (entry, data) -> {
             String folder = archive + File.separatorChar + prefix;
             if (entry._package) {
                 PyList pkgpath = new PyList();
@@ -232,29 +221,49 @@ public class PyZipImporter extends PyObject {
         });
     }
 
-    private <T> T getEntry(String fullname, BiFunction<ModuleEntry, InputStream, T> func) {
-        ZipFile zipFile = null;
-        try {
-            zipFile = new ZipFile(new File(archive));
-            for (ModuleEntry entry : entries()) {
-                ZipEntry zipEntry = zipFile.getEntry(prefix + entry.path(fullname));
-                if (zipEntry != null) {
-                    return func.apply(entry, zipFile.getInputStream(zipEntry));
-                }
+    private <T> T getEntry(String fullname, BiFunction<ModuleEntry, EntryData, T> func) {
+        ZipIndex current = index();
+        for (ModuleEntry entry : entries()) {
+            int i = current.find(entryName(prefix + entry.path(fullname)));
+            if (i >= 0) {
+                return func.apply(entry, new EntryData(current, i));
             }
-            throw ZipImportModule.ZipImportError(fullname);
-        } catch (IOException e) {
-            throw ZipImportModule.ZipImportError(e.getMessage());
-        } finally {
-            if (zipFile != null) {
-                try {
-                    zipFile.close();
-                } catch (IOException e) {
-                }
+        }
+        throw ZipImportModule.ZipImportError(fullname);
+    }
+
+    /** The contents of an entry, read only if a method needs them. */
+    private static class EntryData {
+
+        private final ZipIndex index;
+        private final int entry;
+        final long mtime;
+
+        EntryData(ZipIndex index, int entry) {
+            this.index = index;
+            this.entry = entry;
+            this.mtime = index.lastModified();
+        }
+
+        byte[] get() {
+            try {
+                return index.read(entry);
+            } catch (IOException e) {
+                throw ZipImportModule.ZipImportError(e.getMessage());
             }
         }
     }
 
+    /** The index of the archive, read again if the archive changed. */
+    private ZipIndex index() {
+        index = readIndex(archive);
+        return index;
+    }
+
+    private static String entryName(String path) {
+        return File.separatorChar == '/' ? path : path.replace(File.separatorChar, '/');
+    }
+
     private ModuleEntry[] entries() {
         boolean[] options = {true, false};
         ModuleEntry[] res = new ModuleEntry[4];
@@ -268,31 +277,17 @@ public class PyZipImporter extends PyObject {
         return res;
     }
 
-    private static PyObject readDirectory(String archive) {
+    private static ZipIndex readIndex(String archive) {
         PySystemState sys = Py.getSystemState();
         File file = new File(sys.getPath(archive));
         if (!file.canRead()) {
             throw ZipImportModule.ZipImportError(String.format("can't open Zip file: '%s'", archive));
         }
-
-        ZipFile zipFile;
         try {
-            zipFile = new ZipFile(file);
+            return ZipIndex.get(file);
         } catch (IOException ioe) {
             throw ZipImportModule.ZipImportError(String.format("can't read Zip file: '%s'", archive));
         }
-
-        PyObject files = new PyDictionary();
-        try {
-            readZipFile(zipFile, files);
-        } finally {
-            try {
-                zipFile.close();
-            } catch (IOException ioe) {
-                throw Py.IOError(ioe);
-            }
-        }
-        return files;
     }
 
     /**
@@ -304,7 +299,7 @@ public class PyZipImporter extends PyObject {
      *     compress,      # compression kind; 0 for uncompressed
      *     data_size,     # size of compressed data on disk
      *     file_size,     # size of decompressed data
-     *     file_offset,   # offset of file header from start of archive (or -1 in Jython)
+     *     file_offset,   # offset of file header from start of archive
      *     time,          # mod time of file (in dos format)
      *     date,          # mod data of file (in dos format)
      *     crc,           # crc checksum of the data
@@ -313,26 +308,22 @@ public class PyZipImporter extends PyObject {
      * Directories can be recognized by the trailing SEP in the name, data_size and
      * file_offset are 0.
      *
-     * @param zipFile ZipFile to read
+     * @param index the archive to read
      * @param files a dict-like PyObject
      */
-    private static void readZipFile(ZipFile zipFile, PyObject files) {
-        for (Enumeration<? extends ZipEntry> zipEntries = zipFile.entries();
-             zipEntries.hasMoreElements();) {
-            ZipEntry zipEntry = zipEntries.nextElement();
-            String name = zipEntry.getName().replace('/', File.separatorChar);
-
-            PyObject file = new PyUnicode(zipFile.getName() + File.separator + name);
-            PyObject compress = new PyLong(zipEntry.getMethod());
-            PyObject data_size = new PyLong(zipEntry.getCompressedSize());
-            PyObject file_size = new PyLong(zipEntry.getSize());
-            // file_offset is a CPython optimization; it's used to seek directly to the
-            // file when reading it later. Jython doesn't do this nor is the offset
-            // available
-            PyObject file_offset = new PyLong(-1);
-            PyObject time = new PyLong(zipEntry.getTime());
-            PyObject date = new PyLong(zipEntry.getTime());
-            PyObject crc = new PyLong(zipEntry.getCrc());
+    private static void readZipFile(ZipIndex index, PyObject files) {
+        String archive = index.getFile().getPath();
+        for (int i = 0; i < index.size(); i++) {
+            String name = index.getName(i).replace('/', File.separatorChar);
+
+            PyObject file = new PyUnicode(archive + File.separator + name);
+            PyObject compress = new PyLong(index.getMethod(i));
+            PyObject data_size = new PyLong(index.getCompressedSize(i));
+            PyObject file_size = new PyLong(index.getSize(i));
+            PyObject file_offset = new PyLong(index.getOffset(i));
+            PyObject time = new PyLong(index.getDosTime(i));
+            PyObject date = new PyLong(index.getDosDate(i));
+            PyObject crc = new PyLong(index.getCrc(i));
 
             PyTuple entry = new PyTuple(file, compress, data_size, file_size, file_offset,
                     time, date, crc);
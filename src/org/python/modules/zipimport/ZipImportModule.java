@@ -9,9 +9,13 @@ import org.python.core.PyException;
 import org.python.core.PyObject;
 import org.python.core.PyBytes;
 import org.python.core.PyStringMap;
+import org.python.core.util.ZipIndex;
 import org.python.expose.ExposedModule;
 import org.python.expose.ModuleInit;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * This module adds the ability to import Python modules (*.py,
  * *$py.class) and packages from ZIP-format archives.
@@ -30,6 +34,9 @@ public class ZipImportModule {
     // FIXME could also do this via a loading cache instead
     public static PyDictionary _zip_directory_cache = new PyDictionary();
 
+    /** The index each table of contents in _zip_directory_cache was made from. */
+    static final Map<String, ZipIndex> directoryIndexes = new ConcurrentHashMap<String, ZipIndex>();
+
     @ModuleInit
     public static void init(PyObject dict) {
         dict.__setitem__("zipimporter", PyZipImporter.TYPE);
@@ -0,0 +1,35 @@
+/* Copyright (c) Jython Developers */
+package org.python.pycode;
+
+import java.lang.invoke.MethodHandles;
+
+import org.python.core.BytecodeLoader;
+
+/**
+ * Code compiled at run time, by <code>compile()</code>, <code>exec()</code> or
+ * <code>eval()</code>, is named <code>org.python.pycode._pyx<i>N</i></code>, and hot Python
+ * bytecode translated by {@link org.python.compiler.PyBytecodeCompiler}
+ * <code>org.python.pycode._pybc<i>N</i></code>. Where the JVM
+ * supports them, {@link org.python.core.BytecodeLoader} defines such classes as hidden classes
+ * in this package, which takes a lookup with full access to a class of the package: this one.
+ */
+public final class PyCodeLookup {
+
+    private PyCodeLookup() {}
+
+    /**
+     * A lookup with full access to this class, given only to {@link BytecodeLoader}: the caller
+     * proves it is that class by passing a lookup with private access to it, which no other
+     * class can make.
+     *
+     * @throws SecurityException if <code>caller</code> is any other lookup
+     */
+    public static MethodHandles.Lookup lookup(MethodHandles.Lookup caller) {
+        if (caller.lookupClass() != BytecodeLoader.class
+                || (caller.lookupModes() & MethodHandles.Lookup.PRIVATE) == 0) {
+            throw new SecurityException("lookup on " + PyCodeLookup.class.getName()
+                    + " is only given to " + BytecodeLoader.class.getName());
+        }
+        return MethodHandles.lookup();
+    }
+}
@@ -0,0 +1,95 @@
+package org.python.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.DirectoryScanner;
+import org.python.util.ParallelCompiler.Failure;
+
+/**
+ * Compiles all python files in one or more source directories in parallel, and writes the
+ * compiled modules into a single jar. Files are selected with the usual <code>includes</code>
+ * and <code>excludes</code> patterns, relative to each source directory.
+ *
+ * <pre>
+ * &lt;jycompilejar srcdir="${dist.dir}/Lib" destfile="${dist.dir}/Lib.jar" threads="8"
+ *         excludes="test/**"/&gt;
+ * </pre>
+ */
+public class JycompileJarAntTask extends GlobMatchingTask {
+
+    private File destFile;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Set the jar file the compiled modules are written to.
+     */
+    public void setDestfile(File destFile) {
+        this.destFile = destFile;
+    }
+
+    /**
+     * Set the number of compiler threads; defaults to the number of available processors.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    @Override
+    protected void checkParameters() throws BuildException {
+        super.checkParameters();
+        if (destFile == null) {
+            throw new BuildException("destfile attribute must be set!", getLocation());
+        }
+        if (threads < 1) {
+            throw new BuildException("threads must be at least 1", getLocation());
+        }
+    }
+
+    @Override
+    public void execute() throws BuildException {
+        checkParameters();
+        ParallelCompiler.initializeRuntime();
+        ParallelCompiler compiler = new ParallelCompiler(threads);
+        long start = System.nanoTime();
+        try {
+            for (String srcEntry : src.list()) {
+                File srcDir = getProject().resolveFile(srcEntry);
+                if (!srcDir.exists()) {
+                    throw new BuildException("srcdir '" + srcDir.getPath() + "' does not exist!",
+                                             getLocation());
+                }
+                DirectoryScanner scanner = getDirectoryScanner(srcDir);
+                List<String> files = new ArrayList<>();
+                for (String file : scanner.getIncludedFiles()) {
+                    if (file.endsWith(".py")) {
+                        files.add(file);
+                    }
+                }
+                compiler.compileFiles(srcDir, files);
+            }
+        } finally {
+            compiler.shutdown();
+        }
+
+        List<Failure> failures = compiler.getFailures();
+        for (Failure failure : failures) {
+            log("Could not compile " + failure);
+        }
+        if (!failures.isEmpty()) {
+            throw new BuildException("Compile failed; see the compiler error output for details.",
+                                     getLocation());
+        }
+        try {
+            compiler.writeJar(destFile);
+        } catch (IOException e) {
+            throw new BuildException("Unable to write " + destFile, e, getLocation());
+        }
+        log(String.format("Compiled %d files into %s in %d ms", compiler.getCompiledCount(),
+                destFile, (System.nanoTime() - start) / 1000000));
+    }
+}
@@ -0,0 +1,329 @@
+/* Copyright (c) Jython Developers */
+package org.python.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.python.Version;
+import org.python.core.PyException;
+import org.python.core.PySystemState;
+import org.python.core.imp;
+
+/**
+ * Compiles whole trees of Python source ahead of time, parsing and generating bytecode for the
+ * modules in parallel on a {@link ForkJoinPool}, and writes the results into a single jar.
+ * <p>
+ * Compiled modules are stored under the same relative paths the importers search for them, i.e.
+ * <code>pkg/__pycache__/mod${cache_tag}.class</code>, so the jar can be put on
+ * <code>sys.path</code> or the classpath and consumed by {@link org.python.core.ClasspathPyImporter}
+ * without any source being present.
+ * <p>
+ * Usage from the command line:
+ *
+ * <pre>
+ * java org.python.util.ParallelCompiler [-j threads] [-x dirname]... [-q] -o out.jar srcdir...
+ * </pre>
+ *
+ * {@link JycompileJarAntTask} exposes the same functionality to Ant builds.
+ */
+public class ParallelCompiler {
+
+    /** A module that could not be compiled, with the reason why. */
+    public static class Failure {
+        public final File source;
+        public final Throwable cause;
+
+        Failure(File source, Throwable cause) {
+            this.source = source;
+            this.cause = cause;
+        }
+
+        @Override
+        public String toString() {
+            String msg = cause instanceof PyException ? cause.toString().trim() : cause.getMessage();
+            return source + ": " + msg;
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    /** Directory names never descended into while walking a tree. */
+    private final List<String> excludedDirs = new ArrayList<>();
+
+    /** Compiled class bytes keyed by jar entry name; sorted so the jar is reproducible. */
+    private final Map<String, byte[]> compiled = new ConcurrentSkipListMap<>();
+
+    /** The absolute path of the source compiled to each jar entry. */
+    private final Map<String, File> sources = new ConcurrentHashMap<>();
+
+    private final ConcurrentLinkedQueue<Failure> failures = new ConcurrentLinkedQueue<>();
+
+    public ParallelCompiler() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelCompiler(int parallelism) {
+        pool = new ForkJoinPool(Math.max(1, parallelism));
+        excludedDirs.add(imp.CACHEDIR);
+    }
+
+    /**
+     * Skip directories with the given name (for example <code>test</code>) while walking a tree.
+     */
+    public void excludeDirectory(String name) {
+        excludedDirs.add(name);
+    }
+
+    /**
+     * Compile every <code>.py</code> file below <code>root</code>. Module names and jar entries
+     * are computed relative to <code>root</code>, which therefore plays the role of a
+     * <code>sys.path</code> entry. A module already compiled from another tree is reported as a
+     * failure and keeps the code compiled first, as the first of several entries on
+     * <code>sys.path</code> would.
+     */
+    public void compileTree(File root) {
+        pool.invoke(new DirectoryTask(root, ""));
+    }
+
+    /**
+     * Compile the given files, named by their paths relative to <code>root</code> (as produced
+     * by an Ant directory scanner, for instance).
+     */
+    public void compileFiles(final File root, List<String> relativePaths) {
+        final List<ModuleTask> tasks = new ArrayList<>(relativePaths.size());
+        for (String relative : relativePaths) {
+            String prefix = relative.replace(File.separatorChar, '/');
+            int slash = prefix.lastIndexOf('/');
+            tasks.add(new ModuleTask(new File(root, relative), prefix.substring(0, slash + 1)));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /** Number of modules successfully compiled so far. */
+    public int getCompiledCount() {
+        return compiled.size();
+    }
+
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(new ArrayList<>(failures));
+    }
+
+    /**
+     * Write all the modules compiled so far into <code>jar</code>, replacing it if it exists.
+     */
+    public void writeJar(File jar) throws IOException {
+        File dir = jar.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Unable to make directory for jar: " + jar);
+        }
+        try (OutputStream out = new FileOutputStream(jar)) {
+            writeJar(out);
+        }
+    }
+
+    public void writeJar(OutputStream out) throws IOException {
+        Manifest manifest = new Manifest();
+        Attributes main = manifest.getMainAttributes();
+        main.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        main.putValue("Created-By", "Jython " + Version.PY_VERSION);
+        main.putValue("Jython-Cache-Tag", Version.PY_CACHE_TAG);
+        try (JarOutputStream jar = new JarOutputStream(out, manifest)) {
+            for (Map.Entry<String, byte[]> entry : compiled.entrySet()) {
+                jar.putNextEntry(new JarEntry(entry.getKey()));
+                jar.write(entry.getValue());
+                jar.closeEntry();
+            }
+        }
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Compile a single module. <code>prefix</code> is the '/' separated directory of
+     * <code>source</code> relative to the root, including a trailing '/' unless it is empty.
+     */
+    private void compileModule(File source, String prefix) {
+        String filename = source.getName();
+        String base = filename.substring(0, filename.length() - 3);
+        String pkg = prefix.isEmpty() ? "" : prefix.substring(0, prefix.length() - 1).replace('/', '.');
+        String name;
+        String entry;
+        if (base.equals("__init__")) {
+            name = pkg;
+        } else {
+            name = pkg.isEmpty() ? base : pkg + "." + base;
+        }
+        entry = prefix + imp.CACHEDIR + "/" + base + Version.PY_CACHE_TAG + ".class";
+        File absolute = source.getAbsoluteFile();
+        File other = sources.putIfAbsent(entry, absolute);
+        if (other != null && !other.equals(absolute)) {
+            failures.add(new Failure(source,
+                    new IllegalArgumentException("module " + name + " already compiled from " + other)));
+            return;
+        }
+        try {
+            compiled.put(entry, imp.compileSource(name, source, prefix + filename));
+        } catch (Throwable t) {
+            failures.add(new Failure(source, t));
+        }
+    }
+
+    private boolean isExcluded(File dir) {
+        return excludedDirs.contains(dir.getName());
+    }
+
+    private class ModuleTask extends RecursiveAction {
+        private final File source;
+        private final String prefix;
+
+        ModuleTask(File source, String prefix) {
+            this.source = source;
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected void compute() {
+            compileModule(source, prefix);
+        }
+    }
+
+    private class DirectoryTask extends RecursiveAction {
+        private final File dir;
+        private final String prefix;
+
+        DirectoryTask(File dir, String prefix) {
+            this.dir = dir;
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected void compute() {
+            File[] files = dir.listFiles();
+            if (files == null) {
+                return;
+            }
+            List<RecursiveAction> tasks = new ArrayList<>();
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    if (!isExcluded(file)) {
+                        tasks.add(new DirectoryTask(file, prefix + file.getName() + "/"));
+                    }
+                } else if (file.getName().endsWith(".py")) {
+                    tasks.add(new ModuleTask(file, prefix));
+                }
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    /**
+     * Initialize the runtime for compiling only: the package cache is not needed, so skip it.
+     */
+    static void initializeRuntime() {
+        Properties props = new Properties();
+        props.setProperty(PySystemState.PYTHON_CACHEDIR_SKIP, "true");
+        PySystemState.initialize(System.getProperties(), props);
+    }
+
+    private static void usage(int status) {
+        System.err.println("usage: java " + ParallelCompiler.class.getName()
+                + " [-j threads] [-x dirname]... [-q] -o out.jar srcdir...");
+        System.err.println("  -j threads : number of compiler threads (default: available processors)");
+        System.err.println("  -x dirname : skip directories with this name, may be repeated");
+        System.err.println("  -q         : only report errors");
+        System.err.println("  -o out.jar : the jar to write the compiled modules to");
+        System.exit(status);
+    }
+
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean quiet = false;
+        File out = null;
+        List<String> excludes = new ArrayList<>();
+        List<File> roots = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-h") || arg.equals("--help")) {
+                usage(0);
+            } else if (arg.equals("-q")) {
+                quiet = true;
+            } else if (i + 1 < args.length && arg.equals("-j")) {
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    usage(2);
+                }
+            } else if (i + 1 < args.length && arg.equals("-x")) {
+                excludes.add(args[++i]);
+            } else if (i + 1 < args.length && arg.equals("-o")) {
+                out = new File(args[++i]);
+            } else if (arg.startsWith("-")) {
+                usage(2);
+            } else {
+                roots.add(new File(arg));
+            }
+        }
+        if (out == null || roots.isEmpty()) {
+            usage(2);
+        }
+
+        initializeRuntime();
+        ParallelCompiler compiler = new ParallelCompiler(threads);
+        for (String exclude : excludes) {
+            compiler.excludeDirectory(exclude);
+        }
+        long start = System.nanoTime();
+        try {
+            for (File root : roots) {
+                if (!root.isDirectory()) {
+                    System.err.println("not a directory: " + root);
+                    System.exit(2);
+                }
+                compiler.compileTree(root);
+            }
+        } finally {
+            compiler.shutdown();
+        }
+
+        List<Failure> failures = compiler.getFailures();
+        for (Failure failure : failures) {
+            System.err.println("Could not compile " + failure);
+        }
+        try {
+            compiler.writeJar(out);
+        } catch (IOException e) {
+            System.err.println("Unable to write " + out + ": " + e);
+            System.exit(1);
+        }
+        if (!quiet) {
+            long millis = (System.nanoTime() - start) / 1000000;
+            System.out.println(String.format("Compiled %d modules into %s in %d ms using %d threads",
+                    compiler.getCompiledCount(), out, millis, threads));
+        }
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+}
@@ -2,9 +2,24 @@ package org.python.util;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.Enumeration;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -25,6 +40,12 @@ import org.python.core.PyUnicode;
  * This servlet is used to re-serve Jython servlets. It stores bytecode for Jython servlets and
  * re-uses it if the underlying .py file has not changed.
  * <p>
+ * Changes are found by watching the directories of the files, or by checking their modification
+ * dates at an interval set by the init parameter <code>reload_check</code>, and a changed
+ * servlet is loaded in the background and then put in the place of the old one, which serves
+ * requests meanwhile. With the init parameter <code>interpreter_per_thread</code> set to true,
+ * each thread has an interpreter, and instances of the servlets, of its own.
+ * <p>
  * e.g. http://localhost:8080/test/hello.py
  * <pre>
  *
@@ -64,6 +85,26 @@ public class PyServlet extends HttpServlet {
 
     public static final String SKIP_INIT_NAME = "skip_jython_initialization";
 
+    /**
+     * How the servlet files are checked for changes: <code>watch</code>, the default, to be told
+     * of them by the file system, a number of milliseconds between checks of the modification
+     * date of each file, <code>0</code> to check on every request, or a negative number never to
+     * check.
+     */
+    public static final String RELOAD_CHECK_NAME = "reload_check";
+
+    /**
+     * Whether a changed servlet is loaded again in the background while the old one still serves
+     * requests, the default, or by the next request to it.
+     */
+    public static final String RELOAD_IN_BACKGROUND_NAME = "reload_in_background";
+
+    /**
+     * Whether each thread has an interpreter of its own, with its own instances of the servlets,
+     * rather than all sharing one.
+     */
+    public static final String INTERPRETER_PER_THREAD_NAME = "interpreter_per_thread";
+
     protected static final String INIT_ATTR = "__jython_initialized__";
 
     @Override
@@ -86,6 +127,7 @@ public class PyServlet extends HttpServlet {
         } else if (initialize) {
             init(props, getServletContext());
         }
+        initReloading();
         reset();
     }
 
@@ -151,12 +193,34 @@ public class PyServlet extends HttpServlet {
             }
         }
         String rpath = getServletContext().getRealPath(spath);
-        getServlet(rpath).service(req, res);
+        PySystemState previous = Py.getSystemState();
+        try {
+            Servlets servlets = getServlets();
+            if (perThread != null) {
+                Py.setSystemState(servlets.interp.getSystemState());
+            }
+            CacheEntry entry = servlets.acquire(rpath);
+            try {
+                entry.servlet.service(req, res);
+            } finally {
+                entry.release();
+            }
+        } finally {
+            Py.setSystemState(previous);
+        }
     }
 
     @Override
     public void destroy() {
         super.destroy();
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException e) {
+                // the watching thread ends anyway
+            }
+        }
+        reloader.shutdownNow();
         destroyCache();
     }
 
@@ -166,32 +230,256 @@ public class PyServlet extends HttpServlet {
      */
     public void reset() {
         destroyCache();
-        interp = createInterpreter(getServletContext());
+        if (getInitFlag(INTERPRETER_PER_THREAD_NAME)) {
+            shared = null;
+            perThread = new ThreadLocal<Servlets>() {
+
+                @Override
+                protected Servlets initialValue() {
+                    return newServlets();
+                }
+            };
+        } else {
+            perThread = null;
+            shared = newServlets();
+        }
     }
 
-    private synchronized HttpServlet getServlet(String path)
-        throws ServletException, IOException
-    {
-        CacheEntry entry = cache.get(path);
-        if (entry == null || new File(path).lastModified() > entry.date) {
-            return loadServlet(path);
+    private Servlets getServlets() {
+        ThreadLocal<Servlets> perThread = this.perThread;
+        return perThread != null ? perThread.get() : shared;
+    }
+
+    private Servlets newServlets() {
+        Servlets servlets = new Servlets(createInterpreter(getServletContext()));
+        allServlets.add(servlets);
+        return servlets;
+    }
+
+    /** Starts watching for changes, or reads how often to check for them. */
+    private void initReloading() {
+        String background = getInitParameter(RELOAD_IN_BACKGROUND_NAME);
+        reloadInBackground = background == null || getInitFlag(RELOAD_IN_BACKGROUND_NAME);
+        String check = getInitParameter(RELOAD_CHECK_NAME);
+        if (check == null || check.equals("watch")) {
+            try {
+                watcher = FileSystems.getDefault().newWatchService();
+            } catch (IOException | UnsupportedOperationException e) {
+                log("can't watch servlet files for changes, checking on every request: " + e);
+                checkInterval = 0;
+                return;
+            }
+            checkInterval = -1;
+            Thread t = new Thread(this::watch, "PyServlet watcher " + getServletName());
+            t.setDaemon(true);
+            t.start();
+        } else {
+            try {
+                checkInterval = Long.parseLong(check.trim());
+            } catch (NumberFormatException e) {
+                log("bad " + RELOAD_CHECK_NAME + " '" + check + "', checking on every request");
+                checkInterval = 0;
+            }
         }
-        return entry.servlet;
     }
 
-    private HttpServlet loadServlet(String path)
-        throws ServletException, IOException
-    {
-        File file = new File(path);
+    private boolean getInitFlag(String name) {
+        String value = getInitParameter(name);
+        return value != null && Boolean.parseBoolean(value.trim());
+    }
 
-        HttpServlet servlet = createInstance(interp, file, HttpServlet.class);
+    /** Watches the directories of the servlets loaded, to reload them when changed. */
+    private void watch() {
         try {
-            servlet.init(getServletConfig());
-        } catch (PyException e) {
-            throw new ServletException(e);
+            for (;;) {
+                WatchKey key = watcher.take();
+                Path dir = (Path)key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        for (Servlets servlets : allServlets) {
+                            servlets.reloadAll();
+                        }
+                    } else {
+                        String path = dir.resolve((Path)event.context()).toString();
+                        for (Servlets servlets : allServlets) {
+                            servlets.changed(path);
+                        }
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // destroyed
+        }
+    }
+
+    private void watchDirectory(File file) {
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && watchedDirs.add(dir.getPath())) {
+            try {
+                dir.toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            } catch (IOException | ClosedWatchServiceException e) {
+                log("can't watch " + dir + " for changes: " + e);
+            }
+        }
+    }
+
+    /**
+     * The servlets loaded in one interpreter, by the real path of their files. A servlet is
+     * loaded on its first request, by the thread of that request; when its file changes, another
+     * instance is loaded in the background, in an interpreter kept for that, or on the next
+     * request if not <code>reload_in_background</code>. It is put in the place of the old one,
+     * which is destroyed once the requests it is serving are done.
+     */
+    private class Servlets {
+
+        final PythonInterpreter interp;
+        final ConcurrentMap<String, CacheEntry> cache = new ConcurrentHashMap<String, CacheEntry>();
+
+        /** The interpreter servlets are reloaded in by the reloader thread, made when needed. */
+        private PythonInterpreter reloadInterp;
+
+        Servlets(PythonInterpreter interp) {
+            this.interp = interp;
+        }
+
+        /**
+         * The entry of the servlet at path, loading it if need be, counted as in use until
+         * released.
+         */
+        CacheEntry acquire(String path) throws ServletException, IOException {
+            for (;;) {
+                CacheEntry entry = get(path);
+                if (entry.acquire()) {
+                    return entry;
+                }
+                // replaced meanwhile: serve the new one
+            }
+        }
+
+        private CacheEntry get(String path) throws ServletException, IOException {
+            CacheEntry entry = cache.get(path);
+            if (entry == null) {
+                synchronized (this) {
+                    entry = cache.get(path);
+                    if (entry == null) {
+                        entry = load(path, interp);
+                        cache.put(path, entry);
+                    }
+                }
+            } else if (entry.isStale(checkInterval)) {
+                if (reloadInBackground) {
+                    reloadLater(path, entry);
+                } else {
+                    entry = reload(path, entry, interp);
+                }
+            }
+            return entry;
+        }
+
+        /** Called by the watcher when the file at path changed. */
+        void changed(String path) {
+            CacheEntry entry = cache.get(path);
+            if (entry != null) {
+                entry.stale = true;
+                reloadLater(path, entry);
+            }
+        }
+
+        void reloadAll() {
+            for (Map.Entry<String, CacheEntry> e : cache.entrySet()) {
+                e.getValue().stale = true;
+                reloadLater(e.getKey(), e.getValue());
+            }
+        }
+
+        private void reloadLater(final String path, final CacheEntry entry) {
+            if (entry.reloading.compareAndSet(false, true)) {
+                try {
+                    reloader.execute(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            PySystemState previous = Py.getSystemState();
+                            try {
+                                reload(path, entry, reloadInterpreter());
+                            } catch (ServletException | IOException | RuntimeException e) {
+                                log("can't reload " + path + ", serving the old one", e);
+                            } finally {
+                                Py.setSystemState(previous);
+                            }
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // destroyed
+                }
+            }
+        }
+
+        /** Only ever called on the reloader thread. */
+        private PythonInterpreter reloadInterpreter() {
+            if (reloadInterp == null) {
+                reloadInterp = createInterpreter(getServletContext());
+            }
+            return reloadInterp;
+        }
+
+        private CacheEntry reload(String path, CacheEntry entry, PythonInterpreter in)
+                throws ServletException, IOException {
+            CacheEntry newEntry;
+            synchronized (this) {
+                CacheEntry current = cache.get(path);
+                if (current != entry) {
+                    // reloaded already
+                    return current;
+                }
+                try {
+                    if (!entry.file.exists()) {
+                        // deleted: serve the old one, as always
+                        keep(entry);
+                        return entry;
+                    }
+                    newEntry = load(path, in);
+                } catch (ServletException | RuntimeException e) {
+                    // keep the one that works until the file changes again
+                    keep(entry);
+                    throw e;
+                }
+                cache.replace(path, entry, newEntry);
+            }
+            entry.retire();
+            return newEntry;
+        }
+
+        private void keep(CacheEntry entry) {
+            entry.date = entry.file.lastModified();
+            entry.stale = false;
+            entry.reloading.set(false);
+        }
+
+        private CacheEntry load(String path, PythonInterpreter in)
+                throws ServletException, IOException {
+            File file = new File(path);
+            long date = file.lastModified();
+            if (watcher != null) {
+                watchDirectory(file);
+            }
+            HttpServlet servlet = createInstance(in, file, HttpServlet.class);
+            try {
+                servlet.init(getServletConfig());
+            } catch (PyException e) {
+                throw new ServletException(e);
+            }
+            return new CacheEntry(servlet, file, date);
+        }
+
+        void destroy() {
+            for (CacheEntry entry : cache.values()) {
+                entry.retire();
+            }
+            cache.clear();
         }
-        cache.put(path, new CacheEntry(servlet, file.lastModified()));
-        return servlet;
     }
 
     protected static <T> T createInstance(PythonInterpreter interp, File file, Class<T> type)
@@ -225,24 +513,102 @@ public class PyServlet extends HttpServlet {
     }
 
     private void destroyCache() {
-        for (CacheEntry entry : cache.values()) {
-            entry.servlet.destroy();
+        for (Servlets servlets : allServlets) {
+            servlets.destroy();
         }
-        cache.clear();
+        allServlets.clear();
     }
 
     private static class CacheEntry {
-        public long date;
-        public HttpServlet servlet;
+        public volatile long date;
+        public final HttpServlet servlet;
+        final File file;
+
+        /** Set when the file is known to have changed. */
+        volatile boolean stale;
+
+        /** When the modification date of the file was last checked. */
+        volatile long checked;
+
+        final AtomicBoolean reloading = new AtomicBoolean();
+
+        /** The requests being served by the servlet. */
+        private final AtomicInteger users = new AtomicInteger();
+
+        /** Set when replaced, to destroy the servlet once no request is using it. */
+        private volatile boolean retired;
 
-        CacheEntry(HttpServlet servlet, long date) {
+        private final AtomicBoolean destroyed = new AtomicBoolean();
+
+        CacheEntry(HttpServlet servlet, File file, long date) {
             this.servlet=  servlet;
+            this.file = file;
             this.date = date;
+            this.checked = System.currentTimeMillis();
+        }
+
+        /** Counts a request as using the servlet, unless it is retired. */
+        boolean acquire() {
+            users.incrementAndGet();
+            if (retired) {
+                release();
+                return false;
+            }
+            return true;
+        }
+
+        void release() {
+            if (users.decrementAndGet() == 0 && retired) {
+                destroyServlet();
+            }
+        }
+
+        /** Destroys the servlet now, or when the last request using it is done. */
+        void retire() {
+            retired = true;
+            if (users.get() == 0) {
+                destroyServlet();
+            }
+        }
+
+        private void destroyServlet() {
+            if (destroyed.compareAndSet(false, true)) {
+                servlet.destroy();
+            }
+        }
+
+        /**
+         * Whether the file changed since loaded, as told by the watcher or, if checkInterval is
+         * not negative, found by checking the modification date at most that often.
+         */
+        boolean isStale(long checkInterval) {
+            if (stale || checkInterval < 0) {
+                return stale;
+            }
+            long now = System.currentTimeMillis();
+            if (checkInterval > 0 && now - checked < checkInterval) {
+                return false;
+            }
+            checked = now;
+            if (file.lastModified() > date) {
+                stale = true;
+            }
+            return stale;
         }
     }
 
     private static final Pattern FIND_NAME = Pattern.compile("([^/]+)\\.py$");
 
-    private PythonInterpreter interp;
-    private Map<String, CacheEntry> cache = Generic.map();
-}
\ No newline at end of file
+    private volatile Servlets shared;
+    private volatile ThreadLocal<Servlets> perThread;
+    private final Set<Servlets> allServlets = Generic.concurrentSet();
+    private final Set<String> watchedDirs = Generic.concurrentSet();
+    private final ExecutorService reloader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "PyServlet reloader");
+        t.setDaemon(true);
+        return t;
+    });
+    private WatchService watcher;
+    private long checkInterval;
+    private boolean reloadInBackground;
+}
@@ -0,0 +1,414 @@
+package org.python.util;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.python.core.Py;
+import org.python.core.PyException;
+import org.python.core.PyList;
+import org.python.core.PyObject;
+import org.python.core.PySlice;
+import org.python.core.PySystemState;
+
+/**
+ * A pool of interpreters, each with a <code>PySystemState</code> of its own, made and warmed up
+ * beforehand so that each request of a server, say, can have an interpreter to itself without
+ * paying for <code>site</code> and the imports of the application every time.
+ * <p>
+ * An interpreter is checked out with {@link #checkout(long, TimeUnit)}, used on that thread, and
+ * given back with {@link #checkin(PythonInterpreter)}, which puts back the state it had after its
+ * warm-up as far as the {@link Reset} of the pool says. An interpreter that cannot be reset, or
+ * is given to {@link #discard(PythonInterpreter)}, is closed and replaced with a new one. If that
+ * new one cannot be made, it is made when next needed by {@link #checkout(long, TimeUnit)}, which
+ * raises the error if it still cannot be.
+ *
+ * <pre>
+ * PythonInterpreterPool pool = new PythonInterpreterPool(8,
+ *         interp -&gt; interp.exec("import myapp"), PythonInterpreterPool.Reset.GLOBALS);
+ * PythonInterpreter interp = pool.checkout(100, TimeUnit.MILLISECONDS);
+ * if (interp == null) {
+ *     // all busy
+ * }
+ * try {
+ *     interp.set("request", request);
+ *     interp.exec("myapp.handle(request)");
+ * } finally {
+ *     pool.checkin(interp);
+ * }
+ * </pre>
+ */
+public class PythonInterpreterPool implements AutoCloseable, Closeable {
+
+    /** What is put back in an interpreter when it is checked in. */
+    public enum Reset {
+
+        /** Nothing: the state left by one user is seen by the next. */
+        NONE,
+
+        /**
+         * The namespace of <code>__main__</code>, and <code>sys.stdin</code>,
+         * <code>sys.stdout</code> and <code>sys.stderr</code>.
+         */
+        GLOBALS,
+
+        /**
+         * As {@link #GLOBALS}, and <code>sys.modules</code> and <code>sys.path</code>, so that
+         * modules first imported by one user are imported again by the next. The modules imported
+         * during the warm-up are kept, with whatever was done to them.
+         */
+        MODULES
+    }
+
+    /** An interpreter of the pool, with its state after the warm-up. */
+    private static final class Entry {
+
+        final PythonInterpreter interp;
+        final PyObject globals;
+        final PyObject savedGlobals;
+        final PyObject[] savedStreams;
+        final PyObject savedModules;
+        final PyList savedPath;
+
+        /** The thread it is checked out to, and what was the state of that thread before. */
+        Thread owner;
+        PySystemState previous;
+
+        Entry(PythonInterpreter interp) {
+            this.interp = interp;
+            PySystemState sys = interp.getSystemState();
+            globals = interp.getLocals();
+            savedGlobals = globals.invoke("copy");
+            savedStreams = new PyObject[] {sys.getStdin(), sys.getStdout(), sys.getStderr()};
+            savedModules = sys.modules.invoke("copy");
+            savedPath = new PyList((PyObject)sys.path);
+        }
+
+        void reset(Reset reset) {
+            if (reset == Reset.NONE) {
+                return;
+            }
+            PySystemState sys = interp.getSystemState();
+            interp.setLocals(globals);
+            globals.invoke("clear");
+            globals.invoke("update", savedGlobals);
+            sys.sysdict.__setitem__("stdin", savedStreams[0]);
+            sys.setStdout(savedStreams[1]);
+            sys.setStderr(savedStreams[2]);
+            if (reset == Reset.MODULES) {
+                sys.modules.invoke("clear");
+                sys.modules.invoke("update", savedModules);
+                sys.path.__setitem__(new PySlice(), savedPath);
+            }
+        }
+    }
+
+    private final Consumer<PythonInterpreter> warmup;
+
+    private final Reset reset;
+
+    private final int size;
+
+    private final BlockingQueue<Entry> idle;
+
+    /** The interpreters checked out, to their entries. */
+    private final Map<PythonInterpreter, Entry> busy =
+            new ConcurrentHashMap<PythonInterpreter, Entry>();
+
+    /** Interpreters that could not be made in place of those replaced, to make on checkout. */
+    private final AtomicInteger missing = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder replaced = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder resetNanos = new LongAdder();
+
+    /**
+     * Creates a pool of interpreters with nothing run in them beyond <code>site</code>, if
+     * imported, that puts back their globals when checked in.
+     *
+     * @param size the number of interpreters
+     */
+    public PythonInterpreterPool(int size) {
+        this(size, null, Reset.GLOBALS);
+    }
+
+    /**
+     * Creates a pool of interpreters, all of them made now.
+     *
+     * @param size the number of interpreters
+     * @param warmup run on each interpreter when made, as to import the modules of the
+     *            application; may be null
+     * @param reset what to put back in an interpreter when it is checked in
+     */
+    public PythonInterpreterPool(int size, Consumer<PythonInterpreter> warmup, Reset reset) {
+        if (size < 1) {
+            throw new IllegalArgumentException("pool size must be at least 1: " + size);
+        }
+        this.size = size;
+        this.warmup = warmup;
+        this.reset = reset == null ? Reset.NONE : reset;
+        idle = new LinkedBlockingQueue<Entry>(size);
+        try {
+            for (int i = 0; i < size; i++) {
+                idle.add(create());
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks out an interpreter, waiting for one to be checked in if need be, and makes its
+     * <code>PySystemState</code> that of this thread until it is checked in.
+     *
+     * @return the interpreter, or null if none was checked in within the timeout
+     * @throws RuntimeException as raised making an interpreter in place of one that could not be
+     *             replaced before
+     */
+    public PythonInterpreter checkout(long timeout, TimeUnit unit) throws InterruptedException {
+        ensureOpen();
+        long start = System.nanoTime();
+        Entry entry = idle.poll();
+        if (entry == null) {
+            entry = createMissing();
+        }
+        if (entry == null) {
+            entry = idle.poll(timeout, unit);
+        }
+        long waited = System.nanoTime() - start;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+        if (entry == null) {
+            timeouts.increment();
+            return null;
+        }
+        if (closed) {
+            closeInterpreter(entry.interp);
+            ensureOpen();
+        }
+        checkouts.increment();
+        busy.put(entry.interp, entry);
+        entry.owner = Thread.currentThread();
+        entry.previous = Py.getSystemState();
+        Py.setSystemState(entry.interp.getSystemState());
+        return entry.interp;
+    }
+
+    /** Checks out an interpreter, waiting as long as it takes for one to be checked in. */
+    public PythonInterpreter checkout() throws InterruptedException {
+        return checkout(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gives back an interpreter checked out of this pool, after putting back its state. If that
+     * fails, the interpreter is replaced.
+     */
+    public void checkin(PythonInterpreter interp) {
+        Entry entry = take(interp);
+        restoreState(entry);
+        long start = System.nanoTime();
+        try {
+            entry.reset(reset);
+        } catch (PyException e) {
+            Py.writeWarning("pool", "can't reset interpreter, replacing it: " + e);
+            replace(entry);
+            return;
+        } finally {
+            resetNanos.add(System.nanoTime() - start);
+        }
+        if (closed) {
+            closeInterpreter(interp);
+        } else {
+            idle.add(entry);
+        }
+    }
+
+    /**
+     * Gives back an interpreter checked out of this pool that should not be used again, as one
+     * left in a state that cannot be reset. It is closed, and a new one made in its stead.
+     */
+    public void discard(PythonInterpreter interp) {
+        Entry entry = take(interp);
+        restoreState(entry);
+        replace(entry);
+    }
+
+    /** The number of interpreters of the pool. */
+    public int getSize() {
+        return size;
+    }
+
+    /** The number of interpreters not checked out. */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /** The number of interpreters checked out. */
+    public int getBusyCount() {
+        return busy.size();
+    }
+
+    /** The number of times an interpreter was checked out. */
+    public long getCheckoutCount() {
+        return checkouts.sum();
+    }
+
+    /** The number of times no interpreter was checked in within the timeout. */
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    /** The number of interpreters that could not be replaced, to be made when needed. */
+    public int getMissingCount() {
+        return missing.get();
+    }
+
+    /** The number of interpreters replaced, as failing to reset or discarded. */
+    public long getReplacedCount() {
+        return replaced.sum();
+    }
+
+    /** The time spent waiting in {@link #checkout(long, TimeUnit)}, in all. */
+    public long getWaitTime(TimeUnit unit) {
+        return unit.convert(waitNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /** The longest time spent waiting in {@link #checkout(long, TimeUnit)}. */
+    public long getMaxWaitTime(TimeUnit unit) {
+        return unit.convert(maxWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    /** The time spent resetting interpreters on check-in, in all. */
+    public long getResetTime(TimeUnit unit) {
+        return unit.convert(resetNanos.sum(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Closes the interpreters not checked out. Those checked out are closed when checked in, and
+     * no more can be checked out.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Entry entry; (entry = idle.poll()) != null;) {
+            closeInterpreter(entry.interp);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("<%s size=%d idle=%d missing=%d checkouts=%d timeouts=%d "
+                + "replaced=%d wait=%dms max_wait=%dms reset=%dms>", getClass().getSimpleName(),
+                size, getIdleCount(), getMissingCount(), getCheckoutCount(), getTimeoutCount(),
+                getReplacedCount(),
+                getWaitTime(TimeUnit.MILLISECONDS), getMaxWaitTime(TimeUnit.MILLISECONDS),
+                getResetTime(TimeUnit.MILLISECONDS));
+    }
+
+    private Entry create() {
+        // making an interpreter makes its state that of this thread, which it should not stay
+        PySystemState current = Py.getSystemState();
+        try {
+            PythonInterpreter interp = new PythonInterpreter(null, new PySystemState());
+            try {
+                if (warmup != null) {
+                    warmup.accept(interp);
+                }
+                return new Entry(interp);
+            } catch (RuntimeException e) {
+                interp.close();
+                throw e;
+            }
+        } finally {
+            Py.setSystemState(current);
+        }
+    }
+
+    private void replace(Entry entry) {
+        replaced.increment();
+        try {
+            closeInterpreter(entry.interp);
+        } catch (PyException e) {
+            // it is being replaced for not working, after all
+        }
+        if (closed) {
+            return;
+        }
+        try {
+            idle.add(create());
+        } catch (RuntimeException e) {
+            Py.writeWarning("pool", "can't replace interpreter, will retry on checkout: " + e);
+            missing.incrementAndGet();
+        }
+    }
+
+    /**
+     * Makes an interpreter in place of one that could not be replaced, if any.
+     *
+     * @return the entry of the new interpreter, or null if none is missing
+     */
+    private Entry createMissing() {
+        int n;
+        while ((n = missing.get()) > 0) {
+            if (missing.compareAndSet(n, n - 1)) {
+                try {
+                    return create();
+                } catch (RuntimeException e) {
+                    missing.incrementAndGet();
+                    throw e;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Closes an interpreter, which makes its state that of this thread for a while, leaving the
+     * state of this thread as it was.
+     */
+    private static void closeInterpreter(PythonInterpreter interp) {
+        PySystemState current = Py.getSystemState();
+        try {
+            interp.close();
+        } finally {
+            Py.setSystemState(current);
+        }
+    }
+
+    /** Gives the thread that checked out an entry back the state it had before, if on it. */
+    private static void restoreState(Entry entry) {
+        if (entry.owner == Thread.currentThread()
+                && Py.getSystemState() == entry.interp.getSystemState()) {
+            Py.setSystemState(entry.previous);
+        }
+        entry.owner = null;
+        entry.previous = null;
+    }
+
+    private Entry take(PythonInterpreter interp) {
+        Entry entry = busy.remove(interp);
+        if (entry == null) {
+            throw new IllegalArgumentException("interpreter not checked out of this pool");
+        }
+        return entry;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("pool is closed");
+        }
+    }
+}
@@ -73,6 +73,8 @@ public class jython {
             + "           can be supplied multiple times to increase verbosity\n"
             + "-V       : print the Python version number and exit (also --version)\n"
             + "-W arg   : warning control (arg is action:message:category:module:lineno)\n"
+            + "-X opt   : set implementation-specific option; -X importtime[=file] reports how\n"
+            + "           long each import took at exit, on stderr or as CSV in file\n"
             // + "-x       : skip first line of source, allowing use of non-Unix forms of #!cmd\n"
             + "-3       : warn about Python 3.x incompatibilities that 2to3 cannot trivially fix\n"
             + "file     : program read from script file\n"
@@ -609,6 +611,21 @@ class CommandLineOptions {
                 } else {
                     return argumentExpected(arg);
                 }
+            } else if (arg.startsWith("-X")) {
+                String xopt;
+                if (arg.length() > 2) {
+                    xopt = arg.substring(2);
+                } else if ((index + 1) < args.length) {
+                    xopt = args[++index];
+                } else {
+                    return argumentExpected(arg);
+                }
+                // as in CPython, options not known here are ignored
+                if (xopt.equals("importtime")) {
+                    setProperty("python.import.time", "true");
+                } else if (xopt.startsWith("importtime=")) {
+                    setProperty("python.import.time", xopt.substring("importtime=".length()));
+                }
             } else if (arg.equals("-E")) {
                 // -E (ignore environment variables)
                 Options.ignore_environment = true;
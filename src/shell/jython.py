@@ -32,6 +32,7 @@ def parse_launcher_args(args):
     parsed.help = False
     parsed.print_requested = False
     parsed.profile = False
+    parsed.cds_train = False
     parsed.jdb = None
 
     it = iter(args)
@@ -72,6 +73,9 @@ def parse_launcher_args(args):
         elif arg in ("--boot", "--jdb", "--profile"):
             setattr(parsed, arg[2:], True)
             i += 1
+        elif arg == "--cds-train":
+            parsed.cds_train = True
+            i += 1
         elif arg == "--":
             i += 1
             break
@@ -214,6 +218,44 @@ setting {envvar_specifier}JYTHON_HOME.""".format(
     def java_opts(self):
         return [self.java_mem, self.java_stack]
         
+    @property
+    def cds_archive(self):
+        """Class data sharing archive made by --cds-train, or None"""
+        if "JYTHON_CDS_ARCHIVE" in os.environ:
+            return os.environ["JYTHON_CDS_ARCHIVE"] or None
+        return os.path.join(self.jython_home, "cachedir", "jython.jsa")
+
+    @property
+    def java_version(self):
+        """Major version of the JVM to run, read from the release file of its
+        home, as starting it to ask would cost more than the archive saves;
+        or None if it cannot be told that way"""
+        home = self.java_home
+        if home is None:
+            for path in os.environ.get("PATH", "").split(os.pathsep):
+                java = os.path.join(path, "java.exe" if is_windows else "java")
+                if os.path.isfile(java):
+                    home = os.path.dirname(os.path.dirname(os.path.realpath(java)))
+                    break
+            else:
+                return None
+        try:
+            with open(os.path.join(home, "release")) as release:
+                for line in release:
+                    if line.startswith("JAVA_VERSION="):
+                        version = line.split("=", 1)[1].strip().strip('"')
+                        if version.startswith("1."):
+                            version = version[2:]
+                        digits = ""
+                        for c in version:
+                            if not c.isdigit():
+                                break
+                            digits += c
+                        return int(digits) if digits else None
+        except IOError:
+            pass
+        return None
+
     @property
     def java_profile_agent(self):
         return os.path.join(self.jython_home, "javalib", "profile.jar")
@@ -246,6 +288,21 @@ setting {envvar_specifier}JYTHON_HOME.""".format(
         self.set_encoding()
         args = [self.java_command]
         args.extend(self.java_opts)
+        archive = self.cds_archive
+        if self.args.cds_train:
+            if archive is None:
+                bad_option("--cds-train needs JYTHON_CDS_ARCHIVE to name the archive to write")
+            if not os.path.isdir(os.path.dirname(archive)):
+                os.makedirs(os.path.dirname(archive))
+            # the archive is written when the JVM exits; classes of old formats it
+            # cannot hold are left out, with a warning each that is not worth showing
+            args.append("-XX:ArchiveClassesAtExit=%s" % self.convert_path(archive))
+            args.append("-Xlog:cds=error")
+        elif archive is not None and os.path.isfile(archive) and (self.java_version or 0) >= 13:
+            # archives of the classes of an application need Java 13; the JVM quietly
+            # ignores one made by another JVM or for another class path
+            args.append("-XX:SharedArchiveFile=%s" % self.convert_path(archive))
+            args.extend(["-Xshare:auto", "-Xlog:cds=off", "-Xlog:cds+dynamic=off"])
         args.extend(self.args.java)
 
         classpath = self.java_classpath
@@ -279,6 +336,9 @@ setting {envvar_specifier}JYTHON_HOME.""".format(
         if self.args.help:
             args.append("--help")
         args.extend(self.jython_args)
+        if self.args.cds_train and not self.jython_args:
+            # a typical start: the site module, some of the library, and the compiler
+            args.extend(["-c", "import os, re, json, collections, io, codecs, warnings"])
         return args
 
 
@@ -297,6 +357,8 @@ Jython launcher-specific options:
 -Dname=value : pass name=value property to Java VM (e.g. -Dpython.path=/a/b/c)
 -Jarg    : pass argument through to Java VM (e.g. -J-Xmx512m)
 --boot   : speeds up launch performance by putting Jython jars on the boot classpath
+--cds-train: run, then save the classes loaded in JYTHON_CDS_ARCHIVE for later runs
+           to start faster (Java 13 or later); with no script, run a typical start
 --help   : this help message
 --jdb    : run under JDB java debugger
 --print  : print the Java command with args for launching Jython instead of executing it
@@ -309,6 +371,8 @@ JAVA_STACK : Java stack size (sets via -Xss)
 JAVA_HOME  : Java installation directory
 JYTHON_HOME: Jython installation directory
 JYTHON_OPTS: default command line arguments
+JYTHON_CDS_ARCHIVE: class data sharing archive, used when present on Java 13 or later
+           (default JYTHON_HOME/cachedir/jython.jsa; set it empty to not use one)
 """
 
 def support_java_opts(args):
@@ -0,0 +1,61 @@
+"""Run one workload inside the interpreter under test and print its timings.
+
+Usage: jython -S harness.py DIRECTORY WORKLOAD VALUES MIN_WARMUP MAX_WARMUP
+
+The workload module bm_WORKLOAD.py in DIRECTORY is imported and its run()
+called repeatedly.  Iterations count as warmup until the mean of the last
+window of iterations is within a tolerance of the window before it, but at
+least MIN_WARMUP and at most MAX_WARMUP iterations are warmup.  Then VALUES
+iterations are measured.  Each iteration prints one line, "warmup SECONDS"
+or "value SECONDS", which run_benchmarks.py parses; this script uses nothing
+beyond sys and time (not even os), so that it can run on an interpreter whose
+library is partly broken.
+"""
+
+import sys
+import time
+
+WINDOW = 5
+TOLERANCE = 0.02
+
+
+def timed(run):
+    start = time.perf_counter()
+    run()
+    return time.perf_counter() - start
+
+
+def emit(kind, seconds):
+    sys.stdout.write('%s %r\n' % (kind, seconds))
+    sys.stdout.flush()
+
+
+def steady(times):
+    if len(times) < 2 * WINDOW:
+        return False
+    previous = sum(times[-2 * WINDOW:-WINDOW]) / WINDOW
+    last = sum(times[-WINDOW:]) / WINDOW
+    return abs(last - previous) <= TOLERANCE * previous
+
+
+def main(argv):
+    if len(argv) != 6:
+        sys.stderr.write(__doc__)
+        return True
+    directory, name = argv[1:3]
+    values, min_warmup, max_warmup = [int(arg) for arg in argv[3:]]
+    sys.path.insert(0, directory)
+    run = __import__('bm_' + name).run
+
+    times = []
+    while len(times) < max_warmup and (len(times) < min_warmup or
+                                       not steady(times)):
+        times.append(timed(run))
+        emit('warmup', times[-1])
+    for _ in range(values):
+        emit('value', timed(run))
+
+
+if __name__ == '__main__':
+    if main(sys.argv):
+        sys.exit(2)
@@ -0,0 +1,280 @@
+#!/usr/bin/env python3
+"""Run the macro benchmarks in workloads/ on a built jython and summarize.
+
+Each benchmark is a bm_NAME.py module with a run() function doing one
+iteration of a representative program.  For every benchmark this script
+starts --forks fresh JVMs running harness.py, which warms the workload up
+until its timings settle and then prints the measured values.  The values
+of all forks are pooled into a summary (mean, median, standard deviation,
+95% confidence interval of the mean) and written, together with the raw
+values and a description of the machine and the jython, to a JSON report.
+
+Two reports can be compared with --compare, which prints the change of the
+mean for every benchmark present in both and whether it is significant by
+Welch's t-test.
+
+This script runs on CPython 3, not on the jython being measured, so that a
+broken build still yields a report; a benchmark that fails is recorded with
+its error output instead of timings.  The benchmarks in NOT_DEFAULT, which
+fail on this tree, only run when named.
+"""
+
+import argparse
+import datetime
+import json
+import math
+import os
+import platform
+import statistics
+import subprocess
+import sys
+
+HERE = os.path.dirname(os.path.abspath(__file__))
+WORKLOADS = os.path.join(HERE, 'workloads')
+HARNESS = os.path.join(HERE, 'harness.py')
+DEFAULT_JYTHON = os.path.join(HERE, os.pardir, os.pardir, 'dist', 'bin', 'jython')
+
+# two-sided 95% quantiles of Student's t distribution by degrees of freedom
+T95 = [12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+       2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+       2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042]
+
+
+def t95(df):
+    if df < 1:
+        return float('nan')
+    if df <= len(T95):
+        return T95[df - 1]
+    return 1.960 + 2.4 / df
+
+
+# Benchmarks run only when named, as they fail on this tree: json because
+# the _json module still builds bytes where str is wanted, pickle because
+# the pickler cannot iterate over dict_items yet.
+NOT_DEFAULT = frozenset(['json', 'pickle'])
+
+
+def available():
+    names = []
+    for filename in sorted(os.listdir(WORKLOADS)):
+        if filename.startswith('bm_') and filename.endswith('.py'):
+            names.append(filename[3:-3])
+    return names
+
+
+def defaults():
+    return [name for name in available() if name not in NOT_DEFAULT]
+
+
+def run_fork(args, name):
+    command = [args.jython]
+    command += ['-J' + arg for arg in args.jvm_arg]
+    command += ['-S', HARNESS, WORKLOADS, name, str(args.values),
+                str(args.min_warmup), str(args.max_warmup)]
+    env = dict(os.environ)
+    env.setdefault('LC_ALL', 'C.UTF-8')
+    process = subprocess.run(command, stdout=subprocess.PIPE,
+                             stderr=subprocess.PIPE, universal_newlines=True,
+                             env=env, timeout=args.timeout)
+    warmups = []
+    values = []
+    for line in process.stdout.splitlines():
+        kind, _, seconds = line.partition(' ')
+        if kind == 'warmup':
+            warmups.append(float(seconds))
+        elif kind == 'value':
+            values.append(float(seconds))
+    if process.returncode != 0 or len(values) != args.values:
+        raise RuntimeError('exit status %d\n%s' % (process.returncode,
+                                                   process.stderr.strip()))
+    return {'warmups': warmups, 'values': values}
+
+
+def summarize(values):
+    mean = statistics.mean(values)
+    stdev = statistics.stdev(values) if len(values) > 1 else 0.0
+    half = t95(len(values) - 1) * stdev / math.sqrt(len(values))
+    return {
+        'n': len(values),
+        'mean': mean,
+        'median': statistics.median(values),
+        'stdev': stdev,
+        'min': min(values),
+        'max': max(values),
+        'ci95': [mean - half, mean + half],
+    }
+
+
+def run_benchmark(args, name):
+    result = {'forks': []}
+    try:
+        for fork in range(args.forks):
+            result['forks'].append(run_fork(args, name))
+            if not args.quiet:
+                sys.stderr.write('%s: fork %d of %d done after %d warmup '
+                                 'iterations\n' % (name, fork + 1, args.forks,
+                                                   len(result['forks'][-1]['warmups'])))
+    except (RuntimeError, subprocess.TimeoutExpired) as e:
+        result['error'] = str(e)
+        return result
+    values = [v for fork in result['forks'] for v in fork['values']]
+    result['summary'] = summarize(values)
+    return result
+
+
+def describe(args):
+    try:
+        version = subprocess.run([args.jython, '--version'],
+                                 stdout=subprocess.PIPE, stderr=subprocess.STDOUT,
+                                 universal_newlines=True, timeout=120).stdout.strip()
+    except (OSError, subprocess.TimeoutExpired) as e:
+        version = str(e)
+    try:
+        commit = subprocess.run(['git', 'rev-parse', 'HEAD'], cwd=HERE,
+                                stdout=subprocess.PIPE, stderr=subprocess.DEVNULL,
+                                universal_newlines=True).stdout.strip()
+    except OSError:
+        commit = ''
+    return {
+        'date': datetime.datetime.now().isoformat(),
+        'jython': os.path.abspath(args.jython),
+        'version': version,
+        'commit': commit,
+        'jvm_args': args.jvm_arg,
+        'forks': args.forks,
+        'values': args.values,
+        'min_warmup': args.min_warmup,
+        'max_warmup': args.max_warmup,
+        'machine': platform.machine(),
+        'platform': platform.platform(),
+        'cpus': os.cpu_count(),
+    }
+
+
+def format_time(seconds):
+    if abs(seconds) < 1e-3:
+        return '%.1f us' % (seconds * 1e6)
+    if abs(seconds) < 1:
+        return '%.1f ms' % (seconds * 1e3)
+    return '%.3f s' % seconds
+
+
+def error_line(error):
+    """The exception line of a Python traceback, skipping Java stack traces."""
+    lines = [line for line in error.splitlines()
+             if line and not line[0].isspace()
+             and not line.startswith('Exception in thread')]
+    return lines[-1] if lines else error
+
+
+def print_report(report):
+    print('%-12s %12s %12s %20s %8s' % ('benchmark', 'mean', 'stdev',
+                                         '95% CI', 'warmup'))
+    for name, result in sorted(report['benchmarks'].items()):
+        if 'error' in result:
+            print('%-12s FAILED: %s' % (name, error_line(result['error'])[:60]))
+            continue
+        summary = result['summary']
+        warmups = '/'.join(str(len(fork['warmups'])) for fork in result['forks'])
+        print('%-12s %12s %12s %20s %8s' % (
+            name, format_time(summary['mean']), format_time(summary['stdev']),
+            '%s..%s' % (format_time(summary['ci95'][0]),
+                        format_time(summary['ci95'][1])), warmups))
+
+
+def welch(a, b):
+    """Return whether the means of samples a and b differ at the 95% level."""
+    va = statistics.variance(a) / len(a)
+    vb = statistics.variance(b) / len(b)
+    if va + vb == 0:
+        return statistics.mean(a) != statistics.mean(b)
+    t = abs(statistics.mean(a) - statistics.mean(b)) / math.sqrt(va + vb)
+    df = (va + vb) ** 2 / (va ** 2 / (len(a) - 1) + vb ** 2 / (len(b) - 1))
+    return t > t95(max(1, int(df)))
+
+
+def compare(old_path, new_path):
+    with open(old_path) as f:
+        old = json.load(f)['benchmarks']
+    with open(new_path) as f:
+        new = json.load(f)['benchmarks']
+    print('%-12s %12s %12s %10s  %s' % ('benchmark', 'old', 'new', 'change', ''))
+    for name in sorted(set(old) & set(new)):
+        if 'summary' not in old[name] or 'summary' not in new[name]:
+            print('%-12s %s' % (name, 'not comparable: failed'))
+            continue
+        a = [v for fork in old[name]['forks'] for v in fork['values']]
+        b = [v for fork in new[name]['forks'] for v in fork['values']]
+        mean_a = statistics.mean(a)
+        mean_b = statistics.mean(b)
+        significant = len(a) > 1 and len(b) > 1 and welch(a, b)
+        if not significant:
+            verdict = 'not significant'
+        elif mean_b < mean_a:
+            verdict = '%.2fx faster' % (mean_a / mean_b)
+        else:
+            verdict = '%.2fx slower' % (mean_b / mean_a)
+        print('%-12s %12s %12s %+9.1f%%  %s' % (
+            name, format_time(mean_a), format_time(mean_b),
+            (mean_b - mean_a) / mean_a * 100, verdict))
+
+
+def main():
+    parser = argparse.ArgumentParser(description=__doc__.splitlines()[0])
+    parser.add_argument('benchmarks', nargs='*',
+                        help='benchmarks to run (default: all but %s)'
+                        % ' and '.join(sorted(NOT_DEFAULT)))
+    parser.add_argument('--jython', default=DEFAULT_JYTHON,
+                        help='jython launcher to measure (default: dist/bin/jython)')
+    parser.add_argument('--forks', type=int, default=3,
+                        help='JVM processes per benchmark (default: 3)')
+    parser.add_argument('--values', type=int, default=10,
+                        help='measured iterations per fork (default: 10)')
+    parser.add_argument('--min-warmup', type=int, default=5,
+                        help='minimum warmup iterations per fork (default: 5)')
+    parser.add_argument('--max-warmup', type=int, default=30,
+                        help='maximum warmup iterations per fork (default: 30)')
+    parser.add_argument('--jvm-arg', action='append', default=[],
+                        metavar='ARG', help='option for the JVM, may be repeated')
+    parser.add_argument('--timeout', type=float, default=1800,
+                        help='seconds before a fork is abandoned (default: 1800)')
+    parser.add_argument('-o', '--output', help='write the JSON report here')
+    parser.add_argument('-q', '--quiet', action='store_true',
+                        help='do not report progress')
+    parser.add_argument('--list', action='store_true',
+                        help='list the benchmarks and exit')
+    parser.add_argument('--compare', nargs=2, metavar=('OLD', 'NEW'),
+                        help='compare two JSON reports and exit')
+    args = parser.parse_args()
+
+    if args.list:
+        for name in available():
+            print(name + (' (only when named)' if name in NOT_DEFAULT else ''))
+        return 0
+    if args.compare:
+        compare(*args.compare)
+        return 0
+    names = args.benchmarks or defaults()
+    unknown = set(names) - set(available())
+    if unknown:
+        parser.error('unknown benchmarks: ' + ', '.join(sorted(unknown)))
+    if args.values < 1 or args.forks < 1:
+        parser.error('--values and --forks must be at least 1')
+
+    report = {'metadata': describe(args), 'benchmarks': {}}
+    for name in names:
+        report['benchmarks'][name] = run_benchmark(args, name)
+    print_report(report)
+    if args.output:
+        directory = os.path.dirname(args.output)
+        if directory:
+            os.makedirs(directory, exist_ok=True)
+        with open(args.output, 'w') as f:
+            json.dump(report, f, indent=2)
+    failed = [name for name, result in report['benchmarks'].items()
+              if 'error' in result]
+    return 1 if failed else 0
+
+
+if __name__ == '__main__':
+    sys.exit(main())
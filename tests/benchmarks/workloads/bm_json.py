@@ -0,0 +1,25 @@
+"""Serialize and parse JSON documents with the json module."""
+
+import json
+
+EMPTY = ({}, 2000)
+SIMPLE_DATA = {'key1': 0, 'key2': True, 'key3': 'value', 'key4': 'foo',
+               'key5': 'string'}
+SIMPLE = (SIMPLE_DATA, 1000)
+NESTED_DATA = {'key1': 0, 'key2': SIMPLE[0], 'key3': 'value', 'key4': SIMPLE[0],
+               'key5': SIMPLE[0], 'key': 'ąćż'}
+NESTED = (NESTED_DATA, 1000)
+HUGE = ([NESTED[0]] * 1000, 1)
+
+CASES = [EMPTY, SIMPLE, NESTED, HUGE]
+
+
+def run():
+    length = 0
+    for obj, count in CASES:
+        for _ in range(count):
+            text = json.dumps(obj)
+            length += len(text)
+            if json.loads(text) != obj:
+                raise AssertionError("round trip changed %r" % (obj,))
+    return length
@@ -0,0 +1,66 @@
+"""Pickle and unpickle lists, dicts, strings, numbers and instances of
+classes with the pickle module, at the highest protocol."""
+
+import datetime
+import pickle
+
+
+class Record(object):
+
+    def __init__(self, ident, name, tags, when):
+        self.ident = ident
+        self.name = name
+        self.tags = tags
+        self.when = when
+
+    def __eq__(self, other):
+        return self.__dict__ == other.__dict__
+
+
+DICT = {
+    'ads_flags': 0,
+    'age': 18,
+    'bulletin_count': 0,
+    'comment_count': 0,
+    'country': 'BR',
+    'encrypted_id': 'G9urXXAJwjE',
+    'favorite_artists': [
+        'Geo',
+        'Me De Deus',
+        'Mobil',
+        'Xico Sa',
+        'Dj Mangoo',
+        'Ze de Lima',
+    ],
+    'favorite_genres': ['Rock', 'Pop', 'Samba'],
+    'gender': 'f',
+    'has_portrait': True,
+    'id': 123456789,
+    'is_music_artist': False,
+    'location': 'São Paulo',
+    'ratio': 0.625,
+}
+
+TUPLE = (
+    [265867233, 265868503, 265252341, 265243910, 265879514,
+     266219766, 266021701, 265843726, 265592821, 265246784,
+     265853180, 45526486, 265463699, 265848143, 265863062,
+     265392591, 265877490, 265823665, 265828884, 265753032], 60)
+
+RECORDS = [Record(i, 'record %d' % i, ['tag%d' % (i % 7), 'common'],
+                  datetime.datetime(2015, 10, 21, 16, 29, i % 60))
+           for i in range(200)]
+
+OBJECTS = [DICT, TUPLE, RECORDS, list(range(1000)), 'x' * 1000,
+           [x * 0.5 for x in range(500)]]
+
+
+def run():
+    size = 0
+    for _ in range(20):
+        for obj in OBJECTS:
+            data = pickle.dumps(obj, pickle.HIGHEST_PROTOCOL)
+            size += len(data)
+            if pickle.loads(data) != obj:
+                raise AssertionError("round trip changed %r" % (obj,))
+    return size
@@ -0,0 +1,54 @@
+"""Regular expressions of the kinds found in web and log processing,
+compiled once and applied to generated text: searches, matches, findall,
+sub with a function and split."""
+
+import re
+
+WORDS = ['alpha', 'beta', 'gamma', 'delta', 'epsilon', 'zeta', 'eta',
+         'theta', 'iota', 'kappa', 'lambda', 'mu']
+
+
+def make_lines(n):
+    lines = []
+    for i in range(n):
+        word = WORDS[i % len(WORDS)]
+        lines.append('%d.%d.%d.%d - - [%02d/Oct/2015:13:%02d:%02d +0000] '
+                     '"GET /%s/%d/index.html?q=%s&page=%d HTTP/1.1" %d %d '
+                     '"http://www.example.com/%s" "Mozilla/5.0 (X11; Linux)" '
+                     'user%d@example.org'
+                     % (i % 256, i * 7 % 256, i * 13 % 256, i * 17 % 256,
+                        i % 28 + 1, i % 60, i * 3 % 60, word, i, word, i % 10,
+                        200 if i % 9 else 404, i * 31 % 10000, word, i))
+    return lines
+
+
+LINES = make_lines(2000)
+TEXT = '\n'.join(LINES)
+
+LOG = re.compile(r'^(\d+\.\d+\.\d+\.\d+) \S+ \S+ \[([^\]]+)\] '
+                 r'"(\w+) ([^ ?]+)(?:\?(\S*))? HTTP/[\d.]+" (\d{3}) (\d+)')
+EMAIL = re.compile(r'\b[\w.+-]+@[\w-]+\.[\w.-]+\b')
+QUERY = re.compile(r'([^&=]+)=([^&]*)')
+NUMBER = re.compile(r'\d+')
+URL = re.compile(r'(?i)https?://(?:www\.)?([a-z0-9.-]+)(/[^\s"]*)?')
+WORD = re.compile(r'\b(' + '|'.join(WORDS) + r')\b')
+SPLIT = re.compile(r'[\s/?&=."\[\]]+')
+
+
+def run():
+    hits = 0
+    not_found = 0
+    for line in LINES:
+        m = LOG.match(line)
+        if m is None:
+            raise AssertionError("no match: " + line)
+        if m.group(6) == '404':
+            not_found += 1
+        if m.group(5):
+            hits += len(QUERY.findall(m.group(5)))
+        hits += len(SPLIT.split(line))
+    hits += len(EMAIL.findall(TEXT))
+    hits += len(URL.findall(TEXT))
+    hits += len(NUMBER.sub(lambda m: str(len(m.group())), TEXT))
+    hits += len(WORD.sub(lambda m: m.group(1).upper(), TEXT))
+    return hits, not_found
@@ -0,0 +1,110 @@
+"""Render an HTML table with a small template engine that compiles templates
+to Python source, in the manner of Genshi, Mako and Jinja: tokenizing with
+regular expressions, exec of generated code and a lot of string joining.
+
+The engine is part of the workload so that it needs nothing beyond re."""
+
+import re
+
+TOKEN = re.compile(r'(\{\{.*?\}\}|\{%.*?%\})', re.S)
+
+
+def escape(value):
+    return (str(value).replace('&', '&amp;').replace('<', '&lt;')
+            .replace('>', '&gt;').replace('"', '&quot;'))
+
+
+class Template(object):
+    """Compile text with {{ expression }}, {% for x in y %}, {% if c %},
+    {% else %} and {% end %} into a render(context) function."""
+
+    def __init__(self, text):
+        lines = ['def render(context, escape):',
+                 '    out = []',
+                 '    append = out.append']
+        indent = 1
+        stack = []
+        for token in TOKEN.split(text):
+            prefix = '    ' * indent
+            if token.startswith('{{'):
+                expr = token[2:-2].strip()
+                lines.append('%sappend(escape(%s))' % (prefix, self.expr(expr)))
+            elif token.startswith('{%'):
+                words = token[2:-2].split()
+                if words[0] == 'for':
+                    lines.append('%sfor %s in %s:' %
+                                 (prefix, words[1], self.expr(' '.join(words[3:]))))
+                    lines.append('%s    context[%r] = %s' % (prefix, words[1], words[1]))
+                    stack.append('for')
+                    indent += 1
+                elif words[0] == 'if':
+                    lines.append('%sif %s:' % (prefix, self.expr(' '.join(words[1:]))))
+                    stack.append('if')
+                    indent += 1
+                elif words[0] == 'else':
+                    lines.append('%selse:' % ('    ' * (indent - 1)))
+                elif words[0] == 'end':
+                    stack.pop()
+                    indent -= 1
+                else:
+                    raise SyntaxError("unknown tag " + token)
+            elif token:
+                lines.append('%sappend(%r)' % (prefix, token))
+        if stack:
+            raise SyntaxError("unclosed " + stack[-1])
+        lines.append("    return ''.join(out)")
+        namespace = {}
+        exec(compile('\n'.join(lines), '<template>', 'exec'), namespace)
+        self.function = namespace['render']
+
+    @staticmethod
+    def expr(text):
+        # names are looked up in the context; attributes and calls pass through
+        return re.sub(r'(?<![\w.\'"])([A-Za-z_]\w*)',
+                      lambda m: m.group(1) if m.group(1) in ('and', 'or', 'not', 'in')
+                      else 'context[%r]' % m.group(1), text)
+
+    def render(self, **context):
+        return self.function(context, escape)
+
+
+SOURCE = """\
+<html>
+  <head><title>{{ title }}</title></head>
+  <body>
+    <h1>{{ title }}</h1>
+    <table>
+    {% for row in table %}
+      <tr class="{% if row.odd %}odd{% else %}even{% end %}">
+      {% for cell in row.cells %}
+        <td>{{ cell }}</td>
+      {% end %}
+      </tr>
+    {% end %}
+    </table>
+    <p>{{ footer }}</p>
+  </body>
+</html>
+"""
+
+
+class Row(object):
+
+    def __init__(self, index, width):
+        self.odd = index % 2
+        self.cells = ['<%d,%d> & "%s"' % (index, j, chr(97 + j % 26))
+                      for j in range(width)]
+
+
+TABLE = [Row(i, 10) for i in range(150)]
+
+
+def run():
+    # compile each time as well: real applications reload templates
+    template = Template(SOURCE)
+    length = 0
+    for _ in range(100):
+        html = template.render(title='Benchmark & <Results>', table=TABLE,
+                               footer='%d rows' % len(TABLE))
+        length += len(html)
+    return length
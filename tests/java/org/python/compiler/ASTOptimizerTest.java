@@ -0,0 +1,143 @@
+package org.python.compiler;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.python.antlr.ast.Assign;
+import org.python.antlr.ast.BinOp;
+import org.python.antlr.ast.Call;
+import org.python.antlr.ast.Compare;
+import org.python.antlr.ast.Expr;
+import org.python.antlr.ast.If;
+import org.python.antlr.ast.Lambda;
+import org.python.antlr.ast.ListComp;
+import org.python.antlr.ast.Module;
+import org.python.antlr.ast.Name;
+import org.python.antlr.ast.Num;
+import org.python.antlr.ast.Pass;
+import org.python.antlr.ast.Slice;
+import org.python.antlr.ast.Str;
+import org.python.antlr.ast.Subscript;
+import org.python.antlr.ast.Tuple;
+import org.python.antlr.base.expr;
+import org.python.antlr.base.mod;
+import org.python.antlr.base.stmt;
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
+import org.python.core.ParserFacade;
+import org.python.core.Py;
+import org.python.core.PyStringMap;
+import org.python.core.PySystemState;
+
+public class ASTOptimizerTest extends TestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        PySystemState.initialize();
+    }
+
+    private static List<stmt> optimize(String source) throws Exception {
+        mod tree = ParserFacade.parse(source, CompileMode.exec, "<test>", new CompilerFlags());
+        new ASTOptimizer().transform(tree, null);
+        return ((Module) tree).getInternalBody();
+    }
+
+    private static expr value(stmt s) {
+        return ((Assign) s).getInternalValue();
+    }
+
+    public void testFolding() throws Exception {
+        List<stmt> body = optimize("a = 2 ** 10 - 1\nb = 'ab' * 2\nc = -(1 + 2.5)\n");
+        assertEquals(Py.newLong(1023), ((Num) value(body.get(0))).getInternalN());
+        assertEquals(Py.newUnicode("abab"), ((Str) value(body.get(1))).getInternalS());
+        assertEquals(Py.newFloat(-3.5), ((Num) value(body.get(2))).getInternalN());
+    }
+
+    public void testNoFolding() throws Exception {
+        List<stmt> body = optimize("a = 1 / 0\nb = 'x' * 100000\nc = 2 ** 1000\nd = '%s' % 1\n");
+        for (stmt s : body) {
+            assertTrue(value(s) instanceof BinOp);
+        }
+    }
+
+    public void testDeadCode() throws Exception {
+        List<stmt> body = optimize("if 0:\n    a\nelse:\n    b\n"
+                + "while False:\n    c\n"
+                + "def f():\n    return 1\n    d\n"
+                + "if x:\n    if True:\n        pass\n    else:\n        e\n");
+        assertEquals(3, body.size());
+        assertEquals("b", ((Name) ((Expr) body.get(0)).getInternalValue()).getInternalId());
+        assertEquals(1, ((org.python.antlr.ast.FunctionDef) body.get(1)).getInternalBody().size());
+        assertTrue(((If) body.get(2)).getInternalBody().get(0) instanceof Pass);
+    }
+
+    /** A string after removed code must not become the docstring. */
+    public void testNoDocstringPromoted() throws Exception {
+        List<stmt> body = optimize("if 0:\n    a\n'not a doc'\n"
+                + "def f():\n    if True:\n        'not a doc'\n"
+                + "def g():\n    'doc'\n    if 0:\n        a\n");
+        assertEquals(4, body.size());
+        assertTrue(body.get(0) instanceof Pass);
+        assertTrue(((Expr) body.get(1)).getInternalValue() instanceof Str);
+        List<stmt> f = ((org.python.antlr.ast.FunctionDef) body.get(2)).getInternalBody();
+        assertEquals(2, f.size());
+        assertTrue(f.get(0) instanceof Pass);
+        assertTrue(((Expr) f.get(1)).getInternalValue() instanceof Str);
+        List<stmt> g = ((org.python.antlr.ast.FunctionDef) body.get(3)).getInternalBody();
+        assertEquals(1, g.size());
+        assertTrue(((Expr) g.get(0)).getInternalValue() instanceof Str);
+    }
+
+    public void testNested() throws Exception {
+        List<stmt> body = optimize("f(1 + 1, k=[2 * 3 for x in y if 4 - 4])[5 + 5:]\n"
+                + "g = lambda a=-1: 'a' + 'b'\n");
+        Subscript subscript = (Subscript) ((Expr) body.get(0)).getInternalValue();
+        assertTrue(((Slice) subscript.getInternalSlice()).getInternalLower() instanceof Num);
+        Call call = (Call) subscript.getInternalValue();
+        assertTrue(call.getInternalArgs().get(0) instanceof Num);
+        ListComp comp = (ListComp) call.getInternalKeywords().get(0).getInternalValue();
+        assertTrue(comp.getInternalElt() instanceof Num);
+        assertTrue(comp.getInternalGenerators().get(0).getInternalIfs().get(0) instanceof Num);
+        Lambda lambda = (Lambda) value(body.get(1));
+        assertTrue(lambda.getInternalArgs().getInternalDefaults().get(0) instanceof Num);
+        assertTrue(lambda.getInternalBody() instanceof Str);
+    }
+
+    /** Compiled modules are cached whatever the -O level, so this must be left to run time. */
+    public void testDebugNotFolded() throws Exception {
+        List<stmt> body = optimize("if __debug__:\n    a\n");
+        assertEquals(1, body.size());
+        assertTrue(body.get(0) instanceof If);
+    }
+
+    public void testMembership() throws Exception {
+        List<stmt> body = optimize("a = x in [1, 2, 3]\nb = x in [y]\nc = x in [1] == z\n");
+        assertTrue(((Compare) value(body.get(0))).getInternalComparators().get(0) instanceof Tuple);
+        assertTrue(((Compare) value(body.get(1))).getInternalComparators().get(0)
+                instanceof org.python.antlr.ast.List);
+        assertTrue(((Compare) value(body.get(2))).getInternalComparators().get(0)
+                instanceof org.python.antlr.ast.List);
+    }
+
+    public void testRegisteredTransformer() throws Exception {
+        final int[] calls = {0};
+        ASTTransformer counter = new ASTTransformer() {
+            @Override
+            public void transform(mod tree, CompilationContext context) {
+                calls[0]++;
+            }
+        };
+        ASTOptimizer.register(counter);
+        try {
+            PyStringMap globals = new PyStringMap();
+            Py.runCode(Py.compile_flags("t = (1, (2, 'a'), None)\nr = 3 in {1, 2, 3}", "<test>",
+                    CompileMode.exec, new CompilerFlags()), globals, globals);
+            assertEquals(1, calls[0]);
+            assertEquals("(1, (2, 'a'), None)", globals.__getitem__("t").__repr__().toString());
+            assertEquals(Py.True, globals.__getitem__("r"));
+        } finally {
+            ASTOptimizer.unregister(counter);
+        }
+    }
+}
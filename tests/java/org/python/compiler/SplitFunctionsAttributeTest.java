@@ -0,0 +1,65 @@
+package org.python.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.objectweb.asm.ClassReader;
+import org.python.Version;
+import org.python.antlr.base.mod;
+import org.python.core.BytecodeLoader;
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
+import org.python.core.ParserFacade;
+import org.python.core.Py;
+import org.python.core.PyCode;
+import org.python.core.PyStringMap;
+import org.python.core.PySystemState;
+import org.python.core.imp;
+
+public class SplitFunctionsAttributeTest extends TestCase {
+
+    private static final String SOURCE = "def f(x):\n"
+            + "    def g(y):\n"
+            + "        return x * y\n"
+            + "    return g(3)\n"
+            + "class C:\n"
+            + "    def m(self):\n"
+            + "        return [i for i in range(3)]\n"
+            + "r = f(2), C().m()\n";
+
+    @Override
+    protected void setUp() throws Exception {
+        PySystemState.initialize();
+    }
+
+    private static byte[] compile(String name, boolean split) throws Exception {
+        mod node = ParserFacade.parse(SOURCE, CompileMode.exec, "<test>", new CompilerFlags());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Module.compile(node, out, name, "<test>", true, false, null, imp.NO_MTIME, split);
+        return out.toByteArray();
+    }
+
+    public void testNotSplitByDefault() throws Exception {
+        assertNull(SplitFunctionsAttribute.read(new ClassReader(compile("unsplit", false))));
+    }
+
+    public void testSplitModule() throws Exception {
+        byte[] data = compile("split", true);
+        Map<String, byte[]> classes = SplitFunctionsAttribute.read(new ClassReader(data));
+        // every code object but the module body
+        assertFalse(classes.containsKey("split$f$0"));
+        assertTrue(classes.containsKey("split$f$1"));
+        assertTrue(classes.containsKey("split$g$2"));
+        assertTrue(classes.containsKey("split$m$5"));
+        for (String name : classes.keySet()) {
+            assertTrue(name, name.startsWith("split$"));
+        }
+
+        PyCode code = BytecodeLoader.makeCode("split" + Version.PY_CACHE_TAG, data, "<test>");
+        PyStringMap globals = new PyStringMap();
+        Py.runCode(code, globals, globals);
+        assertEquals("(6, [0, 1, 2])", globals.__getitem__("r").__repr__().toString());
+    }
+}
@@ -0,0 +1,99 @@
+package org.python.core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+
+import junit.framework.TestCase;
+
+import org.python.pycode.PyCodeLookup;
+
+public class CompiledCodeCacheTest extends TestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        PySystemState.initialize();
+    }
+
+    private static PyCode compile(String source, String filename, CompileMode kind) {
+        return Py.compile_flags(source, filename, kind, new CompilerFlags());
+    }
+
+    /** The class generated for <code>code</code>, which is what compiling once shares. */
+    private static Class<?> table(PyCode code) {
+        return ((PyTableCode) code).funcs.getClass();
+    }
+
+    /** Each hit is a code object of its own, so that nothing set on one is seen by another. */
+    public void testHitIsNewCode() {
+        String source = "def f():\n    return 1\n";
+        PyCode code = compile(source, "<new>", CompileMode.exec);
+        PyCode again = compile(source, "<new>", CompileMode.exec);
+        assertNotSame(code, again);
+        assertSame(table(code), table(again));
+        assertNotSame(((PyTableCode) code).funcs, ((PyTableCode) again).funcs);
+    }
+
+    public void testRepeatedSourceIsCompiledOnce() {
+        PyTableCode code = (PyTableCode) compile("x * 2", "<test>", CompileMode.eval);
+        assertSame(table(code), table(compile("x * 2", "<test>", CompileMode.eval)));
+        assertNotSame(table(code), table(compile("x * 2", "<other>", CompileMode.eval)));
+        assertNotSame(table(code), table(compile("x * 2", "<test>", CompileMode.exec)));
+
+        PyStringMap globals = new PyStringMap();
+        globals.__setitem__("x", Py.newInteger(21));
+        assertEquals(Py.newInteger(42), Py.runCode(code, globals, globals));
+    }
+
+    public void testSyntaxErrorsAreNotCached() {
+        for (int i = 0; i < 2; i++) {
+            try {
+                compile("x *", "<test>", CompileMode.eval);
+                fail("expected SyntaxError");
+            } catch (PyException pye) {
+                assertTrue(pye.match(Py.SyntaxError));
+            }
+        }
+    }
+
+    /** As for compile() inheriting them, a hit sets the flags its source sets. */
+    public void testFutureFlagsSetOnHit() {
+        String source = "from __future__ import unicode_literals\nx = 1";
+        for (int i = 0; i < 2; i++) {
+            CompilerFlags cflags = new CompilerFlags();
+            Py.compile_flags(source, "<future>", CompileMode.exec, cflags);
+            assertTrue(cflags.isFlagSet(CodeFlag.CO_FUTURE_UNICODE_LITERALS));
+        }
+    }
+
+    public void testOptimizeLevelIsKey() {
+        int optimize = Options.optimize;
+        try {
+            PyCode code = compile("assert x", "<test>", CompileMode.exec);
+            Options.optimize = 1;
+            assertNotSame(table(code), table(compile("assert x", "<test>", CompileMode.exec)));
+        } finally {
+            Options.optimize = optimize;
+        }
+    }
+
+    public void testLookupOnlyForBytecodeLoader() {
+        try {
+            PyCodeLookup.lookup(MethodHandles.lookup());
+            fail("expected SecurityException");
+        } catch (SecurityException e) {
+            // as expected
+        }
+    }
+
+    public void testDynamicCodeIsHidden() throws Exception {
+        Method isHidden;
+        try {
+            isHidden = Class.class.getMethod("isHidden");
+        } catch (NoSuchMethodException e) {
+            // hidden classes need Java 15
+            return;
+        }
+        PyTableCode code = (PyTableCode) compile("y = 1", "<hidden>", CompileMode.exec);
+        assertEquals(Boolean.TRUE, isHidden.invoke(code.funcs.getClass()));
+    }
+}
@@ -0,0 +1,78 @@
+package org.python.core;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import junit.framework.TestCase;
+
+public class DirectoryCacheTest extends TestCase {
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = Files.createTempDirectory("dircache").toFile();
+        new File(dir, "pkg").mkdir();
+        new File(dir, "pkg" + File.separator + "A.class").createNewFile();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        new File(dir, "pkg" + File.separator + "A.class").delete();
+        new File(dir, "pkg" + File.separator + "B.class").delete();
+        new File(dir, "pkg").delete();
+        dir.delete();
+    }
+
+    public void testMayExist() {
+        assertTrue(DirectoryCache.mayExist(dir, "pkg" + File.separator + "A.class"));
+        assertFalse(DirectoryCache.mayExist(dir, "pkg" + File.separator + "B.class"));
+        assertFalse(DirectoryCache.mayExist(dir, "other" + File.separator + "A.class"));
+        assertFalse(DirectoryCache.mayExist(new File(dir, "missing"), "A.class"));
+    }
+
+    public void testDotComponents() {
+        String sep = File.separator;
+        assertTrue(DirectoryCache.mayExist(dir, "." + sep + "pkg" + sep + "A.class"));
+        assertTrue(DirectoryCache.mayExist(dir,
+                "pkg" + sep + ".." + sep + "pkg" + sep + "A.class"));
+        assertTrue(DirectoryCache.mayExist(new File(dir, "pkg"),
+                ".." + sep + "pkg" + sep + "A.class"));
+        assertTrue(DirectoryCache.mayExist(dir, "pkg/A.class"));
+        assertFalse(DirectoryCache.mayExist(dir, "pkg/B.class"));
+    }
+
+    public void testDirectoryChanged() throws Exception {
+        File pkg = new File(dir, "pkg");
+        String path = "pkg" + File.separator + "B.class";
+        assertFalse(DirectoryCache.mayExist(dir, path));
+        long mtime = pkg.lastModified();
+        new File(pkg, "B.class").createNewFile();
+        // as if on a file system with coarse timestamps
+        pkg.setLastModified(mtime);
+        assertFalse(DirectoryCache.mayExist(dir, path));
+        pkg.setLastModified(mtime + 2000);
+        assertTrue(DirectoryCache.mayExist(dir, path));
+    }
+
+    public void testInvalidate() throws Exception {
+        File pkg = new File(dir, "pkg");
+        String path = "pkg" + File.separator + "B.class";
+        assertFalse(DirectoryCache.mayExist(dir, path));
+        long mtime = pkg.lastModified();
+        new File(pkg, "B.class").createNewFile();
+        pkg.setLastModified(mtime);
+        DirectoryCache.invalidate();
+        assertTrue(DirectoryCache.mayExist(dir, path));
+    }
+
+    public void testDisabled() {
+        boolean enabled = Options.importDirectoryCache;
+        Options.importDirectoryCache = false;
+        try {
+            assertTrue(DirectoryCache.mayExist(dir, "pkg" + File.separator + "B.class"));
+        } finally {
+            Options.importDirectoryCache = enabled;
+        }
+    }
+}
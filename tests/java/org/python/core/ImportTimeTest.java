@@ -0,0 +1,104 @@
+package org.python.core;
+
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+
+public class ImportTimeTest extends TestCase {
+
+    private String importTime;
+
+    @Override
+    protected void setUp() throws Exception {
+        PySystemState.initialize();
+        importTime = Options.importTime;
+        ImportTime.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Options.importTime = importTime;
+        ImportTime.clear();
+    }
+
+    public void testRecorded() {
+        Options.importTime = "true";
+        imp.load("colorsys");
+        Options.importTime = null;
+
+        StringWriter csv = new StringWriter();
+        ImportTime.writeCsv(csv);
+        String[] lines = csv.toString().split("\r?\n");
+        assertEquals("module,parent,depth,self_us,cumulative_us,origin,bytecode_bytes,thread",
+                lines[0]);
+        String[] fields = lines[1].split(",");
+        assertEquals("colorsys", fields[0]);
+        assertEquals("", fields[1]);
+        assertEquals("0", fields[2]);
+        assertTrue(fields[5].equals("source") || fields[5].equals("compiled"));
+        assertTrue(Long.parseLong(fields[6]) > 0);
+        assertTrue(Long.parseLong(fields[3]) <= Long.parseLong(fields[4]));
+
+        StringWriter tree = new StringWriter();
+        ImportTime.printTree(tree);
+        assertTrue(tree.toString().contains("| colorsys"));
+    }
+
+    public void testNested() {
+        Options.importTime = "true";
+        imp.load("json");
+        Options.importTime = null;
+
+        StringWriter csv = new StringWriter();
+        ImportTime.writeCsv(csv);
+        boolean nested = false;
+        for (String line : csv.toString().split("\r?\n")) {
+            if (line.startsWith("json.decoder,json,1,")) {
+                nested = true;
+            }
+        }
+        assertTrue(csv.toString(), nested);
+    }
+
+    public void testCapped() {
+        int max = ImportTime.maxRecords;
+        ImportTime.maxRecords = 1;
+        PyObject modules = Py.getSystemState().modules;
+        for (String name : new String[] {"colorsys", "keyword"}) {
+            if (modules.__finditem__(name) != null) {
+                modules.__delitem__(name);
+            }
+        }
+        try {
+            Options.importTime = "true";
+            imp.load("colorsys");
+            imp.load("keyword");
+            Options.importTime = null;
+        } finally {
+            ImportTime.maxRecords = max;
+        }
+
+        StringWriter csv = new StringWriter();
+        ImportTime.writeCsv(csv);
+        String[] lines = csv.toString().split("\r?\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].startsWith("colorsys,"));
+
+        StringWriter tree = new StringWriter();
+        ImportTime.printTree(tree);
+        assertTrue(tree.toString(), tree.toString().contains("1 more imports not recorded"));
+
+        ImportTime.clear();
+        tree = new StringWriter();
+        ImportTime.printTree(tree);
+        assertFalse(tree.toString().contains("not recorded"));
+    }
+
+    public void testOff() {
+        Options.importTime = null;
+        imp.load("keyword");
+        StringWriter csv = new StringWriter();
+        ImportTime.writeCsv(csv);
+        assertEquals(1, csv.toString().split("\r?\n").length);
+    }
+}
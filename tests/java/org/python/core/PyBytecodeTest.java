@@ -0,0 +1,204 @@
+package org.python.core;
+
+import junit.framework.TestCase;
+
+public class PyBytecodeTest extends TestCase {
+
+    private PyStringMap globals;
+    private PyBytecode code;
+
+    @Override
+    protected void setUp() throws Exception {
+        PySystemState.initialize();
+        globals = new PyStringMap();
+        exec("class C:\n    attr = 3\nobj = C()\nx = 1\ny = 2\nlimit = 10\n");
+        // (x + y + obj.attr, x + y + obj.attr < limit)
+        code = new PyBytecode(0, 0, 3, 0, assemble(
+                Opcode.LOAD_GLOBAL, 0,
+                Opcode.LOAD_GLOBAL, 1,
+                Opcode.BINARY_ADD,
+                Opcode.LOAD_GLOBAL, 2,
+                Opcode.LOAD_ATTR, 3,
+                Opcode.BINARY_ADD,
+                Opcode.DUP_TOP,
+                Opcode.LOAD_GLOBAL, 4,
+                Opcode.COMPARE_OP, Opcode.PyCmp_LT,
+                Opcode.BUILD_TUPLE, 2,
+                Opcode.RETURN_VALUE),
+                new PyObject[0], new String[] {"x", "y", "obj", "attr", "limit"},
+                new String[0], "<test>", "f", 1, "");
+    }
+
+    /**
+     * <pre>
+     * def total(n):
+     *     s = 0
+     *     for i in range(n):
+     *         if i == limit:
+     *             break
+     *         s += i * x
+     *     return s, obj.attr
+     * </pre>
+     */
+    private PyFunction total() {
+        PyBytecode total = new PyBytecode(1, 3, 4, 3, assemble(
+                Opcode.LOAD_CONST, 0,        // 0
+                Opcode.STORE_FAST, 1,        // 3
+                Opcode.SETUP_LOOP, 49,       // 6
+                Opcode.LOAD_GLOBAL, 0,       // 9
+                Opcode.LOAD_FAST, 0,         // 12
+                Opcode.CALL_FUNCTION, 1,     // 15
+                Opcode.GET_ITER,             // 18
+                Opcode.FOR_ITER, 35,         // 19
+                Opcode.STORE_FAST, 2,        // 22
+                Opcode.LOAD_FAST, 2,         // 25
+                Opcode.LOAD_GLOBAL, 4,       // 28
+                Opcode.COMPARE_OP, Opcode.PyCmp_EQ, // 31
+                Opcode.JUMP_IF_FALSE, 2,     // 34
+                Opcode.POP_TOP,              // 37
+                Opcode.BREAK_LOOP,           // 38
+                Opcode.POP_TOP,              // 39
+                Opcode.LOAD_FAST, 1,         // 40
+                Opcode.LOAD_FAST, 2,         // 43
+                Opcode.LOAD_GLOBAL, 1,       // 46
+                Opcode.BINARY_MULTIPLY,      // 49
+                Opcode.INPLACE_ADD,          // 50
+                Opcode.STORE_FAST, 1,        // 51
+                Opcode.JUMP_ABSOLUTE, 19,    // 54
+                Opcode.POP_BLOCK,            // 57
+                Opcode.LOAD_FAST, 1,         // 58
+                Opcode.LOAD_GLOBAL, 2,       // 61
+                Opcode.LOAD_ATTR, 3,         // 64
+                Opcode.BUILD_TUPLE, 2,       // 67
+                Opcode.RETURN_VALUE),        // 70
+                new PyObject[] {Py.newInteger(0)},
+                new String[] {"range", "x", "obj", "attr", "limit"},
+                new String[] {"n", "s", "i"}, "<test>", "total", 1, "");
+        return new PyFunction(globals, null, new PyDictionary(), total);
+    }
+
+    private static String assemble(int... ops) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < ops.length; i++) {
+            s.append((char) ops[i]);
+            if (ops[i] >= Opcode.HAVE_ARGUMENT) {
+                s.append((char) ops[++i]).append((char) 0);
+            }
+        }
+        return s.toString();
+    }
+
+    private void exec(String source) {
+        Py.runCode(Py.compile_flags(source, "<test>", CompileMode.exec, new CompilerFlags()),
+                globals, globals);
+    }
+
+    private void assertRuns(String expected) {
+        // often enough for every instruction to be quickened
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expected, Py.runCode(code, globals, globals).__repr__().toString());
+        }
+    }
+
+    public void testQuickened() {
+        assertRuns("(6, True)");
+        exec("y = 20");
+        assertRuns("(24, False)");
+        exec("x = 1.5");
+        assertRuns("(24.5, False)");
+        exec("x = y = 1.0");
+        assertRuns("(5.0, True)");
+        exec("x = y = 'a'\nC.attr = 'b'\nlimit = 'b'");
+        assertRuns("('aab', True)");
+    }
+
+    public void testAttributes() {
+        assertRuns("(6, True)");
+        exec("C.attr = 4");
+        assertRuns("(7, True)");
+        exec("obj.attr = 5");
+        assertRuns("(8, True)");
+        exec("class D:\n    @property\n    def attr(self):\n        return 6\nobj = D()");
+        assertRuns("(9, True)");
+        exec("obj = 1");
+        try {
+            Py.runCode(code, globals, globals);
+            fail();
+        } catch (PyException e) {
+            assertTrue(e.match(Py.AttributeError));
+        }
+    }
+
+    private String runTotal() {
+        PyFunction total = total();
+        StringBuilder results = new StringBuilder();
+        for (int n : new int[] {0, 5, 20}) {
+            results.append(total.__call__(Py.newInteger(n)));
+        }
+        exec("x = 1.5\nC.attr = 'a'");
+        results.append(total.__call__(Py.newInteger(5)));
+        exec("obj = 1");
+        try {
+            total.__call__(Py.newInteger(5));
+            fail();
+        } catch (PyException e) {
+            assertTrue(e.match(Py.AttributeError));
+        }
+        return results.toString();
+    }
+
+    public void testCompiled() throws Exception {
+        int threshold = Options.bytecodeCompileThreshold;
+        try {
+            Options.bytecodeCompileThreshold = -1;
+            String interpreted = runTotal();
+            assertEquals("(0, 3)(10, 3)(45, 3)(15.0, 'a')", interpreted);
+            setUp();
+            Options.bytecodeCompileThreshold = 0;
+            assertEquals(interpreted, runTotal());
+        } finally {
+            Options.bytecodeCompileThreshold = threshold;
+        }
+    }
+
+    public void testGlobals() {
+        assertRuns("(6, True)");
+        exec("del limit");
+        Py.getSystemState().getBuiltins().__setitem__("limit", Py.newInteger(5));
+        try {
+            assertRuns("(6, False)");
+            exec("limit = 7");
+            assertRuns("(6, True)");
+        } finally {
+            Py.getSystemState().getBuiltins().__delitem__("limit");
+        }
+    }
+
+    public void testGlobalsChangedThroughMap() {
+        assertRuns("(6, True)");
+        globals.getMap().put("y", Py.newInteger(20));
+        assertRuns("(24, False)");
+        globals.getMap().replace("y", Py.newInteger(2));
+        assertRuns("(6, True)");
+        for (java.util.Map.Entry<Object, PyObject> entry : globals.getMap().entrySet()) {
+            if ("x".equals(entry.getKey())) {
+                entry.setValue(Py.newInteger(5));
+            }
+        }
+        assertRuns("(10, False)");
+        globals.getMap().keySet().remove("limit");
+        try {
+            Py.runCode(code, globals, globals);
+            fail();
+        } catch (PyException e) {
+            assertTrue(e.match(Py.NameError));
+        }
+    }
+
+    public void testAttributeErrorFallsBackToGetattr() {
+        assertRuns("(6, True)");
+        exec("class D:\n    @property\n    def attr(self):\n        raise AttributeError('attr')\n"
+                + "    def __getattr__(self, name):\n        return 7\nobj = D()");
+        assertRuns("(10, False)");
+    }
+}
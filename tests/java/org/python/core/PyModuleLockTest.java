@@ -0,0 +1,131 @@
+package org.python.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.python.modules._imp;
+
+public class PyModuleLockTest extends TestCase {
+
+    private PySystemState sys;
+
+    @Override
+    protected void setUp() throws Exception {
+        PySystemState.initialize();
+        sys = Py.getSystemState();
+    }
+
+    public void testReentrant() {
+        PyModuleLock lock = PyModuleLock.get(sys, "test_reentrant");
+        assertSame(lock, PyModuleLock.get(sys, "test_reentrant"));
+        lock.acquire();
+        lock.acquire();
+        lock.release();
+        lock.release();
+        try {
+            lock.release();
+            fail("released a lock that was not held");
+        } catch (PyException pye) {
+            assertTrue(pye.match(Py.RuntimeError));
+        }
+    }
+
+    public void testWaitsForOwner() throws Exception {
+        final PyModuleLock lock = PyModuleLock.get(sys, "test_wait");
+        final StringBuffer order = new StringBuffer();
+        lock.acquire();
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                lock.acquire();
+                order.append("other");
+                lock.release();
+            }
+        };
+        other.start();
+        awaitBlocked(other);
+        order.append("owner ");
+        lock.release();
+        other.join(10000);
+        assertEquals("owner other", order.toString());
+    }
+
+    /** Two threads each holding the lock the other wants: one of them must not wait. */
+    public void testDeadlock() throws Exception {
+        final PyModuleLock a = PyModuleLock.get(sys, "test_deadlock_a");
+        final PyModuleLock b = PyModuleLock.get(sys, "test_deadlock_b");
+        final CountDownLatch bHeld = new CountDownLatch(1);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    b.acquire();
+                    bHeld.countDown();
+                    a.acquire();
+                    a.release();
+                    b.release();
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        };
+        a.acquire();
+        other.start();
+        bHeld.await();
+        awaitBlocked(other);
+        try {
+            b.acquire();
+            fail("deadlock not detected");
+        } catch (PyException pye) {
+            assertTrue(pye.match(Py.RuntimeError));
+        }
+        a.release();
+        other.join(10000);
+        assertFalse(other.isAlive());
+        assertNull(failure.get());
+    }
+
+    /**
+     * While one thread holds the import lock, another cannot start an import, so does not take
+     * the lock of a module that the first may then import itself.
+     */
+    public void testImportLockBlocksImports() throws Exception {
+        final String name = "colorsys";
+        if (sys.modules.__finditem__(name) != null) {
+            sys.modules.__delitem__(name);
+        }
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread other = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    imp.importName(name, true);
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        };
+        _imp.acquire_lock();
+        try {
+            other.start();
+            awaitBlocked(other);
+            assertNull(sys.moduleLocks.get(name));
+            assertNull(sys.modules.__finditem__(name));
+            imp.importName(name, true);
+        } finally {
+            _imp.release_lock();
+        }
+        other.join(10000);
+        assertFalse(other.isAlive());
+        assertNull(failure.get());
+    }
+
+    private static void awaitBlocked(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package org.python.core;
+
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.TestCase;
+
+public class PySystemStateMonitorTest extends TestCase {
+
+    private static final String SOURCE = "import _jyprofile\n"
+            + "def f(n):\n"
+            + "    return n if n == 0 else f(n - 1)\n"
+            + "f(50)\n"
+            + "str(1).upper()\n";
+
+    private MBeanServer server;
+    private boolean jmx;
+
+    @Override
+    protected void setUp() throws Exception {
+        PySystemState.initialize();
+        server = ManagementFactory.getPlatformMBeanServer();
+        jmx = Options.jmx;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Options.jmx = jmx;
+    }
+
+    public void testRegistration() throws Exception {
+        ObjectName pattern = new ObjectName("org.python:type=PySystemState,*");
+        Set<ObjectName> before = server.queryNames(pattern, null);
+        Options.jmx = true;
+        PySystemState sys = new PySystemState();
+        Set<ObjectName> names = server.queryNames(pattern, null);
+        names.removeAll(before);
+        assertEquals(1, names.size());
+        ObjectName name = names.iterator().next();
+        PySystemStateMXBean bean = JMX.newMXBeanProxy(server, name, PySystemStateMXBean.class);
+
+        assertEquals(sys.getrecursionlimit(), bean.getRecursionLimit());
+        bean.clearPathImporterCache();
+        assertEquals(1, sys.path_importer_cache.__len__());
+
+        sys.close();
+        assertFalse(server.isRegistered(name));
+    }
+
+    public void testStatistics() throws Exception {
+        PySystemState sys = Py.getSystemState();
+        ObjectName name = PySystemStateMonitor.register(sys);
+        PySystemStateMXBean bean = JMX.newMXBeanProxy(server, name, PySystemStateMXBean.class);
+        try {
+            bean.resetStatistics();
+            PyStringMap globals = new PyStringMap();
+            Py.runCode(Py.compile_flags(SOURCE, "<test>", CompileMode.exec, new CompilerFlags()),
+                    globals, globals);
+            assertTrue(bean.getModuleCount() > 0);
+            assertEquals(1, bean.getImportCount());
+            assertTrue(bean.getThreadCount() > 0);
+            assertTrue(bean.getMaxRecursionDepth() > 50);
+            assertTrue(bean.getMethodCacheHits() + bean.getMethodCacheMisses() > 0);
+            assertTrue(bean.getCompiledClassCount() > 0);
+            assertTrue(bean.getCompiledClassBytes() > 0);
+
+            bean.resetStatistics();
+            assertEquals(0, bean.getImportCount());
+            assertEquals(0, bean.getImportTimeMillis());
+            assertEquals(0, bean.getMethodCacheHits() + bean.getMethodCacheMisses());
+            bean.clearMethodCache();
+            bean.clearCompileCache();
+            assertEquals(0, bean.getCompileCacheSize());
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.python.core;
+
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.TestCase;
+
+import org.python.Version;
+import org.python.antlr.base.mod;
+import org.python.compiler.Module;
+
+public class PyTableCodeTest extends TestCase {
+
+    private static final String SOURCE = "import sys\n"
+            + "def a(n):\n"
+            + "    x = 1\n"
+            + "    if n == 0:\n"
+            + "        return b()\n"
+            + "    return a(n - 1)\n"
+            + "def b():\n"
+            + "    y = 2\n"
+            + "    return 1 / 0\n"
+            + "def here():\n"
+            + "    z = 3\n"
+            + "    return sys._getframe().f_lineno, sys._getframe(1).f_lineno\n"
+            + "lines = here()\n"
+            + "def c():\n"
+            + "    w = 4\n"
+            + "    thrower.fail()\n";
+
+    /** Throws an exception without a stack trace, as the JVM may for its own. */
+    public static class Thrower {
+
+        public void fail() {
+            throw new RuntimeException("no stack", null, false, false) {};
+        }
+    }
+
+    private boolean lazyLines;
+
+    private boolean javaStack;
+
+    @Override
+    protected void setUp() throws Exception {
+        PySystemState.initialize();
+        lazyLines = Options.compileLazyLines;
+        javaStack = Options.includeJavaStackInExceptions;
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        Options.compileLazyLines = lazyLines;
+        Options.includeJavaStackInExceptions = javaStack;
+    }
+
+    private static PyStringMap run(boolean split) throws Exception {
+        mod node = ParserFacade.parse(SOURCE, CompileMode.exec, "<test>", new CompilerFlags());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Module.compile(node, out, "lines", "<test>", true, false, null, imp.NO_MTIME, split);
+        PyCode code = BytecodeLoader.makeCode("lines" + Version.PY_CACHE_TAG, out.toByteArray(),
+                "<test>");
+        PyStringMap globals = new PyStringMap();
+        Py.runCode(code, globals, globals);
+        return globals;
+    }
+
+    private static void assertLines(boolean split) throws Exception {
+        assertLines(run(split));
+    }
+
+    private static void assertLines(PyStringMap globals) throws Exception {
+        assertEquals("(12, 13)", globals.__getitem__("lines").__repr__().toString());
+        try {
+            globals.__getitem__("a").__call__(Py.newInteger(2));
+            fail();
+        } catch (PyException e) {
+            StringBuilder lines = new StringBuilder();
+            for (PyTraceback tb = e.traceback; tb != null; tb = (PyTraceback) tb.tb_next) {
+                lines.append(tb.tb_lineno).append(' ');
+            }
+            assertEquals("6 6 5 9 ", lines.toString());
+        }
+    }
+
+    private static boolean hasLazyLines(PyStringMap globals) {
+        return ((PyTableCode) ((PyFunction) globals.__getitem__("a")).__code__).funcs
+                .hasLazyLines();
+    }
+
+    public void testLazyLines() throws Exception {
+        Options.compileLazyLines = true;
+        assertLines(false);
+    }
+
+    public void testLazyLinesSplit() throws Exception {
+        Options.compileLazyLines = true;
+        assertLines(true);
+    }
+
+    public void testEagerByDefault() throws Exception {
+        PyStringMap globals = run(false);
+        assertFalse(hasLazyLines(globals));
+        assertLines(globals);
+    }
+
+    /** Without the Java stack of exceptions, only the frames can tell their lines. */
+    public void testEagerWithoutJavaStack() throws Exception {
+        Options.compileLazyLines = true;
+        Options.includeJavaStackInExceptions = false;
+        PyStringMap globals = run(false);
+        assertFalse(hasLazyLines(globals));
+        assertLines(globals);
+    }
+
+    public void testJavaExceptionWithoutStack() throws Exception {
+        PyStringMap globals = run(false);
+        globals.__setitem__("thrower", Py.java2py(new Thrower()));
+        try {
+            globals.__getitem__("c").__call__();
+            fail();
+        } catch (PyException e) {
+            assertEquals(16, ((PyTraceback) e.traceback).tb_lineno);
+        }
+    }
+}
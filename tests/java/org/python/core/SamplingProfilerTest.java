@@ -0,0 +1,51 @@
+package org.python.core;
+
+import junit.framework.TestCase;
+
+public class SamplingProfilerTest extends TestCase {
+
+    private static final String SOURCE = "import time\n"
+            + "def spin(seconds):\n"
+            + "    end = time.time() + seconds\n"
+            + "    while time.time() < end:\n"
+            + "        pass\n"
+            + "def main():\n"
+            + "    spin(0.5)\n"
+            + "main()\n";
+
+    @Override
+    protected void setUp() throws Exception {
+        PySystemState.initialize();
+    }
+
+    public void testSample() throws Exception {
+        SamplingProfiler profiler = new SamplingProfiler(1000000, true, false);
+        assertFalse(profiler.isRunning());
+        profiler.start();
+        assertTrue(profiler.isRunning());
+        try {
+            profiler.start();
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        PyStringMap globals = new PyStringMap();
+        Py.runCode(Py.compile_flags(SOURCE, "<test>", CompileMode.exec, new CompilerFlags()),
+                globals, globals);
+        profiler.stop();
+        assertFalse(profiler.isRunning());
+
+        long samples = profiler.getSamples();
+        assertTrue(samples > 0);
+        StringBuilder out = new StringBuilder();
+        profiler.writeCollapsed(out);
+        String stack = Thread.currentThread().getName()
+                + ";<module> (<test>:0);main (<test>:6);spin (<test>:2) ";
+        assertTrue(out.toString(), out.indexOf(stack) >= 0);
+
+        Thread.sleep(10);
+        assertEquals(samples, profiler.getSamples());
+        profiler.clear();
+        assertEquals(0, profiler.getSamples());
+    }
+}
@@ -0,0 +1,85 @@
+package org.python.core.jfr;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import junit.framework.TestCase;
+
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
+import org.python.core.Py;
+import org.python.core.PySystemState;
+
+public class EventsTest extends TestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        PySystemState.initialize();
+    }
+
+    /** Nothing is begun, so no event is allocated, unless a recording enables it. */
+    public void testDisabled() {
+        assertNull(Events.beginImport("disabled"));
+        assertNull(Events.beginCompile("parse", "<disabled>"));
+        assertNull(Events.beginFinalization());
+        assertNull(Events.beginReflectedCall());
+        // and the end methods take that for not recording
+        Events.endImport(null, true);
+        Events.endCompile(null, 0);
+        Events.endFinalization(null, 0);
+        Events.endReflectedCall(null, null);
+    }
+
+    public void testRecorded() throws Exception {
+        if (!Events.AVAILABLE) {
+            return;
+        }
+        List<RecordedEvent> events;
+        File file = File.createTempFile("events", ".jfr");
+        try {
+            try (Recording recording = new Recording()) {
+                recording.enable("org.python.Exception");
+                recording.enable("org.python.Compile");
+                recording.enable("org.python.Import");
+                recording.start();
+                Py.ValueError("recorded");
+                Py.compile_flags("recorded = " + System.nanoTime(), "<recorded>",
+                        CompileMode.exec, new CompilerFlags());
+                Events.endImport(Events.beginImport("recorded"), false);
+                recording.stop();
+                recording.dump(file.toPath());
+            }
+            events = RecordingFile.readAllEvents(file.toPath());
+        } finally {
+            file.delete();
+        }
+
+        List<String> phases = new ArrayList<>();
+        boolean exception = false;
+        boolean imported = false;
+        for (RecordedEvent event : events) {
+            String name = event.getEventType().getName();
+            if (name.equals("org.python.Exception")) {
+                exception |= "ValueError".equals(event.getString("type"))
+                        && "recorded".equals(event.getString("message"));
+            } else if (name.equals("org.python.Compile")
+                    && "<recorded>".equals(event.getString("filename"))) {
+                phases.add(event.getString("phase"));
+            } else if (name.equals("org.python.Import")) {
+                imported |= "recorded".equals(event.getString("module"))
+                        && !event.getBoolean("found")
+                        && "builtin".equals(event.getString("origin"));
+            }
+        }
+        assertTrue("no exception event", exception);
+        assertTrue("no import event", imported);
+        assertTrue(phases.toString(), phases.contains("parse"));
+        assertTrue(phases.toString(), phases.contains("generate"));
+        assertTrue(phases.toString(), phases.contains("define"));
+    }
+}
@@ -0,0 +1,78 @@
+package org.python.core.packagecache;
+
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.util.Properties;
+
+import org.python.core.Py;
+import org.python.core.PyJavaPackage;
+import org.python.core.PyList;
+import org.python.core.PySystemState;
+import org.python.core.PyUnicode;
+
+import junit.framework.TestCase;
+
+public class JavaPackageFinderTest extends TestCase {
+
+    private SysPackageManager manager;
+
+    @Override
+    protected void setUp() throws Exception {
+        PySystemState.initialize();
+        manager = new SysPackageManager(null, new Properties());
+    }
+
+    public void testPackageExists() {
+        assertTrue(manager.packageExists("", "java"));
+        assertTrue(manager.packageExists("java", "util"));
+        assertTrue(manager.packageExists("java.util", "concurrent"));
+        assertTrue(manager.packageExists("org.python", "core"));
+        assertFalse(manager.packageExists("java", "nonexistent"));
+        assertFalse(manager.packageExists("java.util", "ArrayList"));
+    }
+
+    public void testMissingClass() {
+        assertNotNull(manager.findClass("java.util", "ArrayList"));
+        assertNull(manager.findClass("java.util", "NoSuchClass"));
+        assertNull(manager.findClass("java.util", "NoSuchClass"));
+        manager.invalidateCaches();
+        assertNull(manager.findClass("java.util", "NoSuchClass"));
+    }
+
+    public void testMissingClassAfterPathEntryReplaced() {
+        JavaPackageFinder finder = new JavaPackageFinder(manager);
+        PyList path = Py.getSystemState().path;
+        path.append(new PyUnicode("/nonexistent"));
+        try {
+            assertFalse(finder.isMissingClass("nonexistent.Missing"));
+            finder.addMissingClass("nonexistent.Missing");
+            assertTrue(finder.isMissingClass("nonexistent.Missing"));
+            path.pyset(path.size() - 1, new PyUnicode("/nonexistent/lib"));
+            assertFalse(finder.isMissingClass("nonexistent.Missing"));
+        } finally {
+            path.remove(path.size() - 1);
+        }
+    }
+
+    public void testDoDir() {
+        PyJavaPackage jpkg = manager.makeJavaPackage("java.util", null, null);
+        PyList names = manager.doDir(jpkg, false, false);
+        assertTrue(names.__contains__(new PyUnicode("ArrayList")));
+        // not public
+        assertFalse(names.__contains__(new PyUnicode("ImmutableCollections")));
+        // inner class
+        assertFalse(names.__contains__(new PyUnicode("AbstractMap$SimpleEntry")));
+    }
+
+    public void testCheckAccess() throws Exception {
+        InputStream in = String.class.getResourceAsStream("String.class");
+        try {
+            int access = PackageManager.checkAccess(in);
+            assertTrue(access != -1);
+            assertTrue(Modifier.isPublic(access));
+            assertTrue(Modifier.isFinal(access));
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.python.core.packagecache;
+
+import java.io.File;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.python.core.Options;
+import org.python.core.PyJavaPackage;
+import org.python.core.PyList;
+import org.python.core.PyUnicode;
+import org.python.util.Generic;
+
+import junit.framework.TestCase;
+
+public class PackageIndexTest extends TestCase {
+
+    private File cachedir;
+
+    private File jarFile;
+
+    @Override
+    protected void setUp() throws Exception {
+        cachedir = Files.createTempDirectory("pkgindex").toFile();
+        File cwd = new File(System.getProperty("python.test.source.dir"),
+                            getClass().getPackage().getName().replace(".", "/"));
+        jarFile = new File(cachedir, "vim25-small.jar");
+        Files.copy(new File(cwd, "vim25-small.jar").toPath(), jarFile.toPath());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (File file : cachedir.listFiles()) {
+            file.delete();
+        }
+        cachedir.delete();
+    }
+
+    public void testCached() {
+        TestPackageManager first = new TestPackageManager(cachedir);
+        first.addJarToPackages(jarFile, true);
+        first.saveCache();
+        assertEquals(1, first.scanned.size());
+        assertTrue(PackageIndex.file(cachedir, 1).isFile());
+
+        // the classes of this jar are empty files, so not known to be public
+        boolean respect = Options.respectJavaAccessibility;
+        Options.respectJavaAccessibility = false;
+        try {
+            TestPackageManager second = new TestPackageManager(cachedir);
+            second.addJarToPackages(jarFile, true);
+            assertEquals(0, second.scanned.size());
+            assertFalse(second.failed);
+            PyJavaPackage pkg = (PyJavaPackage) second.lookupName("com.vmware.vim25");
+            assertEquals(jarFile.getAbsolutePath(), pkg.__file__);
+            assertTrue(pkg.getClassSet().__contains__(new PyUnicode("ManagedObjectReference")));
+        } finally {
+            Options.respectJavaAccessibility = respect;
+        }
+    }
+
+    public void testTouchedJar() {
+        TestPackageManager first = new TestPackageManager(cachedir);
+        first.addJarToPackages(jarFile, true);
+        first.saveCache();
+
+        jarFile.setLastModified(jarFile.lastModified() + 10000);
+        TestPackageManager second = new TestPackageManager(cachedir);
+        second.addJarToPackages(jarFile, true);
+        second.saveCache();
+        assertEquals(0, second.scanned.size());
+
+        TestPackageManager third = new TestPackageManager(cachedir);
+        third.addJarToPackages(jarFile, true);
+        assertEquals(0, third.scanned.size());
+    }
+
+    public void testCorruptIndex() throws Exception {
+        Files.write(PackageIndex.file(cachedir, 1).toPath(), new byte[] {1, 2, 3});
+        TestPackageManager manager = new TestPackageManager(cachedir);
+        assertTrue(manager.failed);
+        manager.addJarToPackages(jarFile, true);
+        assertEquals(1, manager.scanned.size());
+        manager.saveCache();
+        assertEquals(0, new TestPackageManager(cachedir).scanned.size());
+    }
+
+    public void testGenerations() throws Exception {
+        // the cache files of other versions of Jython sharing the directory
+        File oldIndex = new File(cachedir, "packages.idx");
+        File oldJar = new File(cachedir, "other.pkc");
+        Files.write(oldIndex.toPath(), new byte[] {1});
+        Files.write(oldJar.toPath(), new byte[] {1});
+
+        TestPackageManager first = new TestPackageManager(cachedir);
+        first.addJarToPackages(jarFile, true);
+        first.saveCache();
+        assertEquals(1, PackageIndex.latestGeneration(cachedir));
+
+        // while the first generation is mapped by this one, a newer one is written alongside
+        TestPackageManager second = new TestPackageManager(cachedir);
+        assertFalse(second.failed);
+        jarFile.setLastModified(jarFile.lastModified() + 10000);
+        second.addJarToPackages(jarFile, true);
+        second.saveCache();
+        assertFalse(second.failed);
+        assertEquals(2, PackageIndex.latestGeneration(cachedir));
+        assertTrue(PackageIndex.file(cachedir, 2).isFile());
+        assertFalse(PackageIndex.file(cachedir, 1).exists());
+
+        TestPackageManager third = new TestPackageManager(cachedir);
+        third.addJarToPackages(jarFile, true);
+        assertEquals(0, third.scanned.size());
+        assertTrue(oldIndex.isFile());
+        assertTrue(oldJar.isFile());
+    }
+
+    /** A generation written meanwhile by another process is never replaced. */
+    public void testPublishDoesNotReplace() throws Exception {
+        File theirs = PackageIndex.file(cachedir, 1);
+        File mine = new File(cachedir, "packages.tmp");
+        Files.write(theirs.toPath(), new byte[] {1});
+        Files.write(mine.toPath(), new byte[] {2});
+        try {
+            PackageIndex.publish(mine.toPath(), theirs.toPath());
+            fail("expected FileAlreadyExistsException");
+        } catch (FileAlreadyExistsException e) {
+            // as expected
+        }
+        assertEquals(1, Files.readAllBytes(theirs.toPath())[0]);
+
+        File next = PackageIndex.file(cachedir, 2);
+        PackageIndex.publish(mine.toPath(), next.toPath());
+        assertEquals(2, Files.readAllBytes(next.toPath())[0]);
+    }
+
+    private static class TestPackageManager extends CachedJarsPackageManager {
+
+        public boolean failed;
+
+        public final List<String> scanned = Generic.list();
+
+        public TestPackageManager(File cachedir) {
+            if (useCacheDir(cachedir)) {
+                initCache();
+            }
+        }
+
+        @Override
+        protected void warning(String msg) {
+            failed = true;
+        }
+
+        @Override
+        protected synchronized void comment(String msg) {
+            if (msg.startsWith("processing")) {
+                scanned.add(msg);
+            }
+        }
+
+        @Override
+        public void addDirectory(File dir) {}
+        @Override
+        public void addJar(String jarfile, boolean cache) {}
+        @Override
+        public void addJarDir(String dir, boolean cache) {}
+        @Override
+        public PyList doDir(PyJavaPackage jpkg, boolean instantiate, boolean exclpkgs) {
+            return null;
+        }
+        @Override
+        public Class<?> findClass(String pkg, String name, String reason) { return null; }
+        @Override
+        public boolean packageExists(String pkg, String name) { return false; }
+    }
+}
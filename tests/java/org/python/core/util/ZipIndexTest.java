@@ -0,0 +1,199 @@
+package org.python.core.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+public class ZipIndexTest extends TestCase {
+
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        file = File.createTempFile("zipindex", ".zip");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+    }
+
+    public void testEntries() throws Exception {
+        writeZip(file, new byte[0], "stored");
+        ZipIndex index = ZipIndex.get(file);
+        assertEquals(4, index.size());
+        int stored = index.find("pkg/stored.txt");
+        int deflated = index.find("pkg/deflated.txt");
+        assertTrue(stored >= 0 && deflated >= 0);
+        assertEquals(ZipEntry.STORED, index.getMethod(stored));
+        assertEquals(ZipEntry.DEFLATED, index.getMethod(deflated));
+        assertEquals("stored", new String(index.read(stored), StandardCharsets.UTF_8));
+        assertEquals(text(), new String(index.read(deflated), StandardCharsets.UTF_8));
+        assertTrue(index.isDirectory(index.find("pkg/")));
+        assertEquals(-1, index.find("pkg/missing.txt"));
+        assertEquals(-1, index.find("pkg"));
+        assertSame(index, ZipIndex.get(file));
+    }
+
+    public void testChangedArchive() throws Exception {
+        writeZip(file, new byte[0], "stored");
+        ZipIndex index = ZipIndex.get(file);
+        long mtime = file.lastModified();
+        writeZip(file, new byte[0], "changed contents");
+        file.setLastModified(mtime + 2000);
+        ZipIndex changed = ZipIndex.get(file);
+        assertNotSame(index, changed);
+        int stored = changed.find("pkg/stored.txt");
+        assertEquals("changed contents", new String(changed.read(stored), StandardCharsets.UTF_8));
+    }
+
+    public void testPrependedData() throws Exception {
+        // as in a self-executing archive
+        writeZip(file, "#!/bin/sh\nexec java -jar \"$0\"\n".getBytes(StandardCharsets.US_ASCII),
+                "stored");
+        ZipIndex index = ZipIndex.get(file);
+        assertEquals("stored", new String(index.read(index.find("pkg/stored.txt")),
+                StandardCharsets.UTF_8));
+        assertEquals(text(), new String(index.read(index.find("pkg/deflated.txt")),
+                StandardCharsets.UTF_8));
+    }
+
+    public void testNotAnArchive() throws Exception {
+        Files.write(file.toPath(), "not a zip file".getBytes(StandardCharsets.US_ASCII));
+        try {
+            ZipIndex.get(file);
+            fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    public void testBadEntryCount() throws Exception {
+        writeZip(file, new byte[0], "stored");
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        int end = lastIndexOf(bytes, 0x06054b50);
+        int cenSize = readInt(bytes, end + 12);
+        int cenOffset = readInt(bytes, end + 16);
+        // a zip64 end header claiming far more entries than its central directory has room for
+        ByteBuffer zip64 = ByteBuffer.allocate(56 + 20).order(ByteOrder.LITTLE_ENDIAN);
+        zip64.putInt(0x06064b50).putLong(44).putShort((short) 45).putShort((short) 45)
+                .putInt(0).putInt(0).putLong(1L << 29).putLong(1L << 29)
+                .putLong(cenSize).putLong(cenOffset);
+        zip64.putInt(0x07064b50).putInt(0).putLong(end).putInt(1);
+        byte[] endHeader = Arrays.copyOfRange(bytes, end, bytes.length);
+        putShort(endHeader, 8, 0xFFFF);
+        putShort(endHeader, 10, 0xFFFF);
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(bytes, 0, end);
+            out.write(zip64.array());
+            out.write(endHeader);
+        }
+        try {
+            ZipIndex.get(file);
+            fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    public void testTruncatedStoredEntry() throws Exception {
+        writeZip(file, new byte[0], "stored");
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        byte[] name = "pkg/stored.txt".getBytes(StandardCharsets.UTF_8);
+        int header = -1;
+        for (int pos = lastIndexOf(bytes, 0x02014b50); pos >= 0 && header < 0; pos--) {
+            if (readInt(bytes, pos) == 0x02014b50 && startsWith(bytes, pos + 46, name)) {
+                header = pos;
+            }
+        }
+        assertTrue(header >= 0);
+        // a size that runs past the end of the file
+        putShort(bytes, header + 24, 0x7000);
+        Files.write(file.toPath(), bytes);
+        ZipIndex index = ZipIndex.get(file);
+        try {
+            index.read(index.find("pkg/stored.txt"));
+            fail("expected IOException");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    private static int lastIndexOf(byte[] bytes, int signature) {
+        for (int pos = bytes.length - 4; pos >= 0; pos--) {
+            if (readInt(bytes, pos) == signature) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private static int readInt(byte[] bytes, int pos) {
+        return (bytes[pos] & 0xFF) | (bytes[pos + 1] & 0xFF) << 8 | (bytes[pos + 2] & 0xFF) << 16
+                | (bytes[pos + 3] & 0xFF) << 24;
+    }
+
+    private static void putShort(byte[] bytes, int pos, int value) {
+        bytes[pos] = (byte) value;
+        bytes[pos + 1] = (byte) (value >> 8);
+    }
+
+    private static boolean startsWith(byte[] bytes, int pos, byte[] prefix) {
+        if (pos + prefix.length > bytes.length) {
+            return false;
+        }
+        for (int k = 0; k < prefix.length; k++) {
+            if (bytes[pos + k] != prefix[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String text() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append("line ").append(i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    private static void writeZip(File file, byte[] prefix, String stored) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(prefix);
+            ZipOutputStream zip = new ZipOutputStream(out);
+            zip.putNextEntry(new ZipEntry("pkg/"));
+            zip.closeEntry();
+
+            byte[] bytes = stored.getBytes(StandardCharsets.UTF_8);
+            ZipEntry entry = new ZipEntry("pkg/stored.txt");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(bytes.length);
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            entry.setCrc(crc.getValue());
+            zip.putNextEntry(entry);
+            zip.write(bytes);
+            zip.closeEntry();
+
+            zip.putNextEntry(new ZipEntry("pkg/deflated.txt"));
+            zip.write(text().getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+
+            zip.putNextEntry(new ZipEntry("other.txt"));
+            zip.closeEntry();
+            zip.finish();
+        }
+    }
+}
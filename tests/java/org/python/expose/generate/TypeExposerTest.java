@@ -1,11 +1,14 @@
 package org.python.expose.generate;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 import org.python.core.Py;
 import org.python.core.PyNewWrapper;
 import org.python.core.PyObject;
 import org.python.core.PyType;
+import org.python.expose.BaseTypeBuilder;
 import org.python.expose.ExposedMethod;
 import org.python.expose.ExposedNew;
 import org.python.expose.ExposedType;
@@ -41,6 +44,23 @@ public class TypeExposerTest extends InterpTestCase {
         assertEquals(Py.One, new_.new_impl(false, null, null, null));
     }
 
+    public void testNames() throws IOException {
+        ExposedTypeProcessor etp = new ExposedTypeProcessor(getClass().getClassLoader()
+                .getResourceAsStream("org/python/expose/generate/SimpleExposed.class"));
+        List<String> names = Arrays.asList(((BaseTypeBuilder)etp.getTypeExposer().makeBuilder())
+                .getNames());
+        assertTrue(names.contains("simple_method"));
+        assertTrue(names.contains("tostring"));
+        assertTrue(names.contains("__str__"));
+        assertTrue(names.contains("__new__"));
+        assertFalse(names.contains("simpleexposed"));
+
+        etp = new ExposedTypeProcessor(getClass().getClassLoader()
+                .getResourceAsStream("org/python/expose/generate/TypeExposerTest$SimplestNew.class"));
+        names = Arrays.asList(((BaseTypeBuilder)etp.getTypeExposer().makeBuilder()).getNames());
+        assertEquals(Arrays.asList("__new__"), names);
+    }
+
     public void testCatchingDupes() throws IOException {
         try {
             new ExposedTypeProcessor(getClass().getClassLoader()
@@ -302,4 +302,105 @@ public class ScriptEngineTest extends TestCase {
         Object r = pythonEngine.get("b");
         assertEquals(new BigInteger("9"), r);
     }
+
+    public void testRepeatedEval() throws ScriptException {
+        ScriptEngineManager manager = new ScriptEngineManager();
+        ScriptEngine pythonEngine = manager.getEngineByName("python");
+        pythonEngine.put("n", "a");
+        for (int i = 0; i < 3; i++) {
+            pythonEngine.eval("n = n + 'a'");
+        }
+        assertEquals("aaaa", pythonEngine.get("n"));
+        pythonEngine.getContext().setAttribute(ScriptEngine.FILENAME, "other.py",
+                ScriptContext.ENGINE_SCOPE);
+        try {
+            pythonEngine.eval("n = n + 'a'\nraise ValueError");
+            fail("expected a ScriptException");
+        } catch (ScriptException e) {
+            assertEquals("other.py", e.getFileName());
+        }
+    }
+
+    public void testEngineBindings() throws ScriptException {
+        ScriptEngineManager manager = new ScriptEngineManager();
+        ScriptEngine pythonEngine = manager.getEngineByName("python");
+        Bindings bindings = pythonEngine.getBindings(ScriptContext.ENGINE_SCOPE);
+        assertTrue(bindings instanceof PyScriptEngineBindings);
+        bindings.put("s", "spam");
+        pythonEngine.eval("t = s.upper()\ndef f():\n    return t * 2");
+        assertEquals("SPAM", bindings.get("t"));
+        assertEquals("SPAMSPAM", pythonEngine.eval("f()"));
+        assertTrue(bindings.keySet().contains("f"));
+        bindings.remove("t");
+        assertFalse(bindings.containsKey("t"));
+        try {
+            // compiled before, so run from the cache
+            pythonEngine.eval("f()");
+            fail("expected a ScriptException");
+        } catch (ScriptException e) {
+            assertTrue(e.getMessage().startsWith("NameError: "));
+        }
+        try {
+            bindings.put("", "empty");
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        // with something to see in the global scope, lookups go through all the scopes
+        manager.put("g", "global");
+        assertEquals("spam global", pythonEngine.eval("s + ' ' + g"));
+        pythonEngine.eval("u = g");
+        assertEquals("global", bindings.get("u"));
+    }
+
+    /** Objects put are got back as they were, not as converted to Python and back. */
+    public void testEngineBindingsRoundTrip() throws ScriptException {
+        ScriptEngineManager manager = new ScriptEngineManager();
+        ScriptEngine pythonEngine = manager.getEngineByName("python");
+        Bindings bindings = pythonEngine.getBindings(ScriptContext.ENGINE_SCOPE);
+        Float f = 1.5f;
+        Character c = 'c';
+        Short s = 7;
+        bindings.put("f", f);
+        bindings.put("c", c);
+        bindings.put("s", s);
+        assertSame(f, bindings.get("f"));
+        assertSame(c, bindings.get("c"));
+        assertSame(s, bindings.get("s"));
+        for (java.util.Map.Entry<String, Object> entry : bindings.entrySet()) {
+            if (entry.getKey().equals("f")) {
+                assertSame(f, entry.getValue());
+            }
+        }
+        assertEquals(3.0, pythonEngine.eval("f * 2"));
+        assertSame(c, bindings.put("c", "d"));
+        assertEquals("d", bindings.get("c"));
+
+        // rebound by a script, the value is converted from Python
+        pythonEngine.eval("f = f * 2");
+        assertEquals(3.0, bindings.get("f"));
+        assertSame(s, bindings.remove("s"));
+        assertNull(bindings.get("s"));
+    }
+
+    public void testGetInterfaceReturnType() throws ScriptException {
+        ScriptEngineManager manager = new ScriptEngineManager();
+        ScriptEngine pythonEngine = manager.getEngineByName("python");
+        pythonEngine.eval("def compare(a, b):\n    return len(a) - len(b)\n"
+                + "def call():\n    return 'called'");
+        Invocable invocable = (Invocable) pythonEngine;
+        @SuppressWarnings("unchecked")
+        java.util.Comparator<String> comparator =
+                invocable.getInterface(java.util.Comparator.class);
+        assertTrue(comparator.compare("aa", "b") > 0);
+        assertEquals(0, comparator.compare("a", "b"));
+        java.util.concurrent.Callable<?> callable =
+                invocable.getInterface(java.util.concurrent.Callable.class);
+        try {
+            assertEquals("called", callable.call());
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
 }
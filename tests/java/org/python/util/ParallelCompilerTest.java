@@ -0,0 +1,123 @@
+package org.python.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarInputStream;
+
+import junit.framework.TestCase;
+
+import org.python.Version;
+import org.python.core.imp;
+
+public class ParallelCompilerTest extends TestCase {
+
+    private File root;
+
+    @Override
+    protected void setUp() throws Exception {
+        ParallelCompiler.initializeRuntime();
+        root = Files.createTempDirectory("parallelcompiler").toFile();
+        write("top.py", "x = 1\n");
+        write("pkg/__init__.py", "");
+        write("pkg/mod.py", "def f():\n    return 42\n");
+        write("pkg/test/skipped.py", "y = 2\n");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        delete(root);
+    }
+
+    private void write(String path, String contents) throws IOException {
+        File file = new File(root, path);
+        file.getParentFile().mkdirs();
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(contents);
+        }
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static String compiled(String dir, String name) {
+        return dir + imp.CACHEDIR + "/" + name + Version.PY_CACHE_TAG + ".class";
+    }
+
+    private Set<String> entries(ParallelCompiler compiler) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compiler.writeJar(out);
+        Set<String> names = new HashSet<>();
+        try (JarInputStream jar = new JarInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertNotNull(jar.getManifest());
+            JarEntry entry;
+            while ((entry = jar.getNextJarEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+
+    public void testCompileTree() throws Exception {
+        ParallelCompiler compiler = new ParallelCompiler(4);
+        compiler.excludeDirectory("test");
+        try {
+            compiler.compileTree(root);
+        } finally {
+            compiler.shutdown();
+        }
+        assertTrue(compiler.getFailures().isEmpty());
+        Set<String> names = entries(compiler);
+        assertEquals(3, names.size());
+        assertTrue(names.contains(compiled("", "top")));
+        assertTrue(names.contains(compiled("pkg/", "__init__")));
+        assertTrue(names.contains(compiled("pkg/", "mod")));
+    }
+
+    public void testFailuresAreCollected() throws Exception {
+        write("pkg/broken.py", "def f(:\n");
+        ParallelCompiler compiler = new ParallelCompiler(2);
+        try {
+            compiler.compileTree(root);
+        } finally {
+            compiler.shutdown();
+        }
+        assertEquals(1, compiler.getFailures().size());
+        assertEquals("broken.py", compiler.getFailures().get(0).source.getName());
+        assertEquals(4, compiler.getCompiledCount());
+    }
+
+    public void testSameModuleInTwoRoots() throws Exception {
+        File first = root;
+        root = Files.createTempDirectory("parallelcompiler").toFile();
+        File second = root;
+        write("top.py", "x = 2\n");
+        ParallelCompiler compiler = new ParallelCompiler(2);
+        try {
+            compiler.compileTree(first);
+            compiler.compileTree(second);
+        } finally {
+            compiler.shutdown();
+            root = first;
+            delete(second);
+        }
+        assertEquals(1, compiler.getFailures().size());
+        ParallelCompiler.Failure failure = compiler.getFailures().get(0);
+        assertEquals(new File(second, "top.py"), failure.source);
+        assertTrue(failure.toString(), failure.toString().contains("already compiled from"));
+        assertEquals(4, compiler.getCompiledCount());
+    }
+}
@@ -0,0 +1,217 @@
+package org.python.util;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import junit.framework.TestCase;
+
+import org.python.core.Py;
+import org.python.core.PySystemState;
+
+public class PyServletTest extends TestCase {
+
+    private File dir;
+
+    private File script;
+
+    @Override
+    protected void setUp() throws Exception {
+        PythonInterpreter.initialize(System.getProperties(), null, new String[] {});
+        dir = Files.createTempDirectory("pyservlet").toFile();
+        script = new File(dir, "hello.py");
+        writeServlet("one");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        System.clearProperty("pyservlettest.destroyed.one");
+        script.delete();
+        dir.delete();
+    }
+
+    public void testCheckEveryRequest() throws Exception {
+        PyServlet servlet = newServlet(PyServlet.RELOAD_CHECK_NAME, "0",
+                PyServlet.RELOAD_IN_BACKGROUND_NAME, "false");
+        try {
+            assertEquals("one", serve(servlet));
+            writeServlet("two");
+            assertEquals("two", serve(servlet));
+        } finally {
+            servlet.destroy();
+        }
+    }
+
+    public void testWatch() throws Exception {
+        PyServlet servlet = newServlet(PyServlet.INTERPRETER_PER_THREAD_NAME, "true");
+        try {
+            PySystemState state = Py.getSystemState();
+            assertEquals("one", serve(servlet));
+            assertSame("thread state not restored", state, Py.getSystemState());
+            writeServlet("two");
+            // the old one serves until the new one is loaded in the background
+            long deadline = System.currentTimeMillis() + 30000;
+            String result;
+            while (!(result = serve(servlet)).equals("two")
+                    && System.currentTimeMillis() < deadline) {
+                assertEquals("one", result);
+                Thread.sleep(50);
+            }
+            assertEquals("two", result);
+        } finally {
+            servlet.destroy();
+        }
+    }
+
+    public void testReplacedWhileServing() throws Exception {
+        PyServlet servlet = newServlet(PyServlet.RELOAD_CHECK_NAME, "0",
+                PyServlet.RELOAD_IN_BACKGROUND_NAME, "false");
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals("one", serve(servlet));
+
+            final CountDownLatch entered = new CountDownLatch(1);
+            final CountDownLatch proceed = new CountDownLatch(1);
+            final PyServlet s = servlet;
+            Future<String> slow = executor.submit(new Callable<String>() {
+
+                @Override
+                public String call() throws Exception {
+                    Map<Object, Object> attributes = new HashMap<Object, Object>();
+                    attributes.put("entered", entered);
+                    attributes.put("proceed", proceed);
+                    return serve(s, attributes);
+                }
+            });
+            assertTrue(entered.await(30, TimeUnit.SECONDS));
+            writeServlet("two");
+            assertEquals("two", serve(servlet));
+            // the old one is still serving a request
+            assertNull(System.getProperty("pyservlettest.destroyed.one"));
+            proceed.countDown();
+            assertEquals("one", slow.get(30, TimeUnit.SECONDS));
+            assertEquals("true", System.getProperty("pyservlettest.destroyed.one"));
+        } finally {
+            executor.shutdownNow();
+            servlet.destroy();
+        }
+    }
+
+    private void writeServlet(String result) throws Exception {
+        long mtime = script.exists() ? script.lastModified() : 0;
+        Files.write(script.toPath(), ("from javax.servlet.http import HttpServlet\n"
+                + "from java.lang import System\n"
+                + "class hello(HttpServlet):\n"
+                + "    def service(self, req, res):\n"
+                + "        entered = req.getAttribute('entered')\n"
+                + "        if entered is not None:\n"
+                + "            entered.countDown()\n"
+                + "            getattr(req.getAttribute('proceed'), 'await')()\n"
+                + "        req.setAttribute('result', '" + result + "')\n"
+                + "    def destroy(self):\n"
+                + "        System.setProperty('pyservlettest.destroyed." + result + "', 'true')\n")
+                .getBytes(StandardCharsets.UTF_8));
+        // as the modification date may be kept in seconds
+        script.setLastModified(Math.max(System.currentTimeMillis(), mtime + 2000));
+    }
+
+    private PyServlet newServlet(String... params) throws Exception {
+        final Map<String, String> initParams = new HashMap<String, String>();
+        for (int i = 0; i < params.length; i += 2) {
+            initParams.put(params[i], params[i + 1]);
+        }
+        final ServletContext context = proxy(ServletContext.class, new InvocationHandler() {
+
+            private final Map<Object, Object> attributes = new HashMap<Object, Object>();
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getRealPath")) {
+                    return new File(dir, (String)args[0]).getPath();
+                } else if (name.equals("getInitParameterNames")) {
+                    return Collections.emptyEnumeration();
+                } else if (name.equals("getAttribute")) {
+                    return attributes.get(args[0]);
+                } else if (name.equals("setAttribute")) {
+                    attributes.put(args[0], args[1]);
+                }
+                return null;
+            }
+        });
+        ServletConfig config = proxy(ServletConfig.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getServletContext")) {
+                    return context;
+                } else if (name.equals("getServletName")) {
+                    return "test";
+                } else if (name.equals("getInitParameter")) {
+                    return initParams.get(args[0]);
+                } else if (name.equals("getInitParameterNames")) {
+                    return Collections.enumeration(initParams.keySet());
+                }
+                return null;
+            }
+        });
+        PyServlet servlet = new PyServlet();
+        servlet.init(config);
+        return servlet;
+    }
+
+    private String serve(PyServlet servlet) throws Exception {
+        return serve(servlet, new HashMap<Object, Object>());
+    }
+
+    private String serve(PyServlet servlet, final Map<Object, Object> attributes)
+            throws Exception {
+        HttpServletRequest req = proxy(HttpServletRequest.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getServletPath")) {
+                    return "/hello.py";
+                } else if (name.equals("getAttribute")) {
+                    return attributes.get(args[0]);
+                } else if (name.equals("setAttribute")) {
+                    attributes.put(args[0], args[1]);
+                }
+                return null;
+            }
+        });
+        HttpServletResponse res = proxy(HttpServletResponse.class, new InvocationHandler() {
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return null;
+            }
+        });
+        servlet.service(req, res);
+        return String.valueOf(attributes.get("result"));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                handler));
+    }
+}
@@ -0,0 +1,119 @@
+package org.python.util;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.python.core.Py;
+import org.python.core.PyException;
+import org.python.core.PyObject;
+import org.python.core.PySystemState;
+
+public class PythonInterpreterPoolTest extends TestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        PythonInterpreter.initialize(System.getProperties(), null, new String[] {});
+    }
+
+    public void testResetGlobals() throws Exception {
+        try (PythonInterpreterPool pool = new PythonInterpreterPool(1,
+                interp -> interp.exec("x = 1"), PythonInterpreterPool.Reset.GLOBALS)) {
+            PythonInterpreter interp = pool.checkout();
+            assertSame(interp.getSystemState(), Py.getSystemState());
+            interp.exec("import sys, io; sys.stdout = io.StringIO(); x = 2; y = 3");
+            pool.checkin(interp);
+
+            interp = pool.checkout();
+            assertEquals(1, (int)interp.get("x", Integer.class));
+            assertNull(interp.get("y"));
+            PySystemState sys = interp.getSystemState();
+            assertSame(sys.sysdict.__getitem__("__stdout__"), sys.getStdout());
+            pool.checkin(interp);
+            assertEquals(2, pool.getCheckoutCount());
+            assertEquals(0, pool.getReplacedCount());
+        }
+    }
+
+    public void testResetModules() throws Exception {
+        try (PythonInterpreterPool pool = new PythonInterpreterPool(1, null,
+                PythonInterpreterPool.Reset.MODULES)) {
+            PythonInterpreter interp = pool.checkout();
+            interp.exec("import sys, types; sys.modules['pooltest'] = types.ModuleType('pooltest')"
+                    + "; sys.path.append('/nonexistent')");
+            pool.checkin(interp);
+
+            interp = pool.checkout();
+            PyObject sys = interp.getSystemState();
+            assertNull(interp.getSystemState().modules.__finditem__("pooltest"));
+            assertFalse(sys.__getattr__("path").__contains__(Py.newUnicode("/nonexistent")));
+            pool.checkin(interp);
+            assertEquals(0, pool.getReplacedCount());
+        }
+    }
+
+    public void testTimeoutAndDiscard() throws Exception {
+        try (PythonInterpreterPool pool = new PythonInterpreterPool(1)) {
+            PythonInterpreter interp = pool.checkout(1, TimeUnit.SECONDS);
+            assertNotNull(interp);
+            assertNull(pool.checkout(10, TimeUnit.MILLISECONDS));
+            assertEquals(1, pool.getTimeoutCount());
+            assertEquals(1, pool.getBusyCount());
+
+            pool.discard(interp);
+            assertEquals(1, pool.getReplacedCount());
+            assertEquals(1, pool.getIdleCount());
+            PythonInterpreter replacement = pool.checkout(1, TimeUnit.SECONDS);
+            assertNotSame(interp, replacement);
+            try {
+                pool.checkin(interp);
+                fail("expected IllegalArgumentException");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            pool.checkin(replacement);
+        }
+    }
+
+    public void testStateRestored() throws Exception {
+        PySystemState before = Py.getSystemState();
+        try (PythonInterpreterPool pool = new PythonInterpreterPool(1)) {
+            PythonInterpreter interp = pool.checkout();
+            assertNotSame(before, Py.getSystemState());
+            pool.checkin(interp);
+            assertSame(before, Py.getSystemState());
+
+            interp = pool.checkout();
+            pool.discard(interp);
+            assertSame(before, Py.getSystemState());
+        }
+    }
+
+    public void testReplacementFails() throws Exception {
+        final boolean[] fail = {false};
+        try (PythonInterpreterPool pool = new PythonInterpreterPool(1, interp -> {
+            if (fail[0]) {
+                throw Py.RuntimeError("can't warm up");
+            }
+        }, PythonInterpreterPool.Reset.GLOBALS)) {
+            fail[0] = true;
+            pool.discard(pool.checkout());
+            assertEquals(0, pool.getIdleCount());
+            assertEquals(1, pool.getMissingCount());
+            try {
+                pool.checkout(10, TimeUnit.MILLISECONDS);
+                fail("expected PyException");
+            } catch (PyException e) {
+                assertTrue(e.match(Py.RuntimeError));
+            }
+            assertEquals(1, pool.getMissingCount());
+
+            fail[0] = false;
+            PythonInterpreter interp = pool.checkout(10, TimeUnit.MILLISECONDS);
+            assertNotNull(interp);
+            assertEquals(0, pool.getMissingCount());
+            pool.checkin(interp);
+            assertEquals(1, pool.getIdleCount());
+        }
+    }
+}
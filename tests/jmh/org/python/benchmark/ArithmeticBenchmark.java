@@ -0,0 +1,134 @@
+package org.python.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.core.PyObject;
+
+/**
+ * Integer and float arithmetic and comparisons.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArithmeticBenchmark {
+
+    private static final String SOURCE = "big = 2 ** 100\n"
+            + "def int_add():\n"
+            + "    x = 0\n"
+            + "    for i in range(LOOP): x = x + i\n"
+            + "def int_multiply():\n"
+            + "    for i in range(LOOP): i * 3\n"
+            + "def int_divide():\n"
+            + "    for i in range(LOOP): i // 7, i % 7\n"
+            + "def int_augmented():\n"
+            + "    x = 0\n"
+            + "    for i in range(LOOP): x += 1\n"
+            + "def big_multiply():\n"
+            + "    for i in range(LOOP): big * i\n"
+            + "def float_add():\n"
+            + "    x = 0.0\n"
+            + "    for i in range(LOOP): x = x + 0.5\n"
+            + "def float_multiply():\n"
+            + "    x = 1.5\n"
+            + "    for i in range(LOOP): x * 1.0001\n"
+            + "def float_divide():\n"
+            + "    for i in range(LOOP): i / 3\n"
+            + "def mixed():\n"
+            + "    for i in range(LOOP): i * 0.5 + 1\n"
+            + "def compare():\n"
+            + "    for i in range(LOOP): i < 500\n";
+
+    private PyObject intAdd, intMultiply, intDivide, intAugmented, bigMultiply, floatAdd,
+            floatMultiply, floatDivide, mixed, compare;
+
+    @Setup
+    public void setup() {
+        PyObject globals = Python.exec(SOURCE);
+        intAdd = globals.__getitem__("int_add");
+        intMultiply = globals.__getitem__("int_multiply");
+        intDivide = globals.__getitem__("int_divide");
+        intAugmented = globals.__getitem__("int_augmented");
+        bigMultiply = globals.__getitem__("big_multiply");
+        floatAdd = globals.__getitem__("float_add");
+        floatMultiply = globals.__getitem__("float_multiply");
+        floatDivide = globals.__getitem__("float_divide");
+        mixed = globals.__getitem__("mixed");
+        compare = globals.__getitem__("compare");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject intAdd() {
+        return intAdd.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject intMultiply() {
+        return intMultiply.__call__();
+    }
+
+    /** Floor division and remainder, two operations each time. */
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject intDivide() {
+        return intDivide.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject intAugmented() {
+        return intAugmented.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject bigMultiply() {
+        return bigMultiply.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject floatAdd() {
+        return floatAdd.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject floatMultiply() {
+        return floatMultiply.__call__();
+    }
+
+    /** True division of ints. */
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject floatDivide() {
+        return floatDivide.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject mixed() {
+        return mixed.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject compare() {
+        return compare.__call__();
+    }
+}
@@ -0,0 +1,154 @@
+package org.python.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.core.PyObject;
+
+/**
+ * Attribute access on instances, classes and modules, and lookups of globals and builtins.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AttributeBenchmark {
+
+    private static final String SOURCE = "import sys\n"
+            + "class C:\n"
+            + "    cls = 1\n"
+            + "    def __init__(self):\n"
+            + "        self.x = 1\n"
+            + "    def m(self): pass\n"
+            + "    @property\n"
+            + "    def p(self): return self.x\n"
+            + "class D(C): pass\n"
+            + "class E(D): pass\n"
+            + "class S:\n"
+            + "    __slots__ = ('x',)\n"
+            + "    def __init__(self):\n"
+            + "        self.x = 1\n"
+            + "o = C()\n"
+            + "e = E()\n"
+            + "s = S()\n"
+            + "g = 1\n"
+            + "def instance_get():\n"
+            + "    for i in range(LOOP): o.x\n"
+            + "def instance_set():\n"
+            + "    for i in range(LOOP): o.x = i\n"
+            + "def class_get():\n"
+            + "    for i in range(LOOP): o.cls\n"
+            + "def inherited_get():\n"
+            + "    for i in range(LOOP): e.cls\n"
+            + "def bound_method():\n"
+            + "    for i in range(LOOP): o.m\n"
+            + "def property_get():\n"
+            + "    for i in range(LOOP): o.p\n"
+            + "def slot_get():\n"
+            + "    for i in range(LOOP): s.x\n"
+            + "def getattr_builtin():\n"
+            + "    for i in range(LOOP): getattr(o, 'x')\n"
+            + "def module_get():\n"
+            + "    for i in range(LOOP): sys.maxsize\n"
+            + "def global_get():\n"
+            + "    for i in range(LOOP): g\n"
+            + "def builtin_get():\n"
+            + "    for i in range(LOOP): len\n";
+
+    private PyObject instanceGet, instanceSet, classGet, inheritedGet, boundMethod, propertyGet,
+            slotGet, getattrBuiltin, moduleGet, globalGet, builtinGet;
+
+    @Setup
+    public void setup() {
+        PyObject globals = Python.exec(SOURCE);
+        instanceGet = globals.__getitem__("instance_get");
+        instanceSet = globals.__getitem__("instance_set");
+        classGet = globals.__getitem__("class_get");
+        inheritedGet = globals.__getitem__("inherited_get");
+        boundMethod = globals.__getitem__("bound_method");
+        propertyGet = globals.__getitem__("property_get");
+        slotGet = globals.__getitem__("slot_get");
+        getattrBuiltin = globals.__getitem__("getattr_builtin");
+        moduleGet = globals.__getitem__("module_get");
+        globalGet = globals.__getitem__("global_get");
+        builtinGet = globals.__getitem__("builtin_get");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject instanceGet() {
+        return instanceGet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject instanceSet() {
+        return instanceSet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject classGet() {
+        return classGet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject inheritedGet() {
+        return inheritedGet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject boundMethod() {
+        return boundMethod.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject propertyGet() {
+        return propertyGet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject slotGet() {
+        return slotGet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject getattrBuiltin() {
+        return getattrBuiltin.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject moduleGet() {
+        return moduleGet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject globalGet() {
+        return globalGet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject builtinGet() {
+        return builtinGet.__call__();
+    }
+}
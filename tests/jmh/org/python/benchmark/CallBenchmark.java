@@ -0,0 +1,161 @@
+package org.python.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.core.Py;
+import org.python.core.PyObject;
+
+/**
+ * The overhead of calls of Python functions and methods, from Python and from Java.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallBenchmark {
+
+    private static final String SOURCE = "def f0(): pass\n"
+            + "def f1(a): pass\n"
+            + "def f3(a, b, c): pass\n"
+            + "def fdefaults(a, b=1, c=2): pass\n"
+            + "def fstar(*args): pass\n"
+            + "def fkw(**kw): pass\n"
+            + "class C:\n"
+            + "    def m(self, a): pass\n"
+            + "    @staticmethod\n"
+            + "    def s(a): pass\n"
+            + "o = C()\n"
+            + "def make():\n"
+            + "    x = 1\n"
+            + "    def inner(a): return x\n"
+            + "    return inner\n"
+            + "closure = make()\n"
+            + "l = [1, 2, 3]\n"
+            + "def empty_loop():\n"
+            + "    for i in range(LOOP): pass\n"
+            + "def positional():\n"
+            + "    for i in range(LOOP): f3(i, i, i)\n"
+            + "def keywords():\n"
+            + "    for i in range(LOOP): f3(a=i, b=i, c=i)\n"
+            + "def defaults():\n"
+            + "    for i in range(LOOP): fdefaults(i)\n"
+            + "def varargs():\n"
+            + "    for i in range(LOOP): fstar(i, i)\n"
+            + "def varkeywords():\n"
+            + "    for i in range(LOOP): fkw(a=i)\n"
+            + "def method():\n"
+            + "    for i in range(LOOP): o.m(i)\n"
+            + "def static_method():\n"
+            + "    for i in range(LOOP): C.s(i)\n"
+            + "def closure_call():\n"
+            + "    for i in range(LOOP): closure(i)\n"
+            + "def builtin():\n"
+            + "    for i in range(LOOP): len(l)\n";
+
+    private PyObject f0, f1, emptyLoop, positional, keywords, defaults, varargs, varkeywords,
+            method, staticMethod, closure, builtin;
+
+    private final PyObject arg = Py.newInteger(1);
+
+    @Setup
+    public void setup() {
+        PyObject globals = Python.exec(SOURCE);
+        f0 = globals.__getitem__("f0");
+        f1 = globals.__getitem__("f1");
+        emptyLoop = globals.__getitem__("empty_loop");
+        positional = globals.__getitem__("positional");
+        keywords = globals.__getitem__("keywords");
+        defaults = globals.__getitem__("defaults");
+        varargs = globals.__getitem__("varargs");
+        varkeywords = globals.__getitem__("varkeywords");
+        method = globals.__getitem__("method");
+        staticMethod = globals.__getitem__("static_method");
+        closure = globals.__getitem__("closure_call");
+        builtin = globals.__getitem__("builtin");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject emptyLoop() {
+        return emptyLoop.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject positional() {
+        return positional.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject keywords() {
+        return keywords.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject defaults() {
+        return defaults.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject varargs() {
+        return varargs.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject varkeywords() {
+        return varkeywords.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject method() {
+        return method.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject staticMethod() {
+        return staticMethod.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject closure() {
+        return closure.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject builtin() {
+        return builtin.__call__();
+    }
+
+    /** A call of a Python function without arguments from Java. */
+    @Benchmark
+    public PyObject fromJava() {
+        return f0.__call__();
+    }
+
+    /** A call of a Python function with a keyword argument from Java. */
+    @Benchmark
+    public PyObject fromJavaKeyword() {
+        return f1.__call__(new PyObject[] {arg}, new String[] {"a"});
+    }
+}
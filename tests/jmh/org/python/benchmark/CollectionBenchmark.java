@@ -0,0 +1,174 @@
+package org.python.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.core.PyObject;
+
+/**
+ * Operations on dicts, sets, lists and tuples.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollectionBenchmark {
+
+    private static final String SOURCE = "keys = [str(i) for i in range(LOOP)]\n"
+            + "d = dict.fromkeys(keys, 0)\n"
+            + "n = dict.fromkeys(range(LOOP), 0)\n"
+            + "s = set(keys)\n"
+            + "l = list(range(LOOP))\n"
+            + "r = [i * 7919 % LOOP for i in range(LOOP)]\n"
+            + "def dict_get():\n"
+            + "    for k in keys: d[k]\n"
+            + "def dict_int_get():\n"
+            + "    for i in range(LOOP): n[i]\n"
+            + "def dict_set():\n"
+            + "    for k in keys: d[k] = 1\n"
+            + "def dict_contains():\n"
+            + "    for k in keys: k in d\n"
+            + "def dict_method_get():\n"
+            + "    for k in keys: d.get(k)\n"
+            + "def dict_iterate():\n"
+            + "    for k, v in d.items(): pass\n"
+            + "def dict_build():\n"
+            + "    e = {}\n"
+            + "    for k in keys: e[k] = k\n"
+            + "def set_contains():\n"
+            + "    for k in keys: k in s\n"
+            + "def set_build():\n"
+            + "    t = set()\n"
+            + "    for k in keys: t.add(k)\n"
+            + "def list_get():\n"
+            + "    for i in range(LOOP): l[i]\n"
+            + "def list_append():\n"
+            + "    m = []\n"
+            + "    for i in range(LOOP): m.append(i)\n"
+            + "def list_iterate():\n"
+            + "    for x in l: pass\n"
+            + "def list_sort():\n"
+            + "    sorted(r)\n"
+            + "def tuple_unpack():\n"
+            + "    t = (1, 2, 3)\n"
+            + "    for i in range(LOOP): a, b, c = t\n";
+
+    private PyObject dictGet, dictIntGet, dictSet, dictContains, dictMethodGet, dictIterate,
+            dictBuild, setContains, setBuild, listGet, listAppend, listIterate, listSort,
+            tupleUnpack;
+
+    @Setup
+    public void setup() {
+        PyObject globals = Python.exec(SOURCE);
+        dictGet = globals.__getitem__("dict_get");
+        dictIntGet = globals.__getitem__("dict_int_get");
+        dictSet = globals.__getitem__("dict_set");
+        dictContains = globals.__getitem__("dict_contains");
+        dictMethodGet = globals.__getitem__("dict_method_get");
+        dictIterate = globals.__getitem__("dict_iterate");
+        dictBuild = globals.__getitem__("dict_build");
+        setContains = globals.__getitem__("set_contains");
+        setBuild = globals.__getitem__("set_build");
+        listGet = globals.__getitem__("list_get");
+        listAppend = globals.__getitem__("list_append");
+        listIterate = globals.__getitem__("list_iterate");
+        listSort = globals.__getitem__("list_sort");
+        tupleUnpack = globals.__getitem__("tuple_unpack");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject dictGet() {
+        return dictGet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject dictIntGet() {
+        return dictIntGet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject dictSet() {
+        return dictSet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject dictContains() {
+        return dictContains.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject dictMethodGet() {
+        return dictMethodGet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject dictIterate() {
+        return dictIterate.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject dictBuild() {
+        return dictBuild.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject setContains() {
+        return setContains.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject setBuild() {
+        return setBuild.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject listGet() {
+        return listGet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject listAppend() {
+        return listAppend.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject listIterate() {
+        return listIterate.__call__();
+    }
+
+    /** Sorting a permutation of <code>LOOP</code> ints, one operation. */
+    @Benchmark
+    public PyObject listSort() {
+        return listSort.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject tupleUnpack() {
+        return tupleUnpack.__call__();
+    }
+}
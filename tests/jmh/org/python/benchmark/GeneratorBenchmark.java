@@ -0,0 +1,116 @@
+package org.python.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.core.PyObject;
+
+/**
+ * Iteration of generators, comprehensions and the iterators of builtins, each measured per
+ * element.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeneratorBenchmark {
+
+    private static final String SOURCE = "l = list(range(LOOP))\n"
+            + "def gen(n):\n"
+            + "    for i in range(n):\n"
+            + "        yield i\n"
+            + "def delegate(n):\n"
+            + "    yield from gen(n)\n"
+            + "def generator():\n"
+            + "    for x in gen(LOOP): pass\n"
+            + "def yield_from():\n"
+            + "    for x in delegate(LOOP): pass\n"
+            + "def generator_expression():\n"
+            + "    sum(x for x in l)\n"
+            + "def list_comprehension():\n"
+            + "    [x for x in l]\n"
+            + "def dict_comprehension():\n"
+            + "    {x: x for x in l}\n"
+            + "def map_builtin():\n"
+            + "    for x in map(abs, l): pass\n"
+            + "def enumerate_builtin():\n"
+            + "    for i, x in enumerate(l): pass\n"
+            + "def zip_builtin():\n"
+            + "    for x, y in zip(l, l): pass\n";
+
+    private PyObject generator, yieldFrom, generatorExpression, listComprehension,
+            dictComprehension, mapBuiltin, enumerateBuiltin, zipBuiltin;
+
+    @Setup
+    public void setup() {
+        PyObject globals = Python.exec(SOURCE);
+        generator = globals.__getitem__("generator");
+        yieldFrom = globals.__getitem__("yield_from");
+        generatorExpression = globals.__getitem__("generator_expression");
+        listComprehension = globals.__getitem__("list_comprehension");
+        dictComprehension = globals.__getitem__("dict_comprehension");
+        mapBuiltin = globals.__getitem__("map_builtin");
+        enumerateBuiltin = globals.__getitem__("enumerate_builtin");
+        zipBuiltin = globals.__getitem__("zip_builtin");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject generator() {
+        return generator.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject yieldFrom() {
+        return yieldFrom.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject generatorExpression() {
+        return generatorExpression.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject listComprehension() {
+        return listComprehension.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject dictComprehension() {
+        return dictComprehension.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject mapBuiltin() {
+        return mapBuiltin.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject enumerateBuiltin() {
+        return enumerateBuiltin.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject zipBuiltin() {
+        return zipBuiltin.__call__();
+    }
+}
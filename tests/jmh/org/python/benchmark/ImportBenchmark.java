@@ -0,0 +1,125 @@
+package org.python.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.core.PyObject;
+
+/**
+ * Imports of a module of a few hundred lines, removed from <code>sys.modules</code> each time:
+ * compiled from source, loaded from its compiled class file, and of a builtin module.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImportBenchmark {
+
+    private static final String SOURCE = "import sys\n"
+            + "sys.path.insert(0, PATH)\n"
+            + "def import_source():\n"
+            + "    sys.modules.pop('bench_source', None)\n"
+            + "    sys.dont_write_bytecode = True\n"
+            + "    try:\n"
+            + "        import bench_source\n"
+            + "    finally:\n"
+            + "        sys.dont_write_bytecode = False\n"
+            + "def import_compiled():\n"
+            + "    sys.modules.pop('bench_compiled', None)\n"
+            + "    import bench_compiled\n"
+            + "def import_builtin():\n"
+            + "    sys.modules.pop('_jyprofile', None)\n"
+            + "    import _jyprofile\n";
+
+    private File dir;
+
+    private PyObject importSource, importCompiled, importBuiltin;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("jython-bench").toFile();
+        String module = module();
+        Files.write(new File(dir, "bench_source.py").toPath(),
+                module.getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(dir, "bench_compiled.py").toPath(),
+                module.getBytes(StandardCharsets.UTF_8));
+        PyObject globals = Python.exec(SOURCE, "PATH", dir.getPath());
+        importSource = globals.__getitem__("import_source");
+        importCompiled = globals.__getitem__("import_compiled");
+        importBuiltin = globals.__getitem__("import_builtin");
+        // write the compiled module
+        importCompiled.__call__();
+    }
+
+    /** A module with functions and classes in the proportions of typical library code. */
+    private static String module() {
+        StringBuilder source = new StringBuilder("\"\"\"A module to import.\"\"\"\n");
+        for (int i = 0; i < 20; i++) {
+            source.append("def function").append(i).append("(a, b=1, *args, **kwargs):\n")
+                    .append("    \"\"\"Return something.\"\"\"\n")
+                    .append("    x = [a + b * i for i in range(10) if i % 2]\n")
+                    .append("    try:\n")
+                    .append("        return {k: v for k, v in kwargs.items()}, x\n")
+                    .append("    except KeyError as e:\n")
+                    .append("        raise ValueError(str(e))\n\n");
+        }
+        for (int i = 0; i < 10; i++) {
+            source.append("class Class").append(i).append(":\n")
+                    .append("    attribute = ").append(i).append("\n")
+                    .append("    def __init__(self, value):\n")
+                    .append("        self.value = value\n")
+                    .append("    def method(self, other):\n")
+                    .append("        return self.value + other\n")
+                    .append("    @property\n")
+                    .append("    def double(self):\n")
+                    .append("        return self.value * 2\n\n");
+        }
+        return source.toString();
+    }
+
+    @TearDown
+    public void tearDown() {
+        delete(dir);
+    }
+
+    private static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    @Benchmark
+    public PyObject importSource() {
+        return importSource.__call__();
+    }
+
+    @Benchmark
+    public PyObject importCompiled() {
+        return importCompiled.__call__();
+    }
+
+    @Benchmark
+    public PyObject importBuiltin() {
+        return importBuiltin.__call__();
+    }
+}
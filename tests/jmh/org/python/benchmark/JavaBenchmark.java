@@ -0,0 +1,126 @@
+package org.python.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.core.PyObject;
+
+/**
+ * Use of Java classes and objects from Python: overloaded static and instance methods,
+ * constructors, fields, and Java collections used as Python ones.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JavaBenchmark {
+
+    private static final String SOURCE = "jlist = ArrayList()\n"
+            + "jmap = HashMap()\n"
+            + "for i in range(LOOP):\n"
+            + "    jlist.add(i)\n"
+            + "    jmap.put(str(i), i)\n"
+            + "keys = [str(i) for i in range(LOOP)]\n"
+            + "def static_call():\n"
+            + "    for i in range(LOOP): Math.max(i, 500)\n"
+            + "def instance_call():\n"
+            + "    sb = StringBuilder()\n"
+            + "    for i in range(LOOP): sb.append('x')\n"
+            + "def constructor():\n"
+            + "    for i in range(LOOP): ArrayList()\n"
+            + "def static_field():\n"
+            + "    for i in range(LOOP): Integer.MAX_VALUE\n"
+            + "def list_get():\n"
+            + "    for i in range(LOOP): jlist[i]\n"
+            + "def list_iterate():\n"
+            + "    for x in jlist: pass\n"
+            + "def map_get():\n"
+            + "    for k in keys: jmap.get(k)\n"
+            + "def length():\n"
+            + "    for i in range(LOOP): len(jlist)\n";
+
+    private PyObject staticCall, instanceCall, constructor, staticField, listGet, listIterate,
+            mapGet, length;
+
+    @Setup
+    public void setup() {
+        PyObject globals = Python.exec(SOURCE,
+                "ArrayList", ArrayList.class,
+                "HashMap", HashMap.class,
+                "Math", Math.class,
+                "StringBuilder", StringBuilder.class,
+                "Integer", Integer.class);
+        staticCall = globals.__getitem__("static_call");
+        instanceCall = globals.__getitem__("instance_call");
+        constructor = globals.__getitem__("constructor");
+        staticField = globals.__getitem__("static_field");
+        listGet = globals.__getitem__("list_get");
+        listIterate = globals.__getitem__("list_iterate");
+        mapGet = globals.__getitem__("map_get");
+        length = globals.__getitem__("length");
+    }
+
+    /** Math.max, overloaded for int, long, float and double. */
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject staticCall() {
+        return staticCall.__call__();
+    }
+
+    /** StringBuilder.append, overloaded for many types. */
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject instanceCall() {
+        return instanceCall.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject constructor() {
+        return constructor.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject staticField() {
+        return staticField.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject listGet() {
+        return listGet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject listIterate() {
+        return listIterate.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject mapGet() {
+        return mapGet.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject length() {
+        return length.__call__();
+    }
+}
@@ -0,0 +1,49 @@
+package org.python.benchmark;
+
+import org.python.core.CompileMode;
+import org.python.core.CompilerFlags;
+import org.python.core.Py;
+import org.python.core.PyObject;
+import org.python.core.PyStringMap;
+import org.python.core.PySystemState;
+
+/**
+ * Support for the JMH benchmarks of the runtime, which are built and run by the
+ * <code>bench</code> target of build.xml:
+ *
+ * <pre>
+ * ant resolve-bench bench
+ * ant bench -Dbench.args="Call|Attribute"
+ * </pre>
+ *
+ * Most benchmarks call a Python function that repeats the operation measured {@link #LOOP}
+ * times in a <code>for</code> loop, so that the time reported for each operation includes a
+ * share of the loop; {@link CallBenchmark#emptyLoop} measures that share.
+ */
+final class Python {
+
+    /** The number of times each Python loop repeats the operation it measures. */
+    static final int LOOP = 1000;
+
+    private Python() {}
+
+    /**
+     * Run <code>source</code> as a module, with <code>LOOP</code> and the given objects defined,
+     * and return its globals.
+     *
+     * @param names alternating names and values of objects to define, values converted as by
+     *            {@link Py#java2py(Object)}
+     */
+    static PyObject exec(String source, Object... names) {
+        PySystemState.initialize();
+        PyStringMap globals = new PyStringMap();
+        globals.__setitem__("__name__", Py.newUnicode("benchmark"));
+        globals.__setitem__("LOOP", Py.newInteger(LOOP));
+        for (int i = 0; i < names.length; i += 2) {
+            globals.__setitem__((String) names[i], Py.java2py(names[i + 1]));
+        }
+        Py.runCode(Py.compile_flags(source, "<benchmark>", CompileMode.exec, new CompilerFlags()),
+                globals, globals);
+        return globals;
+    }
+}
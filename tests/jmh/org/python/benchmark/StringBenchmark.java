@@ -0,0 +1,168 @@
+package org.python.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.core.PyObject;
+
+/**
+ * String methods, formatting and conversion.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringBenchmark {
+
+    private static final String SOURCE = "s = 'The quick brown fox jumps over the lazy dog'\n"
+            + "u = 'Gr\\u00fc\\u00dfe aus K\\u00f6ln \\U0001f40d'\n"
+            + "words = s.split()\n"
+            + "b = s.encode('utf-8')\n"
+            + "def concat():\n"
+            + "    for i in range(LOOP): s + 'x'\n"
+            + "def join():\n"
+            + "    for i in range(LOOP): ' '.join(words)\n"
+            + "def split():\n"
+            + "    for i in range(LOOP): s.split()\n"
+            + "def upper():\n"
+            + "    for i in range(LOOP): s.upper()\n"
+            + "def replace():\n"
+            + "    for i in range(LOOP): s.replace('o', '0')\n"
+            + "def find():\n"
+            + "    for i in range(LOOP): s.find('lazy')\n"
+            + "def startswith():\n"
+            + "    for i in range(LOOP): s.startswith('The')\n"
+            + "def slice():\n"
+            + "    for i in range(LOOP): s[4:9]\n"
+            + "def index_unicode():\n"
+            + "    for i in range(LOOP): u[i % 14]\n"
+            + "def percent_format():\n"
+            + "    for i in range(LOOP): '%s-%d-%.2f' % (s, i, 0.5)\n"
+            + "def format_method():\n"
+            + "    for i in range(LOOP): '{}-{}-{:.2f}'.format(s, i, 0.5)\n"
+            + "def str_int():\n"
+            + "    for i in range(LOOP): str(i)\n"
+            + "def encode():\n"
+            + "    for i in range(LOOP): u.encode('utf-8')\n"
+            + "def decode():\n"
+            + "    for i in range(LOOP): b.decode('utf-8')\n";
+
+    private PyObject concat, join, split, upper, replace, find, startswith, slice, indexUnicode,
+            percentFormat, formatMethod, strInt, encode, decode;
+
+    @Setup
+    public void setup() {
+        PyObject globals = Python.exec(SOURCE);
+        concat = globals.__getitem__("concat");
+        join = globals.__getitem__("join");
+        split = globals.__getitem__("split");
+        upper = globals.__getitem__("upper");
+        replace = globals.__getitem__("replace");
+        find = globals.__getitem__("find");
+        startswith = globals.__getitem__("startswith");
+        slice = globals.__getitem__("slice");
+        indexUnicode = globals.__getitem__("index_unicode");
+        percentFormat = globals.__getitem__("percent_format");
+        formatMethod = globals.__getitem__("format_method");
+        strInt = globals.__getitem__("str_int");
+        encode = globals.__getitem__("encode");
+        decode = globals.__getitem__("decode");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject concat() {
+        return concat.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject join() {
+        return join.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject split() {
+        return split.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject upper() {
+        return upper.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject replace() {
+        return replace.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject find() {
+        return find.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject startswith() {
+        return startswith.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject slice() {
+        return slice.__call__();
+    }
+
+    /** Indexing a string with characters outside the BMP. */
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject indexUnicode() {
+        return indexUnicode.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject percentFormat() {
+        return percentFormat.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject formatMethod() {
+        return formatMethod.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject strInt() {
+        return strInt.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject encode() {
+        return encode.__call__();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Python.LOOP)
+    public PyObject decode() {
+        return decode.__call__();
+    }
+}
@@ -59,6 +59,20 @@ for JYTHON_HOME in "$SPACE_DIR" "$1" ; do
 	"$JYTHON" --profile -c "print __import__('Blob')" | \
 	  [ `egrep -c "Blob"` == 1 ]
 
+    # class data sharing archive: used when present, on Java 13 or later
+    FAKE_JAVA="$TEST_DIR/fake java"
+    mkdir -p "$FAKE_JAVA"
+    echo 'JAVA_VERSION="17.0.9"' > "$FAKE_JAVA/release"
+    JAVA_HOME="$FAKE_JAVA" JYTHON_CDS_ARCHIVE="$TEST_DIR/jython.jsa" \
+	"$JYTHON" --print | [ `egrep -c "SharedArchiveFile"` == 0 ]
+    touch "$TEST_DIR/jython.jsa"
+    JAVA_HOME="$FAKE_JAVA" JYTHON_CDS_ARCHIVE="$TEST_DIR/jython.jsa" \
+	"$JYTHON" --print | [ `egrep -c "SharedArchiveFile=.* -Xshare:auto"` == 1 ]
+    echo 'JAVA_VERSION="1.8.0_292"' > "$FAKE_JAVA/release"
+    JAVA_HOME="$FAKE_JAVA" JYTHON_CDS_ARCHIVE="$TEST_DIR/jython.jsa" \
+	"$JYTHON" --print | [ `egrep -c "SharedArchiveFile"` == 0 ]
+    rm -rf "$FAKE_JAVA" "$TEST_DIR/jython.jsa"
+
     set +ex
 done
 